@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.enhance.PCEnhancer;
+import org.apache.xbean.asm9.AnnotationVisitor;
+import org.apache.xbean.asm9.ClassWriter;
+import org.apache.xbean.asm9.FieldVisitor;
+import org.apache.xbean.asm9.MethodVisitor;
+import org.apache.xbean.asm9.Opcodes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of creating an EntityManagerFactory that preloads a generated
+ * model of {@link #ENTITIES} enhanced entities, with the metadata parsed
+ * by one thread or by one thread per processor. The model
+ * consists of inheritance hierarchies of {@link #HIERARCHY} entities whose
+ * roots refer to the previous root. Every invocation loads the model in a
+ * new class loader, so that each one starts as cold as an application does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BootstrapBenchmark {
+
+    public static final int ENTITIES = 1000;
+    public static final int HIERARCHY = 10;
+
+    private static final String PACKAGE = "org/apache/openjpa/benchmarks/generated/";
+
+    @Param({ "1", "0" })
+    public int preloadParallelism;
+
+    private Path _source;
+    private Path _enhanced;
+    private String _types;
+
+    @Setup
+    public void generateModel() throws IOException {
+        _source = Files.createTempDirectory("openjpa-model");
+        _enhanced = Files.createTempDirectory("openjpa-enhanced");
+        Files.createDirectories(_source.resolve(PACKAGE));
+
+        String[] names = new String[ENTITIES];
+        for (int i = 0; i < ENTITIES; i++) {
+            Files.write(_source.resolve(PACKAGE + "Entity" + i + ".class"), generate(i));
+            names[i] = (PACKAGE + "Entity" + i).replace('/', '.');
+        }
+        _types = String.join(";", names);
+
+        OpenJPAConfiguration conf = new OpenJPAConfigurationImpl();
+        conf.setMetaDataFactory("jpa(Types=" + _types + ")");
+        PCEnhancer.Flags flags = new PCEnhancer.Flags();
+        flags.directory = _enhanced.toFile();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { _source.toUri().toURL() },
+            getClass().getClassLoader())) {
+            PCEnhancer.run(conf, names, flags, null, null, loader);
+        } finally {
+            conf.close();
+        }
+    }
+
+    @TearDown
+    public void deleteModel() throws IOException {
+        delete(_source);
+        delete(_enhanced);
+    }
+
+    @Benchmark
+    public void createEntityManagerFactory() throws IOException {
+        Thread thread = Thread.currentThread();
+        ClassLoader contextLoader = thread.getContextClassLoader();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] { _enhanced.toUri().toURL() },
+            getClass().getClassLoader())) {
+            thread.setContextClassLoader(loader);
+            Map<String, Object> props = new HashMap<>();
+            props.put("javax.persistence.jdbc.url", "jdbc:derby:memory:bootstrap;create=true");
+            props.put("openjpa.MetaDataFactory", "jpa(Types=" + _types + ")");
+            props.put("openjpa.MetaDataRepository", "Preload=true,PreloadParallelism=" + preloadParallelism);
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory("bootstrap", props);
+            try {
+                emf.createEntityManager().close();
+            } finally {
+                emf.close();
+            }
+        } finally {
+            thread.setContextClassLoader(contextLoader);
+        }
+    }
+
+    /**
+     * Generate the class file of the entity with the given index. The first
+     * entity of each hierarchy is its root, with an identity, a version, a
+     * name and a relation to the previous root; the others add two fields.
+     */
+    private static byte[] generate(int index) {
+        int root = index - index % HIERARCHY;
+        String name = PACKAGE + "Entity" + index;
+        String sup = (index == root) ? "java/lang/Object" : PACKAGE + "Entity" + root;
+
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name, null, sup, null);
+        cw.visitAnnotation("Ljavax/persistence/Entity;", true).visitEnd();
+        if (index == root) {
+            field(cw, "id", "J", "Ljavax/persistence/Id;");
+            field(cw, "version", "I", "Ljavax/persistence/Version;");
+            field(cw, "name", "Ljava/lang/String;", null);
+            if (root >= HIERARCHY) {
+                field(cw, "previous", "L" + PACKAGE + "Entity" + (root - HIERARCHY) + ";",
+                    "Ljavax/persistence/ManyToOne;");
+            }
+        } else {
+            field(cw, "attribute" + index, "Ljava/lang/String;", null);
+            field(cw, "value" + index, "J", null);
+        }
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, sup, "<init>", "()V", false);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void field(ClassWriter cw, String name, String desc, String annotation) {
+        FieldVisitor fv = cw.visitField(Opcodes.ACC_PRIVATE, name, desc, null, null);
+        if (annotation != null) {
+            AnnotationVisitor av = fv.visitAnnotation(annotation, true);
+            av.visitEnd();
+        }
+        fv.visitEnd();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        if (dir == null)
+            return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
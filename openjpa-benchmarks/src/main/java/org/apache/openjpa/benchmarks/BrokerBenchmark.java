@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the {@link Broker} find, batch find, persist and flush
+ * operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BrokerBenchmark extends PersistenceBenchmark {
+
+    public static final int BATCH = 100;
+
+    private Broker _broker;
+    private Object[] _oids;
+    private int _next = 0;
+    private long _nextId = CUSTOMERS;
+
+    @Override
+    protected void setUp() {
+        _broker = JPAFacadeHelper.toBroker(emf.createEntityManager());
+        _oids = new Object[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++)
+            _oids[i] = _broker.newObjectId(Customer.class, (long) i);
+    }
+
+    @Override
+    protected void tearDown() {
+        _broker.close();
+    }
+
+    private Object nextOid() {
+        _next = (_next + 1) % CUSTOMERS;
+        return _oids[_next];
+    }
+
+    /**
+     * Find an instance that is already managed by the broker.
+     */
+    @Benchmark
+    public Object findManaged() {
+        return _broker.find(nextOid(), true, null);
+    }
+
+    /**
+     * Find an instance that is not managed by the broker yet, loading it
+     * from the database.
+     */
+    @Benchmark
+    public Object findUnmanaged() {
+        Object pc = _broker.find(nextOid(), true, null);
+        _broker.release(pc, null);
+        return pc;
+    }
+
+    /**
+     * Find a batch of {@link #BATCH} instances that are not managed by the
+     * broker yet, loading them from the database.
+     */
+    @Benchmark
+    public Object[] findAllUnmanaged() {
+        List<Object> oids = new ArrayList<>(BATCH);
+        for (int i = 0; i < BATCH; i++)
+            oids.add(nextOid());
+        Object[] pcs = _broker.findAll(oids, true, null);
+        _broker.releaseAll(Arrays.asList(pcs), null);
+        return pcs;
+    }
+
+    /**
+     * Persist a new instance and flush it to the database. The transaction
+     * is rolled back so that the database does not grow.
+     */
+    @Benchmark
+    public Object persistAndFlush() {
+        Customer customer = new Customer(_nextId++, "New");
+        _broker.begin();
+        try {
+            _broker.persist(customer, null);
+            _broker.flush();
+        } finally {
+            _broker.rollback();
+        }
+        return customer;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of concurrent access to the maps backing the data and query
+ * caches: {@link CacheMap} with its single lock against the lock-striped
+ * {@link StripedCacheMap}. Nine out of ten operations are reads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class CacheMapBenchmark {
+
+    private static final int KEYS = 10000;
+
+    @Param({ "cachemap", "striped" })
+    public String map;
+
+    @Param({ "true", "false" })
+    public boolean lru;
+
+    private Map<Object, Object> _map;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        if ("striped".equals(map))
+            _map = new StripedCacheMap(lru, KEYS, StripedCacheMap.DEFAULT_SEGMENTS);
+        else
+            _map = new CacheMap(lru, KEYS);
+        for (int i = 0; i < KEYS; i++)
+            _map.put(i, "value" + i);
+    }
+
+    @Benchmark
+    public Object getOrPut() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Integer key = random.nextInt(KEYS);
+        if (random.nextInt(10) == 0)
+            return _map.put(key, "value" + key);
+        return _map.get(key);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.datacache.DataCacheStoreManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmark of finding instances that are not managed by the persistence
+ * context yet, with and without the data cache. With the data cache enabled
+ * every find is a {@link DataCacheStoreManager} hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataCacheBenchmark extends PersistenceBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean dataCache;
+
+    private EntityManager _em;
+    private int _next = 0;
+
+    @Override
+    protected Map<String, Object> getProperties() {
+        Map<String, Object> props = super.getProperties();
+        props.put("openjpa.DataCache", String.valueOf(dataCache));
+        props.put("openjpa.RemoteCommitProvider", "sjvm");
+        return props;
+    }
+
+    @Override
+    protected void setUp() {
+        _em = emf.createEntityManager();
+    }
+
+    @Override
+    protected void tearDown() {
+        _em.close();
+    }
+
+    @Benchmark
+    public Customer find() {
+        _next = (_next + 1) % CUSTOMERS;
+        Customer customer = _em.find(Customer.class, (long) _next);
+        _em.clear();
+        return customer;
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.ExpressionStoreQuery;
+import org.apache.openjpa.kernel.Query;
+import org.apache.openjpa.kernel.QueryImpl;
+import org.apache.openjpa.kernel.StoreQuery;
+import org.apache.openjpa.kernel.exps.CompiledFilter;
+import org.apache.openjpa.kernel.exps.Exp;
+import org.apache.openjpa.kernel.jpql.JPQLParser;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of in-memory query filtering over {@link #CANDIDATES} managed
+ * customers, the customers of the database repeated. The filter is matched
+ * by evaluating its {@link Exp} tree and by its {@link CompiledFilter}, and
+ * the whole query is executed against the candidates as a candidate
+ * collection.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryFilterBenchmark extends PersistenceBenchmark {
+
+    public static final int CANDIDATES = 1000000;
+
+    private static final String JPQL = "SELECT c FROM Customer c"
+        + " WHERE c.rating >= :rating AND (c.name = :name OR c.id > :id)";
+
+    private Broker _broker;
+    private List<Object> _candidates;
+    private Map<String, Object> _params;
+    private Object[] _paramArray;
+    private Exp _filter;
+    private CompiledFilter _compiled;
+
+    @Override
+    protected void setUp() {
+        _broker = JPAFacadeHelper.toBroker(emf.createEntityManager());
+        List<?> customers = (List<?>) _broker.newQuery(JPQLParser.LANG_JPQL,
+            "SELECT c FROM Customer c").execute();
+        _candidates = new ArrayList<>(CANDIDATES);
+        for (int i = 0; i < CANDIDATES; i++)
+            _candidates.add(customers.get(i % customers.size()));
+
+        _params = new HashMap<>();
+        _params.put("rating", 0);
+        _params.put("name", "Customer1");
+        _params.put("id", (long) CUSTOMERS / 2);
+
+        Query query = _broker.newQuery(JPQLParser.LANG_JPQL, JPQL);
+        ExpressionStoreQuery store = (ExpressionStoreQuery) ((QueryImpl) query).getStoreQuery();
+        ClassMetaData meta = _broker.getConfiguration().getMetaDataRepositoryInstance()
+            .getMetaData(Customer.class, null, true);
+        StoreQuery.Executor executor = store.newInMemoryExecutor(meta, true);
+        _filter = (Exp) executor.getQueryExpressions()[0].filter;
+        _paramArray = executor.toParameterArray(store, _params);
+        _compiled = CompiledFilter.compile(_filter);
+    }
+
+    @Override
+    protected void tearDown() {
+        _broker.close();
+    }
+
+    @Benchmark
+    public int interpreted() {
+        int matches = 0;
+        for (Object candidate : _candidates)
+            if (_filter.evaluate(candidate, candidate, _broker, _paramArray))
+                matches++;
+        return matches;
+    }
+
+    @Benchmark
+    public int compiled() {
+        int matches = 0;
+        for (Object candidate : _candidates)
+            if (_compiled.matches(candidate, _broker, _paramArray))
+                matches++;
+        return matches;
+    }
+
+    @Benchmark
+    public int query() {
+        Query query = _broker.newQuery(JPQLParser.LANG_JPQL, JPQL);
+        query.setCandidateCollection(_candidates);
+        int size = ((List<?>) query.execute(_params)).size();
+        query.closeAll();
+        return size;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.Query;
+import org.apache.openjpa.kernel.jpql.JPQLExpressionBuilder;
+import org.apache.openjpa.kernel.jpql.JPQLParser;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of JPQL compilation, which parses the query and builds its
+ * expression tree through {@link JPQLExpressionBuilder}. The query
+ * compilation cache is disabled so that every query is compiled again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JPQLBenchmark extends PersistenceBenchmark {
+
+    private static final String SIMPLE = "SELECT c FROM Customer c WHERE c.name = :name";
+    private static final String JOIN = "SELECT o FROM PurchaseOrder o JOIN o.customer c"
+        + " WHERE c.rating > :rating AND o.amount BETWEEN :low AND :high AND o.status IN ('NEW', 'PAID')"
+        + " ORDER BY o.placed DESC";
+
+    private Broker _broker;
+
+    @Override
+    protected Map<String, Object> getProperties() {
+        Map<String, Object> props = super.getProperties();
+        props.put("openjpa.QueryCompilationCache", "false");
+        return props;
+    }
+
+    @Override
+    protected void setUp() {
+        _broker = JPAFacadeHelper.toBroker(emf.createEntityManager());
+    }
+
+    @Override
+    protected void tearDown() {
+        _broker.close();
+    }
+
+    private Query compile(String jpql) {
+        Query query = _broker.newQuery(JPQLParser.LANG_JPQL, jpql);
+        query.compile();
+        return query;
+    }
+
+    @Benchmark
+    public Query compileSimple() {
+        return compile(SIMPLE);
+    }
+
+    @Benchmark
+    public Query compileJoin() {
+        return compile(JOIN);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.benchmarks.model.PurchaseOrder;
+import org.apache.openjpa.datacache.DataCachePCDataImpl;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.kernel.PCData;
+import org.apache.openjpa.kernel.PCDataCodec;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of encoding and decoding the cached state of a
+ * {@link PurchaseOrder}, as done by the off-heap data cache, using Java
+ * serialization against the {@link PCDataCodec}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PCDataCodecBenchmark extends PersistenceBenchmark {
+
+    private DataCachePCDataImpl _data;
+    private PCDataCodec _codec;
+    private byte[] _serialized;
+    private byte[] _binary;
+
+    @Override
+    protected void setUp() {
+        EntityManager em = emf.createEntityManager();
+        PurchaseOrder order = em.find(PurchaseOrder.class, 1L);
+        OpenJPAStateManager sm = JPAFacadeHelper.toBroker(em).getStateManager(order);
+        _data = new DataCachePCDataImpl(sm.getObjectId(), sm.getMetaData());
+        _data.store(sm);
+        em.close();
+
+        _codec = new PCDataCodec(emf.getConfiguration().getMetaDataRepositoryInstance());
+        _serialized = serializedEncode();
+        _binary = binaryEncode();
+    }
+
+    @Benchmark
+    public byte[] serializedEncode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(_data);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object serializedDecode() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(_serialized))) {
+            return in.readObject();
+        }
+    }
+
+    @Benchmark
+    public byte[] binaryEncode() {
+        try {
+            return _codec.toBytes(_data);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException(ioe);
+        }
+    }
+
+    @Benchmark
+    public PCData binaryDecode() throws IOException {
+        return _codec.fromBytes(_binary);
+    }
+}
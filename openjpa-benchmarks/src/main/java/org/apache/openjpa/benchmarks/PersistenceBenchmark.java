@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.benchmarks.model.PurchaseOrder;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Base class of the benchmark states that need a persistence unit. Every
+ * instance runs against its own in-memory Derby database populated with
+ * {@link #CUSTOMERS} customers and one order per customer.
+ */
+public abstract class PersistenceBenchmark {
+
+    public static final int CUSTOMERS = 1000;
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    protected OpenJPAEntityManagerFactorySPI emf;
+    private String _database;
+
+    /**
+     * Properties to add to the <code>benchmarks</code> persistence unit.
+     */
+    protected Map<String, Object> getProperties() {
+        return new HashMap<>();
+    }
+
+    /**
+     * Prepare the benchmark once the database is populated.
+     */
+    protected void setUp() {
+    }
+
+    /**
+     * Release the benchmark resources before the database is dropped.
+     */
+    protected void tearDown() {
+    }
+
+    @Setup
+    public void setUpPersistenceUnit() {
+        _database = getClass().getSimpleName() + DATABASES.incrementAndGet();
+        Map<String, Object> props = getProperties();
+        props.put("javax.persistence.jdbc.url", "jdbc:derby:memory:" + _database + ";create=true");
+        emf = (OpenJPAEntityManagerFactorySPI) Persistence.createEntityManagerFactory("benchmarks", props);
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer(i, "Customer" + i);
+            em.persist(customer);
+            em.persist(new PurchaseOrder(i, customer, i * 1.5));
+        }
+        em.getTransaction().commit();
+        em.close();
+        setUp();
+    }
+
+    @TearDown
+    public void tearDownPersistenceUnit() {
+        tearDown();
+        emf.close();
+        try {
+            DriverManager.getConnection("jdbc:derby:memory:" + _database + ";drop=true").close();
+        } catch (SQLException e) {
+            // derby reports a successful drop as an exception
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.jdbc.kernel.PreparedQueryCacheImpl;
+import org.apache.openjpa.jdbc.kernel.PreparedQueryImpl;
+import org.apache.openjpa.kernel.PreparedQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of concurrent lookups in the prepared query cache. One out of
+ * twenty lookups is for a query string that is not cached yet, which is
+ * then cached. The cache has room for twice the frequently used queries, so
+ * once it is full the eviction policy has to keep them cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PreparedQueryCacheBenchmark {
+
+    private static final int QUERIES = 1000;
+
+    @Param({ "lru", "lfu" })
+    public String evictionPolicy;
+
+    private PreparedQueryCacheImpl _cache;
+    private String[] _queries;
+
+    @Setup
+    public void setUp() {
+        _cache = new PreparedQueryCacheImpl();
+        _cache.setMaxCacheSize(2 * QUERIES);
+        _cache.setEvictionPolicy(evictionPolicy);
+        _cache.endConfiguration();
+        _queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            _queries[i] = "select o from PurchaseOrder o where o.id = " + i;
+            _cache.cache(new PreparedQueryImpl(_queries[i], "SELECT " + i, null));
+        }
+    }
+
+    @Benchmark
+    public PreparedQuery getOrCache() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String query = random.nextInt(20) == 0
+            ? "select o from PurchaseOrder o where o.amount > " + random.nextInt()
+            : _queries[random.nextInt(QUERIES)];
+        PreparedQuery pq = _cache.get(query);
+        if (pq == null)
+            _cache.cache(pq = new PreparedQueryImpl(query, "SELECT", null));
+        return pq;
+    }
+}
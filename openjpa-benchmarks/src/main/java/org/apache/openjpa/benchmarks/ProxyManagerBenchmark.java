@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.util.ProxyManagerImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Setup;
+
+/**
+ * Benchmarks of the copies {@link ProxyManagerImpl} makes of second class
+ * objects, both of plain instances and of proxies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyManagerBenchmark {
+
+    private static final int SIZE = 100;
+
+    private ProxyManagerImpl _mgr;
+    private List<String> _list;
+    private Collection<String> _proxyList;
+    private Map<String, Integer> _map;
+    private Date _date;
+    private Calendar _calendar;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        _mgr = new ProxyManagerImpl();
+        _list = new ArrayList<>();
+        _map = new HashMap<>();
+        for (int i = 0; i < SIZE; i++) {
+            _list.add("value" + i);
+            _map.put("key" + i, i);
+        }
+        _proxyList = (Collection<String>) _mgr.newCollectionProxy(ArrayList.class, String.class, null, true);
+        _proxyList.addAll(_list);
+        _date = new Date();
+        _calendar = Calendar.getInstance();
+    }
+
+    @Benchmark
+    public Object copyList() {
+        return _mgr.copyCollection(_list);
+    }
+
+    @Benchmark
+    public Object copyProxyList() {
+        return _mgr.copyCollection(_proxyList);
+    }
+
+    @Benchmark
+    public Object copyMap() {
+        return _mgr.copyMap(_map);
+    }
+
+    @Benchmark
+    public Object copyDate() {
+        return _mgr.copyDate(_date);
+    }
+
+    @Benchmark
+    public Object copyCalendar() {
+        return _mgr.copyCalendar(_calendar);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.event.CompactRemoteCommitEventCodec;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.event.TCPRemoteCommitProvider;
+import org.apache.openjpa.util.LongId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of encoding and decoding the events sent by the
+ * {@link TCPRemoteCommitProvider}, using Java serialization as done by the
+ * default codec against the {@link CompactRemoteCommitEventCodec}. Every
+ * operation is a round trip of a batch of events.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoteCommitCodecBenchmark {
+
+    private static final Class<?>[] TYPES = { String.class, Integer.class, Long.class };
+
+    @Param({ "10" })
+    public int events;
+
+    @Param({ "20" })
+    public int oidsPerEvent;
+
+    private List<RemoteCommitEvent> _events;
+    private CompactRemoteCommitEventCodec _codec;
+
+    @Setup
+    public void setUp() {
+        _codec = new CompactRemoteCommitEventCodec();
+        _events = new ArrayList<>();
+        long id = 0;
+        for (int i = 0; i < events; i++) {
+            List<Object> updates = new ArrayList<>();
+            for (int j = 0; j < oidsPerEvent; j++, id++)
+                updates.add(new LongId(TYPES[j % TYPES.length], id));
+            _events.add(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+                Collections.emptyList(), updates, Collections.emptyList()));
+        }
+    }
+
+    @Benchmark
+    public Object serialized() throws IOException, ClassNotFoundException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (RemoteCommitEvent event : _events) {
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.writeObject(event);
+            out.flush();
+        }
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        List<Object> read = new ArrayList<>(_events.size());
+        for (int i = 0; i < _events.size(); i++)
+            read.add(new ObjectInputStream(in).readObject());
+        return read;
+    }
+
+    @Benchmark
+    public Object compact() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        _codec.encode(_events, out);
+        out.flush();
+        return _codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.benchmarks.model.PurchaseOrder;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfigurationImpl;
+import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.jdbc.meta.MappingRepository;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.ForeignKey;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.Joins;
+import org.apache.openjpa.jdbc.sql.SQLBuffer;
+import org.apache.openjpa.jdbc.sql.SelectImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the SQL generation of {@link SelectImpl} for a select of
+ * orders joined to their customers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SelectBenchmark extends PersistenceBenchmark {
+
+    private JDBCConfiguration _conf;
+    private DBDictionary _dict;
+    private JDBCFetchConfiguration _fetch;
+    private ClassMapping _order;
+    private ClassMapping _customer;
+    private ForeignKey _customerFk;
+    private Column _status;
+    private Column _amount;
+
+    @Override
+    protected void setUp() {
+        _conf = (JDBCConfiguration) emf.getConfiguration();
+        _dict = _conf.getDBDictionaryInstance();
+        _fetch = new JDBCFetchConfigurationImpl();
+        MappingRepository repos = _conf.getMappingRepositoryInstance();
+        _order = repos.getMapping(PurchaseOrder.class, null, true);
+        _customer = repos.getMapping(Customer.class, null, true);
+        _customerFk = _order.getFieldMapping("customer").getForeignKey();
+        _status = _order.getFieldMapping("status").getColumns()[0];
+        _amount = _order.getFieldMapping("amount").getColumns()[0];
+    }
+
+    @Benchmark
+    public String toSelect() {
+        SelectImpl sel = new SelectImpl(_conf);
+        sel.select(_order.getTable().getColumns());
+        Joins joins = sel.newJoins().join(_customerFk, false, false);
+        sel.select(_customer.getTable().getColumns(), joins);
+        sel.where(new SQLBuffer(_dict).append(_status).append(" = ").appendValue("NEW", _status));
+        sel.orderBy(_amount, false, false);
+        return sel.toSelect(false, _fetch).getSQL();
+    }
+}
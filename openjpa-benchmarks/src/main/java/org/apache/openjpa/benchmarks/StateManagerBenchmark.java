@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.kernel.StateManagerImpl;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the field access, field loading and dirty tracking done by
+ * {@link StateManagerImpl} for enhanced instances.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateManagerBenchmark extends PersistenceBenchmark {
+
+    private Broker _broker;
+    private Customer[] _customers;
+    private int _next = 0;
+
+    @Override
+    protected void setUp() {
+        _broker = JPAFacadeHelper.toBroker(emf.createEntityManager());
+        _customers = new Customer[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++)
+            _customers[i] = (Customer) _broker.find(_broker.newObjectId(Customer.class, (long) i), true, null);
+    }
+
+    @Override
+    protected void tearDown() {
+        _broker.close();
+    }
+
+    @Setup(Level.Iteration)
+    public void begin() {
+        _broker.begin();
+    }
+
+    @TearDown(Level.Iteration)
+    public void rollback() {
+        _broker.rollback();
+    }
+
+    private Customer nextCustomer() {
+        _next = (_next + 1) % CUSTOMERS;
+        return _customers[_next];
+    }
+
+    /**
+     * Read the fields of a loaded instance.
+     */
+    @Benchmark
+    public void readFields(Blackhole bh) {
+        Customer customer = nextCustomer();
+        bh.consume(customer.getName());
+        bh.consume(customer.getEmail());
+        bh.consume(customer.getRating());
+        bh.consume(customer.getCreated());
+    }
+
+    /**
+     * Evict an instance and read its fields, which loads them from the
+     * database.
+     */
+    @Benchmark
+    public void loadFields(Blackhole bh) {
+        Customer customer = nextCustomer();
+        _broker.evict(customer, null);
+        bh.consume(customer.getName());
+        bh.consume(customer.getEmail());
+        bh.consume(customer.getRating());
+        bh.consume(customer.getCreated());
+    }
+
+    /**
+     * Modify the fields of an instance within a transaction.
+     */
+    @Benchmark
+    public Customer dirtyFields() {
+        Customer customer = nextCustomer();
+        customer.setName("Customer" + _next);
+        customer.setRating(customer.getRating() + 1);
+        customer.setCreated(new Date());
+        return customer;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import org.apache.openjpa.benchmarks.model.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the time to the first query of an XML store whose directory
+ * holds about {@link #megabytes} of customers. Every invocation opens the
+ * store with a new EntityManagerFactory, so that the data file is parsed
+ * again. A find by oid returns as soon as the instance is parsed, while a
+ * query waits for the whole file.
+ *
+ * Every customer has a positive rating, so the query returns all of them.
+ *
+ * The store keeps all instances in memory, so the default size needs a
+ * large heap. The default size also runs in 4 GB, with
+ * <code>-jvmArgsAppend -Xmx4g</code>, and <code>-p megabytes=64</code> runs
+ * with the default heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class XMLStoreLoadBenchmark {
+
+    private static final int CUSTOMERS_PER_COMMIT = 10000;
+
+    @Param({ "1024" })
+    public int megabytes;
+
+    @Param({ "false", "true" })
+    public boolean preloadData;
+
+    private Path _directory;
+    private int _customers;
+
+    @Setup
+    public void generateData() throws IOException {
+        _directory = Files.createTempDirectory("openjpa-xmlstore");
+        Map<String, Object> props = getProperties();
+        props.put("openjpa.CompactionInterval", "0");
+        props.put("openjpa.JournalSync", "false");
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("xmlstore", props);
+        try {
+            // the journal holds all commits until the factory is closed,
+            // and is smaller than the indented data file it is compacted to
+            Path journal = _directory.resolve(".journal");
+            long size = (long) megabytes << 20;
+            EntityManager em = emf.createEntityManager();
+            do {
+                em.getTransaction().begin();
+                for (int i = 0; i < CUSTOMERS_PER_COMMIT; i++, _customers++) {
+                    Customer customer = new Customer(_customers, "Customer" + _customers);
+                    customer.setRating(1 + _customers % 5);
+                    em.persist(customer);
+                }
+                em.getTransaction().commit();
+                em.clear();
+            } while (Files.size(journal) < size);
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    @TearDown
+    public void deleteData() throws IOException {
+        try (Stream<Path> paths = Files.walk(_directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    private Map<String, Object> getProperties() {
+        Map<String, Object> props = new HashMap<>();
+        props.put("javax.persistence.jdbc.url", _directory.toString());
+        props.put("openjpa.PreloadData", String.valueOf(preloadData));
+        return props;
+    }
+
+    @Benchmark
+    public Customer find() {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("xmlstore", getProperties());
+        try {
+            EntityManager em = emf.createEntityManager();
+            Customer customer = em.find(Customer.class, (long) _customers / 2);
+            em.close();
+            return customer;
+        } finally {
+            emf.close();
+        }
+    }
+
+    @Benchmark
+    public List<?> query() {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("xmlstore", getProperties());
+        try {
+            EntityManager em = emf.createEntityManager();
+            List<?> customers = em.createQuery("SELECT c FROM Customer c WHERE c.rating > 0")
+                .getResultList();
+            em.close();
+            return customers;
+        } finally {
+            emf.close();
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class BootstrapBenchmark_jmhType extends BootstrapBenchmark_jmhType_B3 {
+}
+
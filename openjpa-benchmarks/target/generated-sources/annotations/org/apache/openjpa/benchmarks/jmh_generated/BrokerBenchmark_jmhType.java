@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class BrokerBenchmark_jmhType extends BrokerBenchmark_jmhType_B3 {
+}
+
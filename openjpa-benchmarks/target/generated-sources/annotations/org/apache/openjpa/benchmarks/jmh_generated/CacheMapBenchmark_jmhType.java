@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class CacheMapBenchmark_jmhType extends CacheMapBenchmark_jmhType_B3 {
+}
+
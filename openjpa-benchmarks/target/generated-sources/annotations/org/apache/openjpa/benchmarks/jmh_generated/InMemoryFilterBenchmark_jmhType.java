@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class InMemoryFilterBenchmark_jmhType extends InMemoryFilterBenchmark_jmhType_B3 {
+}
+
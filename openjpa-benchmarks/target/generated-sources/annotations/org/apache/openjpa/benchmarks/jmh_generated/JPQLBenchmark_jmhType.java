@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class JPQLBenchmark_jmhType extends JPQLBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class PCDataCodecBenchmark_jmhType extends PCDataCodecBenchmark_jmhType_B3 {
+}
+
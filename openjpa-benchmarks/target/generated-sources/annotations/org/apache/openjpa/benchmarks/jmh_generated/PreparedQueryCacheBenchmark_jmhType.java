@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class PreparedQueryCacheBenchmark_jmhType extends PreparedQueryCacheBenchmark_jmhType_B3 {
+}
+
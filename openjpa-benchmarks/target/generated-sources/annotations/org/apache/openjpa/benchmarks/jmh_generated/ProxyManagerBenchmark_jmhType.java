@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class ProxyManagerBenchmark_jmhType extends ProxyManagerBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class RemoteCommitCodecBenchmark_jmhType extends RemoteCommitCodecBenchmark_jmhType_B3 {
+}
+
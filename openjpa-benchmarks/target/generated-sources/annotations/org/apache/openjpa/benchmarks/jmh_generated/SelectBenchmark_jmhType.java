@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class SelectBenchmark_jmhType extends SelectBenchmark_jmhType_B3 {
+}
+
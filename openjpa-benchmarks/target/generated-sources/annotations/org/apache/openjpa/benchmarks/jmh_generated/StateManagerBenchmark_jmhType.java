@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class StateManagerBenchmark_jmhType extends StateManagerBenchmark_jmhType_B3 {
+}
+
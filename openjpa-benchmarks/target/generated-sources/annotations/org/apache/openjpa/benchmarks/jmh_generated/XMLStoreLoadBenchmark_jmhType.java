@@ -0,0 +1,4 @@
+package org.apache.openjpa.benchmarks.jmh_generated;
+public class XMLStoreLoadBenchmark_jmhType extends XMLStoreLoadBenchmark_jmhType_B3 {
+}
+
@@ -18,6 +18,8 @@
  */
 package org.apache.openjpa.jdbc.conf;
 
+import java.util.concurrent.ExecutorService;
+
 import javax.sql.DataSource;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -36,6 +38,7 @@ import org.apache.openjpa.lib.identifier.IdentifierUtil;
 import org.apache.openjpa.lib.jdbc.ConnectionDecorator;
 import org.apache.openjpa.lib.jdbc.JDBCEvent;
 import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCStatistics;
 import org.apache.openjpa.meta.MetaDataFactory;
 
 /**
@@ -280,6 +283,37 @@ public interface JDBCConfiguration
      */
     void setEagerFetchMode(int eagerFetchMode);
 
+    /**
+     * The number of <code>parallel</code> mode eager selects of a result
+     * that may execute at the same time, each on its own connection.
+     * Defaults to 1, which executes them one after another on the connection
+     * of the result. The selects execute concurrently only outside of a
+     * transaction, or in an unmanaged optimistic transaction that has not
+     * flushed and whose isolation level is read committed or lower.
+     *
+     * @since 3.2.3
+     */
+    int getEagerFetchParallelism();
+
+    /**
+     * The number of <code>parallel</code> mode eager selects of a result
+     * that may execute at the same time, each on its own connection.
+     *
+     * @since 3.2.3
+     */
+    void setEagerFetchParallelism(int parallelism);
+
+    /**
+     * The executor of concurrent eager selects, shared by all the contexts
+     * of this configuration. Its threads are one fewer than the
+     * {@link #getEagerFetchParallelism eager fetch parallelism}, as the
+     * thread reading the result takes part in executing its selects.
+     * Null if the parallelism is 1 or less.
+     *
+     * @since 3.2.3
+     */
+    ExecutorService getEagerFetchExecutor();
+
     /**
      * Specifies the default subclass fetch mode to use. Defaults to
      * <code>join</code> unless the query is by-oid. Possible values are:
@@ -629,4 +663,11 @@ public interface JDBCConfiguration
      */
     void setIdentifierUtil(DBIdentifierUtil util);
 
+    /**
+     * The statistics of the statements executed on the connections of
+     * this configuration's data sources, collected while enabled.
+     *
+     * @since 3.2.3
+     */
+    JDBCStatistics getJDBCStatistics();
 }
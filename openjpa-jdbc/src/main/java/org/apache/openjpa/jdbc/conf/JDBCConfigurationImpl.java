@@ -21,6 +21,11 @@ package org.apache.openjpa.jdbc.conf;
 import java.sql.Connection;
 import java.sql.ResultSet;
 import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sql.DataSource;
 
@@ -53,6 +58,7 @@ import org.apache.openjpa.lib.conf.StringValue;
 import org.apache.openjpa.lib.jdbc.ConnectionDecorator;
 import org.apache.openjpa.lib.jdbc.DecoratingDataSource;
 import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCStatistics;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
@@ -75,6 +81,7 @@ public class JDBCConfigurationImpl
     public IntValue resultSetType;
     public IntValue fetchDirection;
     public FetchModeValue eagerFetchMode;
+    public IntValue eagerFetchParallelism;
     public FetchModeValue subclassFetchMode;
     public IntValue lrsSize;
     public StringValue synchronizeMappings;
@@ -94,6 +101,8 @@ public class JDBCConfigurationImpl
     private String firstPass = null;
     private DecoratingDataSource dataSource = null;
     private DecoratingDataSource dataSource2 = null;
+    private final JDBCStatistics jdbcStatistics = new JDBCStatistics();
+    private ExecutorService eagerFetchExecutor = null;
 
     private static final Localizer _loc = Localizer.forPackage(JDBCConfigurationImpl.class);
 
@@ -172,6 +181,10 @@ public class JDBCConfigurationImpl
         eagerFetchMode.set(EagerFetchModes.EAGER_PARALLEL);
         addValue(eagerFetchMode);
 
+        eagerFetchParallelism = addInt("jdbc.EagerFetchParallelism");
+        eagerFetchParallelism.setDefault("1");
+        eagerFetchParallelism.set(1);
+
         subclassFetchMode = new FetchModeValue("jdbc.SubclassFetchMode");
         subclassFetchMode.setDefault(FetchModeValue.EAGER_JOIN);
         subclassFetchMode.set(EagerFetchModes.EAGER_JOIN);
@@ -496,6 +509,35 @@ public class JDBCConfigurationImpl
         return eagerFetchMode.get();
     }
 
+    @Override
+    public void setEagerFetchParallelism(int parallelism) {
+        eagerFetchParallelism.set(parallelism);
+    }
+
+    @Override
+    public int getEagerFetchParallelism() {
+        return eagerFetchParallelism.get();
+    }
+
+    @Override
+    public synchronized ExecutorService getEagerFetchExecutor() {
+        int threads = getEagerFetchParallelism() - 1;
+        if (eagerFetchExecutor == null && threads > 0) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "openjpa-eager-fetch-"
+                        + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+            executor.allowCoreThreadTimeOut(true);
+            eagerFetchExecutor = executor;
+        }
+        return eagerFetchExecutor;
+    }
+
     @Override
     public void setSubclassFetchMode(String subclassFetchMode) {
         this.subclassFetchMode.setString(subclassFetchMode);
@@ -1052,6 +1094,12 @@ public class JDBCConfigurationImpl
             getDBDictionaryInstance().closeDataSource(dataSource);
             connectionFactory2.set(null, true); // so super doesn't close it
         }
+        synchronized (this) {
+            if (eagerFetchExecutor != null) {
+                eagerFetchExecutor.shutdown();
+                eagerFetchExecutor = null;
+            }
+        }
         super.preClose();
     }
 
@@ -1086,4 +1134,9 @@ public class JDBCConfigurationImpl
         identifierUtilPlugin.set(util);
     }
 
+    @Override
+    public JDBCStatistics getJDBCStatistics() {
+        return jdbcStatistics;
+    }
+
 }
@@ -38,17 +38,49 @@ import org.apache.openjpa.util.OpenJPAException;
  *   < property name="openjpa.jdbc.UpdateManager"
  *     value="org.apache.openjpa.jdbc.kernel.YourOperationOrderUpdateManager" />
  * </PRE></P>
+ * <P>With the <code>MultiStatementBatching</code> property set, rows for
+ * different SQL statements are collected in separate batches that are
+ * executed in dependency order, rather than executing the current batch
+ * whenever the SQL changes:
+ * <PRE>
+ *   < property name="openjpa.jdbc.UpdateManager"
+ *     value="batching-constraint(MultiStatementBatching=true)" />
+ * </PRE></P>
  * @author Teresa Kan
  */
 
 public class BatchingConstraintUpdateManager extends ConstraintUpdateManager {
 
+    private boolean _multiStatement = false;
+
+    /**
+     * Whether to keep one open batch per distinct SQL statement during a
+     * flush. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public boolean isMultiStatementBatching() {
+        return _multiStatement;
+    }
+
+    /**
+     * Whether to keep one open batch per distinct SQL statement during a
+     * flush. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setMultiStatementBatching(boolean multiStatement) {
+        _multiStatement = multiStatement;
+    }
+
     @Override
     protected PreparedStatementManager newPreparedStatementManager(
         JDBCStore store, Connection conn) {
         int batchLimit = dict.getBatchLimit();
-        return new BatchingPreparedStatementManagerImpl(store, conn,
-            batchLimit);
+        BatchingPreparedStatementManagerImpl psMgr =
+            new BatchingPreparedStatementManagerImpl(store, conn, batchLimit);
+        psMgr.setMultiStatementBatching(_multiStatement);
+        return psMgr;
     }
 
     /*
@@ -63,6 +95,7 @@ public class BatchingConstraintUpdateManager extends ConstraintUpdateManager {
             (BatchingPreparedStatementManagerImpl) psMgr;
         try {
             bPsMgr.flushBatch();
+            bPsMgr.logBatchStatistics();
         } catch (SQLException se) {
             exceps = addException(exceps, SQLExceptions.getStore(se, dict));
         } catch (OpenJPAException ke) {
@@ -65,6 +65,7 @@ public class BatchingOperationOrderUpdateManager extends
             (BatchingPreparedStatementManagerImpl) psMgr;
         try {
             bPsMgr.flushBatch();
+            bPsMgr.logBatchStatistics();
         } catch (SQLException se) {
             exceps = addException(exceps, SQLExceptions.getStore(se, dict));
         } catch (OpenJPAException ke) {
@@ -24,10 +24,14 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.ForeignKey;
+import org.apache.openjpa.jdbc.schema.Table;
 import org.apache.openjpa.jdbc.sql.Row;
 import org.apache.openjpa.jdbc.sql.RowImpl;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
@@ -40,6 +44,15 @@ import org.apache.openjpa.util.OptimisticException;
  * Batch prepared statement manager implementation. This prepared statement
  * manager will utilize the JDBC addBatch() and exceuteBatch() to batch the SQL
  * statements together to improve the execution performance.
+ * <p>
+ * By default a batch is executed as soon as the SQL of the next row differs
+ * from the batched SQL. In {@link #setMultiStatementBatching multi-statement}
+ * mode one batch is kept open per distinct SQL statement instead, so that
+ * interleaved rows for several tables (e.g. parent/child inserts) still end
+ * up in large batches. A row only joins an earlier batch when it does not
+ * depend on, and is not depended upon by, the rows of the batches opened
+ * after it; otherwise all open batches are first executed in the order they
+ * were opened.
  *
  * @author Teresa Kan
  */
@@ -54,6 +67,17 @@ public class BatchingPreparedStatementManagerImpl extends
     private List<RowImpl> _batchedRows = new ArrayList<>();
     private int _batchLimit;
     private boolean _disableBatch = false;
+    private boolean _multiStatement = false;
+
+    // open batches by SQL, in the order they were opened
+    private final Map<String, List<RowImpl>> _openBatches =
+        new LinkedHashMap<>();
+
+    // statistics on the statements executed by this manager
+    private int _statementCount = 0;
+    private int _batchCount = 0;
+    private int _batchedRowCount = 0;
+    private int _largestBatch = 0;
 
     /**
      * Constructor. Supply connection.
@@ -78,6 +102,7 @@ public class BatchingPreparedStatementManagerImpl extends
             flushBatch();
 
             super.flushAndUpdate(row);
+            _statementCount++;
         } else {
             // process the SQL statement, either execute it immediately or
             // batch it for later execution.
@@ -87,6 +112,10 @@ public class BatchingPreparedStatementManagerImpl extends
 
     protected void batchOrExecuteRow(RowImpl row) throws SQLException {
         String sql = row.getSQL(_dict);
+        if (_multiStatement) {
+            batchRow(sql, row);
+            return;
+        }
         if (_batchedSql == null) {
             // brand new SQL
             _batchedSql = sql;
@@ -99,6 +128,7 @@ public class BatchingPreparedStatementManagerImpl extends
                 // single entry in cache, direct SQL execution.
                 try {
                     super.flushAndUpdate((RowImpl) _batchedRows.get(0));
+                    _statementCount++;
                 } finally {
                     _batchedSql = null;
                     _batchedRows.clear();
@@ -113,6 +143,76 @@ public class BatchingPreparedStatementManagerImpl extends
         _batchedRows.add(row);
     }
 
+    /**
+     * Add the given row to the open batch for its SQL, executing the open
+     * batches first if the row cannot be moved ahead of the batches that
+     * were opened after its own.
+     */
+    private void batchRow(String sql, RowImpl row) throws SQLException {
+        List<RowImpl> batch = _openBatches.get(sql);
+        if (batch != null && !canJoin(sql, row)) {
+            flushBatch();
+            batch = null;
+        }
+        if (batch == null) {
+            batch = new ArrayList<>();
+            _openBatches.put(sql, batch);
+        }
+        batch.add(row);
+    }
+
+    /**
+     * Whether the given row may be added to the open batch for
+     * <code>sql</code>, which effectively executes it before the rows of all
+     * batches opened later.
+     */
+    private boolean canJoin(String sql, RowImpl row) {
+        boolean later = false;
+        for (Map.Entry<String, List<RowImpl>> entry : _openBatches.entrySet()) {
+            if (later && dependsOn(row, entry.getValue().get(0)))
+                return false;
+            later = later || entry.getKey().equals(sql);
+        }
+        return true;
+    }
+
+    /**
+     * Whether the given row has to be executed after the rows of the batch
+     * represented by <code>batched</code>. The check is made on the tables
+     * of the rows rather than on individual foreign key values.
+     */
+    private static boolean dependsOn(RowImpl row, RowImpl batched) {
+        Table table = row.getTable();
+        Table other = batched.getTable();
+        if (row.getAction() != batched.getAction())
+            return table == other || references(table, other)
+                || references(other, table);
+        switch (row.getAction()) {
+        case Row.ACTION_INSERT:
+            // parents have to be inserted before their children
+            return references(table, other);
+        case Row.ACTION_DELETE:
+            // children have to be deleted before their parents
+            return references(other, table);
+        default:
+            return table == other || references(table, other)
+                || references(other, table);
+        }
+    }
+
+    /**
+     * Whether the rows of <code>table</code> may refer to the rows of
+     * <code>other</code>.
+     */
+    private static boolean references(Table table, Table other) {
+        if (table.getRelationIdColumns().length > 0)
+            return true;
+        for (ForeignKey fk : table.getForeignKeys())
+            if (fk.getPrimaryKeyTable() == other)
+                return true;
+        return false;
+    }
+
     /*
      * Compute if batching is disabled, based on values of batch limit
      * and database characteristics.
@@ -141,6 +241,30 @@ public class BatchingPreparedStatementManagerImpl extends
      * prepared statements.
      */
     protected void flushBatch() throws SQLException {
+        if (_openBatches.isEmpty()) {
+            flushBatchedRows();
+            return;
+        }
+
+        List<RowImpl> batchedRows = _batchedRows;
+        try {
+            for (Map.Entry<String, List<RowImpl>> entry
+                : _openBatches.entrySet()) {
+                _batchedSql = entry.getKey();
+                _batchedRows = entry.getValue();
+                flushBatchedRows();
+            }
+        } finally {
+            _openBatches.clear();
+            _batchedSql = null;
+            _batchedRows = batchedRows;
+        }
+    }
+
+    /**
+     * Execute the rows of the current batch.
+     */
+    private void flushBatchedRows() throws SQLException {
         List<RowImpl> batchedRows = getBatchedRows();
         String batchedSql = getBatchedSql();
         if (batchedRows == null)
@@ -156,6 +280,7 @@ public class BatchingPreparedStatementManagerImpl extends
                     // execute a single row.
                     onerow = batchedRows.get(0);
                     flushSingleRow(onerow, ps);
+                    _statementCount++;
                 } else {
                     // cache has more than one rows, execute as batch.
                     int count = 0;
@@ -165,6 +290,7 @@ public class BatchingPreparedStatementManagerImpl extends
                         onerow = itr.next();
                         if (_batchLimit == 1) {
                             flushSingleRow(onerow, ps);
+                            _statementCount++;
                         } else {
                             if (count < _batchLimit || _batchLimit == -1) {
                                 if (ps != null)
@@ -174,6 +300,7 @@ public class BatchingPreparedStatementManagerImpl extends
                             } else {
                                 // reach the batchLimit, execute the batch
                                 int[] rtn = executeBatch(ps);
+                                batchExecuted(count);
                                 checkUpdateCount(rtn, batchedRowsBaseIndex, ps);
 
                                 batchedRowsBaseIndex += _batchLimit;
@@ -188,6 +315,8 @@ public class BatchingPreparedStatementManagerImpl extends
                     }
                     // end of the loop, execute the batch
                     int[] rtn = executeBatch(ps);
+                    if (count > 0)
+                        batchExecuted(count);
                     checkUpdateCount(rtn, batchedRowsBaseIndex, ps);
                 }
             } catch (SQLException se) {
@@ -245,6 +374,26 @@ public class BatchingPreparedStatementManagerImpl extends
         }
     }
 
+    /*
+     * Record the execution of a batch of the given size.
+     */
+    private void batchExecuted(int size) {
+        _statementCount++;
+        _batchCount++;
+        _batchedRowCount += size;
+        _largestBatch = Math.max(_largestBatch, size);
+    }
+
+    /**
+     * Log the number of statements and batches executed by this manager.
+     */
+    protected void logBatchStatistics() {
+        if (_log != null && _log.isTraceEnabled() && _statementCount > 0)
+            _log.trace(_loc.get("batch_statistics", new Object[]{
+                _statementCount, _batchCount, _batchedRowCount,
+                _largestBatch }));
+    }
+
     /*
      * Execute an update of a single row.
      */
@@ -339,6 +488,63 @@ public class BatchingPreparedStatementManagerImpl extends
         _disableBatch = disableBatch;
     }
 
+    /**
+     * Whether to keep one open batch per distinct SQL statement rather than
+     * executing the current batch as soon as the SQL changes.
+     *
+     * @since 3.2.3
+     */
+    public boolean isMultiStatementBatching() {
+        return _multiStatement;
+    }
+
+    /**
+     * Whether to keep one open batch per distinct SQL statement rather than
+     * executing the current batch as soon as the SQL changes.
+     *
+     * @since 3.2.3
+     */
+    public void setMultiStatementBatching(boolean multiStatement) {
+        _multiStatement = multiStatement;
+    }
+
+    /**
+     * The number of statements sent to the database so far, counting each
+     * executed batch once.
+     *
+     * @since 3.2.3
+     */
+    public int getStatementCount() {
+        return _statementCount;
+    }
+
+    /**
+     * The number of batches executed so far.
+     *
+     * @since 3.2.3
+     */
+    public int getBatchCount() {
+        return _batchCount;
+    }
+
+    /**
+     * The number of rows executed as part of a batch so far.
+     *
+     * @since 3.2.3
+     */
+    public int getBatchedRowCount() {
+        return _batchedRowCount;
+    }
+
+    /**
+     * The size of the largest batch executed so far.
+     *
+     * @since 3.2.3
+     */
+    public int getLargestBatchSize() {
+        return _largestBatch;
+    }
+
     public int getBatchLimit() {
         return _batchLimit;
     }
@@ -21,8 +21,8 @@ package org.apache.openjpa.jdbc.kernel;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Types;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
@@ -51,7 +51,7 @@ public class ClassTableJDBCSeq
     private static final Localizer _loc = Localizer.forPackage
         (ClassTableJDBCSeq.class);
 
-    private final Map<String, Status> _stats = new HashMap<>();
+    private final Map<String, Status> _stats = new ConcurrentHashMap<>();
     private boolean _ignore = false;
     private boolean _aliases = false;
 
@@ -101,16 +101,11 @@ public class ClassTableJDBCSeq
     }
 
     @Override
-    protected synchronized Status getStatus(ClassMapping mapping) {
+    protected Status getStatus(ClassMapping mapping) {
         if (mapping == null)
             return null;
-        String key = getKey(mapping, false);
-        Status stat = (Status) _stats.get(key);
-        if (stat == null) {
-            stat = new Status();
-            _stats.put(key, stat);
-        }
-        return stat;
+        return _stats.computeIfAbsent(getKey(mapping, false),
+            key -> new Status());
     }
 
     @Override
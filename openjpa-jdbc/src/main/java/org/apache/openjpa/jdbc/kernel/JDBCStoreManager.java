@@ -27,6 +27,8 @@ import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -40,12 +42,15 @@ import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
 import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.Discriminator;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
+import org.apache.openjpa.jdbc.meta.Joinable;
 import org.apache.openjpa.jdbc.meta.ValueMapping;
 import org.apache.openjpa.jdbc.meta.strats.SuperclassDiscriminatorStrategy;
+import org.apache.openjpa.jdbc.schema.Column;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.JoinSyntaxes;
 import org.apache.openjpa.jdbc.sql.Joins;
 import org.apache.openjpa.jdbc.sql.Result;
+import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SQLFactory;
 import org.apache.openjpa.jdbc.sql.Select;
@@ -58,6 +63,7 @@ import org.apache.openjpa.kernel.LockManager;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.PCState;
 import org.apache.openjpa.kernel.QueryLanguages;
+import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.kernel.Seq;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.kernel.StoreManager;
@@ -66,6 +72,7 @@ import org.apache.openjpa.kernel.exps.ExpressionParser;
 import org.apache.openjpa.lib.jdbc.DelegatingConnection;
 import org.apache.openjpa.lib.jdbc.DelegatingPreparedStatement;
 import org.apache.openjpa.lib.jdbc.DelegatingStatement;
+import org.apache.openjpa.lib.jdbc.JDBCStatistics;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
@@ -91,6 +98,12 @@ import org.apache.openjpa.util.UserException;
  */
 public class JDBCStoreManager implements StoreManager, JDBCStore {
 
+    /**
+     * The maximum number of instances that {@link #loadAll} initializes
+     * from a single select.
+     */
+    public static final int FIND_BATCH_LIMIT = 1000;
+
     private static final Localizer _loc = Localizer.forPackage
         (JDBCStoreManager.class);
 
@@ -554,7 +567,7 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
         throws SQLException {
         FinderQueryImpl fq = getFinder(mapping, fetch);
         if (fq != null)
-            return fq.execute(sm, this, fetch);
+            return executeFinder(fq, mapping, sm, fetch);
         Select sel = _sql.newSelect();
         if (!select(sel, mapping, subs, sm, null, fetch,
             EagerFetchModes.EAGER_JOIN, true, false))
@@ -578,7 +591,7 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
         final JDBCFetchConfiguration fetch) throws SQLException {
         FinderQueryImpl fq = getFinder(mapping, fetch);
         if (fq != null)
-            return fq.execute(sm, this, fetch);
+            return executeFinder(fq, mapping, sm, fetch);
         final JDBCStoreManager store = this;
         final int eager = Math.min(fetch.getEagerFetchMode(),
             EagerFetchModes.EAGER_JOIN);
@@ -734,10 +747,261 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
                 fields.clear(i);
     }
 
+    /**
+     * Initializes new instances of the same mapping from batched selects by
+     * primary key. All other instances are loaded one at a time.
+     */
     @Override
     public Collection loadAll(Collection sms, PCState state, int load,
         FetchConfiguration fetch, Object context) {
-        return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+        if (context != null || sms.size() < 2)
+            return ImplHelper.loadAll(sms, this, state, load, fetch, context);
+
+        // group the new instances the way initializeState selects them
+        Map<ClassMapping, List<OpenJPAStateManager>> exact = new LinkedHashMap<>();
+        Map<ClassMapping, List<OpenJPAStateManager>> joinable = new LinkedHashMap<>();
+        List<OpenJPAStateManager> single = new ArrayList<>();
+        OpenJPAStateManager sm;
+        ClassMapping mapping;
+        Object oid;
+        for (Object o : sms) {
+            sm = (OpenJPAStateManager) o;
+            if (sm.getManagedInstance() != null) {
+                single.add(sm);
+                continue;
+            }
+            mapping = (ClassMapping) sm.getMetaData();
+            oid = sm.getObjectId();
+            if (oid instanceof OpenJPAId && !((OpenJPAId) oid).hasSubclasses()) {
+                if (mapping.isPrimaryKeyObjectId(true))
+                    exact.computeIfAbsent(mapping, k -> new ArrayList<>()).add(sm);
+                else
+                    single.add(sm);
+            } else {
+                ClassMapping[] mappings = mapping.getIndependentAssignableMappings();
+                if (mappings.length == 1 && mappings[0].isPrimaryKeyObjectId(true))
+                    joinable.computeIfAbsent(mappings[0], k -> new ArrayList<>()).add(sm);
+                else
+                    single.add(sm);
+            }
+        }
+
+        JDBCFetchConfiguration jfetch = (JDBCFetchConfiguration) fetch;
+        Collection failed = null;
+        try {
+            for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> entry : exact.entrySet())
+                failed = initializeAll(entry.getKey(), Select.SUBS_EXACT, entry.getValue(), state, jfetch,
+                    single, failed);
+            for (Map.Entry<ClassMapping, List<OpenJPAStateManager>> entry : joinable.entrySet())
+                failed = initializeAll(entry.getKey(), Select.SUBS_ANY_JOINABLE, entry.getValue(), state, jfetch,
+                    single, failed);
+        } catch (ClassNotFoundException cnfe) {
+            throw new UserException(cnfe);
+        } catch (SQLException se) {
+            throw SQLExceptions.getStore(se, _dict, fetch.getReadLockLevel());
+        }
+
+        Collection rest = ImplHelper.loadAll(single, this, state, load, fetch, context);
+        if (failed == null)
+            return rest;
+        failed.addAll(rest);
+        return failed;
+    }
+
+    /**
+     * Initialize the given new instances of the given mapping from selects
+     * of up to {@link #getFindBatchLimit} instances each. Instances that
+     * cannot be selected in a batch are added to the given list. Return the
+     * identities of the instances that do not exist.
+     */
+    private Collection initializeAll(ClassMapping mapping, int subs, List<OpenJPAStateManager> sms,
+        PCState state, JDBCFetchConfiguration fetch, List<OpenJPAStateManager> single, Collection failed)
+        throws ClassNotFoundException, SQLException {
+        if (sms.size() < 2) {
+            single.addAll(sms);
+            return failed;
+        }
+
+        Column[] pks = mapping.getPrimaryKeyColumns();
+        List<OpenJPAStateManager> batch = new ArrayList<>(sms.size());
+        List<Object[]> vals = new ArrayList<>(sms.size());
+        Object[] pkVals;
+        for (OpenJPAStateManager sm : sms) {
+            Boolean custom = customLoad(sm, mapping, state, fetch);
+            if (custom != null) {
+                if (!custom)
+                    failed = addFailedId(sm, failed);
+                continue;
+            }
+            pkVals = getPrimaryKeyValues(sm.getObjectId(), mapping, pks);
+            if (pkVals == null)
+                single.add(sm);
+            else {
+                batch.add(sm);
+                vals.add(pkVals);
+            }
+        }
+
+        int limit = getFindBatchLimit(pks.length);
+        Map<Object, OpenJPAStateManager> pending = new HashMap<>();
+        for (int start = 0, end; start < batch.size(); start = end) {
+            end = Math.min(start + limit, batch.size());
+            pending.clear();
+            for (int i = start; i < end; i++)
+                pending.put(batch.get(i).getObjectId(), batch.get(i));
+            if (!initializeAll(mapping, subs, pending, pks, vals.subList(start, end), state, fetch)) {
+                single.addAll(batch.subList(start, end));
+                continue;
+            }
+            for (OpenJPAStateManager sm : pending.values())
+                failed = addFailedId(sm, failed);
+        }
+        return failed;
+    }
+
+    /**
+     * Select the instances with the given primary key values and initialize
+     * the pending state managers from the result, removing them from the
+     * given map. Return false if there is no data in the current fetch
+     * groups to select.
+     */
+    private boolean initializeAll(ClassMapping mapping, int subs, Map<Object, OpenJPAStateManager> pending,
+        Column[] pks, List<Object[]> vals, PCState state, JDBCFetchConfiguration fetch)
+        throws ClassNotFoundException, SQLException {
+        // restrict the select before selecting the mapping, so that the
+        // parallel eager selects it creates are restricted as well
+        Select sel = _sql.newSelect();
+        sel.where(wherePrimaryKeys(sel, pks, vals));
+        if (!select(sel, mapping, subs, null, null, fetch, fetch.getEagerFetchMode(), true, false))
+            return false;
+        sel.setExpectedResultCount(vals.size(), false);
+        if (_log.isTraceEnabled()) {
+            _log.trace("initializeAll: " + vals.size() + " oids of " + mapping.getDescribedType());
+        }
+
+        Result res = sel.execute(this, fetch);
+        try {
+            ConnectionInfo info = new ConnectionInfo();
+            info.result = res;
+            OpenJPAStateManager sm;
+            while (res.next()) {
+                sm = pending.remove(mapping.getObjectId(this, res, null, true, null));
+                if (sm == null)
+                    continue;
+                info.mapping = mapping;
+                initializeState(sm, state, fetch, info);
+            }
+        } finally {
+            res.close();
+        }
+        return true;
+    }
+
+    /**
+     * Return the values of the given primary key columns for the given
+     * oid, or null if any of them is null.
+     */
+    private Object[] getPrimaryKeyValues(Object oid, ClassMapping mapping, Column[] pks) {
+        Object[] pkVals = null;
+        if (mapping.getIdentityType() == ClassMetaData.ID_APPLICATION)
+            pkVals = ApplicationIds.toPKValues(oid, mapping);
+        else if (!(oid instanceof Id))
+            return null;
+
+        Object[] vals = new Object[pks.length];
+        Joinable join;
+        for (int i = 0; i < pks.length; i++) {
+            if (pkVals == null)
+                vals[i] = ((Id) oid).getId();
+            else {
+                join = mapping.assertJoinable(pks[i]);
+                vals[i] = join.getJoinValue(pkVals[mapping.getField(join.getFieldIndex()).getPrimaryKeyIndex()],
+                    pks[i], this);
+            }
+            if (vals[i] == null)
+                return null;
+        }
+        return vals;
+    }
+
+    /**
+     * Return a condition matching any of the given primary key values: an
+     * <code>IN</code> list for a single column or when the dictionary
+     * supports row value constructors, and a disjunction otherwise.
+     */
+    private SQLBuffer wherePrimaryKeys(Select sel, Column[] pks, List<Object[]> vals) {
+        SQLBuffer buf = new SQLBuffer(_dict);
+        String[] aliases = new String[pks.length];
+        for (int i = 0; i < pks.length; i++)
+            aliases[i] = sel.getColumnAlias(pks[i]);
+
+        boolean row = pks.length > 1;
+        if (!row || _dict.supportsRowValueConstructors) {
+            if (row)
+                buf.append("(");
+            for (int i = 0; i < aliases.length; i++) {
+                if (i > 0)
+                    buf.append(", ");
+                buf.append(aliases[i]);
+            }
+            if (row)
+                buf.append(")");
+            buf.append(" IN (");
+            for (int i = 0; i < vals.size(); i++) {
+                if (i > 0)
+                    buf.append(", ");
+                if (row)
+                    buf.append("(");
+                for (int j = 0; j < pks.length; j++) {
+                    if (j > 0)
+                        buf.append(", ");
+                    buf.appendValue(vals.get(i)[j], pks[j]);
+                }
+                if (row)
+                    buf.append(")");
+            }
+            buf.append(")");
+            return buf;
+        }
+
+        buf.append("(");
+        for (int i = 0; i < vals.size(); i++) {
+            if (i > 0)
+                buf.append(" OR ");
+            buf.append("(");
+            for (int j = 0; j < pks.length; j++) {
+                if (j > 0)
+                    buf.append(" AND ");
+                buf.append(aliases[j]).append(" = ");
+                buf.appendValue(vals.get(i)[j], pks[j]);
+            }
+            buf.append(")");
+        }
+        buf.append(")");
+        return buf;
+    }
+
+    /**
+     * Return the number of instances to select at once by a primary key of
+     * the given number of columns. This is at most {@link #FIND_BATCH_LIMIT},
+     * and respects the dictionary's {@link DBDictionary#inClauseLimit} and
+     * {@link DBDictionary#maxParameterCount}, leaving half of the parameters
+     * to the other conditions of the select.
+     */
+    protected int getFindBatchLimit(int columns) {
+        int limit = FIND_BATCH_LIMIT;
+        if (_dict.inClauseLimit > 0 && (columns == 1 || _dict.supportsRowValueConstructors))
+            limit = Math.min(limit, _dict.inClauseLimit);
+        if (_dict.maxParameterCount > 0)
+            limit = Math.min(limit, Math.max(1, _dict.maxParameterCount / 2 / columns));
+        return limit;
+    }
+
+    private static Collection addFailedId(OpenJPAStateManager sm, Collection failed) {
+        if (failed == null)
+            failed = new ArrayList();
+        failed.add(sm.getId());
+        return failed;
     }
 
     @Override
@@ -1018,18 +1282,32 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
      * can be overridden.
      */
     protected RefCountConnection connectInternal() throws SQLException {
-        return new RefCountConnection(_ds.getConnection());
+        return new RefCountConnection(acquireConnection());
     }
 
     @Override
     public Connection getNewConnection() {
         try {
-            return _ds.getConnection();
+            return acquireConnection();
         } catch (SQLException e) {
             throw SQLExceptions.getStore(e, _dict);
         }
     }
 
+    /**
+     * Obtain a connection from the data source, recording the wait in the
+     * JDBC statistics if they are enabled.
+     */
+    private Connection acquireConnection() throws SQLException {
+        JDBCStatistics stats = _conf.getJDBCStatistics();
+        if (!stats.isEnabled())
+            return _ds.getConnection();
+        long start = System.nanoTime();
+        Connection conn = _ds.getConnection();
+        stats.recordConnectionWait(System.nanoTime() - start);
+        return conn;
+    }
+
     /**
      * Find the object with the given oid.
      */
@@ -1582,6 +1860,20 @@ public class JDBCStoreManager implements StoreManager, JDBCStore {
              ? null : (FinderQueryImpl)cache.get(mapping, fetch);
     }
 
+    /**
+     * Execute the given cached finder, recording its latency in the
+     * statistics of the finder cache.
+     */
+    private Result executeFinder(FinderQueryImpl fq, ClassMapping mapping,
+        OpenJPAStateManager sm, JDBCFetchConfiguration fetch) {
+        QueryStatistics<ClassMapping> stats = getFinderCache().getStatistics();
+        long start = System.nanoTime();
+        Result result = fq.execute(sm, this, fetch);
+        stats.recordLatency(mapping, QueryStatistics.Phase.EXECUTE,
+            System.nanoTime() - start);
+        return result;
+    }
+
     boolean cacheFinder(ClassMapping mapping, SelectExecutor select,
         FetchConfiguration fetch) {
         FinderCache cache = getFinderCache();
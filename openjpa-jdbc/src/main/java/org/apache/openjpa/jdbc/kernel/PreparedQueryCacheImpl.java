@@ -19,13 +19,20 @@
 package org.apache.openjpa.jdbc.kernel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
@@ -40,11 +47,21 @@ import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.StringUtil;
-import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.UserException;
 
 /**
  * An implementation of the cache of {@link PreparedQuery prepared queries}.
  *
+ * The cached queries are held in a concurrent map, so that looking up,
+ * caching and invalidating queries does not acquire a lock. The cache is
+ * bounded by {@link #setMaxCacheSize(int) MaxCacheSize}. When a newly cached
+ * query makes the cache exceed its maximum size, the least recently used
+ * (<code>lru</code>) or least frequently used (<code>lfu</code>) queries are
+ * evicted, as selected by {@link #setEvictionPolicy(String) EvictionPolicy}.
+ * Eviction trims the cache a tenth below its maximum size so that it is not
+ * repeated for every new query of an application that keeps generating
+ * distinct query strings.
+ *
  * @author Pinaki Poddar
  *
  * @since 2.0.0
@@ -52,13 +69,33 @@ import org.apache.openjpa.util.CacheMap;
  */
 public class PreparedQueryCacheImpl implements PreparedQueryCache {
 	private static final String PATTERN_SEPARATOR = "\\;";
+
+    /**
+     * Evict the least recently used queries.
+     */
+    public static final String EVICTION_LRU = "lru";
+
+    /**
+     * Evict the least frequently used queries.
+     */
+    public static final String EVICTION_LFU = "lfu";
+
+    /**
+     * Default maximum number of cached queries.
+     */
+    public static final int DEFAULT_MAX_CACHE_SIZE = 1000;
+
 	// Key: Query identifier
-	private final Map<String, PreparedQuery> _delegate;
+	private final ConcurrentMap<String, CacheEntry> _delegate;
 	// Key: Query identifier Value: Reason why excluded
-	private final Map<String, Exclusion> _uncachables;
+	private final ConcurrentMap<String, Exclusion> _uncachables;
 	private final List<Exclusion> _exclusionPatterns;
 	private QueryStatistics<String> _stats;
 	private boolean _statsEnabled;
+	private volatile int _maxSize = DEFAULT_MAX_CACHE_SIZE;
+	private boolean _lfu;
+	private final LongAdder _evictions = new LongAdder();
+	private final Lock _evictionLock = new ReentrantLock();
 
 	private Lock _writeLock;
 	private Lock _readLock;
@@ -66,9 +103,9 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
     private static Localizer _loc = Localizer.forPackage(PreparedQueryCacheImpl.class);
 
 	public PreparedQueryCacheImpl() {
-		_delegate = new CacheMap();
-		_uncachables = new CacheMap();
-		_exclusionPatterns = new ArrayList<>();
+		_delegate = new ConcurrentHashMap<>();
+		_uncachables = new ConcurrentHashMap<>();
+		_exclusionPatterns = new CopyOnWriteArrayList<>();
 
 		ReentrantReadWriteLock _rwl = new ReentrantReadWriteLock();
         _writeLock = _rwl.writeLock();
@@ -86,8 +123,7 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
             return Boolean.FALSE;
         if (Boolean.FALSE.equals(isCachable(id)))
             return Boolean.FALSE;
-        PreparedQuery cached = get(id);
-        if (cached != null)
+        if (_delegate.containsKey(id))
             return null; // implies that it is already cached
 
         PreparedQuery newEntry = new PreparedQueryImpl(id, query);
@@ -96,15 +132,10 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 
 	@Override
     public Map<String,String> getMapView() {
-		lock(false);
-		try {
-            Map<String, String> view = new TreeMap<>();
-            for (Map.Entry<String, PreparedQuery> entry : _delegate.entrySet())
-                view.put(entry.getKey(), entry.getValue().getTargetQuery());
-			return view;
-		} finally {
-			unlock(false);
-		}
+        Map<String, String> view = new TreeMap<>();
+        for (Map.Entry<String, CacheEntry> entry : _delegate.entrySet())
+            view.put(entry.getKey(), entry.getValue().query.getTargetQuery());
+        return view;
 	}
 
 	/**
@@ -115,33 +146,42 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 	 */
 	@Override
     public boolean cache(PreparedQuery q) {
-		lock(false);
-		try {
-			String id = q.getIdentifier();
-
-			// OPENJPA-2609: Make sure another thread didn't add the 'id'
-			// while holding the 'lock'.
-			if (_delegate.containsKey(id)) {
-				return false;
-			}
+		String id = q.getIdentifier();
+		if (_delegate.containsKey(id)) {
+			return false;
+		}
 
-			if (Boolean.FALSE.equals(isCachable(id))) {
-				if (_log != null && _log.isTraceEnabled())
-					_log.trace(_loc.get("prepared-query-not-cachable", id));
-				return false;
-			}
-			Exclusion exclusion = getMatchedExclusionPattern(id);
-			if (exclusion != null) {
-				markUncachable(id, exclusion);
-				return false;
-			}
-			_delegate.put(id, q);
+		if (Boolean.FALSE.equals(isCachable(id))) {
 			if (_log != null && _log.isTraceEnabled())
-				_log.trace(_loc.get("prepared-query-cached", id));
-			return true;
-		} finally {
-			unlock(false);
+				_log.trace(_loc.get("prepared-query-not-cachable", id));
+			return false;
+		}
+		Exclusion exclusion = getMatchedExclusionPattern(id);
+		if (exclusion != null) {
+			markUncachable(id, exclusion);
+			return false;
 		}
+		// OPENJPA-2609: Make sure another thread didn't add the 'id'
+		// in the meantime.
+		if (_delegate.putIfAbsent(id, new CacheEntry(q)) != null) {
+			return false;
+		}
+
+		// the query may have been marked uncachable or matched by a new
+		// exclusion pattern while it was being added
+		if (_uncachables.containsKey(id)) {
+			_delegate.remove(id);
+			return false;
+		}
+		exclusion = getMatchedExclusionPattern(id);
+		if (exclusion != null) {
+			markUncachable(id, exclusion);
+			return false;
+		}
+		if (_log != null && _log.isTraceEnabled())
+			_log.trace(_loc.get("prepared-query-cached", id));
+		evictIfFull(id);
+		return true;
 	}
 
     @Override
@@ -160,60 +200,47 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 
 	@Override
     public boolean invalidate(String id) {
-		lock(false);
-		try {
-			if (_log != null && _log.isTraceEnabled())
-                _log.trace(_loc.get("prepared-query-invalidate", id));
-			boolean rc = _delegate.remove(id) != null;
-			if (_statsEnabled && rc) {
-			    _stats.recordEviction(id);
-			}
-			return rc;
-		} finally {
-			unlock(false);
+		if (_log != null && _log.isTraceEnabled())
+            _log.trace(_loc.get("prepared-query-invalidate", id));
+		boolean rc = _delegate.remove(id) != null;
+		if (_statsEnabled && rc) {
+		    _stats.recordEviction(id);
 		}
+		return rc;
 	}
 
     @Override
     public PreparedQuery get(String id) {
-        lock(true);
-        try {
-            return _delegate.get(id);
-        } finally {
-            unlock(true);
-        }
+        CacheEntry entry = _delegate.get(id);
+        if (entry == null)
+            return null;
+        entry.touch();
+        return entry.query;
     }
 
 	@Override
     public Boolean isCachable(String id) {
-		lock(true);
-		try {
-			if (_uncachables.containsKey(id))
-				return Boolean.FALSE;
-			if (_delegate.containsKey(id))
-				return Boolean.TRUE;
-			return null;
-		} finally {
-			unlock(true);
-		}
+		if (_uncachables.containsKey(id))
+			return Boolean.FALSE;
+		if (_delegate.containsKey(id))
+			return Boolean.TRUE;
+		return null;
 	}
 
 	@Override
     public PreparedQuery markUncachable(String id, Exclusion exclusion) {
-		lock(false);
-		try {
-			if (_uncachables.put(id, exclusion) == null) {
-			    if (_log != null && _log.isTraceEnabled())
-			        _log.trace(_loc.get("prepared-query-uncache", id, exclusion));
-			}
-			PreparedQuery pq = _delegate.remove(id);
-            if (_statsEnabled && pq != null) {
-                _stats.recordEviction(id);
-            }
-            return pq;
-		} finally {
-			unlock(false);
+		if (_uncachables.put(id, exclusion) == null) {
+		    if (_log != null && _log.isTraceEnabled())
+		        _log.trace(_loc.get("prepared-query-uncache", id, exclusion));
+		    trimUncachables();
 		}
+		CacheEntry entry = _delegate.remove(id);
+        if (entry == null)
+            return null;
+        if (_statsEnabled) {
+            _stats.recordEviction(id);
+        }
+        return entry.query;
 	}
 
 	@Override
@@ -326,6 +353,8 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
 	}
 
 	/**
+     * Lookups, caching and invalidation do not acquire the lock; it only
+     * serializes changes to the exclusion patterns.
      * Note: Care needs to be taken so that a read lock is <b>never</b> held while requesting a write lock. This will
      * result in a deadlock.
      *
@@ -380,14 +409,146 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
         return _statsEnabled;
     }
 
+    /**
+     * Sets the maximum number of cached queries, or -1 for no limit.
+     * Defaults to {@link #DEFAULT_MAX_CACHE_SIZE}.
+     */
     public void setMaxCacheSize(int size) {
-        ((CacheMap)_delegate).setCacheSize(size);
+        _maxSize = size;
+        evictIfFull(null);
     }
 
+    /**
+     * Gets the maximum number of cached queries, or -1 for no limit.
+     *
+     * @since 3.2.3
+     */
+    public int getMaxCacheSize() {
+        return _maxSize;
+    }
+
+    @Override
     public int getCacheSize() {
         return _delegate.size();
     }
 
+    /**
+     * Sets the policy used to select the queries to evict when the cache is
+     * full: {@link #EVICTION_LRU lru} (the default) or
+     * {@link #EVICTION_LFU lfu}.
+     *
+     * @since 3.2.3
+     */
+    public void setEvictionPolicy(String policy) {
+        if (EVICTION_LFU.equalsIgnoreCase(policy))
+            _lfu = true;
+        else if (EVICTION_LRU.equalsIgnoreCase(policy))
+            _lfu = false;
+        else
+            throw new UserException(_loc.get("prepared-query-bad-eviction",
+                policy));
+    }
+
+    /**
+     * Gets the policy used to select the queries to evict when the cache is
+     * full.
+     *
+     * @since 3.2.3
+     */
+    public String getEvictionPolicy() {
+        return _lfu ? EVICTION_LFU : EVICTION_LRU;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return _evictions.sum();
+    }
+
+    @Override
+    public long getCachedHitCount(String id) {
+        CacheEntry entry = _delegate.get(id);
+        return entry == null ? 0 : entry.hits.sum();
+    }
+
+    /**
+     * Evicts queries according to the eviction policy if the cache holds
+     * more than the maximum number of queries. Only one thread evicts at a
+     * time; others carry on, so the cache may briefly exceed its maximum
+     * size under concurrent caching.
+     *
+     * @param cached the query just cached, which is never evicted because it
+     * had no chance of being used yet
+     */
+    private void evictIfFull(String cached) {
+        int max = _maxSize;
+        if (max < 0 || _delegate.size() <= max || !_evictionLock.tryLock())
+            return;
+        try {
+            int evict = _delegate.size() - max;
+            if (evict <= 0)
+                return;
+            evict += max / 10;
+
+            // snapshot the usage of the entries so that concurrent lookups
+            // cannot change it while selecting the entries to evict
+            int size = _delegate.size();
+            String[] ids = new String[size];
+            CacheEntry[] entries = new CacheEntry[size];
+            long[] usage = new long[size];
+            int n = 0;
+            for (Map.Entry<String, CacheEntry> entry : _delegate.entrySet()) {
+                if (n == size)
+                    break;
+                if (entry.getKey().equals(cached))
+                    continue;
+                ids[n] = entry.getKey();
+                entries[n] = entry.getValue();
+                usage[n] = entries[n].getUsage(_lfu);
+                n++;
+            }
+            if (n == 0)
+                return;
+            long[] sorted = Arrays.copyOf(usage, n);
+            Arrays.sort(sorted);
+            long threshold = sorted[Math.min(evict, n) - 1];
+
+            // evict the entries used less than the threshold first, then
+            // as many as needed of those used exactly as much
+            for (int pass = 0; pass < 2 && evict > 0; pass++) {
+                for (int i = 0; i < n && evict > 0; i++) {
+                    if (usage[i] > threshold
+                        || (pass == 0 && usage[i] == threshold)
+                        || !_delegate.remove(ids[i], entries[i]))
+                        continue;
+                    usage[i] = Long.MAX_VALUE;
+                    evict--;
+                    _evictions.increment();
+                    if (_statsEnabled)
+                        _stats.recordEviction(ids[i]);
+                    if (_log != null && _log.isTraceEnabled())
+                        _log.trace(_loc.get("prepared-query-evicted", ids[i]));
+                }
+            }
+        } finally {
+            _evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Keeps the uncachable identifiers within the maximum cache size. A
+     * forgotten identifier costs no more than another attempt to cache it.
+     */
+    private void trimUncachables() {
+        int max = _maxSize;
+        if (max < 0)
+            return;
+        Iterator<String> itr = _uncachables.keySet().iterator();
+        while (_uncachables.size() > max && itr.hasNext()) {
+            itr.next();
+            itr.remove();
+        }
+    }
+
 	//-------------------------------------------------------
 	// Configurable contract
 	//-------------------------------------------------------
@@ -406,6 +567,28 @@ public class PreparedQueryCacheImpl implements PreparedQueryCache {
                                  new QueryStatistics.None<>();
     }
 
+    /**
+     * A cached query with its usage.
+     */
+    private static class CacheEntry {
+        final PreparedQuery query;
+        final LongAdder hits = new LongAdder();
+        volatile long lastUsed = System.nanoTime();
+
+        CacheEntry(PreparedQuery query) {
+            this.query = query;
+        }
+
+        void touch() {
+            hits.increment();
+            lastUsed = System.nanoTime();
+        }
+
+        long getUsage(boolean lfu) {
+            return lfu ? hits.sum() : lastUsed;
+        }
+    }
+
     /**
      * An immutable abstract pattern for exclusion.
      *
@@ -32,6 +32,7 @@ import org.apache.openjpa.jdbc.meta.ClassMapping;
 import org.apache.openjpa.jdbc.meta.FieldMapping;
 import org.apache.openjpa.jdbc.meta.MappingRepository;
 import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.sql.CompiledSQL;
 import org.apache.openjpa.jdbc.sql.LogicalUnion;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SelectExecutor;
@@ -69,6 +70,7 @@ public class PreparedQueryImpl implements PreparedQuery {
 
     private final String _id;
     private String _sql;
+    private CompiledSQL _compiled;
     private boolean _initialized;
 
     // Post-compilation state of an executable query, populated on construction
@@ -138,6 +140,16 @@ public class PreparedQueryImpl implements PreparedQuery {
         _sql = sql;
     }
 
+    /**
+     * The target query compiled with the columns of its parameters, or null
+     * if this receiver has not been initialized from an execution.
+     *
+     * @since 3.2.3
+     */
+    public CompiledSQL getCompiledSQL() {
+        return _compiled;
+    }
+
     @Override
     public boolean isInitialized() {
         return _initialized;
@@ -196,7 +208,8 @@ public class PreparedQueryImpl implements PreparedQuery {
             return new PreparedQueryCacheImpl.StrongExclusion(_id,
                 _loc.get("exclude-pagination", _id).getMessage());
 
-        setTargetQuery(buffer.getSQL());
+        _compiled = buffer.compile();
+        setTargetQuery(_compiled.getSQL());
         setParameters(buffer.getParameters());
         setUserParameterPositions(buffer.getUserParameters());
         _initialized = true;
@@ -28,10 +28,10 @@ import java.util.Set;
 import org.apache.openjpa.jdbc.kernel.exps.ExpContext;
 import org.apache.openjpa.jdbc.kernel.exps.QueryExpressionsState;
 import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.jdbc.sql.CompiledSQL;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.Result;
 import org.apache.openjpa.jdbc.sql.ResultSetResult;
-import org.apache.openjpa.jdbc.sql.SQLBuffer;
 import org.apache.openjpa.jdbc.sql.SQLExceptions;
 import org.apache.openjpa.jdbc.sql.SelectImpl;
 import org.apache.openjpa.kernel.ExpressionStoreQuery.AbstractExpressionExecutor;
@@ -105,19 +105,16 @@ public class PreparedSQLStoreQuery extends SQLStoreQuery {
             JDBCStore store = psq.getStore();
             DBDictionary dict = store.getDBDictionary();
 
-            SQLBuffer buf = new SQLBuffer(dict).append(pq.getTargetQuery());
+            CompiledSQL sql = pq.getCompiledSQL();
+            if (sql == null)
+                sql = new CompiledSQL(dict, pq.getTargetQuery());
             Connection conn = store.getConnection();
             JDBCFetchConfiguration fetch = (JDBCFetchConfiguration)q.getContext().getFetchConfiguration();
 
             ResultObjectProvider rop;
             PreparedStatement stmnt = null;
             try {
-                stmnt = !range.lrs ? buf.prepareStatement(conn) : buf.prepareStatement(conn, fetch, -1, -1);
-
-                int index = 0;
-                for (Object param : params) {
-                    dict.setUnknown(stmnt, ++index, param, null);
-                }
+                stmnt = sql.prepareStatement(conn, range.lrs ? fetch : null, -1, -1, params);
                 dict.setTimeouts(stmnt, fetch, false);
 
                 ResultSet rs = stmnt.executeQuery();
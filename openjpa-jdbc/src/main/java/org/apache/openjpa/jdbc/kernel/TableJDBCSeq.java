@@ -24,7 +24,15 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.transaction.NotSupportedException;
 
@@ -47,6 +55,7 @@ import org.apache.openjpa.jdbc.schema.Unique;
 import org.apache.openjpa.jdbc.sql.DBDictionary;
 import org.apache.openjpa.jdbc.sql.Row;
 import org.apache.openjpa.jdbc.sql.SQLBuffer;
+import org.apache.openjpa.kernel.Seq;
 import org.apache.openjpa.lib.conf.Configurable;
 import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.conf.Configurations;
@@ -69,6 +78,10 @@ import org.apache.openjpa.util.UserException;
  * {@link JDBCSeq} implementation that uses a database table
  * for sequence number generation. This base implementation uses a single
  * row for a global sequence number.
+ * <p>
+ * With {@link #setPrefetch prefetching} enabled, values are handed out from
+ * the current block without locking, and the next block is reserved by a
+ * background thread once the current block runs low.
  *
  * @author Abe White
  */
@@ -87,6 +100,9 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
     private transient Log _log = null;
     private int _alloc = 50;
     private int _intValue = 1;
+    private boolean _prefetch = false;
+    private int _lowWater = -1;
+    private transient ExecutorService _prefetcher = null;
     private final ConcurrentHashMap<ClassMapping, Status> _stat = new ConcurrentHashMap<>();
 
     private DBIdentifier _table = DBIdentifier.newTable(DEFAULT_TABLE);
@@ -208,6 +224,48 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         _intValue = intValue;
     }
 
+    /**
+     * Whether to reserve the next block of sequence values in the background
+     * once the current block runs low, rather than when it is exhausted.
+     * Only applies to non-transactional sequences. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public boolean getPrefetch() {
+        return _prefetch;
+    }
+
+    /**
+     * Whether to reserve the next block of sequence values in the background
+     * once the current block runs low, rather than when it is exhausted.
+     * Only applies to non-transactional sequences. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    public void setPrefetch(boolean prefetch) {
+        _prefetch = prefetch;
+    }
+
+    /**
+     * The number of values left in the current block at which the next
+     * block is prefetched. Defaults to a fifth of the allocation size.
+     *
+     * @since 3.2.3
+     */
+    public int getLowWaterMark() {
+        return (_lowWater < 0) ? _alloc / 5 : _lowWater;
+    }
+
+    /**
+     * The number of values left in the current block at which the next
+     * block is prefetched. Defaults to a fifth of the allocation size.
+     *
+     * @since 3.2.3
+     */
+    public void setLowWaterMark(int lowWater) {
+        _lowWater = lowWater;
+    }
+
     /**
      * Sets the names of the columns on which a unique constraint is set.
      * @param columnsNames are passed as a single String concatenated with
@@ -251,6 +309,16 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         buildTable();
     }
 
+    @Override
+    public synchronized void close() {
+        if (_prefetcher != null) {
+            // cancel pending prefetches so that nobody waits for them
+            for (Runnable pending : _prefetcher.shutdownNow())
+                ((Future<?>) pending).cancel(false);
+            _prefetcher = null;
+        }
+    }
+
 
     @Override
     public void addSchema(ClassMapping mapping, SchemaGroup group) {
@@ -298,6 +366,8 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         if (stat == null)
             throw new InvalidStateException(_loc.get("bad-seq-type",
                 getClass(), mapping));
+        if (isPrefetching())
+            return nextPrefetched(store, mapping, stat);
 
         while (true) {
             synchronized (stat) {
@@ -341,6 +411,24 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         if (stat == null)
             return;
 
+        if (isPrefetching()) {
+            synchronized (stat) {
+                // queue a new block behind the current one rather than
+                // dropping the values left in it
+                long available = remaining(stat.block);
+                if (stat.reserved != null)
+                    for (Block block : stat.reserved)
+                        available += remaining(block);
+                if (available < count) {
+                    if (stat.reserved == null)
+                        stat.reserved = new ArrayDeque<>();
+                    stat.reserved.add(reserveBlock(store, mapping,
+                        (int) Math.max(count - available, _alloc), false));
+                }
+            }
+            return;
+        }
+
         while (true) {
             int available;
             synchronized (stat) {
@@ -352,6 +440,130 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         }
     }
 
+    /**
+     * Whether sequence values are handed out from prefetched blocks. The
+     * blocks are reserved outside of the current transaction, so this is
+     * not possible for transactional sequences.
+     */
+    private boolean isPrefetching() {
+        return _prefetch && (type == Seq.TYPE_DEFAULT
+            || type == Seq.TYPE_NONTRANSACTIONAL);
+    }
+
+    /**
+     * Return the next value of the current block of the given status,
+     * moving on to the next block once the current one is exhausted.
+     */
+    private Object nextPrefetched(JDBCStore store, ClassMapping mapping,
+        Status stat) throws SQLException {
+        while (true) {
+            Block block = stat.block;
+            if (block != null) {
+                long value = block.next.getAndIncrement();
+                if (value < block.end) {
+                    if (value == block.lowWater)
+                        prefetch(mapping, stat);
+                    return value;
+                }
+            }
+            synchronized (stat) {
+                // another thread may have moved on to the next block already
+                if (stat.block == block)
+                    stat.block = nextBlock(store, mapping, stat);
+            }
+        }
+    }
+
+    /**
+     * Return the next block allocated for the given status, the prefetched
+     * block, or reserve a new block if there is none. Called while holding
+     * the status lock.
+     */
+    private Block nextBlock(JDBCStore store, ClassMapping mapping,
+        Status stat) throws SQLException {
+        if (stat.reserved != null && !stat.reserved.isEmpty())
+            return stat.reserved.poll();
+        Future<Block> prefetched = stat.prefetched;
+        stat.prefetched = null;
+        if (prefetched != null) {
+            try {
+                return prefetched.get();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            } catch (CancellationException ce) {
+                // sequence closed while prefetching
+            } catch (ExecutionException ee) {
+                if (_log.isWarnEnabled())
+                    _log.warn(_loc.get("prefetch-seq-failed", mapping,
+                        ee.getCause()));
+            }
+        }
+        return reserveBlock(store, mapping, _alloc, false);
+    }
+
+    /**
+     * Reserve the next block of values for the given status in the
+     * background, unless this is already in progress. The block is
+     * reserved with a connection of the non-JTA data source rather than
+     * through the store, which may be closed by then.
+     */
+    private void prefetch(final ClassMapping mapping, Status stat) {
+        synchronized (stat) {
+            if (stat.prefetched == null)
+                stat.prefetched = getPrefetcher().submit(
+                    () -> reserveBlock(null, mapping, _alloc, true));
+        }
+    }
+
+    /**
+     * The number of values left in the given block.
+     */
+    private static long remaining(Block block) {
+        return (block == null) ? 0 : Math.max(0, block.end - block.next.get());
+    }
+
+    private synchronized ExecutorService getPrefetcher() {
+        if (_prefetcher == null) {
+            _prefetcher = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "openjpa-seq-prefetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return _prefetcher;
+    }
+
+    /**
+     * Reserve a block of <code>alloc</code> values in the sequence table.
+     *
+     * @param store the store to reserve the block for, or null to use a
+     * connection of the non-JTA data source
+     * @param background whether the block is reserved by the prefetch
+     * thread, which is never part of a managed transaction
+     */
+    private Block reserveBlock(JDBCStore store, ClassMapping mapping,
+        int alloc, boolean background) throws SQLException {
+        Status range = new Status();
+        range.seq = 0;
+        if (background) {
+            try {
+                new AllocateSequenceRunnable(store, mapping, range, alloc,
+                    true).run();
+            } catch (RuntimeException re) {
+                if (re.getCause() instanceof SQLException)
+                    throw (SQLException) re.getCause();
+                throw re;
+            }
+        } else
+            allocateSequence(store, mapping, range, alloc, true);
+
+        // make sure seq is at least 1, since autoassigned ids of 0 can
+        // conflict with uninitialized values
+        long start = Math.max(range.seq, 1);
+        return new Block(start, range.max,
+            Math.max(start, range.max - getLowWaterMark()));
+    }
+
     /**
      * Return the appropriate status object for the given class, or null
      * if cannot handle the given class. The mapping may be null.
@@ -820,6 +1032,27 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
         private static final long serialVersionUID = 1L;
         public long seq = 1L;
         public long max = 0L;
+
+        // blocks handed out when prefetching
+        transient volatile Block block = null;
+        transient Deque<Block> reserved = null;
+        transient Future<Block> prefetched = null;
+    }
+
+    /**
+     * Block of reserved sequence values that are handed out without
+     * locking.
+     */
+    private static class Block {
+        final AtomicLong next;
+        final long end;
+        final long lowWater;
+
+        Block(long start, long end, long lowWater) {
+            this.next = new AtomicLong(start);
+            this.end = end;
+            this.lowWater = lowWater;
+        }
     }
 
     /**
@@ -914,7 +1147,7 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
             try {
                 // Try to use the store's connection.
 
-                conn = getConnection(store);
+                conn = getConnection();
                 boolean sequenceSet =
                     setSequence(mapping, stat, alloc, updateStatSeq, conn);
                 closeConnection(conn);
@@ -922,7 +1155,8 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
                 if (!sequenceSet) {
                     // insert a new sequence column. Prefer connection2 / non-jta-data-source when inserting a
                     // sequence column regardless of Seq.type.
-                    conn = _conf.getDataSource2(store.getContext()).getConnection();
+                    conn = _conf.getDataSource2((store == null) ? null
+                        : store.getContext()).getConnection();
                     try {
                         insertSequence(mapping, conn);
                     } catch (SQLException e) {
@@ -938,7 +1172,7 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
 
                     // now we should be able to update using the connection per
                     // on the seq type.
-                    conn = getConnection(store);
+                    conn = getConnection();
                     if (!setSequence(mapping, stat, alloc, updateStatSeq, conn))
                     {
                         throw (err != null) ? err : new SQLException(_loc.get(
@@ -954,6 +1188,19 @@ public class TableJDBCSeq extends AbstractJDBCSeq implements Configurable {
                 throw re;
             }
         }
+
+        /**
+         * Return the connection of the store, or a new connection of the
+         * non-JTA data source if there is no store.
+         */
+        private Connection getConnection() throws SQLException {
+            if (store != null)
+                return TableJDBCSeq.this.getConnection(store);
+            Connection conn = _conf.getDataSource2(null).getConnection();
+            if (conn.getAutoCommit())
+                conn.setAutoCommit(false);
+            return conn;
+        }
     }
 
     /**
@@ -115,6 +115,27 @@ public class MetaDataPlusMappingFactory
             _map.load(cls, mode & ~MODE_META, envLoader);
     }
 
+    @Override
+    public boolean isConcurrentLoadSupported(Class<?> cls) {
+        return super.isConcurrentLoadSupported(cls)
+            && _map.isConcurrentLoadSupported(cls);
+    }
+
+    @Override
+    public void beginConcurrentLoad() {
+        super.beginConcurrentLoad();
+        _map.beginConcurrentLoad();
+    }
+
+    @Override
+    public void endConcurrentLoad() {
+        try {
+            _map.endConcurrentLoad();
+        } finally {
+            super.endConcurrentLoad();
+        }
+    }
+
     @Override
     public boolean store(ClassMetaData[] metas, QueryMetaData[] queries,
         SequenceMetaData[] seqs, int mode, Map output) {
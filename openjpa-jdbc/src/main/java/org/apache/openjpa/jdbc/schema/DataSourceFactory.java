@@ -142,6 +142,9 @@ public class DataSourceFactory {
             List<ConnectionDecorator> decorators = new ArrayList<>(Arrays.asList(conf.
                     getConnectionDecoratorInstances()));
 
+            // add statistics decorator, which decorates only when enabled
+            decorators.add(conf.getJDBCStatistics());
+
             // add jdbc events decorator
             JDBCEventConnectionDecorator ecd =
                 new JDBCEventConnectionDecorator();
@@ -25,6 +25,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.openjpa.jdbc.identifier.DBIdentifier;
 import org.apache.openjpa.jdbc.identifier.DBIdentifier.DBIdentifierType;
@@ -70,6 +71,10 @@ public class Table
     private int _colNum = 0;
     private boolean _isAssociation = false;
     private QualifiedDBIdentifier _fullPath = null;
+    private transient volatile Map<Object, String> _rowSQL = null;
+
+    // maximum number of row SQL statements cached per table
+    private static final int MAX_ROW_SQL = 256;
 
     /**
      * Default constructor.
@@ -130,6 +135,7 @@ public class Table
         _schema = null;
         _schemaName = DBIdentifier.NULL;
         _fullPath = null;
+        _rowSQL = null;
     }
 
     /**
@@ -167,6 +173,7 @@ public class Table
             throw new IllegalStateException();
         _schemaName = name;
         _fullPath = null;
+        _rowSQL = null;
     }
 
     /**
@@ -202,6 +209,7 @@ public class Table
             throw new IllegalStateException();
         _name = name;
         _fullPath = null;
+        _rowSQL = null;
     }
 
     /**
@@ -250,6 +258,34 @@ public class Table
         return getFullIdentifier().getName();
     }
 
+    /**
+     * Return the SQL cached for rows of this table under the given key,
+     * or null if none.
+     *
+     * @see org.apache.openjpa.jdbc.sql.RowImpl
+     * @since 3.2.3
+     */
+    public String getRowSQL(Object key) {
+        Map<Object, String> rowSQL = _rowSQL;
+        return (rowSQL == null) ? null : rowSQL.get(key);
+    }
+
+    /**
+     * Cache the SQL for rows of this table under the given key. Only a
+     * bounded number of statements is cached.
+     *
+     * @since 3.2.3
+     */
+    public void setRowSQL(Object key, String sql) {
+        Map<Object, String> rowSQL = _rowSQL;
+        if (rowSQL == null) {
+            rowSQL = new ConcurrentHashMap<>();
+            _rowSQL = rowSQL;
+        }
+        if (rowSQL.size() < MAX_ROW_SQL)
+            rowSQL.put(key, sql);
+    }
+
     /**
      * Return the table's columns, in alphabetical order.
      */
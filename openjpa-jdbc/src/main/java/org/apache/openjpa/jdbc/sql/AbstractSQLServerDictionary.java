@@ -45,6 +45,7 @@ public abstract class AbstractSQLServerDictionary
         supportsDeferredConstraints = false;
         supportsSelectEndIndex = true;
         allowsAliasInBulkClause = false;
+        maxParameterCount = 2100;
 
         supportsAutoAssign = true;
         autoAssignClause = "IDENTITY";
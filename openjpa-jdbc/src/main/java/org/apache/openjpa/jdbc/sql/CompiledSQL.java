@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
+import org.apache.openjpa.jdbc.schema.Column;
+
+/**
+ * Immutable form of a {@link SQLBuffer}. The SQL text and the column of
+ * each parameter are computed once, so that the statement can be executed
+ * repeatedly by binding new parameter values only. The parameter values of
+ * the buffer are not retained.
+ *
+ * @see SQLBuffer#compile
+ * @since 3.2.3
+ */
+public final class CompiledSQL {
+
+    private final DBDictionary _dict;
+    private final String _sql;
+    private final List _cols;
+
+    /**
+     * Constructor for SQL whose parameter columns are not known.
+     */
+    public CompiledSQL(DBDictionary dict, String sql) {
+        this(dict, sql, Collections.EMPTY_LIST);
+    }
+
+    CompiledSQL(DBDictionary dict, String sql, List cols) {
+        _dict = dict;
+        _sql = sql;
+        _cols = cols;
+    }
+
+    /**
+     * Return the SQL text.
+     */
+    public String getSQL() {
+        return _sql;
+    }
+
+    /**
+     * Return the column of the parameter at the given 0-based index, or
+     * null if not known.
+     */
+    public Column getColumn(int index) {
+        return (index < _cols.size()) ? (Column) _cols.get(index) : null;
+    }
+
+    /**
+     * Create a prepared statement for this SQL, bound to the given parameter
+     * values in the order of the buffer parameters.
+     */
+    public PreparedStatement prepareStatement(Connection conn,
+        JDBCFetchConfiguration fetch, int rsType, int rsConcur,
+        Object[] params)
+        throws SQLException {
+        return SQLBuffer.prepareStatement(_dict, conn, _sql, fetch, rsType,
+            rsConcur, toList(params), _cols);
+    }
+
+    /**
+     * Bind the given parameter values, in the order of the buffer
+     * parameters, to the given statement.
+     */
+    public void setParameters(PreparedStatement ps, Object[] params)
+        throws SQLException {
+        SQLBuffer.setParameters(_dict, ps, toList(params), _cols);
+    }
+
+    private static List toList(Object[] params) {
+        return (params == null) ? null : Arrays.asList(params);
+    }
+
+    @Override
+    public String toString() {
+        return _sql;
+    }
+}
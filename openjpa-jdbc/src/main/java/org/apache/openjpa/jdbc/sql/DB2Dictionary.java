@@ -107,6 +107,7 @@ public class DB2Dictionary
         platform = "DB2";
         validationSQL = "SELECT DISTINCT(CURRENT TIMESTAMP) FROM SYSIBM.SYSTABLES";
         supportsSelectEndIndex = true;
+        supportsRowValueConstructors = true;
 
         nextSequenceQuery = "VALUES NEXTVAL FOR {0}";
 
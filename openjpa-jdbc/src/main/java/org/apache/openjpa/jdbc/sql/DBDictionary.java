@@ -276,6 +276,7 @@ public class DBDictionary
     public boolean supportsSimpleCaseExpression = true;
     public boolean supportsGeneralCaseExpression = true;
     public boolean useWildCardForCount = false;
+    public boolean supportsRowValueConstructors = false;
 
     /**
      * Some Databases append whitespace after the schema name
@@ -313,6 +314,7 @@ public class DBDictionary
     public int maxEmbeddedBlobSize = -1;
     public int maxEmbeddedClobSize = -1;
     public int inClauseLimit = -1;
+    public int maxParameterCount = -1;
 
     /**
      * Attention, while this is named datePrecision it actually only get used for Timestamp handling!
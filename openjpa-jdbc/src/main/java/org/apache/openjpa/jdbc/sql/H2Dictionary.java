@@ -157,6 +157,7 @@ public class H2Dictionary extends DBDictionary {
         platform = "H2";
         validationSQL = "CALL 1";
         closePoolSQL = "SHUTDOWN";
+        supportsRowValueConstructors = true;
 
         supportsAutoAssign = true;
         lastGeneratedKeyQuery = "CALL IDENTITY()";
@@ -61,6 +61,7 @@ public class HSQLDictionary extends DBDictionary {
         validationSQL = "CALL 1";
         concatenateFunction = "CONCAT({0},{1})";
         closePoolSQL = "SHUTDOWN";
+        supportsRowValueConstructors = true;
 
         supportsAutoAssign = true;
         lastGeneratedKeyQuery = "CALL IDENTITY()";
@@ -101,6 +101,8 @@ public class MariaDBDictionary extends DBDictionary {
         requiresTargetForDelete = true;
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsRowValueConstructors = true;
+        maxParameterCount = 65535;
 
         datePrecision = MICRO;
 
@@ -182,6 +182,8 @@ public class OracleDictionary
         maxEmbeddedBlobSize = 4000;
         maxEmbeddedClobSize = 4000;
         inClauseLimit = 1000;
+        maxParameterCount = 65535;
+        supportsRowValueConstructors = true;
 
         if (supportsAutoAssign && useTriggersForAutoAssign) {
             log.warn("Both 'supportsAutoAssign' and 'useTriggersForAutoAssign' were specified, such configuration will never work,"
@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCLockManager;
+import org.apache.openjpa.jdbc.kernel.JDBCStore;
+import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.jdbc.meta.ValueMapping;
+import org.apache.openjpa.kernel.LockLevels;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.util.Id;
+
+/**
+ * Executes the <code>parallel</code> mode eager selects of a result
+ * concurrently, each on its own connection.
+ *
+ * The first select executes on the calling thread and the store's
+ * connection, the others are handed to the
+ * {@link JDBCConfiguration#getEagerFetchExecutor eager fetch executor}.
+ * The calling thread then executes the selects that no pooled thread has
+ * started yet, so that a busy executor never makes the result slower
+ * to load than executing its selects one after another.
+ *
+ * @since 3.2.3
+ */
+class ParallelEagerExecutor {
+
+    /**
+     * Whether the eager selects of a result read through the given store
+     * may execute concurrently on separate connections: the data read must
+     * be the same on any connection, so there must be no transaction, or
+     * an unmanaged optimistic one that has neither flushed nor locks and
+     * whose isolation level is read committed or lower.
+     */
+    static boolean isParallel(JDBCStore store, JDBCFetchConfiguration fetch) {
+        JDBCConfiguration conf = store.getConfiguration();
+        if (conf.getEagerFetchParallelism() < 2)
+            return false;
+        StoreContext ctx = store.getContext();
+        if (!ctx.isActive())
+            return true;
+        if (ctx.isManaged() || ctx.isStoreActive()
+            || fetch.getReadLockLevel() != LockLevels.LOCK_NONE)
+            return false;
+        int isolation = conf.getTransactionIsolationConstant();
+        return isolation == Connection.TRANSACTION_READ_COMMITTED
+            || isolation == Connection.TRANSACTION_READ_UNCOMMITTED;
+    }
+
+    /**
+     * Execute the given selects and return their results under the same
+     * keys. If any select fails, the results of the others are closed.
+     */
+    static Map<Object, Result> execute(Map<Object, SelectExecutor> sels,
+        JDBCStore store, JDBCFetchConfiguration fetch) throws SQLException {
+        ExecutorService executor = store.getConfiguration().
+            getEagerFetchExecutor();
+        ParallelStore pstore = (store instanceof ParallelStore)
+            ? (ParallelStore) store : new ParallelStore(store);
+
+        Object firstKey = null;
+        SelectExecutor first = null;
+        List<Object> keys = new ArrayList<>(sels.size());
+        List<FutureTask<Result>> tasks = new ArrayList<>(sels.size());
+        for (Map.Entry<Object, SelectExecutor> entry : sels.entrySet()) {
+            if (first == null) {
+                firstKey = entry.getKey();
+                first = entry.getValue();
+                continue;
+            }
+            SelectExecutor sel = entry.getValue();
+            FutureTask<Result> task = new FutureTask<>(() ->
+                sel.execute(pstore, fetch));
+            keys.add(entry.getKey());
+            tasks.add(task);
+            if (executor != null) {
+                try {
+                    executor.execute(task);
+                } catch (RejectedExecutionException ree) {
+                    // executed below
+                }
+            }
+        }
+
+        Map<Object, Result> results = new HashMap<>();
+        Throwable err = null;
+        try {
+            results.put(firstKey, first.execute(store, fetch));
+        } catch (SQLException | RuntimeException e) {
+            err = e;
+        }
+        boolean interrupted = false;
+        for (int i = 0; i < tasks.size(); i++) {
+            FutureTask<Result> task = tasks.get(i);
+            // no-op if a pooled thread has started the task
+            task.run();
+            while (true) {
+                try {
+                    results.put(keys.get(i), task.get());
+                    break;
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                } catch (ExecutionException ee) {
+                    if (err == null)
+                        err = ee.getCause();
+                    break;
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (pstore != store)
+            pstore.release();
+
+        if (err == null)
+            return results;
+        for (Result res : results.values())
+            res.close();
+        if (err instanceof SQLException)
+            throw (SQLException) err;
+        if (err instanceof RuntimeException)
+            throw (RuntimeException) err;
+        throw (Error) err;
+    }
+
+    /**
+     * Store that gives each select its own connection while the selects
+     * execute. Afterwards, the results keep it for reading, and it then
+     * delegates to the store of the result.
+     */
+    private static class ParallelStore implements JDBCStore {
+
+        private final JDBCStore _store;
+        private volatile boolean _parallel = true;
+
+        public ParallelStore(JDBCStore store) {
+            _store = store;
+        }
+
+        /**
+         * Stop giving out connections of its own.
+         */
+        public void release() {
+            _parallel = false;
+        }
+
+        @Override
+        public Connection getConnection() {
+            if (_parallel)
+                return _store.getNewConnection();
+            return _store.getConnection();
+        }
+
+        @Override
+        public Connection getNewConnection() {
+            return _store.getNewConnection();
+        }
+
+        @Override
+        public StoreContext getContext() {
+            return _store.getContext();
+        }
+
+        @Override
+        public JDBCConfiguration getConfiguration() {
+            return _store.getConfiguration();
+        }
+
+        @Override
+        public DBDictionary getDBDictionary() {
+            return _store.getDBDictionary();
+        }
+
+        @Override
+        public SQLFactory getSQLFactory() {
+            return _store.getSQLFactory();
+        }
+
+        @Override
+        public JDBCLockManager getLockManager() {
+            return _store.getLockManager();
+        }
+
+        @Override
+        public JDBCFetchConfiguration getFetchConfiguration() {
+            return _store.getFetchConfiguration();
+        }
+
+        @Override
+        public Id newDataStoreId(long id, ClassMapping mapping,
+            boolean subs) {
+            return _store.newDataStoreId(id, mapping, subs);
+        }
+
+        @Override
+        public Object find(Object oid, ValueMapping vm,
+            JDBCFetchConfiguration fetch) {
+            return _store.find(oid, vm, fetch);
+        }
+
+        @Override
+        public void loadSubclasses(ClassMapping mapping) {
+            _store.loadSubclasses(mapping);
+        }
+    }
+}
@@ -134,6 +134,8 @@ public class PostgresDictionary extends DBDictionary {
         supportsDeferredConstraints = true;
         supportsSelectStartIndex = true;
         supportsSelectEndIndex = true;
+        supportsRowValueConstructors = true;
+        maxParameterCount = Short.MAX_VALUE;
 
         maxTableNameLength = 63;
         maxColumnNameLength = 63;
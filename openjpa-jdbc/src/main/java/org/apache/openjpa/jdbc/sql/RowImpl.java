@@ -29,6 +29,7 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Time;
 import java.sql.Timestamp;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Locale;
@@ -834,8 +835,64 @@ public class RowImpl
 
     /**
      * Generate the SQL for this row; the result of this method is cached.
+     * Rows of the same table that set and test the same columns share
+     * their SQL through the table.
      */
     protected String generateSQL(DBDictionary dict) {
+        SQLKey key = getSQLKey(dict);
+        if (key == null)
+            return buildSQL(dict);
+
+        Table table = getTable();
+        String sql = table.getRowSQL(key);
+        if (sql == null) {
+            sql = buildSQL(dict);
+            table.setRowSQL(key, sql);
+        }
+        return sql;
+    }
+
+    /**
+     * Return the key identifying the SQL of this row among the rows of its
+     * table, or null if the SQL depends on the values of this row.
+     */
+    private SQLKey getSQLKey(DBDictionary dict) {
+        if (_cols != getTable().getColumns())
+            return null;
+        for (int type : _types)
+            if (type == RAW)
+                return null;
+
+        // three bits per column: value set, where value, where null
+        long[] bits = new long[(_cols.length * 3 + 63) / 64];
+        int bit;
+        Object where;
+        for (int i = 0; i < _cols.length; i++) {
+            bit = i * 3;
+            if (_action != ACTION_DELETE && _vals[i] != null) {
+                if (!"?".equals(dict.getMarkerForInsertUpdate(_cols[i],
+                    _vals[i])))
+                    return null;
+                bits[bit >>> 6] |= 1L << (bit & 63);
+            }
+            if (_action != ACTION_INSERT) {
+                where = _vals[getWhereIndex(_cols[i])];
+                if (where == NULL)
+                    bit += 2;
+                else if (where != null)
+                    bit += 1;
+                else
+                    continue;
+                bits[bit >>> 6] |= 1L << (bit & 63);
+            }
+        }
+        return new SQLKey(dict, _cols, _action, bits);
+    }
+
+    /**
+     * Build the SQL for this row.
+     */
+    private String buildSQL(DBDictionary dict) {
         switch (getAction()) {
             case ACTION_UPDATE:
                 return getUpdateSQL(dict);
@@ -1082,4 +1139,42 @@ public class RowImpl
     public void setFlushed(boolean isFlushed) {
         _isFlushed = isFlushed;
     }
+
+    /**
+     * Key of the SQL of a row: the dictionary and columns the SQL is
+     * generated for, the action, and which columns are set and tested.
+     */
+    private static class SQLKey {
+
+        private final DBDictionary _dict;
+        private final Column[] _cols;
+        private final int _action;
+        private final long[] _bits;
+        private final int _hash;
+
+        public SQLKey(DBDictionary dict, Column[] cols, int action,
+            long[] bits) {
+            _dict = dict;
+            _cols = cols;
+            _action = action;
+            _bits = bits;
+            _hash = 31 * action + Arrays.hashCode(bits);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (other == this)
+                return true;
+            if (!(other instanceof SQLKey))
+                return false;
+            SQLKey key = (SQLKey) other;
+            return _dict == key._dict && _cols == key._cols
+                && _action == key._action && Arrays.equals(_bits, key._bits);
+        }
+    }
 }
@@ -73,6 +73,9 @@ public final class SQLBuffer
     private List _userIndex = null;
     private List _userParams = null;
 
+    // the SQL string, cached until the buffer changes
+    private transient String _str = null;
+
     /**
      * Default constructor.
      */
@@ -142,9 +145,10 @@ public final class SQLBuffer
 
         if (!paramOnly) {
             if (sqlIndex == _sql.length())
-                _sql.append(buf._sql.toString());
+                _sql.append(buf._sql);
             else
-                _sql.insert(sqlIndex, buf._sql.toString());
+                _sql.insert(sqlIndex, buf._sql);
+            _str = null;
         }
 
         if (buf._params != null) {
@@ -222,26 +226,31 @@ public final class SQLBuffer
 
     public SQLBuffer append(DBIdentifier name) {
         _sql.append(_dict.toDBName(name));
+        _str = null;
         return this;
     }
 
     public SQLBuffer append(Table table) {
         _sql.append(_dict.getFullName(table, false));
+        _str = null;
         return this;
     }
 
     public SQLBuffer append(Sequence seq) {
         _sql.append(_dict.getFullName(seq));
+        _str = null;
         return this;
     }
 
     public SQLBuffer append(Column col) {
         _sql.append(_dict.getColumnDBName(col));
+        _str = null;
         return this;
     }
 
     public SQLBuffer append(String s) {
         _sql.append(s);
+        _str = null;
         return this;
     }
 
@@ -272,6 +281,7 @@ public final class SQLBuffer
         sub.sqlIndex = _sql.length();
         sub.paramIndex = (_params == null) ? 0 : _params.size();
         _sql.append(")");
+        _str = null;
 
         if (_subsels == null)
             _subsels = new ArrayList(2);
@@ -323,6 +333,7 @@ public final class SQLBuffer
     }
 
     public SQLBuffer appendValue(Object o, Column col, Parameter userParam, boolean useParamToken) {
+        _str = null;
         if (o == null)
             _sql.append("NULL");
         else if (o instanceof Raw)
@@ -429,7 +440,9 @@ public final class SQLBuffer
      */
     public String getSQL(boolean replaceParams) {
         resolveSubselects();
-        String sql = _sql.toString();
+        if (_str == null)
+            _str = _sql.toString();
+        String sql = _str;
         if (!replaceParams || _params == null || _params.isEmpty())
             return sql;
 
@@ -454,6 +467,17 @@ public final class SQLBuffer
         return buf.toString();
     }
 
+    /**
+     * Return an immutable form of this buffer for repeated execution.
+     *
+     * @since 3.2.3
+     */
+    public CompiledSQL compile() {
+        List cols = (_cols == null) ? Collections.EMPTY_LIST
+            : Collections.unmodifiableList(new ArrayList(_cols));
+        return new CompiledSQL(_dict, getSQL(), cols);
+    }
+
     /**
      * Resolve our delayed subselects.
      */
@@ -504,6 +528,20 @@ public final class SQLBuffer
     public PreparedStatement prepareStatement(Connection conn,
         JDBCFetchConfiguration fetch, int rsType, int rsConcur)
         throws SQLException {
+        return prepareStatement(_dict, conn, getSQL(), fetch, rsType,
+            rsConcur, _params, _cols);
+    }
+
+    /**
+     * Create a prepared statement for the given SQL and populate it with
+     * the given parameters.
+     *
+     * @see CompiledSQL#prepareStatement
+     */
+    static PreparedStatement prepareStatement(DBDictionary dict,
+        Connection conn, String sql, JDBCFetchConfiguration fetch,
+        int rsType, int rsConcur, List params, List cols)
+        throws SQLException {
         if (rsType == -1 && fetch == null)
             rsType = ResultSet.TYPE_FORWARD_ONLY;
         else if (rsType == -1)
@@ -514,15 +552,15 @@ public final class SQLBuffer
         PreparedStatement stmnt;
         if (rsType == ResultSet.TYPE_FORWARD_ONLY
             && rsConcur == ResultSet.CONCUR_READ_ONLY)
-            stmnt = conn.prepareStatement(getSQL());
+            stmnt = conn.prepareStatement(sql);
         else
-            stmnt = conn.prepareStatement(getSQL(), rsType, rsConcur);
+            stmnt = conn.prepareStatement(sql, rsType, rsConcur);
         try {
-            setParameters(stmnt);
+            setParameters(dict, stmnt, params, cols);
             if (fetch != null) {
                 if (fetch.getFetchBatchSize() > 0)
                     stmnt.setFetchSize(
-                        _dict.getBatchFetchSize(fetch.getFetchBatchSize()));
+                        dict.getBatchFetchSize(fetch.getFetchBatchSize()));
                 if (rsType != ResultSet.TYPE_FORWARD_ONLY
                     && fetch.getFetchDirection() != ResultSet.FETCH_FORWARD)
                     stmnt.setFetchDirection(fetch.getFetchDirection());
@@ -603,13 +641,24 @@ public final class SQLBuffer
      */
     public void setParameters(PreparedStatement ps)
         throws SQLException {
-        if (_params == null)
+        setParameters(_dict, ps, _params, _cols);
+    }
+
+    /**
+     * Populate the parameters of an existing PreparedStatement with the
+     * given values, using the given parameter columns where known.
+     */
+    static void setParameters(DBDictionary dict, PreparedStatement ps,
+        List params, List cols)
+        throws SQLException {
+        if (params == null)
             return;
 
         Column col;
-        for (int i = 0; i < _params.size(); i++) {
-            col = (_cols == null) ? null : (Column) _cols.get(i);
-            _dict.setUnknown(ps, i + 1, _params.get(i), col);
+        for (int i = 0; i < params.size(); i++) {
+            col = (cols == null || i >= cols.size()) ? null
+                : (Column) cols.get(i);
+            dict.setUnknown(ps, i + 1, params.get(i), col);
         }
     }
 
@@ -624,7 +673,7 @@ public final class SQLBuffer
      * parameters.
      */
     public boolean sqlEquals(String sql) {
-        return _sql.toString().equals(sql);
+        return sql != null && sql.contentEquals(_sql);
     }
 
     @Override
@@ -647,8 +696,10 @@ public final class SQLBuffer
     public void addCastForParam(String oper, Val val) {
         if (_sql.charAt(_sql.length() - 1) == '?') {
             String castString = _dict.addCastAsType(oper, val);
-            if (castString != null)
+            if (castString != null) {
                 _sql.replace(_sql.length() - 1, _sql.length(), castString);
+                _str = null;
+            }
         }
     }
 
@@ -661,6 +712,7 @@ public final class SQLBuffer
      */
     public void replaceSqlString(int start, int end, String newString) {
         _sql.replace(start, end, newString);
+        _str = null;
     }
 
     /**
@@ -474,6 +474,19 @@ public class SelectImpl
         if (sel._eager == null)
             return;
 
+        // execute the separate selects concurrently when allowed
+        Map<Object, Result> parallel = null;
+        if (ParallelEagerExecutor.isParallel(store, fetch)) {
+            Map<Object, SelectExecutor> sels = new HashMap<>();
+            for (Object o : sel._eager.entrySet()) {
+                Map.Entry entry = (Map.Entry) o;
+                if (entry.getValue() != sel)
+                    sels.put(entry.getKey(), (SelectExecutor) entry.getValue());
+            }
+            if (sels.size() > 1)
+                parallel = ParallelEagerExecutor.execute(sels, store, fetch);
+        }
+
         // execute eager selects
         Map.Entry entry;
         Result eres;
@@ -486,6 +499,8 @@ public class SelectImpl
             // for relations and therefore should use default level
             if (entry.getValue() == sel)
                 eres = res;
+            else if (parallel != null)
+                eres = parallel.get(entry.getKey());
             else
                 eres = ((SelectExecutor) entry.getValue()).execute(store,
                         fetch);
@@ -0,0 +1,210 @@
+package org.apache.openjpa.jdbc.kernel;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.PrimaryRow;
+import org.apache.openjpa.jdbc.sql.Row;
+import org.apache.openjpa.jdbc.sql.RowImpl;
+import org.apache.openjpa.lib.jdbc.ReportingSQLException;
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.util.OpenJPAException;
+import org.junit.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class BatchingPreparedStatementManagerImplTest {
+    private static final String INSERT_PARENT = "INSERT INTO PARENT (ID) VALUES (?)";
+    private static final String INSERT_CHILD = "INSERT INTO CHILD (ID, PARENT_ID) VALUES (?, ?)";
+
+    private final DBDictionary dict = new DBDictionary();
+    private Table parent;
+    private Table child;
+
+    // executed statements, as "<sql> [<first parameter of each row>]"
+    private final List<String> executed = new ArrayList<>();
+    // SQL whose batches fail at the given index, or null
+    private String failingSql;
+    private int failingIndex;
+
+    @Before
+    public void setUpEachTime() {
+        this.parent = new Table(DBIdentifier.newTable("PARENT"), null);
+        Column parentId = column(this.parent, "ID");
+        this.parent.addPrimaryKey().addColumn(parentId);
+
+        this.child = new Table(DBIdentifier.newTable("CHILD"), null);
+        this.child.addPrimaryKey().addColumn(column(this.child, "ID"));
+        this.child.addForeignKey().join(column(this.child, "PARENT_ID"), parentId);
+    }
+
+    private static Column column(Table table, String name) {
+        Column col = table.addColumn(DBIdentifier.newColumn(name));
+        col.setJavaType(JavaTypes.INT);
+        col.setType(Types.INTEGER);
+        return col;
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, handler));
+    }
+
+    private PreparedStatement statement(String sql) {
+        List<Object> rows = new ArrayList<>();
+        Object[] current = new Object[1];
+        return proxy(PreparedStatement.class, (ps, method, args) -> {
+            switch (method.getName()) {
+            case "setInt":
+                if ((Integer) args[0] == 1) {
+                    current[0] = args[1];
+                }
+                return null;
+            case "addBatch":
+                rows.add(current[0]);
+                return null;
+            case "executeBatch":
+                this.executed.add(sql + " " + rows);
+                if (sql.equals(this.failingSql)) {
+                    ReportingSQLException e = new ReportingSQLException(
+                        new BatchUpdateException("failed", new int[this.failingIndex]), (PreparedStatement) ps, sql);
+                    e.setIndexOfFirstFailedObject(this.failingIndex);
+                    throw e;
+                }
+                int[] counts = new int[rows.size()];
+                Arrays.fill(counts, 1);
+                rows.clear();
+                return counts;
+            case "executeUpdate":
+                this.executed.add(sql + " " + Arrays.asList(current[0]));
+                return 1;
+            case "hashCode":
+                return System.identityHashCode(ps);
+            case "equals":
+                return ps == args[0];
+            case "toString":
+                return sql;
+            default:
+                return null;
+            }
+        });
+    }
+
+    private BatchingPreparedStatementManagerImpl newManager(boolean multiStatement) {
+        JDBCConfiguration conf = proxy(JDBCConfiguration.class, (c, method, args) ->
+            "getLog".equals(method.getName()) ? NoneLogFactory.NoneLog.getInstance() : null);
+        JDBCStore store = proxy(JDBCStore.class, (s, method, args) -> {
+            switch (method.getName()) {
+            case "getDBDictionary":
+                return this.dict;
+            case "getConfiguration":
+                return conf;
+            default:
+                return null;
+            }
+        });
+        Connection conn = proxy(Connection.class, (c, method, args) ->
+            "prepareStatement".equals(method.getName()) ? statement((String) args[0]) : null);
+        BatchingPreparedStatementManagerImpl manager = new BatchingPreparedStatementManagerImpl(store, conn, -1);
+        manager.setMultiStatementBatching(multiStatement);
+        return manager;
+    }
+
+    private RowImpl insertParent(int id) throws SQLException {
+        RowImpl row = new PrimaryRow(this.parent, Row.ACTION_INSERT, null);
+        row.setInt(this.parent.getColumns()[0], id);
+        row.setFailedObject("parent" + id);
+        return row;
+    }
+
+    private RowImpl insertChild(int id, int parentId) throws SQLException {
+        RowImpl row = new PrimaryRow(this.child, Row.ACTION_INSERT, null);
+        row.setInt(this.child.getColumns()[0], id);
+        row.setInt(this.child.getColumns()[1], parentId);
+        row.setFailedObject("child" + id);
+        return row;
+    }
+
+    private static void flushAll(BatchingPreparedStatementManagerImpl manager, RowImpl... rows) throws Exception {
+        for (RowImpl row : rows) {
+            manager.flush(row);
+        }
+        manager.flushBatch();
+        Assert.assertTrue(manager.getExceptions().isEmpty());
+    }
+
+    private RowImpl[] interleavedRows() throws SQLException {
+        return new RowImpl[]{ insertParent(1), insertChild(10, 1), insertParent(2), insertChild(20, 2),
+            insertParent(3), insertChild(30, 3) };
+    }
+
+    @Test
+    public void sqlChangesExecuteBatchTest() throws Exception {
+        BatchingPreparedStatementManagerImpl manager = newManager(false);
+        flushAll(manager, interleavedRows());
+        Assert.assertEquals(Arrays.asList(
+            INSERT_PARENT + " [1]", INSERT_CHILD + " [10]",
+            INSERT_PARENT + " [2]", INSERT_CHILD + " [20]",
+            INSERT_PARENT + " [3]", INSERT_CHILD + " [30]"), this.executed);
+        Assert.assertEquals(6, manager.getStatementCount());
+        Assert.assertEquals(0, manager.getBatchCount());
+    }
+
+    @Test
+    public void interleavedRowsShareBatchesTest() throws Exception {
+        BatchingPreparedStatementManagerImpl manager = newManager(true);
+        flushAll(manager, interleavedRows());
+        // all parents are inserted before their children
+        Assert.assertEquals(Arrays.asList(
+            INSERT_PARENT + " [1, 2, 3]",
+            INSERT_CHILD + " [10, 20, 30]"), this.executed);
+        Assert.assertEquals(2, manager.getStatementCount());
+        Assert.assertEquals(2, manager.getBatchCount());
+        Assert.assertEquals(6, manager.getBatchedRowCount());
+        Assert.assertEquals(3, manager.getLargestBatchSize());
+    }
+
+    @Test
+    public void dependentRowClosesOpenBatchesTest() throws Exception {
+        BatchingPreparedStatementManagerImpl manager = newManager(true);
+        // children of existing parents first; the third child could depend on the new parents, so it may not
+        // move ahead of them into the first batch
+        flushAll(manager, insertChild(10, 0), insertChild(20, 0), insertParent(1), insertParent(2),
+            insertChild(30, 1), insertChild(40, 2));
+        Assert.assertEquals(Arrays.asList(
+            INSERT_CHILD + " [10, 20]",
+            INSERT_PARENT + " [1, 2]",
+            INSERT_CHILD + " [30, 40]"), this.executed);
+        Assert.assertEquals(3, manager.getBatchCount());
+    }
+
+    @Test
+    public void failedRowOfLaterBatchIsReportedTest() throws Exception {
+        BatchingPreparedStatementManagerImpl manager = newManager(true);
+        this.failingSql = INSERT_CHILD;
+        this.failingIndex = 1;
+        for (RowImpl row : interleavedRows()) {
+            manager.flush(row);
+        }
+        try {
+            manager.flushBatch();
+            Assert.fail();
+        } catch (OpenJPAException e) {
+            // the index is relative to the failing batch, not to all rows flushed
+            Assert.assertEquals("child20", e.getFailedObject());
+        }
+        Assert.assertEquals(Arrays.asList(
+            INSERT_PARENT + " [1, 2, 3]",
+            INSERT_CHILD + " [10, 20, 30]"), this.executed);
+    }
+}
@@ -0,0 +1,142 @@
+package org.apache.openjpa.jdbc.kernel;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PreparedQueryCacheImplTest {
+    private static final int THREADS = 8;
+
+    private PreparedQueryCacheImpl cache;
+
+    @Before
+    public void setUpEachTime() {
+        this.cache = new PreparedQueryCacheImpl();
+        this.cache.setEnableStatistics(true);
+        this.cache.endConfiguration();
+    }
+
+    private static String query(int i) {
+        return "select p from Person p where p.id = " + i;
+    }
+
+    private boolean cache(int i) {
+        return this.cache.cache(new PreparedQueryImpl(query(i), "SELECT " + i, null));
+    }
+
+    private void runConcurrently(Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void concurrentLookupsLoseNoHitsTest() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(cache(i));
+        }
+        runConcurrently(() -> {
+            for (int n = 0; n < 10000; n++) {
+                Assert.assertNotNull(this.cache.get(query(n % 10)));
+            }
+        });
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(THREADS * 1000, this.cache.getCachedHitCount(query(i)));
+        }
+        Assert.assertEquals(0, this.cache.getEvictionCount());
+    }
+
+    @Test
+    public void concurrentCachingLosesNoQueriesTest() throws Exception {
+        this.cache.setMaxCacheSize(100);
+        AtomicInteger ids = new AtomicInteger();
+        runConcurrently(() -> {
+            for (int n = 0; n < 5000; n++) {
+                int i = ids.getAndIncrement();
+                Assert.assertTrue(cache(i));
+                this.cache.get(query(i));
+            }
+        });
+        // every query was cached once and is either still cached or evicted
+        Assert.assertEquals(THREADS * 5000, this.cache.getCacheSize() + this.cache.getEvictionCount());
+        this.cache.setMaxCacheSize(100);
+        Assert.assertTrue(this.cache.getCacheSize() <= 100);
+    }
+
+    @Test
+    public void lruEvictionTest() {
+        this.cache.setMaxCacheSize(10);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(cache(i));
+        }
+        for (int i = 0; i < 5; i++) {
+            this.cache.get(query(i));
+        }
+        Assert.assertTrue(cache(10));
+        // trimmed a tenth below the maximum size
+        Assert.assertEquals(9, this.cache.getCacheSize());
+        Assert.assertEquals(2, this.cache.getEvictionCount());
+        Assert.assertNull(this.cache.get(query(5)));
+        Assert.assertNull(this.cache.get(query(6)));
+        for (int i = 0; i < 5; i++) {
+            Assert.assertNotNull(this.cache.get(query(i)));
+        }
+        Assert.assertNotNull(this.cache.get(query(10)));
+        Assert.assertEquals(2, this.cache.getStatistics().getTotalEvictionCount());
+    }
+
+    @Test
+    public void lfuEvictionTest() {
+        this.cache.setMaxCacheSize(10);
+        this.cache.setEvictionPolicy("lfu");
+        for (int i = 0; i < 10; i++) {
+            Assert.assertTrue(cache(i));
+            for (int n = 0; n < 10 - i; n++) {
+                this.cache.get(query(i));
+            }
+        }
+        // recently used, but rarely
+        this.cache.get(query(9));
+        Assert.assertTrue(cache(10));
+        Assert.assertEquals(9, this.cache.getCacheSize());
+        Assert.assertNull(this.cache.get(query(9)));
+        Assert.assertNull(this.cache.get(query(8)));
+        Assert.assertNotNull(this.cache.get(query(10)));
+        Assert.assertNotNull(this.cache.get(query(0)));
+        Assert.assertEquals(11, this.cache.getCachedHitCount(query(0)));
+    }
+
+    @Test
+    public void exclusionTest() {
+        Assert.assertTrue(cache(1));
+        this.cache.addExclusionPattern(query(1));
+        Assert.assertNull(this.cache.get(query(1)));
+        Assert.assertFalse(cache(1));
+        this.cache.removeExclusionPattern(query(1));
+        Assert.assertTrue(cache(1));
+    }
+}
@@ -0,0 +1,203 @@
+package org.apache.openjpa.jdbc.kernel;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.junit.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+public class TableJDBCSeqTest {
+    private static final int ALLOCATE = 10;
+
+    private final AtomicInteger dataSourceConnections = new AtomicInteger();
+    private final AtomicBoolean storeClosed = new AtomicBoolean();
+    private JDBCStore store;
+    private TestSeq seq;
+
+    /**
+     * Sequence whose table is a counter, recording the threads that reserve blocks.
+     */
+    private static class TestSeq extends TableJDBCSeq {
+        private final Status status = new Status();
+        private final AtomicLong table = new AtomicLong(1);
+        private final List<String> reservedBy = new ArrayList<>();
+        private volatile CountDownLatch prefetchGate;
+        private final CountDownLatch prefetchStarted = new CountDownLatch(1);
+
+        @Override
+        protected Status getStatus(ClassMapping mapping) {
+            return this.status;
+        }
+
+        @Override
+        protected boolean setSequence(ClassMapping mapping, Status stat, int inc, boolean updateStatSeq,
+            Connection conn) throws SQLException {
+            if (this.prefetchGate != null && isPrefetchThread()) {
+                this.prefetchStarted.countDown();
+                try {
+                    this.prefetchGate.await();
+                } catch (InterruptedException e) {
+                    throw new SQLException("interrupted", e);
+                }
+            }
+            long cur = this.table.getAndAdd(inc);
+            synchronized (this.reservedBy) {
+                this.reservedBy.add(Thread.currentThread().getName());
+            }
+            synchronized (stat) {
+                if (updateStatSeq && stat.seq < cur) {
+                    stat.seq = cur;
+                }
+                if (stat.max < cur + inc) {
+                    stat.max = cur + inc;
+                }
+            }
+            return true;
+        }
+
+        private int prefetches() {
+            synchronized (this.reservedBy) {
+                return (int) this.reservedBy.stream().filter("openjpa-seq-prefetch"::equals).count();
+            }
+        }
+    }
+
+    private static boolean isPrefetchThread() {
+        return "openjpa-seq-prefetch".equals(Thread.currentThread().getName());
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, (p, method, args) -> {
+            Object result = handler.invoke(p, method, args);
+            if (result == null && method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return result;
+        }));
+    }
+
+    @Before
+    public void setUpEachTime() {
+        Connection conn = proxy(Connection.class, (c, method, args) -> null);
+        DataSource dataSource = proxy(DataSource.class, (ds, method, args) -> {
+            if ("getConnection".equals(method.getName())) {
+                this.dataSourceConnections.incrementAndGet();
+                return conn;
+            }
+            return null;
+        });
+        JDBCConfiguration conf = proxy(JDBCConfiguration.class, (c, method, args) -> {
+            switch (method.getName()) {
+            case "getLog":
+                return NoneLogFactory.NoneLog.getInstance();
+            case "getDataSource2":
+                return dataSource;
+            default:
+                return null;
+            }
+        });
+        this.store = proxy(JDBCStore.class, (s, method, args) -> {
+            if (this.storeClosed.get()) {
+                throw new IllegalStateException("store closed");
+            }
+            return "getConfiguration".equals(method.getName()) ? conf : null;
+        });
+
+        this.seq = new TestSeq();
+        this.seq.setConfiguration(conf);
+        this.seq.setAllocate(ALLOCATE);
+        this.seq.setPrefetch(true);
+    }
+
+    @After
+    public void tearDownEachTime() {
+        this.seq.close();
+    }
+
+    private List<Long> next(int count) throws Exception {
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            values.add(((Number) this.seq.nextInternal(this.store, null)).longValue());
+        }
+        return values;
+    }
+
+    private static List<Long> range(long from, long to) {
+        List<Long> values = new ArrayList<>();
+        for (long i = from; i < to; i++) {
+            values.add(i);
+        }
+        return values;
+    }
+
+    private void awaitPrefetches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (this.seq.prefetches() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(count, this.seq.prefetches());
+    }
+
+    @Test
+    public void lowWaterMarkPrefetchesNextBlockTest() throws Exception {
+        Assert.assertEquals(ALLOCATE / 5, this.seq.getLowWaterMark());
+        Assert.assertEquals(range(1, ALLOCATE - 1), next(ALLOCATE - 2));
+        Assert.assertEquals(0, this.seq.prefetches());
+
+        // handing out the value at the low water mark reserves the next block in the background
+        Assert.assertEquals(range(ALLOCATE - 1, ALLOCATE), next(1));
+        awaitPrefetches(1);
+        Assert.assertEquals(range(ALLOCATE, 3 * ALLOCATE), next(2 * ALLOCATE));
+        awaitPrefetches(3);
+        Assert.assertEquals(1, this.seq.reservedBy.size() - this.seq.prefetches());
+    }
+
+    @Test
+    public void prefetchDoesNotUseStoreTest() throws Exception {
+        Assert.assertEquals(range(1, ALLOCATE), next(ALLOCATE - 1));
+        awaitPrefetches(1);
+        // the next block was reserved with a connection of the non-JTA data source
+        Assert.assertTrue(this.dataSourceConnections.get() > 0);
+
+        this.storeClosed.set(true);
+        Assert.assertEquals(range(ALLOCATE, 2 * ALLOCATE), next(ALLOCATE));
+        awaitPrefetches(2);
+    }
+
+    @Test
+    public void closeWhilePrefetchingTest() throws Exception {
+        this.seq.prefetchGate = new CountDownLatch(1);
+        Assert.assertEquals(range(1, ALLOCATE), next(ALLOCATE - 1));
+        Assert.assertTrue(this.seq.prefetchStarted.await(10, TimeUnit.SECONDS));
+
+        // the interrupted prefetch does not keep callers waiting, and reserves nothing
+        this.seq.close();
+        this.seq.prefetchGate = null;
+        Assert.assertEquals(range(ALLOCATE, 3 * ALLOCATE), next(2 * ALLOCATE));
+    }
+
+    @Test
+    public void allocateKeepsCurrentBlockTest() throws Exception {
+        Assert.assertEquals(range(1, 4), next(3));
+        this.seq.allocateInternal(5, this.store, null);
+        Assert.assertEquals(1, this.seq.reservedBy.size());
+
+        // more than the values left in the current block; the new block is queued behind it
+        this.seq.allocateInternal(3 * ALLOCATE, this.store, null);
+        Assert.assertEquals(2, this.seq.reservedBy.size());
+        Assert.assertEquals(range(4, 3 * ALLOCATE + 4), next(3 * ALLOCATE));
+    }
+}
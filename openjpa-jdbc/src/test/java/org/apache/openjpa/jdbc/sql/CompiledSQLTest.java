@@ -0,0 +1,132 @@
+package org.apache.openjpa.jdbc.sql;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.meta.JavaTypes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompiledSQLTest {
+
+    private final DBDictionary _dict = new DBDictionary();
+    // calls made on prepared statements, as "<method> <index> <value>"
+    private final List<String> _calls = new ArrayList<>();
+    private Column _id;
+    private Column _name;
+    private boolean _failBinding;
+    private boolean _closed;
+
+    @Before
+    public void setUp() {
+        Table table = new Table("T", null);
+        _id = column(table, "ID", JavaTypes.INT, Types.INTEGER);
+        _name = column(table, "NAME", JavaTypes.STRING, Types.VARCHAR);
+    }
+
+    private static Column column(Table table, String name, int javaType,
+        int type) {
+        Column col = table.addColumn(name);
+        col.setJavaType(javaType);
+        col.setType(type);
+        return col;
+    }
+
+    private SQLBuffer newBuffer(int id, String name) {
+        return new SQLBuffer(_dict).append("SELECT * FROM T WHERE ID = ")
+            .appendValue(id, _id).append(" AND NAME = ")
+            .appendValue(name, _name);
+    }
+
+    private Connection newConnection() {
+        return (Connection) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ Connection.class },
+            (conn, method, args) -> {
+                if (method.getName().equals("prepareStatement")) {
+                    _calls.add("prepare " + args[0]);
+                    return newStatement();
+                }
+                return null;
+            });
+    }
+
+    private PreparedStatement newStatement() {
+        return (PreparedStatement) Proxy.newProxyInstance(
+            getClass().getClassLoader(),
+            new Class[]{ PreparedStatement.class },
+            (ps, method, args) -> {
+                String name = method.getName();
+                if (name.equals("close")) {
+                    _closed = true;
+                    return null;
+                }
+                if (name.startsWith("set")) {
+                    if (_failBinding)
+                        throw new SQLException("bind");
+                    _calls.add(name + " " + args[0] + " " + args[1]);
+                }
+                return null;
+            });
+    }
+
+    @Test
+    public void compiledSQLKeepsTextAndColumns() {
+        CompiledSQL sql = newBuffer(1, "a").compile();
+        Assert.assertEquals(newBuffer(1, "a").getSQL(), sql.getSQL());
+        Assert.assertSame(_id, sql.getColumn(0));
+        Assert.assertSame(_name, sql.getColumn(1));
+        Assert.assertNull(sql.getColumn(2));
+    }
+
+    @Test
+    public void compiledSQLBindsLikeBuffer() throws SQLException {
+        newBuffer(2, "b").prepareStatement(newConnection());
+        List<String> expected = new ArrayList<>(_calls);
+        _calls.clear();
+
+        CompiledSQL sql = newBuffer(1, "a").compile();
+        sql.prepareStatement(newConnection(), null, -1, -1,
+            new Object[]{ 2, "b" });
+        Assert.assertEquals(expected, _calls);
+    }
+
+    @Test
+    public void compiledSQLDoesNotRetainValues() throws SQLException {
+        CompiledSQL sql = newBuffer(1, "a").compile();
+        sql.prepareStatement(newConnection(), null, -1, -1, null);
+        Assert.assertEquals(Arrays.asList("prepare " + sql.getSQL()),
+            _calls);
+    }
+
+    @Test
+    public void compiledSQLWithoutColumnsBindsByValue() throws SQLException {
+        CompiledSQL sql = new CompiledSQL(_dict, "SELECT * FROM T WHERE ID = ?");
+        Assert.assertNull(sql.getColumn(0));
+        PreparedStatement ps = newStatement();
+        sql.setParameters(ps, new Object[]{ 3 });
+        Assert.assertEquals(Arrays.asList("setInt 1 3"), _calls);
+    }
+
+    @Test
+    public void statementIsClosedWhenBindingFails() {
+        CompiledSQL sql = newBuffer(1, "a").compile();
+        _failBinding = true;
+        try {
+            sql.prepareStatement(newConnection(), null, -1, -1,
+                new Object[]{ 2, "b" });
+            Assert.fail("Expected binding failure");
+        } catch (SQLException se) {
+            Assert.assertEquals("bind", se.getMessage());
+        }
+        Assert.assertTrue(_closed);
+    }
+}
@@ -0,0 +1,250 @@
+package org.apache.openjpa.jdbc.sql;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCFetchConfiguration;
+import org.apache.openjpa.jdbc.kernel.JDBCStore;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelEagerExecutorTest {
+
+    private static final int SELECTS = 6;
+
+    private final Connection _storeConn = newProxy(Connection.class, null);
+    private final Set<Connection> _newConns =
+        Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Set<Result> _closed =
+        Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private final Map<Object, Set<Connection>> _used =
+        new ConcurrentHashMap<>();
+    private ExecutorService _executor;
+
+    @After
+    public void tearDown() {
+        if (_executor != null)
+            _executor.shutdownNow();
+    }
+
+    @Test
+    public void pooledResultsMatchSequential() throws SQLException {
+        _executor = Executors.newFixedThreadPool(SELECTS);
+        assertMatchesSequential(newStore(_executor));
+    }
+
+    @Test
+    public void callerRunsTasksWithoutExecutor() throws SQLException {
+        assertMatchesSequential(newStore(null));
+    }
+
+    @Test
+    public void callerRunsTasksOfBusyExecutor() throws Exception {
+        _executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch busy = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        _executor.execute(() -> {
+            busy.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        busy.await();
+        try {
+            assertMatchesSequential(newStore(_executor));
+        } finally {
+            release.countDown();
+        }
+        // the queued tasks were run by the caller and are no-ops now
+        _executor.shutdown();
+        Assert.assertTrue(_executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void callerRunsRejectedTasks() throws SQLException {
+        _executor = Executors.newSingleThreadExecutor();
+        _executor.shutdown();
+        assertMatchesSequential(newStore(_executor));
+    }
+
+    @Test
+    public void failedSelectPropagatesException() {
+        _executor = Executors.newFixedThreadPool(2);
+        SQLException failure = new SQLException("select 3 failed");
+        Map<Object, SelectExecutor> sels = newSelects(3, failure);
+        try {
+            ParallelEagerExecutor.execute(sels, newStore(_executor), null);
+            Assert.fail("Expected SQLException");
+        } catch (SQLException se) {
+            Assert.assertSame(failure, se);
+        }
+        // every result obtained was closed
+        Assert.assertEquals(SELECTS - 1, _closed.size());
+    }
+
+    @Test
+    public void failedFirstSelectPropagatesException() {
+        RuntimeException failure = new IllegalStateException("select 0");
+        Map<Object, SelectExecutor> sels = newSelects(0, failure);
+        try {
+            ParallelEagerExecutor.execute(sels, newStore(null), null);
+            Assert.fail("Expected IllegalStateException");
+        } catch (SQLException se) {
+            Assert.fail(se.toString());
+        } catch (IllegalStateException ise) {
+            Assert.assertSame(failure, ise);
+        }
+        Assert.assertEquals(SELECTS - 1, _closed.size());
+    }
+
+    /**
+     * Execute the selects in parallel and one after another, and compare
+     * the results of each key. The first select must use the store's
+     * connection and the others a new connection each.
+     */
+    private void assertMatchesSequential(JDBCStore store) throws SQLException {
+        Map<Object, SelectExecutor> sels = newSelects(-1, null);
+        Map<Object, Result> expected = new LinkedHashMap<>();
+        for (Map.Entry<Object, SelectExecutor> entry : sels.entrySet())
+            expected.put(entry.getKey(), entry.getValue().execute(store, null));
+        _used.clear();
+
+        Map<Object, Result> results = ParallelEagerExecutor.execute(sels,
+            store, null);
+        Assert.assertEquals(expected.keySet(), results.keySet());
+        for (Object key : expected.keySet()) {
+            Assert.assertEquals(key, toString(expected.get(key)));
+            Assert.assertEquals(key, toString(results.get(key)));
+        }
+        Assert.assertTrue(_closed.isEmpty());
+
+        List<Object> keys = new ArrayList<>(sels.keySet());
+        Assert.assertEquals(Collections.singleton(_storeConn),
+            _used.get(keys.get(0)));
+        Set<Connection> conns = new HashSet<>();
+        for (Object key : keys.subList(1, keys.size())) {
+            Set<Connection> used = _used.get(key);
+            Assert.assertEquals(1, used.size());
+            Assert.assertTrue(_newConns.containsAll(used));
+            conns.addAll(used);
+        }
+        Assert.assertEquals(SELECTS - 1, conns.size());
+    }
+
+    /**
+     * Selects that read a connection from the store and return a result
+     * named after their key. The select of the given index fails with the
+     * given exception.
+     */
+    private Map<Object, SelectExecutor> newSelects(int failing,
+        final Exception failure) {
+        Map<Object, SelectExecutor> sels = new LinkedHashMap<>();
+        for (int i = 0; i < SELECTS; i++) {
+            final String key = "field" + i;
+            final boolean fail = i == failing;
+            sels.put(key, newProxy(SelectExecutor.class, (proxy, m, args) -> {
+                if (!"execute".equals(m.getName()))
+                    return defaultValue(m);
+                JDBCStore store = (JDBCStore) args[0];
+                _used.computeIfAbsent(key, k -> Collections.newSetFromMap(
+                    new ConcurrentHashMap<>())).add(store.getConnection());
+                if (fail)
+                    throw failure;
+                return newResult(key);
+            }));
+        }
+        return sels;
+    }
+
+    private Result newResult(final String name) {
+        final Result[] result = new Result[1];
+        result[0] = newProxy(Result.class, (proxy, m, args) -> {
+            if ("close".equals(m.getName())) {
+                _closed.add(result[0]);
+                return null;
+            }
+            if ("toString".equals(m.getName()))
+                return name;
+            if ("hashCode".equals(m.getName()))
+                return System.identityHashCode(proxy);
+            if ("equals".equals(m.getName()))
+                return proxy == args[0];
+            return defaultValue(m);
+        });
+        return result[0];
+    }
+
+    private JDBCStore newStore(final ExecutorService executor) {
+        final JDBCConfiguration conf = newProxy(JDBCConfiguration.class,
+            (proxy, m, args) -> {
+                if ("getEagerFetchExecutor".equals(m.getName()))
+                    return executor;
+                if ("getEagerFetchParallelism".equals(m.getName()))
+                    return SELECTS;
+                return defaultValue(m);
+            });
+        return newProxy(JDBCStore.class, (proxy, m, args) -> {
+            switch (m.getName()) {
+                case "getConfiguration":
+                    return conf;
+                case "getConnection":
+                    return _storeConn;
+                case "getNewConnection":
+                    Connection conn = newProxy(Connection.class, null);
+                    _newConns.add(conn);
+                    return conn;
+                default:
+                    return defaultValue(m);
+            }
+        });
+    }
+
+    private static String toString(Result res) {
+        return (res == null) ? null : res.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newProxy(Class<T> type, InvocationHandler handler) {
+        final InvocationHandler h = (handler != null) ? handler
+            : (proxy, m, args) -> {
+                if ("hashCode".equals(m.getName()))
+                    return System.identityHashCode(proxy);
+                if ("equals".equals(m.getName()))
+                    return proxy == args[0];
+                return defaultValue(m);
+            };
+        return (T) Proxy.newProxyInstance(
+            ParallelEagerExecutorTest.class.getClassLoader(),
+            new Class<?>[] { type }, h);
+    }
+
+    private static Object defaultValue(Method m) {
+        Class<?> type = m.getReturnType();
+        if (type == boolean.class)
+            return false;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        return null;
+    }
+}
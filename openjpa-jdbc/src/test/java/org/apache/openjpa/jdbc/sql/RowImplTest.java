@@ -0,0 +1,94 @@
+package org.apache.openjpa.jdbc.sql;
+
+import java.sql.Types;
+
+import org.apache.openjpa.jdbc.identifier.DBIdentifier;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.schema.Table;
+import org.apache.openjpa.meta.JavaTypes;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RowImplTest {
+
+    private final DBDictionary _dict = new DBDictionary();
+    private Table _table;
+    private Column _id;
+    private Column _name;
+    private Column _age;
+
+    @Before
+    public void setUp() {
+        _table = new Table("PERSON", null);
+        _id = column("ID", JavaTypes.INT, Types.INTEGER);
+        _name = column("NAME", JavaTypes.STRING, Types.VARCHAR);
+        _age = column("AGE", JavaTypes.INT, Types.INTEGER);
+        _table.addPrimaryKey().addColumn(_id);
+    }
+
+    private Column column(String name, int javaType, int type) {
+        Column col = _table.addColumn(name);
+        col.setJavaType(javaType);
+        col.setType(type);
+        return col;
+    }
+
+    private RowImpl insert(int id, String name) throws Exception {
+        RowImpl row = new RowImpl(_table, Row.ACTION_INSERT);
+        row.setInt(_id, id);
+        row.setString(_name, name);
+        return row;
+    }
+
+    private RowImpl update(int id, String name) throws Exception {
+        RowImpl row = new RowImpl(_table, Row.ACTION_UPDATE);
+        row.setString(_name, name);
+        row.whereInt(_id, id);
+        return row;
+    }
+
+    @Test
+    public void rowsWithSameColumnsShareSQL() throws Exception {
+        String sql = insert(1, "a").getSQL(_dict);
+        Assert.assertSame(sql, insert(2, "b").getSQL(_dict));
+
+        String update = update(1, "a").getSQL(_dict);
+        Assert.assertNotEquals(sql, update);
+        Assert.assertSame(update, update(2, "b").getSQL(_dict));
+    }
+
+    @Test
+    public void rowsWithDifferentColumnsDoNotShareSQL() throws Exception {
+        String sql = insert(1, "a").getSQL(_dict);
+
+        RowImpl other = insert(2, "b");
+        other.setInt(_age, 30);
+        String otherSQL = other.getSQL(_dict);
+        Assert.assertNotEquals(sql, otherSQL);
+        Assert.assertTrue(otherSQL.contains("AGE"));
+
+        RowImpl nulled = update(1, "a");
+        nulled.whereNull(_age);
+        String nulledSQL = nulled.getSQL(_dict);
+        Assert.assertTrue(nulledSQL.contains("AGE IS NULL"));
+        Assert.assertNotEquals(update(1, "a").getSQL(_dict), nulledSQL);
+    }
+
+    @Test
+    public void rowSQLIsDroppedWhenTableIsRenamed() throws Exception {
+        String sql = insert(1, "a").getSQL(_dict);
+        _table.setIdentifier(DBIdentifier.newTable("HUMAN"));
+        String renamed = insert(2, "b").getSQL(_dict);
+        Assert.assertNotEquals(sql, renamed);
+        Assert.assertTrue(renamed.contains("HUMAN"));
+    }
+
+    @Test
+    public void rowSQLCacheIsBounded() {
+        for (int i = 0; i < 300; i++)
+            _table.setRowSQL(i, "SQL " + i);
+        Assert.assertEquals("SQL 255", _table.getRowSQL(255));
+        Assert.assertNull(_table.getRowSQL(256));
+    }
+}
@@ -61,6 +61,7 @@ public class CacheMarshallerImpl
     private String _inputResourceLocation;
 
     private boolean _consumeErrors = true;
+    private boolean _autoStore = false;
 
     @Override
     public Object load() {
@@ -173,6 +174,28 @@ public class CacheMarshallerImpl
         _consumeErrors = consume;
     }
 
+    /**
+     * Whether the runtime should store data that it had to create because
+     * none could be loaded, so that the first execution creates the cache and
+     * stale data is replaced. Defaults to false, in which case data is only
+     * stored by tools such as {@link MetaDataCacheMaintenance}.
+     *
+     * @since 3.2.3
+     */
+    public void setAutoStore(boolean autoStore) {
+        _autoStore = autoStore;
+    }
+
+    /**
+     * Whether the runtime should store data that it had to create because
+     * none could be loaded.
+     *
+     * @since 3.2.3
+     */
+    public boolean isAutoStore() {
+        return _autoStore;
+    }
+
     @Override
     public String getId() {
         return _id;
@@ -35,6 +35,8 @@ public class MetaDataRepositoryValue
 
     private static final String KEY = "MetaDataRepository";
 
+    private boolean _cached;
+
     public MetaDataRepositoryValue() {
         super(KEY, false);
         String[] aliases = new String[] {
@@ -64,11 +66,44 @@ public class MetaDataRepositoryValue
                 conf.getQueryCompilationCacheInstance().putAll((Map) os[1]);
         }
 
+        _cached = repos != null;
         if (repos == null)
             return super.instantiate(type, c, fatal);
         else
             return repos;
     }
 
+    /**
+     * Whether the last repository instantiated by this value was loaded
+     * from the cache rather than created empty.
+     *
+     * @since 3.2.3
+     */
+    public boolean isCached() {
+        return _cached;
+    }
+
+    /**
+     * Store the given repository, which should be fully resolved, unless it
+     * was loaded from the cache or the cache marshaller for
+     * {@link MetaDataCacheMaintenance} does not ask for
+     * {@link CacheMarshallerImpl#setAutoStore automatic storage}.
+     *
+     * @since 3.2.3
+     */
+    public void storeIfNotCached(OpenJPAConfiguration conf,
+        MetaDataRepository repos) {
+        if (_cached)
+            return;
+        CacheMarshaller cm = CacheMarshallersValue.getMarshallerById(
+            conf, MetaDataCacheMaintenance.class.getName());
+        if (cm instanceof CacheMarshallerImpl
+            && ((CacheMarshallerImpl) cm).isAutoStore()) {
+            cm.store(new Object[] {
+                repos, conf.getQueryCompilationCacheInstance()
+            });
+            _cached = true;
+        }
+    }
 
 }
@@ -0,0 +1,322 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.conf;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.openjpa.conf.CacheMarshaller.ValidationPolicy;
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.conf.Configurations;
+import org.apache.openjpa.lib.conf.Value;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.meta.SourceTracker;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.lib.util.Options;
+import org.apache.openjpa.meta.AbstractCFMetaDataFactory;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataFactory;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.InternalException;
+
+/**
+ * Compute validity based on a fingerprint of the persistence unit the
+ * cached data was created for, in addition to the checks of
+ * {@link OpenJPAVersionAndConfigurationTypeValidationPolicy}.
+ *
+ * The fingerprint covers the configuration properties that influence
+ * mapping, as listed by {@link #setConfigurationProperties}, the class files
+ * of all persistent types named by the configured metadata factory and, when
+ * the cached data contains a {@link MetaDataRepository}, of its persistent
+ * types, the XML files their metadata was parsed from, the mapping files of
+ * the unit and the descriptor resources listed by {@link #setResources}.
+ * The fingerprint is recomputed from the current unit whenever cached data
+ * is validated, so cached data is considered stale, and ignored, as soon as
+ * any of these changes, a type is added to or removed from the unit, or a
+ * file can no longer be found. Properties that only locate the persistence
+ * unit, such as the metadata factory's jar and directory URLs, are
+ * deliberately left out so that data stored at build time remains valid
+ * once deployed.
+ *
+ * @since 3.2.3
+ */
+public class PersistenceUnitValidationPolicy
+    implements ValidationPolicy, Configurable {
+
+    private static final Localizer _loc =
+        Localizer.forPackage(PersistenceUnitValidationPolicy.class);
+
+    private static final String CLASS_PREFIX = "class:";
+    private static final String FILE_PREFIX = "file:";
+    private static final String RESOURCE_PREFIX = "resource:";
+
+    private OpenJPAConfiguration _conf;
+    private Log _log;
+    private String[] _props = { "Mapping", "MappingDefaults", "DBDictionary" };
+    private String[] _rsrcs = { "META-INF/persistence.xml", "META-INF/orm.xml" };
+
+    /**
+     * Whitespace separated names of the configuration properties whose
+     * values are part of the fingerprint. Defaults to
+     * <code>Mapping MappingDefaults DBDictionary</code>. Names that are
+     * not defined by the configuration are ignored.
+     */
+    public void setConfigurationProperties(String props) {
+        _props = split(props);
+    }
+
+    public String getConfigurationProperties() {
+        return String.join(" ", _props);
+    }
+
+    /**
+     * Whitespace separated resource paths of descriptors whose contents are
+     * part of the fingerprint, in addition to the mapping files of the unit.
+     * Every resource of the given path visible to the class loader is
+     * digested. Defaults to
+     * <code>META-INF/persistence.xml META-INF/orm.xml</code>.
+     */
+    public void setResources(String rsrcs) {
+        _rsrcs = split(rsrcs);
+    }
+
+    public String getResources() {
+        return String.join(" ", _rsrcs);
+    }
+
+    private static String[] split(String str) {
+        return (str == null || str.trim().isEmpty()) ? new String[0]
+            : str.trim().split("\\s+");
+    }
+
+    @Override
+    public Object getCacheableData(Object o) {
+        return new Object[] {
+            OpenJPAVersion.VERSION_ID,
+            _conf.getClass().getName(),
+            fingerprint(getSources(o)),
+            o,
+        };
+    }
+
+    @Override
+    public Object getValidData(Object o) {
+        if (!(o instanceof Object[]) || ((Object[]) o).length != 4)
+            return null;
+
+        Object[] array = (Object[]) o;
+        if (!OpenJPAVersion.VERSION_ID.equals(array[0])
+            || !_conf.getClass().getName().equals(array[1]))
+            return null;
+
+        byte[] fingerprint = fingerprint(getSources(array[3]));
+        if (fingerprint == null || !Arrays.equals(fingerprint, (byte[]) array[2])) {
+            if (_log.isInfoEnabled())
+                _log.info(_loc.get("cache-marshaller-stale"));
+            return null;
+        }
+        return array[3];
+    }
+
+    /**
+     * Return the sources of the current persistence unit and of the given
+     * data, or null if the persistent types of the unit cannot be listed.
+     */
+    private SortedSet<String> getSources(Object o) {
+        SortedSet<String> sources = new TreeSet<>();
+        for (String rsrc : _rsrcs)
+            sources.add(RESOURCE_PREFIX + rsrc);
+        if (!addUnitSources(sources))
+            return null;
+
+        if (o instanceof Object[]) {
+            for (Object elem : (Object[]) o)
+                if (elem instanceof MetaDataRepository)
+                    addSources((MetaDataRepository) elem, sources);
+        } else if (o instanceof MetaDataRepository)
+            addSources((MetaDataRepository) o, sources);
+        return sources;
+    }
+
+    /**
+     * Add the persistent types and mapping files the configured metadata
+     * factory lists for the unit. A fresh factory is used so that types
+     * added since the data was stored are seen.
+     */
+    private boolean addUnitSources(SortedSet<String> sources) {
+        try {
+            MetaDataFactory mdf = _conf.newMetaDataFactoryInstance();
+            if (mdf != null) {
+                MetaDataRepository repos = new MetaDataRepository();
+                repos.setConfiguration(_conf);
+                repos.setMetaDataFactory(mdf);
+                Set<String> names = mdf.getPersistentTypeNames(false,
+                    getClassLoader());
+                if (names != null)
+                    for (String name : names)
+                        sources.add(toClassSource(name));
+            }
+        } catch (RuntimeException re) {
+            if (_log.isTraceEnabled())
+                _log.trace(_loc.get("cache-marshaller-source-error",
+                    _conf.getMetaDataFactory()), re);
+            return false;
+        }
+
+        Options opts = Configurations.parseProperties(Configurations.
+            getProperties(_conf.getMetaDataFactory()));
+        String rsrcs = opts.getProperty("Resources", "resources", null);
+        if (rsrcs != null)
+            for (String rsrc : rsrcs.split(";"))
+                if (!rsrc.trim().isEmpty())
+                    sources.add(RESOURCE_PREFIX + rsrc.trim());
+        String files = opts.getProperty("Files", "files", null);
+        if (files != null) {
+            for (String name : files.split(";")) {
+                File file = new File(name.trim());
+                if (!name.trim().isEmpty() && !file.isDirectory())
+                    sources.add(FILE_PREFIX + file.getAbsolutePath());
+            }
+        }
+
+        if (_conf instanceof OpenJPAConfigurationImpl) {
+            Map<String, Object> env = ((OpenJPAConfigurationImpl) _conf).
+                getPersistenceEnvironment();
+            Object mappingFiles = (env == null) ? null
+                : env.get(AbstractCFMetaDataFactory.MAPPING_FILE_NAMES);
+            if (mappingFiles instanceof Collection)
+                for (Object rsrc : (Collection<?>) mappingFiles)
+                    sources.add(RESOURCE_PREFIX + rsrc);
+        }
+        return true;
+    }
+
+    private void addSources(MetaDataRepository repos, SortedSet<String> sources) {
+        for (ClassMetaData meta : repos.getMetaDatas()) {
+            sources.add(toClassSource(meta.getDescribedType().getName()));
+            if (meta.getSourceType() == SourceTracker.SRC_XML
+                && meta.getSourceFile() != null)
+                sources.add(FILE_PREFIX + meta.getSourceFile().getAbsolutePath());
+        }
+    }
+
+    private static String toClassSource(String name) {
+        return CLASS_PREFIX + name.replace('.', '/') + ".class";
+    }
+
+    private ClassLoader getClassLoader() {
+        return _conf.getClassResolverInstance().getClassLoader(getClass(), null);
+    }
+
+    /**
+     * Digest of the configuration and the contents of the given sources, or
+     * null if the sources are unknown or one of them cannot be read.
+     * Resources that are not found only contribute their path, so that
+     * adding them later changes the digest.
+     */
+    private byte[] fingerprint(SortedSet<String> sources) {
+        if (sources == null)
+            return null;
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new InternalException(nsae);
+        }
+
+        for (String prop : _props) {
+            Value val = _conf.getValue(prop);
+            update(digest, prop);
+            update(digest, (val == null) ? "" : String.valueOf(val.getString()));
+        }
+
+        ClassLoader loader = getClassLoader();
+        byte[] buf = new byte[8192];
+        for (String source : sources) {
+            update(digest, source);
+            try {
+                if (source.startsWith(CLASS_PREFIX)) {
+                    URL url = loader.getResource(source.substring(CLASS_PREFIX.length()));
+                    if (url == null)
+                        return null;
+                    update(digest, url.openStream(), buf);
+                } else if (source.startsWith(RESOURCE_PREFIX)) {
+                    Enumeration<URL> urls = loader.getResources(
+                        source.substring(RESOURCE_PREFIX.length()));
+                    while (urls.hasMoreElements())
+                        update(digest, urls.nextElement().openStream(), buf);
+                } else {
+                    File file = new File(source.substring(FILE_PREFIX.length()));
+                    if (!file.isFile())
+                        return null;
+                    update(digest, new FileInputStream(file), buf);
+                }
+            } catch (IOException ioe) {
+                if (_log.isTraceEnabled())
+                    _log.trace(_loc.get("cache-marshaller-source-error", source), ioe);
+                return null;
+            }
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, InputStream in, byte[] buf)
+        throws IOException {
+        try (InputStream bin = new BufferedInputStream(in)) {
+            for (int r; (r = bin.read(buf)) != -1;)
+                digest.update(buf, 0, r);
+        }
+        digest.update((byte) 0);
+    }
+
+    private static void update(MessageDigest digest, String str) {
+        digest.update(str.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        _conf = (OpenJPAConfiguration) conf;
+        _log = conf.getConfigurationLog();
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+}
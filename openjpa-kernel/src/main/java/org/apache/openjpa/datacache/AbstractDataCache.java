@@ -180,10 +180,13 @@ public abstract class AbstractDataCache extends AbstractConcurrentEventManager
         if (keys.isEmpty())
             return EMPTY_BITSET;
 
+        List<Object> keyList = (keys instanceof List) ? (List<Object>) keys
+            : new ArrayList<>(keys);
+        Map<Object,DataCachePCData> found = getAllInternal(keyList);
         BitSet set = new BitSet(keys.size());
         int i = 0;
-        for (Iterator<Object> iter = keys.iterator(); iter.hasNext(); i++)
-            if (contains(iter.next()))
+        for (Iterator<Object> iter = keyList.iterator(); iter.hasNext(); i++)
+            if (checkTimeOut(iter.next(), found) != null)
                 set.set(i);
         return set;
     }
@@ -209,16 +212,42 @@ public abstract class AbstractDataCache extends AbstractConcurrentEventManager
 
 
     /**
-     * Returns the objects for the given key List.
+     * Returns the objects for the given key List. The objects are looked up
+     * in a single batch through {@link #getAllInternal}.
      */
     @Override
     public Map<Object,DataCachePCData> getAll(List<Object> keys) {
-        Map<Object,DataCachePCData> resultMap = new HashMap<>(keys.size());
-        for (Object key : keys)
-            resultMap.put(key, get(key));
+        Map<Object,DataCachePCData> found = getAllInternal(keys);
+        Map<Object,DataCachePCData> resultMap = new HashMap<>((int) (keys.size() / .75F) + 1);
+        boolean trace = log.isTraceEnabled();
+        for (Object key : keys) {
+            DataCachePCData o = checkTimeOut(key, found);
+            if (trace) {
+                if (o == null)
+                    log.trace(s_loc.get("cache-miss", key));
+                else
+                    log.trace(s_loc.get("cache-hit", key));
+            }
+            resultMap.put(key, o);
+        }
         return resultMap;
     }
 
+    /**
+     * Return the data found for the given key, or null if there is none or
+     * it has timed out, in which case it is removed from the cache.
+     */
+    private DataCachePCData checkTimeOut(Object key, Map<Object,DataCachePCData> found) {
+        DataCachePCData o = found.get(key);
+        if (o != null && o.isTimedOut()) {
+            o = null;
+            removeInternal(key);
+            if (log.isTraceEnabled())
+                log.trace(s_loc.get("cache-timeout", key));
+        }
+        return o;
+    }
+
     @Override
     public DataCachePCData put(DataCachePCData data) {
         DataCachePCData o = putInternal(data.getId(), data);
@@ -420,6 +449,24 @@ public abstract class AbstractDataCache extends AbstractConcurrentEventManager
      */
     protected abstract DataCachePCData getInternal(Object oid);
 
+    /**
+     * Return the objects for the given oids, keyed on oid. Oids that are not
+     * in the cache have no entry in the returned map. Caches that can look up
+     * several oids more cheaply than one at a time should override this
+     * method; by default it calls {@link #getInternal} for each oid.
+     *
+     * @since 3.2.3
+     */
+    protected Map<Object,DataCachePCData> getAllInternal(List<Object> oids) {
+        Map<Object,DataCachePCData> found = new HashMap<>((int) (oids.size() / .75F) + 1);
+        for (Object oid : oids) {
+            DataCachePCData o = getInternal(oid);
+            if (o != null)
+                found.put(oid, o);
+        }
+        return found;
+    }
+
     /**
      * Add the given object to the cache, returning the old object under the
      * given oid.
@@ -38,6 +38,7 @@ import org.apache.openjpa.lib.conf.Configurable;
 import org.apache.openjpa.lib.conf.Configuration;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.LatencyHistogram;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.lib.util.collections.AbstractReferenceMap.ReferenceStrength;
 import org.apache.openjpa.lib.util.concurrent.AbstractConcurrentEventManager;
@@ -506,6 +507,7 @@ public abstract class AbstractQueryCache
         private Map<T, long[]> astats;
         private Date start = new Date();
         private Date since = start;
+        private final Latencies<T> latencies = new Latencies<>(FIXED_SIZE);
 
         public Default() {
             initializeMaps();
@@ -597,6 +599,7 @@ public abstract class AbstractQueryCache
         public synchronized void reset() {
             stat = new long[ARRAY_SIZE];
             stats.clear();
+            latencies.clear();
             since = new Date();
         }
 
@@ -606,6 +609,7 @@ public abstract class AbstractQueryCache
            astat = new long[ARRAY_SIZE];
            stat  = new long[ARRAY_SIZE];
            initializeMaps();
+           latencies.clear();
            start  = new Date();
            since  = start;
         }
@@ -644,6 +648,26 @@ public abstract class AbstractQueryCache
             addSample(query, EVICT);
         }
 
+        @Override
+        public void recordLatency(T query, Phase phase, long nanos) {
+            latencies.recordLatency(query, phase, nanos);
+        }
+
+        @Override
+        public void recordRows(T query, long rows) {
+            latencies.recordRows(query, rows);
+        }
+
+        @Override
+        public LatencyHistogram getLatency(T query, Phase phase) {
+            return latencies.getLatency(query, phase);
+        }
+
+        @Override
+        public long getRowCount(T query) {
+            return latencies.getRowCount(query);
+        }
+
         @Override
         public void dump(PrintStream out) {
             String header = "Query Statistics starting from " + start;
@@ -668,6 +692,7 @@ public abstract class AbstractQueryCache
                     long[] row  = stats.get(key);
                     out.println(i + ". \t" + toString(arow) + " \t"  + toString(row) + " \t\t" + key);
                 }
+                latencies.dump(out, key);
             }
         }
 
@@ -18,9 +18,13 @@
  */
 package org.apache.openjpa.datacache;
 
+import java.util.List;
+import java.util.Map;
+
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.lib.util.Localizer;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link DataCache} implementation that is optimized for concurrent
@@ -45,6 +49,8 @@ public class ConcurrentDataCache
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
     protected boolean _lru = false;
+    protected boolean _striped = false;
+    protected int _segments = StripedCacheMap.DEFAULT_SEGMENTS;
 
     /**
      * Returns the underlying {@link CacheMap} that this cache is using.
@@ -129,12 +135,22 @@ public class ConcurrentDataCache
      * invoke {@link AbstractDataCache#keyRemoved}.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru) {
-            @Override
-            protected void entryRemoved(Object key, Object value, boolean expired) {
-                keyRemoved(key, expired);
-            }
-        };
+        CacheMap res;
+        if (_striped) {
+            res = new StripedCacheMap(_lru, 1000, _segments) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        } else {
+            res = new CacheMap(_lru) {
+                @Override
+                protected void entryRemoved(Object key, Object value, boolean expired) {
+                    keyRemoved(key, expired);
+                }
+            };
+        }
 
         return res;
     }
@@ -144,6 +160,12 @@ public class ConcurrentDataCache
         return (DataCachePCData) _cache.get(key);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    protected Map<Object,DataCachePCData> getAllInternal(List<Object> keys) {
+        return _cache.getAll(keys);
+    }
+
     @Override
     protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
         return (DataCachePCData) _cache.put(key, pc);
@@ -190,4 +212,28 @@ public class ConcurrentDataCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Whether to stripe the cache over independently locked segments
+     * using a {@link StripedCacheMap}. Defaults to <code>false</code>.
+     */
+    public void setStriped(boolean striped) {
+        _striped = striped;
+    }
+
+    public boolean getStriped() {
+        return _striped;
+    }
+
+    /**
+     * The number of segments of a striped cache. Only used when
+     * {@link #setStriped} is enabled.
+     */
+    public void setSegments(int segments) {
+        _segments = segments;
+    }
+
+    public int getSegments() {
+        return _segments;
+    }
 }
@@ -22,6 +22,7 @@ import java.util.Collection;
 
 import org.apache.openjpa.event.RemoteCommitListener;
 import org.apache.openjpa.util.CacheMap;
+import org.apache.openjpa.util.StripedCacheMap;
 
 /**
  * A {@link QueryCache} implementation that is optimized for concurrent
@@ -40,6 +41,8 @@ public class ConcurrentQueryCache
     private static final long serialVersionUID = 1L;
     private CacheMap _cache;
     protected boolean _lru = false;
+    protected boolean _striped = false;
+    protected int _segments = StripedCacheMap.DEFAULT_SEGMENTS;
     private int _cacheSize = Integer.MIN_VALUE;
     private int _softRefs = Integer.MIN_VALUE;
 
@@ -122,7 +125,8 @@ public class ConcurrentQueryCache
      * Return the map to use as an internal cache.
      */
     protected CacheMap newCacheMap() {
-        CacheMap res = new CacheMap(_lru);
+        CacheMap res = (_striped) ? new StripedCacheMap(_lru, 1000, _segments)
+            : new CacheMap(_lru);
 
         return res;
     }
@@ -177,4 +181,28 @@ public class ConcurrentQueryCache
     public boolean getLru() {
         return _lru;
     }
+
+    /**
+     * Whether to stripe the cache over independently locked segments
+     * using a {@link StripedCacheMap}. Defaults to <code>false</code>.
+     */
+    public void setStriped(boolean striped) {
+        _striped = striped;
+    }
+
+    public boolean getStriped() {
+        return _striped;
+    }
+
+    /**
+     * The number of segments of a striped cache. Only used when
+     * {@link #setStriped} is enabled.
+     */
+    public void setSegments(int segments) {
+        _segments = segments;
+    }
+
+    public int getSegments() {
+        return _segments;
+    }
 }
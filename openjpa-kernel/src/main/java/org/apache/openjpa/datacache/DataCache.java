@@ -268,6 +268,8 @@ public interface DataCache
 	 * The returned map has the same keys as the given keys.
 	 * If the cache does not contain data for a specific key,
 	 * the returned map still contains the key with a null value.
+	 * Implementations should look the keys up as a single batch rather
+	 * than one at a time where the underlying store allows it.
 	 *
      */
     Map<Object,DataCachePCData> getAll(List<Object> keys);
@@ -61,6 +61,18 @@ public class DataCachePCDataImpl
             _exp = -1;
     }
 
+    /**
+     * Constructor for data that times out at the given time in milliseconds,
+     * or never if -1. Used to restore cached data.
+     *
+     * @since 3.2.3
+     */
+    public DataCachePCDataImpl(Object oid, ClassMetaData meta, String name,
+        long timeOut) {
+        super(oid, meta, name);
+        _exp = timeOut;
+    }
+
     @Override
     public boolean isTimedOut() {
         return _exp != -1 && _exp < System.currentTimeMillis();
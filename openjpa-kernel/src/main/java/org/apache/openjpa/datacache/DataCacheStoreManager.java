@@ -583,7 +583,6 @@ public class DataCacheStoreManager extends DelegatingStoreManager {
                     }
                 } else if (load != FORCE_LOAD_NONE
                         || sm.getPCState() == PCState.HOLLOW) {
-                    data = cache.get(sm.getObjectId());
                     if (data != null) {
                         // load unloaded fields
                         fields = sm.getUnloaded(fetch);
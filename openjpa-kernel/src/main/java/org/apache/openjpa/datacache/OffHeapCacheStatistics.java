@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+/**
+ * Statistics of a cache that keeps its data outside of the Java heap.
+ *
+ * @since 3.2.3
+ */
+public interface OffHeapCacheStatistics extends CacheStatistics {
+    /**
+     * Gets the number of off-heap bytes occupied by cached entries.
+     */
+    long getOffHeapBytesUsed();
+
+    /**
+     * Gets the number of bytes allocated off the heap.
+     */
+    long getOffHeapCapacity();
+
+    /**
+     * Gets the number of entries currently held off the heap.
+     */
+    int getOffHeapEntryCount();
+}
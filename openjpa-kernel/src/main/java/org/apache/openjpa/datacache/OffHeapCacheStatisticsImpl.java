@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+/**
+ * The CacheStatistics(SPI) implementation of {@link OffHeapDataCache}.
+ * Usage counts are collected as in {@link CacheStatisticsImpl}; the
+ * off-heap figures are read from the cache when requested.
+ *
+ * @since 3.2.3
+ */
+public class OffHeapCacheStatisticsImpl extends CacheStatisticsImpl
+    implements OffHeapCacheStatistics {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient OffHeapDataCache _cache;
+
+    public OffHeapCacheStatisticsImpl(OffHeapDataCache cache) {
+        _cache = cache;
+    }
+
+    @Override
+    public long getOffHeapBytesUsed() {
+        return (_cache == null) ? 0 : _cache.getBytesUsed();
+    }
+
+    @Override
+    public long getOffHeapCapacity() {
+        return (_cache == null) ? 0 : _cache.getBytesCapacity();
+    }
+
+    @Override
+    public int getOffHeapEntryCount() {
+        return (_cache == null) ? 0 : _cache.getEntryCount();
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.kernel.PCDataCodec;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.UserException;
+
+/**
+ * A {@link DataCache} implementation that keeps cached data outside of the
+ * Java heap. Each {@link DataCachePCData} is serialized into blocks of
+ * direct {@link java.nio.ByteBuffer}s, and only a small index entry per
+ * object id is kept on the heap. Data is deserialized when it is looked up,
+ * so every {@link #get} returns a private copy of the cached state.
+ * When the off-heap space or the cache size is exhausted, entries are
+ * evicted in clock order: an entry that was read since the clock hand last
+ * passed it gets a second chance. Pinned entries are kept on the heap and
+ * never evicted.
+ * {@link #putInternal} and {@link #removeInternal} do not materialize the
+ * replaced entry and always return <code>null</code>.
+ * This cache can be configured as a plug-in as follows:
+ * <code>openjpa.DataCache=offheap(OffHeapSize=268435456, BlockSize=256)</code>
+ * With <code>Codec=binary</code> the data is encoded by a
+ * {@link PCDataCodec} instead of Java serialization.
+ *
+ * @since 3.2.3
+ */
+public class OffHeapDataCache
+    extends AbstractDataCache
+    implements RemoteCommitListener {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (OffHeapDataCache.class);
+
+    private final Map<Object, Entry> _index = new ConcurrentHashMap<>();
+    // clock of the entries in insertion order; guarded by the store write
+    // lock, and may hold entries that were since removed or replaced
+    private final ArrayDeque<Entry> _clock = new ArrayDeque<>();
+    private final Map<Object, DataCachePCData> _pinned =
+        new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock _rwl = new ReentrantReadWriteLock();
+    private final Lock _storeRead = _rwl.readLock();
+    private final Lock _storeWrite = _rwl.writeLock();
+    private final ReentrantLock _lock = new ReentrantLock();
+
+    private transient OffHeapStore _store;
+    private long _offHeapSize = 64L * 1024 * 1024;
+    private int _blockSize = 256;
+    private int _cacheSize = -1;
+    private boolean _binary = false;
+    private transient volatile PCDataCodec _codec;
+
+    public OffHeapDataCache() {
+        _stats = new OffHeapCacheStatisticsImpl(this);
+    }
+
+    /**
+     * The number of bytes to allocate off the heap. Defaults to 64MB.
+     */
+    public void setOffHeapSize(long size) {
+        _offHeapSize = size;
+    }
+
+    public long getOffHeapSize() {
+        return _offHeapSize;
+    }
+
+    /**
+     * The size in bytes of the blocks the off-heap space is divided into.
+     * Each cached entry occupies at least one block. Defaults to 256.
+     */
+    public void setBlockSize(int size) {
+        _blockSize = size;
+    }
+
+    public int getBlockSize() {
+        return _blockSize;
+    }
+
+    /**
+     * The maximum number of unpinned entries to keep, or -1 for no limit
+     * other than the off-heap space. Defaults to -1.
+     */
+    public void setCacheSize(int size) {
+        _cacheSize = size;
+    }
+
+    public int getCacheSize() {
+        return _cacheSize;
+    }
+
+    /**
+     * The encoding of the data stored off the heap: <code>serialized</code>
+     * for Java serialization, the default, or <code>binary</code> for the
+     * more compact and faster {@link PCDataCodec}.
+     */
+    public void setCodec(String codec) {
+        if ("binary".equals(codec))
+            _binary = true;
+        else if (codec == null || "serialized".equals(codec))
+            _binary = false;
+        else
+            throw new UserException(_loc.get("offheap-bad-codec", codec));
+    }
+
+    public String getCodec() {
+        return (_binary) ? "binary" : "serialized";
+    }
+
+    /**
+     * Number of off-heap bytes occupied by cached entries.
+     */
+    public long getBytesUsed() {
+        _storeRead.lock();
+        try {
+            return (_store == null) ? 0 : _store.getBytesUsed();
+        } finally {
+            _storeRead.unlock();
+        }
+    }
+
+    /**
+     * Number of bytes allocated off the heap.
+     */
+    public long getBytesCapacity() {
+        return (_store == null) ? 0 : _store.getCapacity();
+    }
+
+    /**
+     * Number of entries held off the heap.
+     */
+    public int getEntryCount() {
+        return _index.size();
+    }
+
+    @Override
+    public void initialize(DataCacheManager mgr) {
+        super.initialize(mgr);
+        conf.getRemoteCommitEventManager().addInternalListener(this);
+        _store = new OffHeapStore(_offHeapSize, _blockSize);
+    }
+
+    @Override
+    public void unpinAll(Class<?> cls, boolean subs) {
+        if (log.isWarnEnabled())
+            log.warn(_loc.get("cache-class-unpin-all", getName()));
+        unpinAll(_pinned.keySet());
+    }
+
+    @Override
+    public void writeLock() {
+        _lock.lock();
+    }
+
+    @Override
+    public void writeUnlock() {
+        _lock.unlock();
+    }
+
+    @Override
+    protected DataCachePCData getInternal(Object key) {
+        DataCachePCData pinned = _pinned.get(key);
+        if (pinned != null)
+            return pinned;
+
+        Entry entry;
+        byte[] bytes;
+        _storeRead.lock();
+        try {
+            entry = _index.get(key);
+            if (entry == null)
+                return null;
+            entry.referenced = true;
+            bytes = _store.read(entry.handle);
+        } finally {
+            _storeRead.unlock();
+        }
+        DataCachePCData pc = deserialize(bytes);
+        if (pc == null)
+            evict(entry);
+        return pc;
+    }
+
+    /**
+     * Reads the bytes of all of the given keys under a single acquisition of
+     * the store lock, and deserializes them after releasing it.
+     */
+    @Override
+    protected Map<Object,DataCachePCData> getAllInternal(List<Object> keys) {
+        Map<Object,DataCachePCData> found = new HashMap<>((int) (keys.size() / .75F) + 1);
+        List<Entry> stored = new ArrayList<>(keys.size());
+        List<byte[]> bytes = new ArrayList<>(keys.size());
+        _storeRead.lock();
+        try {
+            for (Object key : keys) {
+                Entry entry = _index.get(key);
+                if (entry != null) {
+                    entry.referenced = true;
+                    stored.add(entry);
+                    bytes.add(_store.read(entry.handle));
+                }
+            }
+        } finally {
+            _storeRead.unlock();
+        }
+        for (int i = 0; i < stored.size(); i++) {
+            DataCachePCData pc = deserialize(bytes.get(i));
+            if (pc != null)
+                found.put(stored.get(i).key, pc);
+            else
+                evict(stored.get(i));
+        }
+        for (Object key : keys) {
+            DataCachePCData pinned = _pinned.get(key);
+            if (pinned != null)
+                found.put(key, pinned);
+        }
+        return found;
+    }
+
+    @Override
+    protected DataCachePCData putInternal(Object key, DataCachePCData pc) {
+        if (_pinned.containsKey(key)) {
+            _pinned.put(key, pc);
+            return null;
+        }
+
+        byte[] bytes = serialize(pc);
+        if (bytes == null || !_store.fits(bytes.length)) {
+            removeInternal(key);
+            return null;
+        }
+
+        _storeWrite.lock();
+        try {
+            Entry old = _index.remove(key);
+            if (old != null)
+                _store.free(old.handle);
+            if (_cacheSize == 0)
+                return null;
+            if (_cacheSize > 0)
+                while (_index.size() >= _cacheSize && evictOne());
+
+            long handle = _store.write(bytes);
+            while (handle == OffHeapStore.NONE && evictOne())
+                handle = _store.write(bytes);
+            if (handle != OffHeapStore.NONE) {
+                Entry entry = new Entry(key, handle, pc.getType());
+                _index.put(key, entry);
+                _clock.addLast(entry);
+                if (_clock.size() > 2 * _index.size() + 16)
+                    _clock.removeIf(e -> _index.get(e.key) != e);
+            }
+        } finally {
+            _storeWrite.unlock();
+        }
+        return null;
+    }
+
+    @Override
+    protected DataCachePCData removeInternal(Object key) {
+        Entry entry;
+        _storeWrite.lock();
+        try {
+            entry = _index.remove(key);
+            if (entry != null)
+                _store.free(entry.handle);
+        } finally {
+            _storeWrite.unlock();
+        }
+        if (entry != null)
+            keyRemoved(key, false);
+        return null;
+    }
+
+    @Override
+    protected void removeAllInternal(Class<?> cls, boolean subs) {
+        _storeWrite.lock();
+        try {
+            for (Iterator<Map.Entry<Object, Entry>> itr =
+                _index.entrySet().iterator(); itr.hasNext();) {
+                Map.Entry<Object, Entry> e = itr.next();
+                Class<?> type = e.getValue().type;
+                if (type == cls || (subs && type != null
+                    && cls.isAssignableFrom(type))) {
+                    itr.remove();
+                    _store.free(e.getValue().handle);
+                    keyRemoved(e.getKey(), false);
+                }
+            }
+        } finally {
+            _storeWrite.unlock();
+        }
+    }
+
+    @Override
+    protected void clearInternal() {
+        _storeWrite.lock();
+        try {
+            _index.clear();
+            _clock.clear();
+            _store.clear();
+        } finally {
+            _storeWrite.unlock();
+        }
+        _pinned.clear();
+    }
+
+    @Override
+    protected boolean pinInternal(Object key) {
+        if (_pinned.containsKey(key))
+            return true;
+        DataCachePCData pc = getInternal(key);
+        if (pc == null)
+            return false;
+        _pinned.put(key, pc);
+        removeInternal(key);
+        return true;
+    }
+
+    @Override
+    protected boolean unpinInternal(Object key) {
+        DataCachePCData pc = _pinned.remove(key);
+        if (pc == null)
+            return false;
+        putInternal(key, pc);
+        return true;
+    }
+
+    @Override
+    protected boolean recacheUpdates() {
+        return true;
+    }
+
+    /**
+     * Evict the next unpinned entry under the clock hand that was not read
+     * since the hand last passed it. Must be called while holding the store
+     * write lock.
+     *
+     * @return false if there was nothing left to evict
+     */
+    private boolean evictOne() {
+        Entry entry;
+        while ((entry = _clock.pollFirst()) != null) {
+            // skip entries that were removed or replaced in the meantime
+            if (_index.get(entry.key) != entry)
+                continue;
+            if (entry.referenced) {
+                entry.referenced = false;
+                _clock.addLast(entry);
+                continue;
+            }
+            _index.remove(entry.key);
+            _store.free(entry.handle);
+            keyRemoved(entry.key, true);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove the given entry, whose bytes could not be deserialized, unless
+     * it was removed or replaced in the meantime.
+     */
+    private void evict(Entry entry) {
+        boolean removed = false;
+        _storeWrite.lock();
+        try {
+            if (_index.get(entry.key) == entry) {
+                _index.remove(entry.key);
+                _store.free(entry.handle);
+                removed = true;
+            }
+        } finally {
+            _storeWrite.unlock();
+        }
+        if (removed)
+            keyRemoved(entry.key, true);
+    }
+
+    /**
+     * Serialize the given data into the bytes stored off the heap.
+     *
+     * @return the bytes, or null if the data cannot be serialized and
+     * should not be cached
+     */
+    protected byte[] serialize(DataCachePCData pc) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(_blockSize);
+        try {
+            if (_binary) {
+                DataOutputStream out = new DataOutputStream(bytes);
+                getPCDataCodec().encode(pc, out);
+                out.close();
+            } else {
+                ObjectOutputStream out = new ObjectOutputStream(bytes);
+                out.writeObject(pc);
+                out.close();
+            }
+        } catch (IOException ioe) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("offheap-serialize", pc.getId()), ioe);
+            return null;
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize data stored off the heap.
+     *
+     * @return the data, or null if the bytes cannot be decoded, in which case
+     * the caller evicts the entry
+     */
+    protected DataCachePCData deserialize(byte[] bytes) {
+        try {
+            if (_binary)
+                return (DataCachePCData) getPCDataCodec().fromBytes(bytes);
+            return (DataCachePCData) Serialization.deserialize
+                (new ByteArrayInputStream(bytes), null);
+        } catch (IOException | RuntimeException e) {
+            if (log.isTraceEnabled())
+                log.trace(_loc.get("offheap-deserialize"), e);
+            return null;
+        }
+    }
+
+    /**
+     * Return the codec of the <code>binary</code> encoding.
+     */
+    protected PCDataCodec getPCDataCodec() {
+        PCDataCodec codec = _codec;
+        if (codec == null) {
+            codec = new PCDataCodec(conf.getMetaDataRepositoryInstance());
+            _codec = codec;
+        }
+        return codec;
+    }
+
+    /**
+     * On-heap index entry of a cached object.
+     */
+    private static class Entry {
+        final Object key;
+        final long handle;
+        final Class<?> type;
+        volatile boolean referenced;
+
+        Entry(Object key, long handle, Class<?> type) {
+            this.key = key;
+            this.handle = handle;
+            this.type = type;
+        }
+    }
+}
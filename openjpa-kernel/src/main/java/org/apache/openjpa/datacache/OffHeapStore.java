@@ -0,0 +1,197 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.datacache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Block allocator over one or more direct {@link ByteBuffer} slabs.
+ * Records are stored as a chain of fixed-size blocks; the first four bytes
+ * of every block hold the index of the next block in the chain, so no
+ * per-record bookkeeping is kept on the heap. Free blocks are chained the
+ * same way. A record is identified by a handle packing the index of its
+ * first block and its length.
+ * This class is not thread safe; callers must guard access to it.
+ *
+ * @since 3.2.3
+ */
+class OffHeapStore {
+
+    /**
+     * Handle value representing no record.
+     */
+    public static final long NONE = -1L;
+
+    private static final int END = -1;
+    private static final int LINK = 4;
+    private static final int MAX_SLAB = 1 << 30;
+
+    private final ByteBuffer[] _slabs;
+    private final int _blockSize;
+    private final int _blocksPerSlab;
+    private final int _blocks;
+    private int _freeHead;
+    private int _freeBlocks;
+
+    /**
+     * Constructor.
+     *
+     * @param capacity total number of bytes to allocate off the heap
+     * @param blockSize size of a single block, including its link
+     */
+    public OffHeapStore(long capacity, int blockSize) {
+        if (blockSize <= LINK)
+            throw new IllegalArgumentException(String.valueOf(blockSize));
+        _blockSize = blockSize;
+        _blocksPerSlab = MAX_SLAB / blockSize;
+        long blocks = Math.max(1, capacity / blockSize);
+        if (blocks > Integer.MAX_VALUE)
+            blocks = Integer.MAX_VALUE;
+        _blocks = (int) blocks;
+
+        int slabs = (_blocks + _blocksPerSlab - 1) / _blocksPerSlab;
+        _slabs = new ByteBuffer[slabs];
+        int remaining = _blocks;
+        for (int i = 0; i < slabs; i++) {
+            int count = Math.min(remaining, _blocksPerSlab);
+            _slabs[i] = ByteBuffer.allocateDirect(count * blockSize);
+            remaining -= count;
+        }
+        clear();
+    }
+
+    /**
+     * Return all blocks to the free list.
+     */
+    public void clear() {
+        for (int i = 0; i < _blocks; i++)
+            setLink(i, (i + 1 < _blocks) ? i + 1 : END);
+        _freeHead = 0;
+        _freeBlocks = _blocks;
+    }
+
+    /**
+     * Total number of bytes allocated off the heap.
+     */
+    public long getCapacity() {
+        return (long) _blocks * _blockSize;
+    }
+
+    /**
+     * Number of bytes currently occupied by records, including block
+     * overhead.
+     */
+    public long getBytesUsed() {
+        return (long) (_blocks - _freeBlocks) * _blockSize;
+    }
+
+    /**
+     * Whether a record of the given length could be stored in an empty
+     * store.
+     */
+    public boolean fits(int length) {
+        return blocksFor(length) <= _blocks;
+    }
+
+    /**
+     * Copy the given bytes into the store.
+     *
+     * @return the handle of the new record, or {@link #NONE} if there are
+     * not enough free blocks
+     */
+    public long write(byte[] bytes) {
+        int needed = blocksFor(bytes.length);
+        if (needed > _freeBlocks)
+            return NONE;
+
+        int first = _freeHead;
+        int block = first;
+        int offset = 0;
+        int payload = _blockSize - LINK;
+        for (int i = 0; i < needed; i++) {
+            int len = Math.min(payload, bytes.length - offset);
+            ByteBuffer buf = position(block, LINK);
+            buf.put(bytes, offset, len);
+            offset += len;
+            if (i + 1 < needed)
+                block = getLink(block);
+        }
+        _freeHead = getLink(block);
+        setLink(block, END);
+        _freeBlocks -= needed;
+        return ((long) first << 32) | bytes.length;
+    }
+
+    /**
+     * Copy the record with the given handle out of the store.
+     */
+    public byte[] read(long handle) {
+        int block = (int) (handle >>> 32);
+        byte[] bytes = new byte[(int) handle];
+        int offset = 0;
+        int payload = _blockSize - LINK;
+        while (offset < bytes.length) {
+            int len = Math.min(payload, bytes.length - offset);
+            ByteBuffer buf = position(block, LINK);
+            buf.get(bytes, offset, len);
+            offset += len;
+            block = getLink(block);
+        }
+        return bytes;
+    }
+
+    /**
+     * Release the blocks of the record with the given handle.
+     */
+    public void free(long handle) {
+        if (handle == NONE)
+            return;
+        int first = (int) (handle >>> 32);
+        int last = first;
+        int count = 1;
+        for (int next = getLink(last); next != END; next = getLink(last)) {
+            last = next;
+            count++;
+        }
+        setLink(last, _freeHead);
+        _freeHead = first;
+        _freeBlocks += count;
+    }
+
+    private int blocksFor(int length) {
+        int payload = _blockSize - LINK;
+        return Math.max(1, (length + payload - 1) / payload);
+    }
+
+    private ByteBuffer position(int block, int offset) {
+        ByteBuffer buf = _slabs[block / _blocksPerSlab].duplicate();
+        buf.position((block % _blocksPerSlab) * _blockSize + offset);
+        return buf;
+    }
+
+    private int getLink(int block) {
+        return _slabs[block / _blocksPerSlab].getInt
+            ((block % _blocksPerSlab) * _blockSize);
+    }
+
+    private void setLink(int block, int next) {
+        _slabs[block / _blocksPerSlab].putInt
+            ((block % _blocksPerSlab) * _blockSize, next);
+    }
+}
@@ -35,6 +35,7 @@ import org.apache.openjpa.kernel.FetchConfiguration;
 import org.apache.openjpa.kernel.LockLevels;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
 import org.apache.openjpa.kernel.QueryContext;
+import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.kernel.ResultShape;
 import org.apache.openjpa.kernel.StoreContext;
 import org.apache.openjpa.kernel.StoreQuery;
@@ -373,8 +374,15 @@ public class QueryCacheStoreQuery
                 }
             }
             try {
+                long start = System.nanoTime();
                 List<Object> cached = cq.checkCache(key, cacheFc);
                 if (cached != null) {
+                    // record the latency of the results served by the cache
+                    QueryStatistics<QueryKey> stats = cq.getCache().getStatistics();
+                    if (stats != null) {
+                        stats.recordLatency(key, QueryStatistics.Phase.EXECUTE, System.nanoTime() - start);
+                        stats.recordRows(key, cached.size());
+                    }
                     return new ListResultObjectProvider(cached);
                 }
             } finally {
@@ -35,6 +35,7 @@ import org.apache.openjpa.util.GeneralException;
 
 import serp.bytecode.BCClass;
 import serp.bytecode.Project;
+import serp.bytecode.lowlevel.ConstantPoolTable;
 
 
 /**
@@ -197,6 +198,12 @@ public class PCClassFileTransformer
             return Boolean.FALSE;
         }
 
+        // enums and annotations cannot be persistent; the temporary loader
+        // would also hand them back to the loader that is defining them
+        if (isEnumOrAnnotation(bytes)) {
+            return null;
+        }
+
         try {
             Class c = Class.forName(clsName.replace('/', '.'), false,
                 _tmpLoader);
@@ -224,6 +231,16 @@ public class PCClassFileTransformer
         return AsmAdaptor.isEnhanced(b);
     }
 
+    /**
+     * Fast-parse the given class bytecode to determine if it is an enum or
+     * an annotation type.
+     */
+    private static boolean isEnumOrAnnotation(byte[] b) {
+        int idx = ConstantPoolTable.getEndIndex(b);
+        int access = ConstantPoolTable.readUnsignedShort(b, idx);
+        return (access & (0x4000 | 0x2000)) != 0; // ACC_ENUM | ACC_ANNOTATION
+    }
+
     public static class Reentrant extends PCClassFileTransformer {
         private final ThreadLocal<Boolean> transforming = new ThreadLocal<>();
 
@@ -0,0 +1,350 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.charset.StandardCharsets;
+import java.security.AccessController;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.openjpa.lib.util.J2DoPrivHelper;
+import org.apache.openjpa.lib.util.MultiClassLoader;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Binary {@link RemoteCommitEventCodec} that avoids Java serialization for
+ * the common kinds of object ids. Numbers are written as variable-length
+ * integers, and every class name is transmitted only once per packet and
+ * referred to by index afterwards. {@link LongId}, {@link IntId},
+ * {@link StringId} and {@link ObjectId}s whose key is a long, int or string
+ * are encoded natively; any other value falls back to Java serialization.
+ *
+ * @since 3.2.3
+ */
+public class CompactRemoteCommitEventCodec
+    implements RemoteCommitEventCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int LONG = 2;
+    private static final int INT = 3;
+    private static final int LONG_ID = 4;
+    private static final int INT_ID = 5;
+    private static final int STRING_ID = 6;
+    private static final int OBJECT_ID = 7;
+    private static final int SERIALIZED = 8;
+
+    // set on id tags when the id does not include subclasses
+    private static final int NO_SUBS = 0x40;
+
+    @Override
+    public byte getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public void encode(List<RemoteCommitEvent> events, DataOutput out)
+        throws IOException {
+        Map<String, Integer> types = new HashMap<>();
+        writeVarInt(out, events.size());
+        for (RemoteCommitEvent event : events) {
+            int payload = event.getPayloadType();
+            writeVarInt(out, payload);
+            writeCollection(out, event.getPersistedTypeNames(), types);
+            if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+                writeCollection(out, event.getPersistedObjectIds(), types);
+            if (payload == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+                writeCollection(out, event.getUpdatedTypeNames(), types);
+                writeCollection(out, event.getDeletedTypeNames(), types);
+            } else {
+                writeCollection(out, event.getUpdatedObjectIds(), types);
+                writeCollection(out, event.getDeletedObjectIds(), types);
+            }
+        }
+    }
+
+    @Override
+    public List<RemoteCommitEvent> decode(DataInput in)
+        throws IOException {
+        Types types = new Types();
+        int count = readSize(in);
+        List<RemoteCommitEvent> events = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int payload = readVarInt(in);
+            Collection addClasses = readCollection(in, types);
+            Collection addIds = null;
+            if (payload == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS)
+                addIds = readCollection(in, types);
+            Collection updates = readCollection(in, types);
+            Collection deletes = readCollection(in, types);
+            events.add(new RemoteCommitEvent(payload, addIds, addClasses,
+                updates, deletes));
+        }
+        return events;
+    }
+
+    private void writeCollection(DataOutput out, Collection values,
+        Map<String, Integer> types)
+        throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size() + 1);
+        for (Object value : values)
+            writeValue(out, value, types);
+    }
+
+    private Collection readCollection(DataInput in, Types types)
+        throws IOException {
+        // the size is written plus one, to tell null from empty
+        int size = readVarInt(in);
+        if (size == 0)
+            return null;
+        size = checkSize(in, size - 1);
+        List<Object> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++)
+            values.add(readValue(in, types));
+        return values;
+    }
+
+    private void writeValue(DataOutput out, Object value,
+        Map<String, Integer> types)
+        throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(out, zigZag((Integer) value));
+        } else if (value instanceof LongId) {
+            LongId id = (LongId) value;
+            writeIdHeader(out, LONG_ID, id, types);
+            writeVarLong(out, zigZag(id.getId()));
+        } else if (value instanceof IntId) {
+            IntId id = (IntId) value;
+            writeIdHeader(out, INT_ID, id, types);
+            writeVarLong(out, zigZag(id.getId()));
+        } else if (value instanceof StringId) {
+            StringId id = (StringId) value;
+            writeIdHeader(out, STRING_ID, id, types);
+            writeString(out, id.getId());
+        } else if (value instanceof ObjectId) {
+            ObjectId id = (ObjectId) value;
+            writeIdHeader(out, OBJECT_ID, id, types);
+            writeValue(out, id.getId(), types);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        }
+    }
+
+    private Object readValue(DataInput in, Types types)
+        throws IOException {
+        int tag = in.readUnsignedByte();
+        boolean subs = (tag & NO_SUBS) == 0;
+        switch (tag & ~NO_SUBS) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case INT:
+                return (int) unZigZag(readVarLong(in));
+            case LONG_ID:
+                return new LongId(readType(in, types),
+                    unZigZag(readVarLong(in)), subs);
+            case INT_ID:
+                return new IntId(readType(in, types),
+                    (int) unZigZag(readVarLong(in)), subs);
+            case STRING_ID:
+                return new StringId(readType(in, types), readString(in),
+                    subs);
+            case OBJECT_ID:
+                Class<?> type = readType(in, types);
+                return new ObjectId(type, readValue(in, types), subs);
+            case SERIALIZED:
+                byte[] bytes = new byte[readSize(in)];
+                in.readFully(bytes);
+                return Serialization.deserialize
+                    (new ByteArrayInputStream(bytes), null);
+            default:
+                throw new StreamCorruptedException(String.valueOf(tag));
+        }
+    }
+
+    private void writeIdHeader(DataOutput out, int tag, OpenJPAId id,
+        Map<String, Integer> types)
+        throws IOException {
+        out.writeByte(id.hasSubclasses() ? tag : tag | NO_SUBS);
+        String name = id.getType().getName();
+        Integer idx = types.get(name);
+        if (idx != null) {
+            writeVarInt(out, idx + 1);
+        } else {
+            types.put(name, types.size());
+            writeVarInt(out, 0);
+            writeString(out, name);
+        }
+    }
+
+    private Class<?> readType(DataInput in, Types types)
+        throws IOException {
+        int idx = readVarInt(in);
+        if (idx > 0) {
+            if (idx > types.types.size())
+                throw new StreamCorruptedException("type " + idx);
+            return types.types.get(idx - 1);
+        }
+
+        String name = BlacklistClassResolver.DEFAULT.check(readString(in));
+        try {
+            Class<?> type = Class.forName(name, true, types.getLoader());
+            types.types.add(type);
+            return type;
+        } catch (ClassNotFoundException cnfe) {
+            throw new IOException(cnfe);
+        }
+    }
+
+    private static void writeString(DataOutput out, String str)
+        throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in)
+        throws IOException {
+        byte[] bytes = new byte[readSize(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the number of elements or bytes that follow. Every element takes
+     * at least one byte, so a size that is negative or larger than the rest
+     * of the packet is corrupt, and must not be allocated.
+     */
+    private static int readSize(DataInput in)
+        throws IOException {
+        return checkSize(in, readVarInt(in));
+    }
+
+    private static int checkSize(DataInput in, int size)
+        throws IOException {
+        if (size < 0 || (in instanceof InputStream
+            && size > ((InputStream) in).available()))
+            throw new StreamCorruptedException("size " + size);
+        return size;
+    }
+
+    private static long zigZag(long val) {
+        return (val << 1) ^ (val >> 63);
+    }
+
+    private static long unZigZag(long val) {
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int val)
+        throws IOException {
+        writeVarLong(out, val & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInput in)
+        throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static void writeVarLong(DataOutput out, long val)
+        throws IOException {
+        while ((val & ~0x7FL) != 0) {
+            out.writeByte((int) ((val & 0x7F) | 0x80));
+            val >>>= 7;
+        }
+        out.writeByte((int) val);
+    }
+
+    private static long readVarLong(DataInput in)
+        throws IOException {
+        long val = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            val |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return val;
+        }
+        throw new StreamCorruptedException("varint");
+    }
+
+    /**
+     * The types read from a packet so far, and the class loader resolving
+     * the new ones.
+     */
+    private static class Types {
+
+        private final List<Class<?>> types = new ArrayList<>();
+        private ClassLoader loader;
+
+        ClassLoader getLoader() {
+            if (this.loader == null) {
+                MultiClassLoader loader = AccessController
+                    .doPrivileged(J2DoPrivHelper.newMultiClassLoaderAction());
+                loader.addClassLoader(AccessController.doPrivileged(
+                    J2DoPrivHelper.getContextClassLoaderAction()));
+                loader.addClassLoader(CompactRemoteCommitEventCodec.class.
+                    getClassLoader());
+                loader.addClassLoader(MultiClassLoader.SYSTEM_LOADER);
+                this.loader = loader;
+            }
+            return this.loader;
+        }
+    }
+}
@@ -0,0 +1,637 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * Non-blocking transport for the packets of a remote commit provider.
+ * A single thread runs a {@link Selector} event loop that accepts
+ * connections from peers, reads incoming packets and writes outgoing
+ * packets to every peer over one connection each. Packets are framed by
+ * a four byte length prefix.
+ * Outgoing packets wait in a bounded queue per peer. A packet is first
+ * queued for every peer with room in its queue; the caller then waits for
+ * the peers with a full queue until the configured send timeout, which is
+ * shared by all peers of one {@link #send} call, and drops the packet for
+ * those still full. A single slow peer therefore delays a broadcast by at
+ * most the send timeout, however many peers there are. When a peer cannot
+ * be reached, packets for it are dropped until the recovery time has
+ * passed and a new connection is attempted.
+ * Incoming packets are handed to the {@link Receiver} on the event loop
+ * thread.
+ *
+ * @since 3.2.3
+ */
+public class NIOTransport implements Runnable {
+
+    private static final Localizer s_loc = Localizer.forPackage(NIOTransport.class);
+
+    private static final int MAX_PACKET_SIZE = 64 * 1024 * 1024;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    /**
+     * Callback for incoming packets.
+     */
+    public interface Receiver {
+
+        /**
+         * A complete packet was received from the given peer.
+         */
+        void received(byte[] packet, String peer);
+    }
+
+    private final Log _log;
+    private final Receiver _receiver;
+    private final Map<InetSocketAddress, Peer> _peers = new ConcurrentHashMap<>();
+    private final Queue<Peer> _pending = new ConcurrentLinkedQueue<>();
+    private int _port;
+    private int _maxQueuedPackets = 1000;
+    private long _sendTimeoutMillis = 1000;
+    private long _recoveryTimeMillis = 15000;
+    private Selector _selector;
+    private ServerSocketChannel _server;
+    private Thread _thread;
+    private volatile boolean _running = false;
+
+    /**
+     * Constructor.
+     *
+     * @param port the port to listen on, or 0 for any free port
+     * @param receiver the callback for incoming packets
+     * @param log the log to write to
+     */
+    public NIOTransport(final int port, final Receiver receiver, final Log log) {
+        _port = port;
+        _receiver = receiver;
+        _log = log;
+    }
+
+    /**
+     * @return the port this transport listens on.
+     */
+    public int getPort() {
+        return _port;
+    }
+
+    /**
+     * Set the maximum number of packets that may wait to be written to
+     * a single peer. Defaults to 1000.
+     */
+    public void setMaxQueuedPackets(final int maxQueuedPackets) {
+        _maxQueuedPackets = Math.max(1, maxQueuedPackets);
+    }
+
+    public int getMaxQueuedPackets() {
+        return _maxQueuedPackets;
+    }
+
+    /**
+     * Set the number of milliseconds {@link #send} waits for room in the
+     * queues of full peers before dropping the packet for them. Defaults
+     * to 1000.
+     */
+    public void setSendTimeoutMillis(final long sendTimeoutMillis) {
+        _sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    public long getSendTimeoutMillis() {
+        return _sendTimeoutMillis;
+    }
+
+    /**
+     * Set the number of milliseconds to wait before reconnecting to a peer
+     * that could not be reached. Defaults to 15000.
+     */
+    public void setRecoveryTimeMillis(final long recoveryTimeMillis) {
+        _recoveryTimeMillis = recoveryTimeMillis;
+    }
+
+    public long getRecoveryTimeMillis() {
+        return _recoveryTimeMillis;
+    }
+
+    /**
+     * Bind the listen port and start the event loop thread.
+     */
+    public synchronized void start() throws IOException {
+        if (_running) {
+            return;
+        }
+        _selector = Selector.open();
+        try {
+            _server = ServerSocketChannel.open();
+            _server.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            _server.bind(new InetSocketAddress(_port));
+            _server.configureBlocking(false);
+            _server.register(_selector, SelectionKey.OP_ACCEPT);
+            _port = _server.socket().getLocalPort();
+        } catch (IOException ioe) {
+            closeQuietly();
+            throw ioe;
+        }
+
+        _running = true;
+        _thread = new Thread(this, "openjpa-nio-" + _port);
+        _thread.setDaemon(true);
+        _thread.start();
+        if (_log.isTraceEnabled()) {
+            _log.trace(s_loc.get("tcp-start-listener", String.valueOf(_port)));
+        }
+    }
+
+    public boolean isRunning() {
+        return _running;
+    }
+
+    /**
+     * Queue a packet for the given peer. Waits while the queue of the peer
+     * is full, up to the send timeout.
+     *
+     * @return false if the packet was dropped
+     */
+    public boolean send(final InetSocketAddress address, final byte[] packet) {
+        return send(Collections.singletonList(address), packet) == 1;
+    }
+
+    /**
+     * Queue a packet for each of the given peers. The packet is queued for
+     * all peers with room first; the peers with a full queue then share one
+     * deadline of the send timeout.
+     *
+     * @return the number of peers the packet was queued for
+     */
+    public int send(final Collection<InetSocketAddress> addresses, final byte[] packet) {
+        if (!_running || addresses.isEmpty()) {
+            return 0;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(4 + packet.length);
+        frame.putInt(packet.length).put(packet);
+        frame.flip();
+
+        int sent = 0;
+        List<Peer> full = null;
+        for (InetSocketAddress address : addresses) {
+            Peer peer = _peers.computeIfAbsent(address, Peer::new);
+            if (!peer.isAvailable()) {
+                continue;
+            }
+            if (peer._queue.offer(frame.duplicate())) {
+                _pending.add(peer);
+                sent++;
+            } else {
+                if (full == null) {
+                    full = new ArrayList<>();
+                }
+                full.add(peer);
+            }
+        }
+        if (sent > 0) {
+            _selector.wakeup();
+        }
+        if (full == null) {
+            return sent;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(_sendTimeoutMillis);
+        boolean interrupted = false;
+        for (Peer peer : full) {
+            boolean queued = false;
+            if (!interrupted) {
+                try {
+                    queued = peer._queue.offer(frame.duplicate(), Math.max(0, deadline - System.nanoTime()),
+                        TimeUnit.NANOSECONDS);
+                } catch (InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+            if (queued) {
+                _pending.add(peer);
+                _selector.wakeup();
+                sent++;
+            } else if (_log.isWarnEnabled()) {
+                _log.warn(s_loc.get("nio-queue-full", peer._address.toString(), String.valueOf(_maxQueuedPackets)));
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return sent;
+    }
+
+    /**
+     * Close the connection to the given peer and discard its queued packets.
+     */
+    public void disconnect(final InetSocketAddress address) {
+        Peer peer = _peers.remove(address);
+        if (peer != null) {
+            peer._removed = true;
+            _pending.add(peer);
+            _selector.wakeup();
+        }
+    }
+
+    /**
+     * Stop the event loop and close all connections. Packets that are still
+     * queued are discarded.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (!_running) {
+                return;
+            }
+            _running = false;
+            thread = _thread;
+            _selector.wakeup();
+        }
+        if (thread != Thread.currentThread()) {
+            try {
+                thread.join(_sendTimeoutMillis + 1000);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (_running) {
+                _selector.select();
+                processPending();
+                Iterator<SelectionKey> keys = _selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.attachment() instanceof Peer) {
+                        Peer peer = (Peer) key.attachment();
+                        try {
+                            if (key.isConnectable()) {
+                                peer.finishConnect();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                peer.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                peer.write();
+                            }
+                        } catch (IOException ioe) {
+                            peer.failed(ioe);
+                        }
+                    } else {
+                        ((Inbound) key.attachment()).read(key);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            if (_log.isWarnEnabled()) {
+                _log.warn(s_loc.get("tcp-receive-error"), e);
+            }
+            _running = false;
+        } finally {
+            closeQuietly();
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-close-listener", String.valueOf(_port)));
+            }
+        }
+    }
+
+    /**
+     * Connect to peers that have packets waiting, and watch for
+     * writability of connected ones.
+     */
+    private void processPending() {
+        for (Peer peer = _pending.poll(); peer != null; peer = _pending.poll()) {
+            if (peer._removed) {
+                peer.close();
+                continue;
+            }
+            try {
+                if (peer._channel == null) {
+                    peer.connect();
+                } else if (peer._connected) {
+                    SelectionKey key = peer._channel.keyFor(_selector);
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                }
+            } catch (IOException ioe) {
+                peer.failed(ioe);
+            }
+        }
+    }
+
+    private void accept() {
+        SocketChannel channel = null;
+        try {
+            channel = _server.accept();
+            if (channel == null) {
+                return;
+            }
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            String peer = channel.socket().getInetAddress().getHostAddress() + ":" + channel.socket().getPort();
+            channel.register(_selector, SelectionKey.OP_READ, new Inbound(peer));
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-connection", peer));
+            }
+        } catch (IOException ioe) {
+            if (_log.isWarnEnabled()) {
+                _log.warn(s_loc.get("tcp-accept-error"), ioe);
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        _peers.values().forEach(Peer::close);
+        _peers.clear();
+        _pending.clear();
+        if (_selector != null) {
+            for (SelectionKey key : _selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+            try {
+                _selector.close();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-close-error"), ioe);
+                }
+            }
+        }
+        if (_server != null) {
+            try {
+                _server.close();
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * An incoming connection from a peer, reassembling length-prefixed
+     * packets.
+     */
+    private final class Inbound {
+
+        private final String _peer;
+        private ByteBuffer _buf = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+        private Inbound(final String peer) {
+            _peer = peer;
+        }
+
+        private void read(final SelectionKey key) {
+            SocketChannel channel = (SocketChannel) key.channel();
+            try {
+                int read = channel.read(_buf);
+                if (read == -1) {
+                    if (_log.isTraceEnabled()) {
+                        _log.trace(s_loc.get("tcp-close-socket", _peer));
+                    }
+                    key.cancel();
+                    channel.close();
+                    return;
+                }
+
+                _buf.flip();
+                while (_buf.remaining() >= 4) {
+                    int len = _buf.getInt(_buf.position());
+                    if (len < 0 || len > MAX_PACKET_SIZE) {
+                        throw new IOException(s_loc.get("nio-frame-error", _peer, String.valueOf(len)).getMessage());
+                    }
+                    if (_buf.remaining() < 4 + len) {
+                        if (_buf.capacity() < 4 + len) {
+                            ByteBuffer grown = ByteBuffer.allocate(4 + len);
+                            grown.put(_buf);
+                            grown.flip();
+                            _buf = grown;
+                        }
+                        break;
+                    }
+                    byte[] packet = new byte[len];
+                    _buf.getInt();
+                    _buf.get(packet);
+                    deliver(packet);
+                }
+                _buf.compact();
+            } catch (IOException ioe) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-receive-error"), ioe);
+                }
+                key.cancel();
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // ignore
+                }
+            }
+        }
+
+        private void deliver(final byte[] packet) {
+            try {
+                _receiver.received(packet, _peer);
+            } catch (Throwable t) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-receive-error"), t);
+                }
+            }
+        }
+    }
+
+    /**
+     * An outgoing connection to a peer and the packets waiting to be
+     * written to it. Apart from the queue and the availability, the state
+     * of a peer is only accessed by the event loop thread.
+     */
+    private final class Peer {
+
+        private final InetSocketAddress _address;
+        private final BlockingQueue<ByteBuffer> _queue = new ArrayBlockingQueue<>(_maxQueuedPackets);
+        private SocketChannel _channel;
+        private boolean _connected;
+        private ByteBuffer _current;
+        private volatile boolean _available = true;
+        private volatile boolean _removed = false;
+        private volatile long _timeLastError;
+        private int _infosIssued = 0;
+
+        private Peer(final InetSocketAddress address) {
+            _address = address;
+        }
+
+        /**
+         * Whether packets should be queued for this peer. A peer that could
+         * not be reached becomes available again once the recovery time
+         * has passed.
+         */
+        private boolean isAvailable() {
+            return _available || System.currentTimeMillis() - _timeLastError >= _recoveryTimeMillis;
+        }
+
+        private void connect() throws IOException {
+            _channel = SocketChannel.open();
+            _channel.configureBlocking(false);
+            _channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            if (_channel.connect(_address)) {
+                connected();
+            } else {
+                _channel.register(_selector, SelectionKey.OP_CONNECT, this);
+            }
+        }
+
+        private void finishConnect() throws IOException {
+            if (_channel.finishConnect()) {
+                connected();
+            }
+        }
+
+        private void connected() throws ClosedChannelException {
+            _connected = true;
+            _available = true;
+            _infosIssued = 0;
+            // outgoing connections never receive data; reading only detects
+            // that the peer closed the connection
+            _channel.register(_selector, SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-open-connection", _address.toString(),
+                    String.valueOf(_channel.socket().getLocalPort())));
+            }
+        }
+
+        private void read() throws IOException {
+            ByteBuffer discard = ByteBuffer.allocate(64);
+            while (true) {
+                int read = _channel.read(discard);
+                if (read == -1) {
+                    // the peer closed the connection; reconnect on the
+                    // next packet
+                    if (_log.isTraceEnabled()) {
+                        _log.trace(s_loc.get("tcp-close-sending-socket", _address.toString(),
+                            String.valueOf(_channel.socket().getLocalPort())));
+                    }
+                    close();
+                    return;
+                }
+                if (read == 0) {
+                    return;
+                }
+                discard.clear();
+            }
+        }
+
+        private void write() throws IOException {
+            while (true) {
+                if (_current == null) {
+                    _current = _queue.poll();
+                    if (_current == null) {
+                        SelectionKey key = _channel.keyFor(_selector);
+                        key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                        // a packet queued after the poll above is
+                        // picked up by the pending list
+                        return;
+                    }
+                }
+                _channel.write(_current);
+                if (_current.hasRemaining()) {
+                    return;
+                }
+                _current = null;
+                if (_log.isTraceEnabled()) {
+                    _log.trace(s_loc.get("tcp-sent-update", _address.toString(),
+                        String.valueOf(_channel.socket().getLocalPort())));
+                }
+            }
+        }
+
+        /**
+         * Drop the connection and the queued packets after an error, and
+         * stop queuing packets until the recovery time has passed.
+         */
+        private void failed(final IOException ioe) {
+            close();
+            if (_available) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-send-error", _address.toString()), ioe);
+                }
+                _available = false;
+                _timeLastError = System.currentTimeMillis();
+            } else if (_infosIssued < 5) {
+                _timeLastError = System.currentTimeMillis();
+                if (_log.isInfoEnabled()) {
+                    _log.info(s_loc.get("tcp-send-still-error", _address.toString()), ioe);
+                }
+                _infosIssued++;
+            } else {
+                _timeLastError = System.currentTimeMillis();
+            }
+        }
+
+        private void close() {
+            if (_channel != null) {
+                try {
+                    _channel.close();
+                } catch (IOException ioe) {
+                    // ignore
+                }
+            }
+            _channel = null;
+            _connected = false;
+            _current = null;
+            _queue.clear();
+        }
+    }
+}
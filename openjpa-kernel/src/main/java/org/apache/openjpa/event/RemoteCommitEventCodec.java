@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.event;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes {@link RemoteCommitEvent}s for transmission to remote peers.
+ * A codec writes one or more events into a single packet. Every codec is
+ * identified by a version byte that is transmitted with each packet, so
+ * that a receiver can pick the matching codec and peers that use different
+ * codecs can coexist while a cluster is being upgraded.
+ *
+ * @since 3.2.3
+ */
+public interface RemoteCommitEventCodec {
+
+    /**
+     * The version byte identifying this codec on the wire, between 1 and
+     * 127.
+     */
+    byte getVersion();
+
+    /**
+     * Write the given events.
+     */
+    void encode(List<RemoteCommitEvent> events, DataOutput out)
+        throws IOException;
+
+    /**
+     * Read the events written by {@link #encode}.
+     */
+    List<RemoteCommitEvent> decode(DataInput in)
+        throws IOException;
+}
@@ -19,7 +19,10 @@
 package org.apache.openjpa.event;
 
 import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -27,6 +30,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketException;
@@ -51,6 +55,7 @@ import org.apache.commons.pool2.impl.DefaultPooledObject;
 import org.apache.commons.pool2.impl.GenericObjectPool;
 import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configurations;
 import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
@@ -81,7 +86,7 @@ public class TCPRemoteCommitProvider
     //	A map of listen ports to listeners in this JVM. We might
     //	want to look into allowing same port, different interface --
     //	that is not currently possible in a single JVM.
-    private static final Map<String, TCPPortListener> s_portListenerMap = new HashMap<>();
+    private static final Map<String, PortListener> s_portListenerMap = new HashMap<>();
 
     private final long _id;
     private final byte[] _localhost;
@@ -89,7 +94,12 @@ public class TCPRemoteCommitProvider
     private int _maxTotal = 2;
     private int _maxIdle = 2;
     private int _recoveryTimeMillis = 15000;
-    private TCPPortListener _listener;
+    private int _maxEventsPerPacket = 32;
+    private RemoteCommitEventCodec _codec = null;
+    private boolean _nio = false;
+    private int _maxQueuedPackets = 1000;
+    private int _sendTimeoutMillis = 1000;
+    private PortListener _listener;
     private final BroadcastQueue _broadcastQueue = new BroadcastQueue();
     private final List<BroadcastWorkerThread> _broadcastThreads = Collections.synchronizedList(new LinkedList<>());
 
@@ -282,6 +292,116 @@ public class TCPRemoteCommitProvider
         }
     }
 
+    /**
+     * Set the codec used to encode outgoing events. <code>serialized</code>
+     * (the default) uses Java serialization and is understood by every
+     * release; <code>compact</code> uses {@link CompactRemoteCommitEventCodec}.
+     * Any other value is taken as the name of a
+     * {@link RemoteCommitEventCodec} implementation. Incoming packets are
+     * always decoded with the codec they were encoded with, so a cluster
+     * can switch codecs once all of its peers understand the new one.
+     *
+     * @param codec the codec alias or class name
+     */
+    public void setCodec(final String codec) {
+        if (codec == null || "serialized".equals(codec)) {
+            _codec = null;
+        } else if ("compact".equals(codec)) {
+            _codec = new CompactRemoteCommitEventCodec();
+        } else {
+            _codec = (RemoteCommitEventCodec) Configurations.newInstance(codec,
+                    RemoteCommitEventCodec.class.getClassLoader());
+            if (_codec == null) {
+                throw new GeneralException(s_loc.get("tcp-codec-error", codec)).setFatal(true);
+            }
+        }
+    }
+
+    /**
+     * @return the codec used to encode outgoing events.
+     */
+    public String getCodec() {
+        if (_codec == null) {
+            return "serialized";
+        }
+        return (_codec instanceof CompactRemoteCommitEventCodec) ? "compact" : _codec.getClass().getName();
+    }
+
+    /**
+     * Set the maximum number of queued events that a broadcast worker thread coalesces into a single packet.
+     *
+     * @param maxEventsPerPacket the maximum number of events sent in one packet
+     */
+    public void setMaxEventsPerPacket(final int maxEventsPerPacket) {
+        _maxEventsPerPacket = Math.max(1, maxEventsPerPacket);
+    }
+
+    /**
+     * @return the maximum number of events sent in one packet.
+     */
+    public int getMaxEventsPerPacket() {
+        return _maxEventsPerPacket;
+    }
+
+    /**
+     * Set the transport used to exchange packets with peers. <code>blocking</code> (the default) uses a pool of
+     * blocking sockets per peer and a thread per incoming connection; <code>nio</code> uses a single
+     * {@link NIOTransport} event loop with one connection and a bounded packet queue per peer. Peers must use the
+     * same transport. Providers sharing a listen port in one JVM must also use the same transport.
+     *
+     * @param transport <code>blocking</code> or <code>nio</code>
+     */
+    public void setTransport(final String transport) {
+        if (transport == null || "blocking".equals(transport)) {
+            _nio = false;
+        } else if ("nio".equals(transport)) {
+            _nio = true;
+        } else {
+            throw new GeneralException(s_loc.get("tcp-transport-error", transport)).setFatal(true);
+        }
+    }
+
+    /**
+     * @return the transport used to exchange packets with peers.
+     */
+    public String getTransport() {
+        return _nio ? "nio" : "blocking";
+    }
+
+    /**
+     * Set the maximum number of packets that the <code>nio</code> transport queues for a single peer.
+     *
+     * @param maxQueuedPackets the maximum number of packets waiting to be sent to a peer
+     */
+    public void setMaxQueuedPackets(final int maxQueuedPackets) {
+        _maxQueuedPackets = maxQueuedPackets;
+    }
+
+    /**
+     * @return the maximum number of packets that the <code>nio</code> transport queues for a single peer.
+     */
+    public int getMaxQueuedPackets() {
+        return _maxQueuedPackets;
+    }
+
+    /**
+     * Set the number of milliseconds that a broadcast waits for room in the queues of peers when using the
+     * <code>nio</code> transport. The timeout is shared by all peers with a full queue, and the packet is not sent
+     * to a peer whose queue is still full afterwards.
+     *
+     * @param sendTimeoutMillis the number of milliseconds to wait for room in the queues of peers
+     */
+    public void setSendTimeoutMillis(final int sendTimeoutMillis) {
+        _sendTimeoutMillis = sendTimeoutMillis;
+    }
+
+    /**
+     * @return the number of milliseconds that a broadcast waits for room in the queues of peers.
+     */
+    public int getSendTimeoutMillis() {
+        return _sendTimeoutMillis;
+    }
+
     // ---------- Configurable implementation ----------
 
     /**
@@ -297,7 +417,7 @@ public class TCPRemoteCommitProvider
 
             if (_listener == null || (!_listener.isRunning() && _listener._port == _port)) {
                 try {
-                    _listener = new TCPPortListener(_port, log);
+                    _listener = _nio ? new NIOPortListener(_port, log, this) : new TCPPortListener(_port, log);
                     _listener.listen();
                     s_portListenerMap.put(String.valueOf(_port), _listener);
                 } catch (Exception e) {
@@ -305,7 +425,7 @@ public class TCPRemoteCommitProvider
                             setFatal(true);
                 }
             } else if (_listener.isRunning()) {
-                if (_listener._port != _port) {
+                if (_listener._port != _port || _nio != (_listener instanceof NIOPortListener)) {
                     // this really shouldn't be able to happen.
                     throw new GeneralException(s_loc.get("tcp-not-equal", String.valueOf(_port))).setFatal(true);
                 }
@@ -315,6 +435,12 @@ public class TCPRemoteCommitProvider
             _listener.addProvider(this);
         }
 
+        if (_nio) {
+            // the event loop sends packets without blocking the caller, so
+            // the broadcast worker threads are not needed
+            _broadcastQueue.close();
+        }
+
         _addressesLock.lock();
         try {
             _addresses.forEach(curAddress -> {
@@ -333,30 +459,64 @@ public class TCPRemoteCommitProvider
     // 3.4 			= 0x1428acff;
     private static final long PROTOCOL_VERSION = 0x1428acff;
 
+    // First byte of a packet written by a RemoteCommitEventCodec. Packets
+    // written with Java serialization start with the stream magic 0xAC.
+    private static final int CODEC_PACKET = 0x4F;
+
     @Override
     public void broadcast(final RemoteCommitEvent event) {
-        // build a packet notifying other JVMs of object changes.
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-
-            oos.writeLong(PROTOCOL_VERSION);
-            oos.writeLong(_id);
-            oos.writeInt(_port);
-            oos.writeObject(_localhost);
-            oos.writeObject(event);
-            oos.flush();
-
-            byte[] bytes = baos.toByteArray();
-            baos.close();
-            if (_broadcastThreads.isEmpty()) {
+        if (_nio || _broadcastThreads.isEmpty()) {
+            byte[] bytes = createPacket(Collections.singletonList(event));
+            if (bytes != null) {
                 sendUpdatePacket(bytes);
+            }
+        } else {
+            _broadcastQueue.addEvent(event);
+        }
+    }
+
+    /**
+     * Build a packet notifying other JVMs of the given object changes.
+     *
+     * @return the packet, or <code>null</code> if it could not be created
+     */
+    private byte[] createPacket(final List<RemoteCommitEvent> events) {
+        try (ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
+            if (_codec == null) {
+                // one serialized stream per event, as expected by peers
+                // that predate codecs
+                for (RemoteCommitEvent event : events) {
+                    ObjectOutputStream oos = new ObjectOutputStream(baos);
+                    oos.writeLong(PROTOCOL_VERSION);
+                    oos.writeLong(_id);
+                    oos.writeInt(_port);
+                    oos.writeObject(_localhost);
+                    oos.writeObject(event);
+                    oos.flush();
+                }
             } else {
-                _broadcastQueue.addPacket(bytes);
+                ByteArrayOutputStream payload = new ByteArrayOutputStream();
+                DataOutputStream pos = new DataOutputStream(payload);
+                _codec.encode(events, pos);
+                pos.flush();
+
+                DataOutputStream dos = new DataOutputStream(baos);
+                dos.writeByte(CODEC_PACKET);
+                dos.writeByte(_codec.getVersion());
+                dos.writeLong(_id);
+                dos.writeInt(_port);
+                dos.writeByte(_localhost.length);
+                dos.write(_localhost);
+                dos.writeInt(payload.size());
+                payload.writeTo(dos);
+                dos.flush();
             }
+            return baos.toByteArray();
         } catch (IOException ioe) {
             if (log.isWarnEnabled()) {
                 log.warn(s_loc.get("tcp-payload-create-error"), ioe);
             }
+            return null;
         }
     }
 
@@ -367,7 +527,15 @@ public class TCPRemoteCommitProvider
     private void sendUpdatePacket(final byte[] bytes) {
         _addressesLock.lock();
         try {
-            _addresses.forEach(address -> address.sendUpdatePacket(bytes));
+            if (_listener instanceof NIOPortListener) {
+                // one send timeout for all peers, which the event loop
+                // writes to without blocking this thread
+                List<InetSocketAddress> peers = new ArrayList<>(_addresses.size());
+                _addresses.forEach(address -> peers.add(new InetSocketAddress(address._address, address._port)));
+                ((NIOPortListener) _listener)._transport.send(peers, bytes);
+            } else {
+                _addresses.forEach(address -> address.sendUpdatePacket(bytes));
+            }
         } finally {
             _addressesLock.unlock();
         }
@@ -400,13 +568,13 @@ public class TCPRemoteCommitProvider
     }
 
     /**
-     * Utility class to hold messages to be sent. This
+     * Utility class to hold events to be sent. This
      * allows calls to broadcast () to return without
      * waiting for the send to complete.
      */
     private static class BroadcastQueue {
 
-        private final LinkedList<byte[]> _packetQueue = new LinkedList<>();
+        private final LinkedList<RemoteCommitEvent> _eventQueue = new LinkedList<>();
         private boolean _closed = false;
 
         public synchronized void close() {
@@ -418,27 +586,30 @@ public class TCPRemoteCommitProvider
             return _closed;
         }
 
-        public synchronized void addPacket(final byte[] bytes) {
-            _packetQueue.addLast(bytes);
+        public synchronized void addEvent(final RemoteCommitEvent event) {
+            _eventQueue.addLast(event);
             notify();
         }
 
         /**
-         * @return the bytes defining the packet to process, or
+         * @return up to <code>max</code> events to send in one packet, or
          * <code>null</code> if the queue is empty.
          */
-        public synchronized byte[] removePacket() throws InterruptedException {
+        public synchronized List<RemoteCommitEvent> removeEvents(final int max) throws InterruptedException {
             // only wait if the queue is still open. This allows processing
             // of events in the queue to continue, while avoiding sleeping
             // during shutdown.
-            while (!_closed && _packetQueue.isEmpty()) {
+            while (!_closed && _eventQueue.isEmpty()) {
                 wait();
             }
-            if (_packetQueue.isEmpty()) {
+            if (_eventQueue.isEmpty()) {
                 return null;
-            } else {
-                return _packetQueue.removeFirst();
             }
+            List<RemoteCommitEvent> events = new ArrayList<>(Math.min(max, _eventQueue.size()));
+            while (events.size() < max && !_eventQueue.isEmpty()) {
+                events.add(_eventQueue.removeFirst());
+            }
+            return events;
         }
     }
 
@@ -454,11 +625,14 @@ public class TCPRemoteCommitProvider
         public void run() {
             while (_keepRunning) {
                 try {
-                    // This will block until there is a packet to send, or
+                    // This will block until there are events to send, or
                     // until the queue is closed.
-                    byte[] bytes = _broadcastQueue.removePacket();
-                    if (bytes != null) {
-                        sendUpdatePacket(bytes);
+                    List<RemoteCommitEvent> events = _broadcastQueue.removeEvents(_maxEventsPerPacket);
+                    if (events != null) {
+                        byte[] bytes = createPacket(events);
+                        if (bytes != null) {
+                            sendUpdatePacket(bytes);
+                        }
                     } else if (_broadcastQueue.isClosed()) {
                         _keepRunning = false;
                     }
@@ -480,26 +654,164 @@ public class TCPRemoteCommitProvider
     }
 
     /**
-     * Responsible for listening for incoming packets and processing them.
+     * Base class of the listeners for incoming packets. Decodes packets and
+     * notifies the providers sharing the listen port.
      */
-    private static final class TCPPortListener implements Runnable {
+    private abstract static class PortListener {
 
-        private final Log _log;
-        private ServerSocket _receiveSocket;
-        private Thread _acceptThread;
-        private Set<Thread> _receiverThreads = new HashSet<>();
-        private final Set<TCPRemoteCommitProvider> _providers = new HashSet<>();
+        private static final RemoteCommitEventCodec COMPACT_CODEC = new CompactRemoteCommitEventCodec();
+        protected final Log _log;
+        protected final Set<TCPRemoteCommitProvider> _providers = new HashSet<>();
 
         /**
          * Cache the local IP address
          */
-        private final byte[] _localhost;
+        protected final byte[] _localhost;
 
         /**
          * The port that this listener should listen on. Configured
          * by TCPRemoteCommitProvider.
          */
-        private int _port;
+        protected int _port;
+
+        protected PortListener(final int port, final Log log) throws IOException {
+            _port = port;
+            _log = log;
+            _localhost = InetAddress.getLocalHost().getAddress();
+        }
+
+        /**
+         * Start listening.
+         */
+        protected abstract void listen() throws IOException;
+
+        protected abstract boolean isRunning();
+
+        /**
+         * All providers added here will be notified of any incoming provider messages. There will be one of these per
+         * BrokerFactory in a given JVM.
+         * {@link TCPRemoteCommitProvider#endConfiguration} invokes <code>addProvider</code> with <code>this</code> upon
+         * completion of configuration.
+         */
+        protected void addProvider(final TCPRemoteCommitProvider provider) {
+            synchronized (_providers) {
+                _providers.add(provider);
+            }
+        }
+
+        /**
+         * Remove a provider from the list of providers to notify of commit events. The listener stops once the
+         * last provider has been removed.
+         */
+        protected abstract void removeProvider(TCPRemoteCommitProvider provider);
+
+        /**
+         * Return the codec for the given version byte: the built-in compact
+         * codec, or the codec configured for one of the providers.
+         */
+        private RemoteCommitEventCodec getCodec(final byte version) {
+            if (version == CompactRemoteCommitEventCodec.VERSION) {
+                return COMPACT_CODEC;
+            }
+            synchronized (_providers) {
+                for (TCPRemoteCommitProvider provider : _providers) {
+                    if (provider._codec != null && provider._codec.getVersion() == version) {
+                        return provider._codec;
+                    }
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Process an {@link InputStream} containing objects written
+         * by {@link TCPRemoteCommitProvider#broadcast(RemoteCommitEvent)}.
+         */
+        protected void handle(final InputStream in, final String peer) throws IOException, ClassNotFoundException {
+            // This will block waiting for the next packet
+            in.mark(1);
+            int first = in.read();
+            if (first == -1) {
+                throw new EOFException();
+            }
+            in.reset();
+            if (first == CODEC_PACKET) {
+                handleCodecPacket(new DataInputStream(in), peer);
+                return;
+            }
+
+            ObjectInputStream ois = new Serialization.ClassResolvingObjectInputStream(in);
+
+            long protocolVersion = ois.readLong();
+            if (protocolVersion != PROTOCOL_VERSION) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-wrong-version-error",
+                        peer));
+                    return;
+                }
+            }
+
+            long senderId = ois.readLong();
+            int senderPort = ois.readInt();
+            byte[] senderAddress = (byte[]) ois.readObject();
+            RemoteCommitEvent rce = (RemoteCommitEvent) ois.readObject();
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-event",
+                    peer));
+            }
+
+            fireEvent(senderId, senderPort, senderAddress, Collections.singletonList(rce));
+        }
+
+        /**
+         * Process a packet written by a {@link RemoteCommitEventCodec}.
+         */
+        private void handleCodecPacket(final DataInputStream in, final String peer) throws IOException {
+            in.readUnsignedByte();
+            byte version = in.readByte();
+            long senderId = in.readLong();
+            int senderPort = in.readInt();
+            byte[] senderAddress = new byte[in.readUnsignedByte()];
+            in.readFully(senderAddress);
+            byte[] payload = new byte[in.readInt()];
+            in.readFully(payload);
+
+            RemoteCommitEventCodec codec = getCodec(version);
+            if (codec == null) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-unknown-codec-error",
+                        peer, String.valueOf(version)));
+                }
+                return;
+            }
+            List<RemoteCommitEvent> events = codec.decode(new DataInputStream(new ByteArrayInputStream(payload)));
+            if (_log.isTraceEnabled()) {
+                _log.trace(s_loc.get("tcp-received-event",
+                    peer));
+            }
+            fireEvent(senderId, senderPort, senderAddress, events);
+        }
+
+        private void fireEvent(final long senderId, final int senderPort, final byte[] senderAddress,
+            final List<RemoteCommitEvent> events) {
+            boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
+            synchronized (_providers) {
+                // bleair: We're iterating, but currenlty there can really
+                // only be a single provider.
+                _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
+                        forEach(provider -> events.forEach(provider.eventManager::fireEvent));
+            }
+        }
+    }
+
+    /**
+     * Responsible for listening for incoming packets and processing them.
+     */
+    private static final class TCPPortListener extends PortListener implements Runnable {
+
+        private ServerSocket _receiveSocket;
+        private Thread _acceptThread;
+        private Set<Thread> _receiverThreads = new HashSet<>();
 
         /**
          * Should be set to <code>true</code> once the listener is listening.
@@ -510,42 +822,27 @@ public class TCPRemoteCommitProvider
          * Construct a new TCPPortListener configured to use the specified port.
          */
         private TCPPortListener(final int port, final Log log) throws IOException {
-            _port = port;
-            _log = log;
+            super(port, log);
             try {
                 _receiveSocket = AccessController.doPrivileged(J2DoPrivHelper.newServerSocketAction(_port));
             } catch (PrivilegedActionException pae) {
                 throw (IOException) pae.getException();
             }
-            _localhost = InetAddress.getLocalHost().getAddress();
 
             if (_log.isTraceEnabled()) {
                 _log.info(s_loc.get("tcp-start-listener", String.valueOf(_port)));
             }
         }
 
-        private void listen() {
+        @Override
+        protected void listen() {
             _acceptThread = new Thread(this);
             _acceptThread.setDaemon(true);
             _acceptThread.start();
         }
 
-        /**
-         * All providers added here will be notified of any incoming provider messages. There will be one of these per
-         * BrokerFactory in a given JVM.
-         * {@link TCPRemoteCommitProvider#endConfiguration} invokes <code>addProvider</code> with <code>this</code> upon
-         * completion of configuration.
-         */
-        private void addProvider(final TCPRemoteCommitProvider provider) {
-            synchronized (_providers) {
-                _providers.add(provider);
-            }
-        }
-
-        /**
-         * Remove a provider from the list of providers to notify of commit events.
-         */
-        private synchronized void removeProvider(final TCPRemoteCommitProvider provider) {
+        @Override
+        protected synchronized void removeProvider(final TCPRemoteCommitProvider provider) {
             synchronized (_providers) {
                 _providers.remove(provider);
 
@@ -564,7 +861,8 @@ public class TCPRemoteCommitProvider
             }
         }
 
-        private boolean isRunning() {
+        @Override
+        protected boolean isRunning() {
             synchronized (_providers) {
                 return _isRunning;
             }
@@ -674,7 +972,7 @@ public class TCPRemoteCommitProvider
                     try {
                         // This will block our thread, waiting to read
                         // the next Event-object-message.
-                        handle(_in);
+                        handle(_in, _s.getInetAddress().getHostAddress() + ":" + _s.getPort());
                     } catch (EOFException eof) {
                         // EOFException raised when peer is properly
                         // closing its end.
@@ -702,40 +1000,58 @@ public class TCPRemoteCommitProvider
                         _s.getInetAddress().getHostAddress() + ":" + _s.getPort()), e);
                 }
             }
+        }
+    }
 
-            /**
-             * Process an {@link InputStream} containing objects written
-             * by {@link TCPRemoteCommitProvider#broadcast(RemoteCommitEvent)}.
-             */
-            private void handle(final InputStream in) throws IOException, ClassNotFoundException {
-                // This will block waiting for the next
-                ObjectInputStream ois = new Serialization.ClassResolvingObjectInputStream(in);
+    /**
+     * Listener for the <code>nio</code> transport. Incoming and outgoing
+     * packets of all providers sharing the listen port are handled by a
+     * single {@link NIOTransport} event loop.
+     */
+    private static final class NIOPortListener extends PortListener implements NIOTransport.Receiver {
 
-                long protocolVersion = ois.readLong();
-                if (protocolVersion != PROTOCOL_VERSION) {
-                    if (_log.isWarnEnabled()) {
-                        _log.warn(s_loc.get("tcp-wrong-version-error",
-                            _s.getInetAddress().getHostAddress() + ":" + _s.getPort()));
-                        return;
-                    }
-                }
+        private final NIOTransport _transport;
 
-                long senderId = ois.readLong();
-                int senderPort = ois.readInt();
-                byte[] senderAddress = (byte[]) ois.readObject();
-                RemoteCommitEvent rce = (RemoteCommitEvent) ois.readObject();
-                if (_log.isTraceEnabled()) {
-                    _log.trace(s_loc.get("tcp-received-event",
-                        _s.getInetAddress().getHostAddress() + ":"
-                            + _s.getPort()));
-                }
+        private NIOPortListener(final int port, final Log log, final TCPRemoteCommitProvider provider)
+            throws IOException {
+            super(port, log);
+            _transport = new NIOTransport(port, this, log);
+            _transport.setMaxQueuedPackets(provider._maxQueuedPackets);
+            _transport.setSendTimeoutMillis(provider._sendTimeoutMillis);
+            _transport.setRecoveryTimeMillis(provider._recoveryTimeMillis);
+        }
+
+        @Override
+        protected void listen() throws IOException {
+            _transport.start();
+        }
+
+        @Override
+        protected boolean isRunning() {
+            return _transport.isRunning();
+        }
 
-                boolean fromSelf = senderPort == _port && Arrays.equals(senderAddress, _localhost);
-                synchronized (_providers) {
-                    // bleair: We're iterating, but currenlty there can really
-                    // only be a single provider.
-                    _providers.stream().filter(provider -> senderId != provider._id || !fromSelf).
-                            forEach(provider -> provider.eventManager.fireEvent(rce));
+        @Override
+        protected void removeProvider(final TCPRemoteCommitProvider provider) {
+            boolean close;
+            synchronized (_providers) {
+                _providers.remove(provider);
+                close = _providers.isEmpty();
+            }
+            // not while holding the lock, as the event loop may be waiting
+            // for it to deliver an event
+            if (close) {
+                _transport.close();
+            }
+        }
+
+        @Override
+        public void received(final byte[] packet, final String peer) {
+            try {
+                handle(new ByteArrayInputStream(packet), peer);
+            } catch (Exception e) {
+                if (_log.isWarnEnabled()) {
+                    _log.warn(s_loc.get("tcp-receive-error"), e);
                 }
             }
         }
@@ -800,6 +1116,10 @@ public class TCPRemoteCommitProvider
         }
 
         public void close() {
+            if (_listener instanceof NIOPortListener) {
+                ((NIOPortListener) _listener)._transport.disconnect(new InetSocketAddress(_address, _port));
+            }
+
             // Close the pool of sockets to this peer. This
             // will close all sockets in the pool.
             try {
@@ -812,6 +1132,12 @@ public class TCPRemoteCommitProvider
         }
 
         protected void sendUpdatePacket(byte[] bytes) {
+            if (_listener instanceof NIOPortListener) {
+                // queued for the event loop, which also deals with
+                // unavailable peers
+                ((NIOPortListener) _listener)._transport.send(new InetSocketAddress(_address, _port), bytes);
+                return;
+            }
             if (!_isAvailable) {
                 long now = System.currentTimeMillis();
                 if (now - _timeLastError < _recoveryTimeMillis) {
@@ -25,6 +25,7 @@ import org.apache.openjpa.datacache.CacheStatistics;
 import org.apache.openjpa.datacache.CacheStatisticsSPI;
 import org.apache.openjpa.datacache.DataCache;
 import org.apache.openjpa.datacache.DataCacheManager;
+import org.apache.openjpa.datacache.OffHeapCacheStatistics;
 import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
 import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
 
@@ -108,6 +109,14 @@ public abstract class AbstractDataCacheInstrument extends AbstractInstrument imp
         return NO_STATS;
     }
 
+    @Override
+    public long getOffHeapBytesUsed() {
+        CacheStatistics stats = getStatistics();
+        if (stats instanceof OffHeapCacheStatistics)
+            return ((OffHeapCacheStatistics) stats).getOffHeapBytesUsed();
+        return NO_STATS;
+    }
+
     @Override
     public void reset() {
         CacheStatistics stats = getStatistics();
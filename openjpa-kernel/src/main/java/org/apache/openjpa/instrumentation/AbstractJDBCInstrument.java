@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
+import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.jdbc.JDBCStatistics;
+
+/**
+ * Provides a basic instrument implementation wrapper for the JDBC
+ * statistics.  This class can be extended to create a provider specific
+ * instrument for JDBC.
+ *
+ * @since 3.2.3
+ */
+public abstract class AbstractJDBCInstrument extends AbstractInstrument
+    implements JDBCInstrument {
+
+    public static final long NO_STATS = -1;
+
+    private JDBCStatistics _stats;
+    private String _configID = null;
+    private String _configRef = null;
+
+    public void setConfigId(String cid) {
+        _configID = cid;
+    }
+
+    public void setContextRef(String cref) {
+        _configRef = cref;
+    }
+
+    public String getConfigId() {
+        return _configID;
+    }
+
+    public String getContextRef() {
+        return _configRef;
+    }
+
+    public void setStatistics(JDBCStatistics stats) {
+        _stats = stats;
+    }
+
+    public JDBCStatistics getStatistics() {
+        return _stats;
+    }
+
+    private JDBCStatistics.StatementStatistics getStatistics(String sql) {
+        if (_stats == null)
+            return null;
+        return _stats.getStatistics(sql);
+    }
+
+    @Override
+    public Set<String> statements() {
+        if (_stats != null)
+            return _stats.getStatements();
+        return null;
+    }
+
+    @Override
+    public long getExecutionCount(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getExecutionCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getLatency(String sql, double percentile) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getLatency().getValueAtPercentile(percentile) / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMeanLatency(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return Math.round(stats.getLatency().getMean() / 1000);
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxLatency(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getLatency().getMax() / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getBatchCount(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getBatchCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public double getMeanBatchSize(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getMeanBatchSize();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getRowsFetched(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.getRowsFetched();
+        return NO_STATS;
+    }
+
+    @Override
+    public String getSummary(String sql) {
+        JDBCStatistics.StatementStatistics stats = getStatistics(sql);
+        if (stats != null)
+            return stats.toString();
+        return null;
+    }
+
+    @Override
+    public long getConnectionCount() {
+        if (_stats != null)
+            return _stats.getConnectionWait().getCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getConnectionWait(double percentile) {
+        if (_stats != null)
+            return _stats.getConnectionWait().getValueAtPercentile(percentile)
+                / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxConnectionWait() {
+        if (_stats != null)
+            return _stats.getConnectionWait().getMax() / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getConnectionHold(double percentile) {
+        if (_stats != null)
+            return _stats.getConnectionHold().getValueAtPercentile(percentile)
+                / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxConnectionHold() {
+        if (_stats != null)
+            return _stats.getConnectionHold().getMax() / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public JDBCStatistics.Snapshot getSnapshot() {
+        if (_stats != null)
+            return _stats.getSnapshot();
+        return null;
+    }
+
+    @Override
+    public void reset() {
+        if (_stats != null)
+            _stats.reset();
+    }
+
+    @Override
+    public Date sinceDate() {
+        if (_stats != null)
+            return _stats.since();
+        return null;
+    }
+
+    @Override
+    public Date startDate() {
+        if (_stats != null)
+            return _stats.start();
+        return null;
+    }
+
+    @Override
+    public InstrumentationLevel getLevel() {
+        return InstrumentationLevel.FACTORY;
+    }
+}
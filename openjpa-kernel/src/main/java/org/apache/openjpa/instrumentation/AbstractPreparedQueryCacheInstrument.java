@@ -19,12 +19,14 @@
 package org.apache.openjpa.instrumentation;
 
 import java.util.Date;
+import java.util.Locale;
 import java.util.Set;
 
 import org.apache.openjpa.kernel.PreparedQueryCache;
 import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
 import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.util.LatencyHistogram;
 
 /**
  * Provides a basic instrument implementation wrapper for the prepared query cache.  This
@@ -130,6 +132,27 @@ public abstract class AbstractPreparedQueryCacheInstrument extends AbstractInstr
         return NO_STATS;
     }
 
+    @Override
+    public int getCacheSize() {
+        if (_qc != null)
+            return _qc.getCacheSize();
+        return (int) NO_STATS;
+    }
+
+    @Override
+    public long getEvictionCount() {
+        if (_qc != null)
+            return _qc.getEvictionCount();
+        return NO_STATS;
+    }
+
+    @Override
+    public long getCachedHitCount(String query) {
+        if (_qc != null)
+            return _qc.getCachedHitCount(query);
+        return NO_STATS;
+    }
+
     @Override
     public void reset() {
         QueryStatistics<String> stats = getStatistics();
@@ -161,6 +184,66 @@ public abstract class AbstractPreparedQueryCacheInstrument extends AbstractInstr
         return null;
     }
 
+    private LatencyHistogram getLatency(String query, String phase) {
+        QueryStatistics<String> stats = getStatistics();
+        if (stats == null || phase == null)
+            return null;
+        QueryStatistics.Phase p;
+        try {
+            p = QueryStatistics.Phase.valueOf(phase.toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        return stats.getLatency(query, p);
+    }
+
+    @Override
+    public long getLatency(String query, String phase, double percentile) {
+        LatencyHistogram latency = getLatency(query, phase);
+        if (latency != null)
+            return latency.getValueAtPercentile(percentile) / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMeanLatency(String query, String phase) {
+        LatencyHistogram latency = getLatency(query, phase);
+        if (latency != null)
+            return Math.round(latency.getMean() / 1000);
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxLatency(String query, String phase) {
+        LatencyHistogram latency = getLatency(query, phase);
+        if (latency != null)
+            return latency.getMax() / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getRowCount(String query) {
+        QueryStatistics<String> stats = getStatistics();
+        if (stats != null)
+            return stats.getRowCount(query);
+        return NO_STATS;
+    }
+
+    @Override
+    public String getLatencySummary(String query) {
+        StringBuilder summary = new StringBuilder();
+        for (QueryStatistics.Phase phase : QueryStatistics.Phase.values()) {
+            LatencyHistogram latency = getLatency(query, phase.name());
+            if (latency != null) {
+                if (summary.length() > 0)
+                    summary.append("; ");
+                summary.append(phase.name().toLowerCase(Locale.ENGLISH))
+                    .append(": ").append(latency);
+            }
+        }
+        return summary.toString();
+    }
+
     @Override
     public InstrumentationLevel getLevel() {
         return InstrumentationLevel.FACTORY;
@@ -28,6 +28,7 @@ import org.apache.openjpa.datacache.QueryKey;
 import org.apache.openjpa.kernel.QueryStatistics;
 import org.apache.openjpa.lib.instrumentation.AbstractInstrument;
 import org.apache.openjpa.lib.instrumentation.InstrumentationLevel;
+import org.apache.openjpa.lib.util.LatencyHistogram;
 
 /**
  * Provides a basic instrument implementation wrapper for the query cache.  This
@@ -231,6 +232,55 @@ public abstract class AbstractQueryCacheInstrument extends AbstractInstrument
         return NO_STATS;
     }
 
+    /**
+     * The query cache only records the latency of reading the results of
+     * a query from the cache, as its execute phase.
+     */
+    private LatencyHistogram getLatency(String queryKey) {
+        QueryStatistics<QueryKey> stats = getStatistics();
+        if (stats == null)
+            return null;
+        return stats.getLatency(findKey(queryKey), QueryStatistics.Phase.EXECUTE);
+    }
+
+    @Override
+    public long getLatency(String queryKey, double percentile) {
+        LatencyHistogram latency = getLatency(queryKey);
+        if (latency != null)
+            return latency.getValueAtPercentile(percentile) / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMeanLatency(String queryKey) {
+        LatencyHistogram latency = getLatency(queryKey);
+        if (latency != null)
+            return Math.round(latency.getMean() / 1000);
+        return NO_STATS;
+    }
+
+    @Override
+    public long getMaxLatency(String queryKey) {
+        LatencyHistogram latency = getLatency(queryKey);
+        if (latency != null)
+            return latency.getMax() / 1000;
+        return NO_STATS;
+    }
+
+    @Override
+    public long getRowCount(String queryKey) {
+        QueryStatistics<QueryKey> stats = getStatistics();
+        if (stats != null)
+            return stats.getRowCount(findKey(queryKey));
+        return NO_STATS;
+    }
+
+    @Override
+    public String getLatencySummary(String queryKey) {
+        LatencyHistogram latency = getLatency(queryKey);
+        return (latency == null) ? "" : latency.toString();
+    }
+
     @Override
     public InstrumentationLevel getLevel() {
         return InstrumentationLevel.FACTORY;
@@ -91,6 +91,16 @@ public interface DataCacheInstrument {
      */
     long getWriteCount();
 
+    /**
+     * Returns the number of bytes occupied by the cache outside of the Java
+     * heap, or -1 if the cache does not keep data off the heap.
+     *
+     * @since 3.2.3
+     */
+    default long getOffHeapBytesUsed() {
+        return -1;
+    }
+
     /**
      * Resets cache statistics
      */
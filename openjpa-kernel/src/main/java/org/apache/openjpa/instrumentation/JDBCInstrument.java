@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.instrumentation;
+
+import java.util.Date;
+import java.util.Set;
+
+import org.apache.openjpa.lib.jdbc.JDBCStatistics;
+
+/**
+ * Interface for instruments of the statements executed through JDBC. A
+ * statement is identified by its shape, its SQL with literal values replaced
+ * by parameter markers. Latencies are in microseconds.
+ *
+ * @since 3.2.3
+ */
+public interface JDBCInstrument {
+
+    /**
+     * Returns the shapes of the statements executed since last reset.
+     */
+    Set<String> statements();
+
+    /**
+     * Returns number of executions of the given statement since last reset,
+     * counting an execution of a batch as one.
+     */
+    long getExecutionCount(String sql);
+
+    /**
+     * Returns the latency that the given percentage, between 0 and 100, of
+     * the executions of the given statement did not exceed since last reset.
+     */
+    long getLatency(String sql, double percentile);
+
+    /**
+     * Returns the mean latency of the executions of the given statement
+     * since last reset.
+     */
+    long getMeanLatency(String sql);
+
+    /**
+     * Returns the longest latency of the executions of the given statement
+     * since last reset.
+     */
+    long getMaxLatency(String sql);
+
+    /**
+     * Returns number of batches of the given statement executed since last
+     * reset.
+     */
+    long getBatchCount(String sql);
+
+    /**
+     * Returns the mean number of statements in the batches of the given
+     * statement executed since last reset.
+     */
+    double getMeanBatchSize(String sql);
+
+    /**
+     * Returns number of rows read from the results of the given statement
+     * since last reset.
+     */
+    long getRowsFetched(String sql);
+
+    /**
+     * Returns a summary of the executions of the given statement since last
+     * reset.
+     */
+    String getSummary(String sql);
+
+    /**
+     * Returns number of connections obtained since last reset.
+     */
+    long getConnectionCount();
+
+    /**
+     * Returns the time that the given percentage, between 0 and 100, of
+     * the connections obtained since last reset were waited for.
+     */
+    long getConnectionWait(double percentile);
+
+    /**
+     * Returns the longest time a connection was waited for since last reset.
+     */
+    long getMaxConnectionWait();
+
+    /**
+     * Returns the time that the given percentage, between 0 and 100, of
+     * the connections closed since last reset were held open.
+     */
+    long getConnectionHold(double percentile);
+
+    /**
+     * Returns the longest time a connection closed since last reset was held
+     * open.
+     */
+    long getMaxConnectionHold();
+
+    /**
+     * Returns a copy of all the statistics since last reset.
+     */
+    JDBCStatistics.Snapshot getSnapshot();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+
+    /**
+     * Returns date since the statistics were last reset.
+     */
+    Date sinceDate();
+
+    /**
+     * Returns date the statistics collection started.
+     */
+    Date startDate();
+}
@@ -65,6 +65,29 @@ public interface PreparedQueryCacheInstrument {
      */
     long getTotalHitCount(String query);
 
+    /**
+     * Returns number of queries currently cached, or 0 if not tracked.
+     */
+    default int getCacheSize() {
+        return 0;
+    }
+
+    /**
+     * Returns number of queries evicted since start because the cache was
+     * full, or 0 if not tracked.
+     */
+    default long getEvictionCount() {
+        return 0;
+    }
+
+    /**
+     * Returns number of lookups of the given query since it was cached, or 0
+     * if not tracked.
+     */
+    default long getCachedHitCount(String query) {
+        return 0;
+    }
+
     /**
      * Resets cache statistics
      */
@@ -84,4 +107,58 @@ public interface PreparedQueryCacheInstrument {
      * Returns all queries currently tracked in the cache.
      */
     Set<String> queries();
+
+    /**
+     * Returns the latency in microseconds that the given percentage, between
+     * 0 and 100, of the executions of the given query did not exceed in the
+     * given phase since last reset. The phase is one of compile, execute or
+     * materialize. Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getLatency(String query, String phase, double percentile) {
+        return -1;
+    }
+
+    /**
+     * Returns the mean latency in microseconds of the executions of
+     * the given query in the given phase since last reset.
+     * Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getMeanLatency(String query, String phase) {
+        return -1;
+    }
+
+    /**
+     * Returns the longest latency in microseconds of the executions of
+     * the given query in the given phase since last reset.
+     * Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getMaxLatency(String query, String phase) {
+        return -1;
+    }
+
+    /**
+     * Returns number of rows returned by the executions of the given query
+     * since last reset. Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getRowCount(String query) {
+        return -1;
+    }
+
+    /**
+     * Returns a summary of the latencies of the executions of the given query
+     * in every phase since last reset.
+     *
+     * @since 3.2.3
+     */
+    default String getLatencySummary(String query) {
+        return "";
+    }
 }
@@ -107,4 +107,59 @@ public interface QueryCacheInstrument {
      */
     long count();
 
+    /**
+     * Returns the latency in microseconds that the given percentage, between
+     * 0 and 100, of the reads of the results of the query with
+     * the specified string-ified query key from the cache did not exceed
+     * since last reset. Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getLatency(String queryKey, double percentile) {
+        return -1;
+    }
+
+    /**
+     * Returns the mean latency in microseconds of the reads of the results
+     * of the query with the specified string-ified query key from the cache
+     * since last reset. Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getMeanLatency(String queryKey) {
+        return -1;
+    }
+
+    /**
+     * Returns the longest latency in microseconds of the reads of the
+     * results of the query with the specified string-ified query key from
+     * the cache since last reset. Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getMaxLatency(String queryKey) {
+        return -1;
+    }
+
+    /**
+     * Returns number of rows read from the cache for the query with
+     * the specified string-ified query key since last reset.
+     * Returns -1 if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default long getRowCount(String queryKey) {
+        return -1;
+    }
+
+    /**
+     * Returns a summary of the latencies of the reads of the results of the
+     * query with the specified string-ified query key from the cache since
+     * last reset.
+     *
+     * @since 3.2.3
+     */
+    default String getLatencySummary(String queryKey) {
+        return "";
+    }
 }
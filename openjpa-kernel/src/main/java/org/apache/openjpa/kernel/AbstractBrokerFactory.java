@@ -905,6 +905,12 @@ public abstract class AbstractBrokerFactory implements BrokerFactory {
             loadPersistentTypes(AccessController.doPrivileged(J2DoPrivHelper
                 .getContextClassLoaderAction()));
             mdr.preload();
+
+            // the repository is now fully resolved; snapshot it for the next
+            // start if it was not loaded from a snapshot itself
+            if (_conf instanceof OpenJPAConfigurationImpl)
+                ((OpenJPAConfigurationImpl) _conf).metaRepositoryPlugin
+                    .storeIfNotCached(_conf, mdr);
         }
 
         // Get a DataCacheManager instance up front to avoid threading concerns on first call.
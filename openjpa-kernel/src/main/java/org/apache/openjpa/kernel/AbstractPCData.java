@@ -406,6 +406,32 @@ public abstract class AbstractPCData
         return pcdata;
     }
 
+    /**
+     * Return whether the given value is the cached data of a collection.
+     */
+    static boolean isCollectionData(Object data) {
+        return data instanceof ProxyDataList;
+    }
+
+    /**
+     * Return the change tracker sequence of the given collection data.
+     */
+    static int getNextSequence(Object data) {
+        return ((ProxyDataList) data).nextSequence;
+    }
+
+    /**
+     * Return new, empty collection data. Elements are added to the returned
+     * list unless <code>size</code> is 0.
+     */
+    static Collection<Object> newCollectionData(int size, int nextSequence) {
+        if (size == 0 && nextSequence == 0)
+            return ProxyDataList.EMPTY_LIST;
+        ProxyDataList c = new ProxyDataList(size);
+        c.nextSequence = nextSequence;
+        return c;
+    }
+
     /**
      * Tracks proxy data along with list elements.
      */
@@ -323,6 +323,33 @@ public class DelegatingQuery
         }
     }
 
+    @Override
+    public void setStatistics(QueryStatistics<String> stats, String key) {
+        try {
+            _query.setStatistics(stats, key);
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        try {
+            return _query.isStreaming();
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
+    @Override
+    public void setStreaming(boolean streaming) {
+        try {
+            _query.setStreaming(streaming);
+        } catch (RuntimeException re) {
+            throw translate(re);
+        }
+    }
+
     @Override
     public Class getResultMappingScope() {
         try {
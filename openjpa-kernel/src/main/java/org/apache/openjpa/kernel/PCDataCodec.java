@@ -0,0 +1,773 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.openjpa.datacache.DataCachePCDataImpl;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.JavaTypes;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.ValueMetaData;
+import org.apache.openjpa.util.BlacklistClassResolver;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.Serialization;
+import org.apache.openjpa.util.StringId;
+
+/**
+ * Binary codec for {@link PCDataImpl} and {@link DataCachePCDataImpl}
+ * instances. The layout of the encoded fields follows the
+ * {@link ClassMetaData} of the data: loaded primitive, wrapper, string and
+ * date fields are written without any type information, numbers as
+ * variable-length integers. Other values carry a one byte tag; oids of
+ * the {@link OpenJPAId} types, collection, map and array data, enums,
+ * big numbers and embedded data are encoded natively, and anything else
+ * falls back to Java serialization, as does data of any other
+ * {@link PCData} class. Class names are written once per encoded instance.
+ * Both ends must use the same metadata for the encoded types.
+ * Instances are thread safe.
+ *
+ * @since 3.2.3
+ */
+public class PCDataCodec {
+
+    public static final byte VERSION = 1;
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int LONG = 2;
+    private static final int INT = 3;
+    private static final int LONG_ID = 4;
+    private static final int INT_ID = 5;
+    private static final int STRING_ID = 6;
+    private static final int OBJECT_ID = 7;
+    private static final int SERIALIZED = 8;
+    private static final int TRUE = 9;
+    private static final int FALSE = 10;
+    private static final int BYTE = 11;
+    private static final int CHAR = 12;
+    private static final int SHORT = 13;
+    private static final int FLOAT = 14;
+    private static final int DOUBLE = 15;
+    private static final int DATE = 16;
+    private static final int BIGDECIMAL = 17;
+    private static final int BIGINTEGER = 18;
+    private static final int ENUM = 19;
+    private static final int COLLECTION = 20;
+    private static final int MAP = 21;
+    private static final int ARRAY = 22;
+    private static final int PCDATA = 23;
+    private static final int DATACACHE_PCDATA = 24;
+
+    // set on id tags when the id does not include subclasses
+    private static final int NO_SUBS = 0x40;
+
+    // per field flags
+    private static final int FIELD_LOADED = 1;
+    private static final int FIELD_DATA = 2;
+    private static final int FIELD_UNTAGGED = 4;
+    private static final int FIELD_IMPL = 8;
+
+    // written instead of a type code for arrays of non-primitive types
+    private static final int OBJECT_COMPONENT = 0xFF;
+
+    private static final Class<?>[] WRAPPERS = {
+        Boolean.class, Byte.class, Character.class, Double.class,
+        Float.class, Integer.class, Long.class, Short.class,
+    };
+
+    private final MetaDataRepository _repos;
+    private final ClassLoader _loader;
+    private final Map<String, Class<?>> _classes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor. Types are resolved with the class resolver of the
+     * repository's configuration.
+     */
+    public PCDataCodec(MetaDataRepository repos) {
+        _repos = repos;
+        _loader = repos.getConfiguration().getClassResolverInstance().
+            getClassLoader(PCDataCodec.class, null);
+    }
+
+    /**
+     * Encode the given data.
+     */
+    public void encode(PCData data, DataOutput out)
+        throws IOException {
+        out.writeByte(VERSION);
+        writeValue(out, data, null, new HashMap<>());
+    }
+
+    /**
+     * Decode data written by {@link #encode}.
+     */
+    public PCData decode(DataInput in)
+        throws IOException {
+        int version = in.readUnsignedByte();
+        if (version != VERSION)
+            throw new StreamCorruptedException(String.valueOf(version));
+        Object data = readValue(in, null, new ArrayList<>());
+        if (!(data instanceof PCData))
+            throw new StreamCorruptedException(String.valueOf(data));
+        return (PCData) data;
+    }
+
+    /**
+     * Encode the given data into a new array.
+     */
+    public byte[] toBytes(PCData data)
+        throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        encode(data, out);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode data encoded by {@link #toBytes}.
+     */
+    public PCData fromBytes(byte[] bytes)
+        throws IOException {
+        return decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    /**
+     * Return the metadata describing the fields of data of the given type,
+     * or null if the data cannot be encoded natively. Embedded data is
+     * described by the embedded metadata of its value.
+     */
+    private ClassMetaData getMetaData(Class<?> type, ValueMetaData vmd) {
+        ClassMetaData meta;
+        if (vmd != null)
+            meta = vmd.getEmbeddedMetaData();
+        else
+            meta = _repos.getMetaData(type, type.getClassLoader(), false);
+        if (meta == null || meta.getDescribedType() != type)
+            return null;
+        return meta;
+    }
+
+    private void writePCData(DataOutput out, PCDataImpl data,
+        ClassMetaData meta, Map<Class<?>, Integer> types)
+        throws IOException {
+        writeType(out, data.getType(), types);
+        writeString(out, data.getCache());
+        if (data instanceof DataCachePCDataImpl)
+            writeVarLong(out, zigZag(((DataCachePCDataImpl) data).getTimeOut()));
+        writeValue(out, data.getId(), null, types);
+        writeValue(out, data.getVersion(), null, types);
+        writeValue(out, data.getImplData(), null, types);
+
+        FieldMetaData[] fmds = meta.getFields();
+        writeVarInt(out, fmds.length);
+        for (int i = 0; i < fmds.length; i++) {
+            boolean loaded = data.isLoaded(i);
+            Object val = (loaded) ? data.getData(i)
+                : data.getIntermediate(i);
+            Object impl = data.getImplData(i);
+            int code = (loaded && val != null)
+                ? getUntaggedTypeCode(fmds[i], val) : -1;
+
+            int flags = 0;
+            if (loaded)
+                flags |= FIELD_LOADED;
+            if (val != null)
+                flags |= FIELD_DATA;
+            if (code != -1)
+                flags |= FIELD_UNTAGGED;
+            if (impl != null)
+                flags |= FIELD_IMPL;
+            out.writeByte(flags);
+
+            if (code != -1)
+                writeUntagged(out, code, val);
+            else if (val != null)
+                writeValue(out, val, fmds[i], types);
+            if (impl != null)
+                writeValue(out, impl, null, types);
+        }
+    }
+
+    private PCDataImpl readPCData(DataInput in, boolean dataCache,
+        ValueMetaData vmd, List<Class<?>> types)
+        throws IOException {
+        Class<?> type = readType(in, types);
+        ClassMetaData meta = getMetaData(type, vmd);
+        if (meta == null)
+            throw new StreamCorruptedException(type.getName());
+        String cache = readString(in);
+        long timeOut = (dataCache) ? unZigZag(readVarLong(in)) : 0;
+        Object oid = readValue(in, null, types);
+
+        PCDataImpl data = (dataCache)
+            ? new DataCachePCDataImpl(oid, meta, cache, timeOut)
+            : new PCDataImpl(oid, meta, cache);
+        data.setVersion(readValue(in, null, types));
+        data.setImplData(readValue(in, null, types));
+
+        FieldMetaData[] fmds = meta.getFields();
+        if (readVarInt(in) != fmds.length)
+            throw new StreamCorruptedException(type.getName());
+        for (int i = 0; i < fmds.length; i++) {
+            int flags = in.readUnsignedByte();
+            Object val = null;
+            if ((flags & FIELD_UNTAGGED) != 0)
+                val = readUntagged(in, fmds[i].getDeclaredTypeCode());
+            else if ((flags & FIELD_DATA) != 0)
+                val = readValue(in, fmds[i], types);
+
+            if ((flags & FIELD_LOADED) != 0)
+                data.setData(i, val);
+            else if (val != null)
+                data.setIntermediate(i, val);
+            if ((flags & FIELD_IMPL) != 0)
+                data.setImplData(i, readValue(in, null, types));
+        }
+        return data;
+    }
+
+    /**
+     * Return the code to write the given loaded field data with
+     * {@link #writeUntagged}, or -1 if it has to be tagged.
+     */
+    private static int getUntaggedTypeCode(FieldMetaData fmd, Object val) {
+        int code = fmd.getDeclaredTypeCode();
+        switch (code) {
+            case JavaTypes.BOOLEAN:
+            case JavaTypes.BYTE:
+            case JavaTypes.CHAR:
+            case JavaTypes.DOUBLE:
+            case JavaTypes.FLOAT:
+            case JavaTypes.INT:
+            case JavaTypes.LONG:
+            case JavaTypes.SHORT:
+                return (val.getClass() == WRAPPERS[code]) ? code : -1;
+            case JavaTypes.BOOLEAN_OBJ:
+            case JavaTypes.BYTE_OBJ:
+            case JavaTypes.CHAR_OBJ:
+            case JavaTypes.DOUBLE_OBJ:
+            case JavaTypes.FLOAT_OBJ:
+            case JavaTypes.INT_OBJ:
+            case JavaTypes.LONG_OBJ:
+            case JavaTypes.SHORT_OBJ:
+                code -= JavaTypes.BOOLEAN_OBJ;
+                return (val.getClass() == WRAPPERS[code]) ? code : -1;
+            case JavaTypes.STRING:
+                return (val instanceof String) ? code : -1;
+            case JavaTypes.DATE:
+                return (val.getClass() == Date.class) ? code : -1;
+            default:
+                return -1;
+        }
+    }
+
+    private static void writeUntagged(DataOutput out, int code, Object val)
+        throws IOException {
+        switch (code) {
+            case JavaTypes.BOOLEAN:
+                out.writeBoolean((Boolean) val);
+                break;
+            case JavaTypes.BYTE:
+                out.writeByte((Byte) val);
+                break;
+            case JavaTypes.CHAR:
+                writeVarInt(out, (Character) val);
+                break;
+            case JavaTypes.DOUBLE:
+                out.writeDouble((Double) val);
+                break;
+            case JavaTypes.FLOAT:
+                out.writeFloat((Float) val);
+                break;
+            case JavaTypes.INT:
+                writeVarLong(out, zigZag((Integer) val));
+                break;
+            case JavaTypes.LONG:
+                writeVarLong(out, zigZag((Long) val));
+                break;
+            case JavaTypes.SHORT:
+                writeVarLong(out, zigZag((Short) val));
+                break;
+            case JavaTypes.STRING:
+                writeString(out, (String) val);
+                break;
+            case JavaTypes.DATE:
+                writeVarLong(out, zigZag(((Date) val).getTime()));
+                break;
+            default:
+                throw new IllegalArgumentException(String.valueOf(code));
+        }
+    }
+
+    private static Object readUntagged(DataInput in, int code)
+        throws IOException {
+        if (code >= JavaTypes.BOOLEAN_OBJ && code <= JavaTypes.SHORT_OBJ)
+            code -= JavaTypes.BOOLEAN_OBJ;
+        switch (code) {
+            case JavaTypes.BOOLEAN:
+                return in.readBoolean();
+            case JavaTypes.BYTE:
+                return in.readByte();
+            case JavaTypes.CHAR:
+                return (char) readVarInt(in);
+            case JavaTypes.DOUBLE:
+                return in.readDouble();
+            case JavaTypes.FLOAT:
+                return in.readFloat();
+            case JavaTypes.INT:
+                return (int) unZigZag(readVarLong(in));
+            case JavaTypes.LONG:
+                return unZigZag(readVarLong(in));
+            case JavaTypes.SHORT:
+                return (short) unZigZag(readVarLong(in));
+            case JavaTypes.STRING:
+                return readString(in);
+            case JavaTypes.DATE:
+                return new Date(unZigZag(readVarLong(in)));
+            default:
+                throw new StreamCorruptedException(String.valueOf(code));
+        }
+    }
+
+    /**
+     * Write the given value with a leading tag.
+     *
+     * @param vmd the value the data belongs to, used to encode embedded
+     * data, or null
+     */
+    private void writeValue(DataOutput out, Object value, ValueMetaData vmd,
+        Map<Class<?>, Integer> types)
+        throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, zigZag((Long) value));
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            writeVarLong(out, zigZag((Integer) value));
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            writeVarInt(out, (Character) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            writeVarLong(out, zigZag((Short) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value.getClass() == Date.class) {
+            out.writeByte(DATE);
+            writeVarLong(out, zigZag(((Date) value).getTime()));
+        } else if (value.getClass() == BigDecimal.class) {
+            BigDecimal dec = (BigDecimal) value;
+            out.writeByte(BIGDECIMAL);
+            writeVarLong(out, zigZag(dec.scale()));
+            writeBytes(out, dec.unscaledValue().toByteArray());
+        } else if (value.getClass() == BigInteger.class) {
+            out.writeByte(BIGINTEGER);
+            writeBytes(out, ((BigInteger) value).toByteArray());
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeType(out, ((Enum<?>) value).getDeclaringClass(), types);
+            writeString(out, ((Enum<?>) value).name());
+        } else if (value instanceof LongId) {
+            LongId id = (LongId) value;
+            writeIdHeader(out, LONG_ID, id, types);
+            writeVarLong(out, zigZag(id.getId()));
+        } else if (value instanceof IntId) {
+            IntId id = (IntId) value;
+            writeIdHeader(out, INT_ID, id, types);
+            writeVarLong(out, zigZag(id.getId()));
+        } else if (value instanceof StringId) {
+            StringId id = (StringId) value;
+            writeIdHeader(out, STRING_ID, id, types);
+            writeString(out, id.getId());
+        } else if (value instanceof ObjectId) {
+            ObjectId id = (ObjectId) value;
+            writeIdHeader(out, OBJECT_ID, id, types);
+            writeValue(out, id.getId(), null, types);
+        } else if (AbstractPCData.isCollectionData(value)) {
+            Collection<?> c = (Collection<?>) value;
+            ValueMetaData elem = (vmd instanceof FieldMetaData)
+                ? ((FieldMetaData) vmd).getElement() : null;
+            out.writeByte(COLLECTION);
+            writeVarInt(out, AbstractPCData.getNextSequence(value));
+            writeVarInt(out, c.size());
+            for (Object o : c)
+                writeValue(out, o, elem, types);
+        } else if (value.getClass() == HashMap.class
+            || value == Collections.EMPTY_MAP) {
+            Map<?, ?> m = (Map<?, ?>) value;
+            ValueMetaData key = null;
+            ValueMetaData elem = null;
+            if (vmd instanceof FieldMetaData) {
+                key = ((FieldMetaData) vmd).getKey();
+                elem = ((FieldMetaData) vmd).getElement();
+            }
+            out.writeByte(MAP);
+            writeVarInt(out, m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeValue(out, e.getKey(), key, types);
+                writeValue(out, e.getValue(), elem, types);
+            }
+        } else if (value.getClass().isArray()) {
+            writeArray(out, value, vmd, types);
+        } else if ((value.getClass() == PCDataImpl.class
+            || value.getClass() == DataCachePCDataImpl.class)
+            && getMetaData(((PCData) value).getType(), vmd) != null) {
+            PCDataImpl data = (PCDataImpl) value;
+            out.writeByte((data instanceof DataCachePCDataImpl)
+                ? DATACACHE_PCDATA : PCDATA);
+            writePCData(out, data, getMetaData(data.getType(), vmd), types);
+        } else {
+            out.writeByte(SERIALIZED);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            writeBytes(out, bytes.toByteArray());
+        }
+    }
+
+    private Object readValue(DataInput in, ValueMetaData vmd,
+        List<Class<?>> types)
+        throws IOException {
+        int tag = in.readUnsignedByte();
+        boolean subs = (tag & NO_SUBS) == 0;
+        switch (tag & ~NO_SUBS) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return unZigZag(readVarLong(in));
+            case INT:
+                return (int) unZigZag(readVarLong(in));
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return in.readByte();
+            case CHAR:
+                return (char) readVarInt(in);
+            case SHORT:
+                return (short) unZigZag(readVarLong(in));
+            case FLOAT:
+                return in.readFloat();
+            case DOUBLE:
+                return in.readDouble();
+            case DATE:
+                return new Date(unZigZag(readVarLong(in)));
+            case BIGDECIMAL:
+                int scale = (int) unZigZag(readVarLong(in));
+                return new BigDecimal(new BigInteger(readBytes(in)), scale);
+            case BIGINTEGER:
+                return new BigInteger(readBytes(in));
+            case ENUM:
+                return readEnum(readType(in, types), readString(in));
+            case LONG_ID:
+                return new LongId(readType(in, types),
+                    unZigZag(readVarLong(in)), subs);
+            case INT_ID:
+                return new IntId(readType(in, types),
+                    (int) unZigZag(readVarLong(in)), subs);
+            case STRING_ID:
+                return new StringId(readType(in, types), readString(in),
+                    subs);
+            case OBJECT_ID:
+                Class<?> type = readType(in, types);
+                return new ObjectId(type, readValue(in, null, types), subs);
+            case COLLECTION:
+                ValueMetaData elem = (vmd instanceof FieldMetaData)
+                    ? ((FieldMetaData) vmd).getElement() : null;
+                int nextSequence = readVarInt(in);
+                int size = readVarInt(in);
+                Collection<Object> c = AbstractPCData.newCollectionData(size,
+                    nextSequence);
+                for (int i = 0; i < size; i++)
+                    c.add(readValue(in, elem, types));
+                return c;
+            case MAP:
+                ValueMetaData key = null;
+                ValueMetaData val = null;
+                if (vmd instanceof FieldMetaData) {
+                    key = ((FieldMetaData) vmd).getKey();
+                    val = ((FieldMetaData) vmd).getElement();
+                }
+                size = readVarInt(in);
+                if (size == 0)
+                    return Collections.EMPTY_MAP;
+                Map<Object, Object> m = new HashMap<>(size);
+                for (int i = 0; i < size; i++)
+                    m.put(readValue(in, key, types), readValue(in, val, types));
+                return m;
+            case ARRAY:
+                return readArray(in, vmd, types);
+            case PCDATA:
+                return readPCData(in, false, vmd, types);
+            case DATACACHE_PCDATA:
+                return readPCData(in, true, vmd, types);
+            case SERIALIZED:
+                return Serialization.deserialize
+                    (new ByteArrayInputStream(readBytes(in)), null);
+            default:
+                throw new StreamCorruptedException(String.valueOf(tag));
+        }
+    }
+
+    /**
+     * Arrays of primitives are written without tags. The elements of other
+     * arrays are written as tagged values.
+     */
+    private void writeArray(DataOutput out, Object array, ValueMetaData vmd,
+        Map<Class<?>, Integer> types)
+        throws IOException {
+        Class<?> component = array.getClass().getComponentType();
+        int length = Array.getLength(array);
+        out.writeByte(ARRAY);
+        if (component.isPrimitive()) {
+            int code = JavaTypes.getTypeCode(component);
+            out.writeByte(code);
+            writeVarInt(out, length);
+            for (int i = 0; i < length; i++)
+                writeUntagged(out, code, Array.get(array, i));
+        } else {
+            ValueMetaData elem = (vmd instanceof FieldMetaData)
+                ? ((FieldMetaData) vmd).getElement() : null;
+            out.writeByte(OBJECT_COMPONENT);
+            writeType(out, component, types);
+            writeVarInt(out, length);
+            for (Object o : (Object[]) array)
+                writeValue(out, o, elem, types);
+        }
+    }
+
+    private Object readArray(DataInput in, ValueMetaData vmd,
+        List<Class<?>> types)
+        throws IOException {
+        int code = in.readUnsignedByte();
+        if (code != OBJECT_COMPONENT) {
+            int length = readVarInt(in);
+            Object array = Array.newInstance(getPrimitive(code), length);
+            for (int i = 0; i < length; i++)
+                Array.set(array, i, readUntagged(in, code));
+            return array;
+        }
+
+        ValueMetaData elem = (vmd instanceof FieldMetaData)
+            ? ((FieldMetaData) vmd).getElement() : null;
+        Class<?> component = readType(in, types);
+        int length = readVarInt(in);
+        Object[] array = (Object[]) Array.newInstance(component, length);
+        for (int i = 0; i < length; i++)
+            array[i] = readValue(in, elem, types);
+        return array;
+    }
+
+    private static Class<?> getPrimitive(int code)
+        throws IOException {
+        switch (code) {
+            case JavaTypes.BOOLEAN:
+                return boolean.class;
+            case JavaTypes.BYTE:
+                return byte.class;
+            case JavaTypes.CHAR:
+                return char.class;
+            case JavaTypes.DOUBLE:
+                return double.class;
+            case JavaTypes.FLOAT:
+                return float.class;
+            case JavaTypes.INT:
+                return int.class;
+            case JavaTypes.LONG:
+                return long.class;
+            case JavaTypes.SHORT:
+                return short.class;
+            default:
+                throw new StreamCorruptedException(String.valueOf(code));
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readEnum(Class<?> type, String name)
+        throws IOException {
+        try {
+            return Enum.valueOf((Class) type, name);
+        } catch (IllegalArgumentException iae) {
+            throw new StreamCorruptedException(type.getName() + "." + name);
+        }
+    }
+
+    private void writeIdHeader(DataOutput out, int tag, OpenJPAId id,
+        Map<Class<?>, Integer> types)
+        throws IOException {
+        out.writeByte(id.hasSubclasses() ? tag : tag | NO_SUBS);
+        writeType(out, id.getType(), types);
+    }
+
+    private static void writeType(DataOutput out, Class<?> type,
+        Map<Class<?>, Integer> types)
+        throws IOException {
+        Integer idx = types.get(type);
+        if (idx != null) {
+            writeVarInt(out, idx + 1);
+        } else {
+            types.put(type, types.size());
+            writeVarInt(out, 0);
+            writeString(out, type.getName());
+        }
+    }
+
+    private Class<?> readType(DataInput in, List<Class<?>> types)
+        throws IOException {
+        int idx = readVarInt(in);
+        if (idx > 0)
+            return types.get(idx - 1);
+
+        String name = readString(in);
+        Class<?> type = _classes.get(name);
+        if (type == null) {
+            BlacklistClassResolver.DEFAULT.check(name);
+            try {
+                type = Class.forName(name, true, _loader);
+            } catch (ClassNotFoundException cnfe) {
+                throw new IOException(cnfe);
+            }
+            _classes.put(name, type);
+        }
+        types.add(type);
+        return type;
+    }
+
+    private static void writeBytes(DataOutput out, byte[] bytes)
+        throws IOException {
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInput in)
+        throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Strings are written as their UTF-8 bytes preceded by their length
+     * plus one, so that null can be written as 0.
+     */
+    private static void writeString(DataOutput out, String str)
+        throws IOException {
+        if (str == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in)
+        throws IOException {
+        int len = readVarInt(in) - 1;
+        if (len < 0)
+            return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long zigZag(long val) {
+        return (val << 1) ^ (val >> 63);
+    }
+
+    private static long unZigZag(long val) {
+        return (val >>> 1) ^ -(val & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int val)
+        throws IOException {
+        writeVarLong(out, val & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInput in)
+        throws IOException {
+        return (int) readVarLong(in);
+    }
+
+    private static void writeVarLong(DataOutput out, long val)
+        throws IOException {
+        while ((val & ~0x7FL) != 0) {
+            out.writeByte((int) ((val & 0x7F) | 0x80));
+            val >>>= 7;
+        }
+        out.writeByte((int) val);
+    }
+
+    private static long readVarLong(DataInput in)
+        throws IOException {
+        long val = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            val |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return val;
+        }
+        throw new StreamCorruptedException("varint");
+    }
+}
@@ -25,7 +25,10 @@ import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.meta.FieldMetaData;
 
 /**
- * Default {@link PCData} implementation.
+ * Default {@link PCData} implementation. The values of fields of primitive
+ * type are kept unboxed in a compacted array laid out by
+ * {@link ClassMetaData#getPrimitiveFieldDataTable}, and only boxed again
+ * when they are read.
  *
  * @author Patrick Linskey
  * @author Abe White
@@ -40,6 +43,8 @@ public class PCDataImpl
     private final String _cache;
     private final Object[] _data;
     private final BitSet _loaded;
+    private final int[] _primIndex;
+    private final long[] _prims;
     private Object _version = null;
     private Object _impl = null;
     private Object[] _fieldImpl = null;
@@ -59,6 +64,10 @@ public class PCDataImpl
         int len = meta.getFields().length;
         _data = new Object[len];
         _loaded = new BitSet(len);
+
+        int prims = meta.getPrimitiveFieldDataLength();
+        _primIndex = (prims == 0) ? null : meta.getPrimitiveFieldDataTable();
+        _prims = (prims == 0) ? null : new long[prims];
     }
 
     @Override
@@ -80,12 +89,18 @@ public class PCDataImpl
     public Object getData(int index) {
         // make sure index is actually loaded to avoid returning an
         // intermediate value
-        return (_loaded.get(index)) ? _data[index] : null;
+        if (!_loaded.get(index))
+            return null;
+        Object val = _data[index];
+        if (val instanceof Unboxed)
+            return ((Unboxed) val).box(_prims[_primIndex[index]]);
+        return val;
     }
 
     public void setData(int index, Object val) {
         _loaded.set(index);
-        _data[index] = val;
+        _data[index] = (_primIndex != null && _primIndex[index] != -1)
+            ? unbox(_primIndex[index], val) : val;
     }
 
     public void clearData(int index) {
@@ -117,7 +132,10 @@ public class PCDataImpl
     }
 
     public Object getIntermediate(int index) {
-        return (!_loaded.get(index)) ? _data[index] : null;
+        if (_loaded.get(index))
+            return null;
+        Object val = _data[index];
+        return (val instanceof Unboxed) ? null : val;
     }
 
     public void setIntermediate(int index, Object val) {
@@ -125,6 +143,79 @@ public class PCDataImpl
         _data[index] = val;
     }
 
+    /**
+     * Store the given wrapper into the primitive value array at the given
+     * index, returning the marker of its type to flag the data as unboxed.
+     * Other values, including classes, are returned unchanged.
+     */
+    private Object unbox(int prim, Object val) {
+        if (val == null)
+            return null;
+        Class<?> type = val.getClass();
+        long bits;
+        Unboxed marker;
+        if (type == Integer.class) {
+            bits = (Integer) val;
+            marker = Unboxed.INT;
+        } else if (type == Long.class) {
+            bits = (Long) val;
+            marker = Unboxed.LONG;
+        } else if (type == Double.class) {
+            bits = Double.doubleToRawLongBits((Double) val);
+            marker = Unboxed.DOUBLE;
+        } else if (type == Boolean.class) {
+            bits = ((Boolean) val) ? 1 : 0;
+            marker = Unboxed.BOOLEAN;
+        } else if (type == Float.class) {
+            bits = Float.floatToRawIntBits((Float) val);
+            marker = Unboxed.FLOAT;
+        } else if (type == Short.class) {
+            bits = (Short) val;
+            marker = Unboxed.SHORT;
+        } else if (type == Byte.class) {
+            bits = (Byte) val;
+            marker = Unboxed.BYTE;
+        } else if (type == Character.class) {
+            bits = (Character) val;
+            marker = Unboxed.CHAR;
+        } else
+            return val;
+        _prims[prim] = bits;
+        return marker;
+    }
+
+    /**
+     * Marks field data whose value is kept in the primitive value array,
+     * recording the wrapper type to box it into.
+     */
+    private enum Unboxed {
+        BOOLEAN, BYTE, CHAR, DOUBLE, FLOAT, INT, LONG, SHORT;
+
+        /**
+         * Return the wrapper of this type for the given unboxed value.
+         */
+        Object box(long bits) {
+            switch (this) {
+                case BOOLEAN:
+                    return bits != 0;
+                case BYTE:
+                    return (byte) bits;
+                case CHAR:
+                    return (char) bits;
+                case DOUBLE:
+                    return Double.longBitsToDouble(bits);
+                case FLOAT:
+                    return Float.intBitsToFloat((int) bits);
+                case INT:
+                    return (int) bits;
+                case LONG:
+                    return bits;
+                default:
+                    return (short) bits;
+            }
+        }
+    }
+
     @Override
     public boolean isLoaded(int index) {
         return _loaded.get(index);
@@ -194,6 +194,36 @@ public interface PreparedQueryCache extends Configurable {
 	 */
 	void clear();
 
+	/**
+	 * Gets the number of queries currently cached, or 0 if this cache does
+	 * not track it.
+	 *
+	 * @since 3.2.3
+	 */
+	default int getCacheSize() {
+		return 0;
+	}
+
+	/**
+	 * Gets the number of queries evicted because the cache was full, or 0 if
+	 * this cache does not track it.
+	 *
+	 * @since 3.2.3
+	 */
+	default long getEvictionCount() {
+		return 0;
+	}
+
+	/**
+	 * Gets the number of times the given query has been looked up since it
+	 * was cached, or 0 if it is not cached or this cache does not track it.
+	 *
+	 * @since 3.2.3
+	 */
+	default long getCachedHitCount(String id) {
+		return 0;
+	}
+
 	/**
 	 * Enable/disable gathering of statistics.
 	 *
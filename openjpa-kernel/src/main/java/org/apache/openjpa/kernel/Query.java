@@ -189,5 +189,38 @@ public interface Query
      * its association with its Broker.
 	 */
 	void assertNotSerialized ();
+
+    /**
+     * Record the latencies and row counts of the executions of this query in
+     * the given statistics under the given key. Null statistics stop the
+     * recording.
+     *
+     * @since 3.2.3
+     */
+    default void setStatistics(QueryStatistics<String> stats, String key) {
+    }
+
+    /**
+     * Whether the results of the query are streamed. Streamed results can
+     * be traversed forward only once, and each result that is neither new
+     * nor dirty is released from the context as soon as the next one is
+     * read, so that memory use does not depend on the number of results.
+     * Queries that do not support streaming return false.
+     *
+     * @since 3.2.3
+     */
+    default boolean isStreaming() {
+        return false;
+    }
+
+    /**
+     * Whether the results of the query are streamed. Queries that do not
+     * support streaming ignore this setting and materialize their results.
+     *
+     * @see #isStreaming
+     * @since 3.2.3
+     */
+    default void setStreaming(boolean streaming) {
+    }
 }
 
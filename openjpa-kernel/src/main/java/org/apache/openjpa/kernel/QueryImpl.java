@@ -49,6 +49,7 @@ import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultList;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.rop.StreamingResultList;
 import org.apache.openjpa.lib.util.ClassUtil;
 import org.apache.openjpa.lib.util.J2DoPrivHelper;
 import org.apache.openjpa.lib.util.Localizer;
@@ -130,6 +131,17 @@ public class QueryImpl implements Query {
         new ReferenceHashSet(AbstractReferenceMap.ReferenceStrength.WEAK);
 
     private boolean _printParameters = false;
+
+    // statistics of the executions, and start time of the current one
+    private transient QueryStatistics<String> _stats = null;
+    private transient String _statsKey = null;
+    private transient long _executeStart = 0;
+
+    // whether to stream the results, and the fetch batch size to stream with
+    // unless one is set
+    private transient boolean _streaming = false;
+    private static final int STREAMING_FETCH_BATCH_SIZE = 1000;
+
     /**
      * Construct a query managed by the given broker.
      */
@@ -217,6 +229,44 @@ public class QueryImpl implements Query {
         }
     }
 
+    @Override
+    public void setStatistics(QueryStatistics<String> stats, String key) {
+        lock();
+        try {
+            _stats = stats;
+            _statsKey = key;
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return _streaming;
+    }
+
+    @Override
+    public void setStreaming(boolean streaming) {
+        lock();
+        try {
+            assertOpen();
+            // allowed modification: no read-only check
+            _streaming = streaming;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Record the latency of the given phase that started at the given time
+     * and return the current time.
+     */
+    private long recordLatency(QueryStatistics.Phase phase, long start) {
+        long now = System.nanoTime();
+        _stats.recordLatency(_statsKey, phase, now - start);
+        return now;
+    }
+
     @Override
     public void addFilterListener(FilterListener listener) {
         lock();
@@ -855,9 +905,12 @@ public class QueryImpl implements Query {
                 _broker.assertNontransactionalRead();
 
                 // get executor
+                long start = (_stats == null) ? 0 : System.nanoTime();
                 Compilation comp = compileForCompilation();
                 StoreQuery.Executor ex = (isInMemory(operation))
                     ? compileForInMemory(comp) : compileForDataStore(comp);
+                if (_stats != null)
+                    recordLatency(QueryStatistics.Phase.COMPILE, start);
 
                 assertParameters(_storeQuery, ex, params);
                 if (_log.isTraceEnabled())
@@ -897,9 +950,12 @@ public class QueryImpl implements Query {
                 _broker.assertNontransactionalRead();
 
                 // get executor
+                long start = (_stats == null) ? 0 : System.nanoTime();
                 Compilation comp = compileForCompilation();
                 StoreQuery.Executor ex = (isInMemory(operation))
                     ? compileForInMemory(comp) : compileForDataStore(comp);
+                if (_stats != null)
+                    recordLatency(QueryStatistics.Phase.COMPILE, start);
 
                 assertParameters(_storeQuery, ex, params);
                 Object[] arr = (params.isEmpty()) ? StoreQuery.EMPTY_OBJECTS :
@@ -1055,14 +1111,25 @@ public class QueryImpl implements Query {
 
         // execute; if we have a result class or we have only one result
         // and so need to remove it from its array, wrap in a packing rop
-        range.lrs = isLRS(range.start, range.end);
-        ResultObjectProvider rop = ex.executeQuery(q, params, range);
+        range.lrs = _streaming || isLRS(range.start, range.end);
+
+        // streamed results are read from the store in batches
+        int batch = _fc.getFetchBatchSize();
+        if (_streaming && batch < 0)
+            _fc.setFetchBatchSize(STREAMING_FETCH_BATCH_SIZE);
         try {
-            return toResult(q, ex, rop, range);
-        } catch (Exception e) {
-            if (rop != null)
-                try { rop.close(); } catch (Exception e2) {}
-            throw e;
+            _executeStart = (_stats == null) ? 0 : System.nanoTime();
+            ResultObjectProvider rop = ex.executeQuery(q, params, range);
+            try {
+                return toResult(q, ex, rop, range);
+            } catch (Exception e) {
+                if (rop != null)
+                    try { rop.close(); } catch (Exception e2) {}
+                throw e;
+            }
+        } finally {
+            if (_streaming && batch < 0)
+                _fc.setFetchBatchSize(batch);
         }
     }
 
@@ -1076,7 +1143,11 @@ public class QueryImpl implements Query {
     private Number delete(StoreQuery q, StoreQuery.Executor ex, Object[] params)
         throws Exception {
         assertBulkModify(q, ex, params);
-        return ex.executeDelete(q, params);
+        long start = (_stats == null) ? 0 : System.nanoTime();
+        Number num = ex.executeDelete(q, params);
+        if (_stats != null)
+            recordLatency(QueryStatistics.Phase.EXECUTE, start);
+        return num;
     }
 
     @Override
@@ -1108,7 +1179,11 @@ public class QueryImpl implements Query {
     private Number update(StoreQuery q, StoreQuery.Executor ex, Object[] params)
         throws Exception {
         assertBulkModify(q, ex, params);
-        return ex.executeUpdate(q, params);
+        long start = (_stats == null) ? 0 : System.nanoTime();
+        Number num = ex.executeUpdate(q, params);
+        if (_stats != null)
+            recordLatency(QueryStatistics.Phase.EXECUTE, start);
+        return num;
     }
 
     @Override
@@ -1302,7 +1377,7 @@ public class QueryImpl implements Query {
         // if single result, extract it
         if (_unique == Boolean.TRUE || (aliases.length > 0
             && !ex.hasGrouping(q) && ex.isAggregate(q)))
-            return singleResult(rop, range);
+            return singleResult(recordStatistics(rop), range);
 
         // now that we've executed the query, we can call isAggregate and
         // hasGrouping efficiently
@@ -1311,7 +1386,15 @@ public class QueryImpl implements Query {
         boolean lrs = range.lrs && !ex.isAggregate(q) && !ex.hasGrouping(q);
         ResultList<?> res;
         try {
-            res = (!detach && lrs) ? _fc.newResultList(rop) : new EagerResultList(rop);
+            if (_streaming && lrs)
+                res = new StreamingResultList(new ReleasingResultObjectProvider(
+                    recordStatistics(rop), _broker));
+            else if (!detach && lrs) {
+                res = _fc.newResultList(rop);
+                if (_stats != null)
+                    recordLatency(QueryStatistics.Phase.EXECUTE, _executeStart);
+            } else
+                res = new EagerResultList(recordStatistics(rop));
             res.setUserObject(new Object[]{rop,ex});
             _resultLists.add(decorateResultList(res));
         } catch (OpenJPAException e) {
@@ -1323,6 +1406,17 @@ public class QueryImpl implements Query {
         return res;
     }
 
+    /**
+     * Return a provider that records the statistics of the given provider,
+     * or the given provider if no statistics are recorded.
+     */
+    private ResultObjectProvider recordStatistics(ResultObjectProvider rop) {
+        if (_stats == null)
+            return rop;
+        return new StatisticsResultObjectProvider(rop, _stats, _statsKey,
+            _executeStart);
+    }
+
     /**
      * Optionally decorate the native result.
      */
@@ -2444,4 +2538,177 @@ public class QueryImpl implements Query {
 			return _res;
 		}
 	}
+
+    /**
+     * Releases each result from the broker once the next one is read or the
+     * results are closed, unless it is new or dirty. The elements of
+     * projection results are released individually.
+     */
+    private static class ReleasingResultObjectProvider
+        implements ResultObjectProvider {
+
+        private final ResultObjectProvider _rop;
+        private final Broker _broker;
+        private Object _last = null;
+
+        public ReleasingResultObjectProvider(ResultObjectProvider rop,
+            Broker broker) {
+            _rop = rop;
+            _broker = broker;
+        }
+
+        @Override
+        public boolean supportsRandomAccess() {
+            return false;
+        }
+
+        @Override
+        public void open() throws Exception {
+            _rop.open();
+        }
+
+        @Override
+        public Object getResultObject() throws Exception {
+            _last = _rop.getResultObject();
+            return _last;
+        }
+
+        @Override
+        public boolean next() throws Exception {
+            releaseLast();
+            return _rop.next();
+        }
+
+        @Override
+        public boolean absolute(int pos) throws Exception {
+            releaseLast();
+            return _rop.absolute(pos);
+        }
+
+        @Override
+        public int size() throws Exception {
+            return _rop.size();
+        }
+
+        @Override
+        public void reset() throws Exception {
+            releaseLast();
+            _rop.reset();
+        }
+
+        @Override
+        public void close() throws Exception {
+            try {
+                releaseLast();
+            } finally {
+                _rop.close();
+            }
+        }
+
+        @Override
+        public void handleCheckedException(Exception e) {
+            _rop.handleCheckedException(e);
+        }
+
+        private void releaseLast() {
+            Object last = _last;
+            _last = null;
+            if (last == null || _broker.isClosed())
+                return;
+            if (last instanceof Object[]) {
+                for (Object o : (Object[]) last)
+                    release(o);
+            } else
+                release(last);
+        }
+
+        private void release(Object o) {
+            OpenJPAStateManager sm = _broker.getStateManager(o);
+            if (sm == null || sm.isEmbedded() || sm.isNew() || sm.isDirty()
+                || sm.isDeleted())
+                return;
+            _broker.release(o, null);
+        }
+    }
+
+    /**
+     * Records the latency of executing a query up to its first result when
+     * opened, and the latency of reading the results and their number when
+     * closed.
+     */
+    static class StatisticsResultObjectProvider
+        implements ResultObjectProvider {
+
+        private final ResultObjectProvider _rop;
+        private final QueryStatistics<String> _stats;
+        private final String _key;
+        private final long _start;
+        private long _opened = 0;
+        private long _rows = 0;
+
+        public StatisticsResultObjectProvider(ResultObjectProvider rop,
+            QueryStatistics<String> stats, String key, long start) {
+            _rop = rop;
+            _stats = stats;
+            _key = key;
+            _start = start;
+        }
+
+        @Override
+        public boolean supportsRandomAccess() {
+            return _rop.supportsRandomAccess();
+        }
+
+        @Override
+        public void open() throws Exception {
+            _rop.open();
+            _opened = System.nanoTime();
+            _stats.recordLatency(_key, QueryStatistics.Phase.EXECUTE,
+                _opened - _start);
+        }
+
+        @Override
+        public Object getResultObject() throws Exception {
+            return _rop.getResultObject();
+        }
+
+        @Override
+        public boolean next() throws Exception {
+            if (!_rop.next())
+                return false;
+            _rows++;
+            return true;
+        }
+
+        @Override
+        public boolean absolute(int pos) throws Exception {
+            return _rop.absolute(pos);
+        }
+
+        @Override
+        public int size() throws Exception {
+            return _rop.size();
+        }
+
+        @Override
+        public void reset() throws Exception {
+            _rop.reset();
+        }
+
+        @Override
+        public void close() throws Exception {
+            _rop.close();
+            if (_opened != 0) {
+                _stats.recordLatency(_key, QueryStatistics.Phase.MATERIALIZE,
+                    System.nanoTime() - _opened);
+                _stats.recordRows(_key, _rows);
+                _opened = 0;
+            }
+        }
+
+        @Override
+        public void handleCheckedException(Exception e) {
+            _rop.handleCheckedException(e);
+        }
+    }
 }
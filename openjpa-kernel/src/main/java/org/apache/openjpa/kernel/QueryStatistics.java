@@ -22,9 +22,13 @@ import java.io.PrintStream;
 import java.io.Serializable;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.apache.openjpa.lib.util.LatencyHistogram;
 import org.apache.openjpa.lib.util.collections.AbstractReferenceMap.ReferenceStrength;
 import org.apache.openjpa.lib.util.concurrent.ConcurrentReferenceHashMap;
 
@@ -34,7 +38,7 @@ import org.apache.openjpa.lib.util.concurrent.ConcurrentReferenceHashMap;
  * Statistics can be reset.
  *
  * Gathers both accumulated statistics since start as well as statistics since
- * last reset.
+ * last reset. Latencies and row counts are only gathered since last reset.
  *
  * @since 1.3.0
  *
@@ -58,6 +62,43 @@ public interface QueryStatistics<T> extends Serializable {
      */
     void recordEviction(T query);
 
+    /**
+     * Record the latency of the given phase of an execution of the given query.
+     *
+     * @param nanos the latency in nanoseconds
+     * @since 3.2.3
+     */
+    default void recordLatency(T query, Phase phase, long nanos) {
+    }
+
+    /**
+     * Record the number of rows returned by an execution of the given query.
+     *
+     * @since 3.2.3
+     */
+    default void recordRows(T query, long rows) {
+    }
+
+    /**
+     * Gets the latencies of the given phase of the executions of the given
+     * query since last reset, or null if none is recorded.
+     *
+     * @since 3.2.3
+     */
+    default LatencyHistogram getLatency(T query, Phase phase) {
+        return null;
+    }
+
+    /**
+     * Gets number of rows returned by the executions of the given query since
+     * last reset.
+     *
+     * @since 3.2.3
+     */
+    default long getRowCount(T query) {
+        return 0;
+    }
+
 	/**
 	 * Gets number of total query execution since last reset.
 	 */
@@ -160,6 +201,7 @@ public interface QueryStatistics<T> extends Serializable {
 		private Map<T, long[]> astats;
 		private Date start = new Date();
 		private Date since = start;
+		private final Latencies<T> latencies = new Latencies<>(FIXED_SIZE);
 
 		public Default() {
             initializeMaps();
@@ -241,6 +283,7 @@ public interface QueryStatistics<T> extends Serializable {
         public synchronized void reset() {
 			stat = new long[ARRAY_SIZE];
 			stats.clear();
+			latencies.clear();
 			since = new Date();
 		}
 
@@ -249,6 +292,7 @@ public interface QueryStatistics<T> extends Serializable {
 	       astat = new long[ARRAY_SIZE];
 	       stat  = new long[ARRAY_SIZE];
 	       initializeMaps();
+	       latencies.clear();
 	       start  = new Date();
 	       since  = start;
 	    }
@@ -288,6 +332,26 @@ public interface QueryStatistics<T> extends Serializable {
             addSample(query, EVICT);
         }
 
+        @Override
+        public void recordLatency(T query, Phase phase, long nanos) {
+            latencies.recordLatency(query, phase, nanos);
+        }
+
+        @Override
+        public void recordRows(T query, long rows) {
+            latencies.recordRows(query, rows);
+        }
+
+        @Override
+        public LatencyHistogram getLatency(T query, Phase phase) {
+            return latencies.getLatency(query, phase);
+        }
+
+        @Override
+        public long getRowCount(T query) {
+            return latencies.getRowCount(query);
+        }
+
 		@Override
         public void dump(PrintStream out) {
             String header = "Query Statistics starting from " + start;
@@ -312,6 +376,7 @@ public interface QueryStatistics<T> extends Serializable {
 					long[] row  = stats.get(key);
                     out.println(i + ". \t" + toString(arow) + " \t"  + toString(row) + " \t\t" + key);
 				}
+				latencies.dump(out, key);
 			}
 		}
 
@@ -436,5 +501,114 @@ public interface QueryStatistics<T> extends Serializable {
         public void recordEviction(T query) {
         }
 	}
+
+    /**
+     * Phases of a query execution whose latency is recorded.
+     *
+     * @since 3.2.3
+     */
+    enum Phase {
+        /**
+         * Compiling the query and preparing its executor.
+         */
+        COMPILE,
+        /**
+         * Executing the query in the datastore up to its first result.
+         */
+        EXECUTE,
+        /**
+         * Loading the results of the query.
+         */
+        MATERIALIZE
+    }
+
+    /**
+     * Latencies and row counts of a fixed number of queries, recorded without
+     * locking.
+     *
+     * @since 3.2.3
+     */
+    class Latencies<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+        private static final Phase[] PHASES = Phase.values();
+
+        private final int maxSize;
+        private final ConcurrentHashMap<T, Entry> entries =
+            new ConcurrentHashMap<>();
+
+        public Latencies(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private Entry getEntry(T query, boolean create) {
+            if (query == null)
+                return null;
+            Entry entry = entries.get(query);
+            if (entry == null && create && entries.size() < maxSize) {
+                entry = new Entry();
+                Entry prev = entries.putIfAbsent(query, entry);
+                if (prev != null)
+                    entry = prev;
+            }
+            return entry;
+        }
+
+        public void recordLatency(T query, Phase phase, long nanos) {
+            Entry entry = getEntry(query, true);
+            if (entry != null)
+                entry.latencies[phase.ordinal()].record(nanos);
+        }
+
+        public void recordRows(T query, long rows) {
+            Entry entry = getEntry(query, true);
+            if (entry != null)
+                entry.rows.add(rows);
+        }
+
+        public LatencyHistogram getLatency(T query, Phase phase) {
+            Entry entry = getEntry(query, false);
+            if (entry == null)
+                return null;
+            LatencyHistogram latency = entry.latencies[phase.ordinal()];
+            return (latency.getCount() == 0) ? null : latency;
+        }
+
+        public long getRowCount(T query) {
+            Entry entry = getEntry(query, false);
+            return (entry == null) ? 0 : entry.rows.sum();
+        }
+
+        public void clear() {
+            entries.clear();
+        }
+
+        /**
+         * Dumps the latencies of the given query on the given output stream.
+         */
+        public void dump(PrintStream out, T query) {
+            Entry entry = getEntry(query, false);
+            if (entry == null)
+                return;
+            for (Phase phase : PHASES) {
+                LatencyHistogram latency = entry.latencies[phase.ordinal()];
+                if (latency.getCount() > 0)
+                    out.println("\t" + phase.name().toLowerCase(Locale.ENGLISH) + ": " + latency);
+            }
+            out.println("\trows: " + entry.rows.sum());
+        }
+
+        private static class Entry implements Serializable {
+            private static final long serialVersionUID = 1L;
+            private final LatencyHistogram[] latencies =
+                new LatencyHistogram[PHASES.length];
+            private final LongAdder rows = new LongAdder();
+
+            private Entry() {
+                for (int i = 0; i < latencies.length; i++)
+                    latencies[i] = new LatencyHistogram();
+            }
+        }
+    }
 }
 
@@ -22,6 +22,7 @@ import java.util.LinkedList;
 import java.util.ListIterator;
 import java.util.Objects;
 
+import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.kernel.Broker;
 import org.apache.openjpa.kernel.Filters;
 import org.apache.openjpa.kernel.OpenJPAStateManager;
@@ -110,8 +111,6 @@ public class CandidatePath
             return candidate;
 
         Object action;
-        OpenJPAStateManager sm;
-        Broker tmpBroker = null;
         for (Object o : _actions) {
             action = o;
 
@@ -129,36 +128,58 @@ public class CandidatePath
                 continue;
             }
 
-            // make sure we can access the instance; even non-pc vals might
-            // be proxyable
-            sm = null;
-            tmpBroker = null;
-            if (ImplHelper.isManageable(candidate))
-                sm = (OpenJPAStateManager) (ImplHelper.toPersistenceCapable(
-                        candidate, ctx.getConfiguration())).
-                        pcGetStateManager();
-            if (sm == null) {
-                tmpBroker = ctx.getBroker();
-                tmpBroker.transactional(candidate, false, null);
-                sm = tmpBroker.getStateManager(candidate);
-            }
-
-            try {
-                // get the specified field value and switch candidate
-                Traversal traversal = (Traversal) action;
-                candidate = sm.fetchField(traversal.field.getIndex(), true);
-            }
-            finally {
-                // transactional does not clear the state, which is
-                // important since tmpCandidate might be also managed by
-                // another broker if it's a proxied non-pc instance
-                if (tmpBroker != null)
-                    tmpBroker.nontransactional(sm.getManagedInstance(), null);
-            }
+            candidate = traverse(candidate, ((Traversal) action).field, ctx);
         }
         return candidate;
     }
 
+    /**
+     * Return the traversals and casts of this path, in order.
+     */
+    Object[] getActions() {
+        return (_actions == null) ? new Object[0] : _actions.toArray();
+    }
+
+    /**
+     * Return the value of the given field of the given non-null instance.
+     */
+    static Object traverse(Object candidate, FieldMetaData field,
+        StoreContext ctx) {
+        // managed instances are the common case
+        if (candidate instanceof PersistenceCapable) {
+            Object sm = ((PersistenceCapable) candidate).pcGetStateManager();
+            if (sm instanceof OpenJPAStateManager)
+                return ((OpenJPAStateManager) sm).fetchField(field.getIndex(),
+                    true);
+        }
+
+        // make sure we can access the instance; even non-pc vals might
+        // be proxyable
+        OpenJPAStateManager sm = null;
+        Broker tmpBroker = null;
+        if (ImplHelper.isManageable(candidate))
+            sm = (OpenJPAStateManager) (ImplHelper.toPersistenceCapable(
+                    candidate, ctx.getConfiguration())).
+                    pcGetStateManager();
+        if (sm == null) {
+            tmpBroker = ctx.getBroker();
+            tmpBroker.transactional(candidate, false, null);
+            sm = tmpBroker.getStateManager(candidate);
+        }
+
+        try {
+            // get the specified field value
+            return sm.fetchField(field.getIndex(), true);
+        }
+        finally {
+            // transactional does not clear the state, which is
+            // important since tmpCandidate might be also managed by
+            // another broker if it's a proxied non-pc instance
+            if (tmpBroker != null)
+                tmpBroker.nontransactional(sm.getManagedInstance(), null);
+        }
+    }
+
     @Override
     public int hashCode() {
         return (_actions == null) ? 0 : _actions.hashCode();
@@ -44,6 +44,14 @@ abstract class CompareExpression
         _val2 = val2;
     }
 
+    public Val getValue1() {
+        return _val1;
+    }
+
+    public Val getValue2() {
+        return _val2;
+    }
+
     @Override
     protected boolean eval(Object candidate, Object orig,
         StoreContext ctx, Object[] params) {
@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.kernel.exps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.openjpa.kernel.Filters;
+import org.apache.openjpa.kernel.StoreContext;
+import org.apache.openjpa.meta.FieldMetaData;
+
+/**
+ * A query filter compiled from its in-memory {@link Exp} representation.
+ * The expression tree is turned once into a tree of evaluators specialized
+ * for each node, so that matching a candidate no longer dispatches through
+ * the generic node methods, iterates the action lists of paths or promotes
+ * operands of the same type. Nodes without a specialized evaluator are
+ * evaluated by the expression itself, so that a compiled filter always
+ * matches the same candidates as {@link Exp#evaluate}.
+ *
+ * @since 3.2.3
+ */
+public final class CompiledFilter {
+
+    private final Exp _exp;
+    private final Test _test;
+
+    private CompiledFilter(Exp exp) {
+        _exp = exp;
+        _test = toTest(exp);
+    }
+
+    /**
+     * Compile the given filter expression.
+     */
+    public static CompiledFilter compile(Exp exp) {
+        return new CompiledFilter(exp);
+    }
+
+    /**
+     * The compiled expression.
+     */
+    public Exp getExpression() {
+        return _exp;
+    }
+
+    /**
+     * Return whether the given candidate matches the filter.
+     */
+    public boolean matches(Object candidate, StoreContext ctx,
+        Object[] params) {
+        return _test.test(candidate, ctx, params);
+    }
+
+    /**
+     * Compiled form of an {@link Exp}.
+     */
+    private interface Test {
+        boolean test(Object candidate, StoreContext ctx, Object[] params);
+    }
+
+    /**
+     * Compiled form of a {@link Val}.
+     */
+    private interface Eval {
+        Object eval(Object candidate, StoreContext ctx, Object[] params);
+    }
+
+    private static Test toTest(Exp exp) {
+        Class<?> type = exp.getClass();
+        if (type == Exp.class)
+            return (candidate, ctx, params) -> true;
+        if (type == AndExpression.class || type == OrExpression.class)
+            return compileJunction(exp, type == AndExpression.class);
+        if (type == NotExpression.class) {
+            Test test = toTest(((NotExpression) exp).getExpression());
+            return (candidate, ctx, params) ->
+                !test.test(candidate, ctx, params);
+        }
+        if (exp instanceof CompareExpression)
+            return compileCompare((CompareExpression) exp);
+        return (candidate, ctx, params) ->
+            exp.evaluate(candidate, candidate, ctx, params);
+    }
+
+    /**
+     * Flatten a chain of AND or OR expressions into a single evaluator
+     * that short-circuits in the same order.
+     */
+    private static Test compileJunction(Exp exp, boolean and) {
+        List<Test> list = new ArrayList<>();
+        flatten(exp, exp.getClass(), list);
+        Test[] tests = list.toArray(new Test[list.size()]);
+        if (tests.length == 2) {
+            Test t1 = tests[0];
+            Test t2 = tests[1];
+            if (and)
+                return (candidate, ctx, params) -> t1.test(candidate, ctx, params)
+                    && t2.test(candidate, ctx, params);
+            return (candidate, ctx, params) -> t1.test(candidate, ctx, params)
+                || t2.test(candidate, ctx, params);
+        }
+        return (candidate, ctx, params) -> {
+            for (Test test : tests)
+                if (test.test(candidate, ctx, params) != and)
+                    return !and;
+            return and;
+        };
+    }
+
+    private static void flatten(Exp exp, Class<?> type, List<Test> tests) {
+        if (exp.getClass() != type) {
+            tests.add(toTest(exp));
+            return;
+        }
+        if (type == AndExpression.class) {
+            flatten(((AndExpression) exp).getExpression1(), type, tests);
+            flatten(((AndExpression) exp).getExpression2(), type, tests);
+        } else {
+            flatten(((OrExpression) exp).getExpression1(), type, tests);
+            flatten(((OrExpression) exp).getExpression2(), type, tests);
+        }
+    }
+
+    private static Test compileCompare(CompareExpression exp) {
+        Eval val1 = toEval(exp.getValue1());
+        Eval val2 = toEval(exp.getValue2());
+        Promotion promotion = new Promotion();
+        return (candidate, ctx, params) -> {
+            try {
+                Object o1 = val1.eval(candidate, ctx, params);
+                Object o2 = val2.eval(candidate, ctx, params);
+                // values of the same class need no conversion
+                if (o1 != null && o2 != null && o1.getClass() != o2.getClass()) {
+                    Class<?> type = promotion.promote(o1.getClass(),
+                        o2.getClass());
+                    o1 = Filters.convert(o1, type);
+                    o2 = Filters.convert(o2, type);
+                }
+                return exp.compare(o1, o2);
+            } catch (ClassCastException | NullPointerException e) {
+                return false;
+            }
+        };
+    }
+
+    private static Eval toEval(Val val) {
+        Class<?> type = val.getClass();
+        if (type == Lit.class) {
+            Lit lit = (Lit) val;
+            return (candidate, ctx, params) -> lit.getValue();
+        }
+        if (type == Param.class) {
+            Param param = (Param) val;
+            return (candidate, ctx, params) -> param.getValue(params);
+        }
+        if (type == Null.class)
+            return (candidate, ctx, params) -> null;
+        if (type == This.class)
+            return (candidate, ctx, params) -> candidate;
+        if (type == CandidatePath.class)
+            return toEval((CandidatePath) val);
+        return (candidate, ctx, params) ->
+            val.eval(candidate, candidate, ctx, params);
+    }
+
+    /**
+     * Compile the actions of the given path into arrays, with a dedicated
+     * evaluator for the common single field path.
+     */
+    private static Eval toEval(CandidatePath path) {
+        Object[] actions = path.getActions();
+        if (actions.length == 0)
+            return (candidate, ctx, params) -> candidate;
+
+        FieldMetaData[] fields = new FieldMetaData[actions.length];
+        boolean[] nulls = new boolean[actions.length];
+        Class<?>[] casts = new Class<?>[actions.length];
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i] instanceof Class)
+                casts[i] = (Class<?>) actions[i];
+            else {
+                fields[i] = ((CandidatePath.Traversal) actions[i]).field;
+                nulls[i] = ((CandidatePath.Traversal) actions[i]).nullTraversal;
+            }
+        }
+
+        if (actions.length == 1 && fields[0] != null) {
+            FieldMetaData field = fields[0];
+            boolean nullTraversal = nulls[0];
+            return (candidate, ctx, params) -> {
+                if (candidate == null) {
+                    if (nullTraversal)
+                        return null;
+                    throw new NullPointerException();
+                }
+                return CandidatePath.traverse(candidate, field, ctx);
+            };
+        }
+        return (candidate, ctx, params) -> {
+            for (int i = 0; i < fields.length; i++) {
+                // fail on null value
+                if (candidate == null) {
+                    if (nulls[i])
+                        return null;
+                    throw new NullPointerException();
+                }
+                if (casts[i] != null)
+                    candidate = Filters.convert(candidate, casts[i]);
+                else
+                    candidate = CandidatePath.traverse(candidate, fields[i],
+                        ctx);
+            }
+            return candidate;
+        };
+    }
+
+    /**
+     * Caches the type to which the last pair of operand types of a
+     * comparison are promoted.
+     */
+    private static final class Promotion {
+
+        private volatile Class<?>[] _last;
+
+        Class<?> promote(Class<?> c1, Class<?> c2) {
+            Class<?>[] last = _last;
+            if (last != null && last[0] == c1 && last[1] == c2)
+                return last[2];
+            Class<?> type = Filters.promote(c1, c2);
+            _last = new Class<?>[]{ c1, c2, type };
+            return type;
+        }
+    }
+}
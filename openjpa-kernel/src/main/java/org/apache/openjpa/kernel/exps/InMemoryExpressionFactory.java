@@ -54,6 +54,9 @@ public class InMemoryExpressionFactory
     // list of unbound variables in this query
     private List<UnboundVariable> _unbounds = null;
 
+    // compiled form of the last filter matched
+    private volatile CompiledFilter _filter = null;
+
     /**
      * Tests whether the given candidate matches the given type and this
      * expression.
@@ -69,10 +72,21 @@ public class InMemoryExpressionFactory
             (candidate.getClass()))
             return false;
 
+        // without unbound variables, evaluate the compiled filter
+        Exp filter = (Exp) exps.filter;
+        if (_unbounds == null && filter != null) {
+            CompiledFilter compiled = _filter;
+            if (compiled == null || compiled.getExpression() != filter) {
+                compiled = CompiledFilter.compile(filter);
+                _filter = compiled;
+            }
+            return compiled.matches(candidate, ctx, params);
+        }
+
         // evaluate the expression for all possible combinations of values
         // of the unbound variables; the candidate matches if any combination
         // matches
-        return matches((Exp) exps.filter, candidate, ctx, params, 0);
+        return matches(filter, candidate, ctx, params, 0);
     }
 
     /**
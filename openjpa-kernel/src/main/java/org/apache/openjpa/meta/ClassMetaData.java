@@ -164,6 +164,8 @@ public class ClassMetaData
     private boolean _defSupFields = false;
     private Collection<String> _staticFields = null;
     private int[] _fieldDataTable = null;
+    private int[] _primFieldDataTable = null;
+    private int _primFieldDataLength = -1;
     private Map<String,FetchGroup> _fgMap = null;
 
     ////////////////////////////////////////////////////////////////////
@@ -980,6 +982,48 @@ public class ClassMetaData
         return _fieldDataTable;
     }
 
+    /**
+     * Return a table mapping each field index to the index of its value in
+     * a compacted array of primitive values, or to -1 if the field is not
+     * of a primitive type. The returned array must not be modified.
+     *
+     * @see #getPrimitiveFieldDataLength
+     * @since 3.2.3
+     */
+    public int[] getPrimitiveFieldDataTable() {
+        if (_primFieldDataTable == null) {
+            FieldMetaData[] fmds = getFields();
+            int[] table = new int[fmds.length];
+            int idx = 0;
+            for (int i = 0; i < fmds.length; i++) {
+                if (fmds[i].getDeclaredTypeCode() < JavaTypes.OBJECT)
+                    table[i] = idx++;
+                else
+                    table[i] = -1;
+            }
+            _primFieldDataTable = table;
+        }
+        return _primFieldDataTable;
+    }
+
+    /**
+     * Return the number of fields of primitive type, in order to create a
+     * compacted array for storage of their values.
+     *
+     * @since 3.2.3
+     */
+    public int getPrimitiveFieldDataLength() {
+        int len = _primFieldDataLength;
+        if (len == -1) {
+            len = 0;
+            for (FieldMetaData fmd : getFields())
+                if (fmd.getDeclaredTypeCode() < JavaTypes.OBJECT)
+                    len++;
+            _primFieldDataLength = len;
+        }
+        return len;
+    }
+
     /**
      * Return whether the given name represents a managed or static field of
      * this class, including superclass fields.
@@ -1688,6 +1732,8 @@ public class ClassMetaData
         _listingFields = null;
         _allListingFields = null;
         _fieldDataTable = null;
+        _primFieldDataTable = null;
+        _primFieldDataLength = -1;
     }
 
     /**
@@ -84,6 +84,21 @@ public class DelegatingMetaDataFactory
         _delegate.load(cls, mode, envLoader);
     }
 
+    @Override
+    public boolean isConcurrentLoadSupported(Class<?> cls) {
+        return _delegate.isConcurrentLoadSupported(cls);
+    }
+
+    @Override
+    public void beginConcurrentLoad() {
+        _delegate.beginConcurrentLoad();
+    }
+
+    @Override
+    public void endConcurrentLoad() {
+        _delegate.endConcurrentLoad();
+    }
+
     @Override
     public boolean store(ClassMetaData[] metas, QueryMetaData[] queries,
         SequenceMetaData[] seqs, int mode, Map output) {
@@ -27,7 +27,8 @@ import org.apache.openjpa.lib.meta.ClassArgParser;
 
 /**
  * The {@link MetaDataRepository} uses implementations of this interface
- * to load and store metadata. Implementations need not be threadsafe.
+ * to load and store metadata. Implementations need not be threadsafe,
+ * unless they support loading classes concurrently.
  *
  * @author Patrick Linskey
  * @author Abe White
@@ -77,6 +78,37 @@ public interface MetaDataFactory
      */
     void load(Class<?> cls, int mode, ClassLoader envLoader);
 
+    /**
+     * Whether the metadata for the given class can be loaded on a thread
+     * prepared with {@link #beginConcurrentLoad} while other such threads
+     * load other classes. The repository never loads the same class on two
+     * threads at once, and serializes its own updates. Defaults to false.
+     *
+     * @since 3.2.3
+     */
+    default boolean isConcurrentLoadSupported(Class<?> cls) {
+        return false;
+    }
+
+    /**
+     * Give the calling thread parsing state of its own, so that it can
+     * {@link #load} the classes this factory supports loading concurrently
+     * while other threads do the same. Does nothing by default.
+     *
+     * @since 3.2.3
+     */
+    default void beginConcurrentLoad() {
+    }
+
+    /**
+     * Release the parsing state given to the calling thread by
+     * {@link #beginConcurrentLoad}. Does nothing by default.
+     *
+     * @since 3.2.3
+     */
+    default void endConcurrentLoad() {
+    }
+
     /**
      * Store the given metadata.
      *
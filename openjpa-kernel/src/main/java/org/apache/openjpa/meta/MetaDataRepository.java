@@ -19,6 +19,8 @@
 package org.apache.openjpa.meta;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedActionException;
 import java.util.ArrayList;
@@ -34,6 +36,10 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 import org.apache.openjpa.enhance.DynamicPersistenceCapable;
@@ -125,6 +131,16 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         Collections.synchronizedMap(new HashMap<>());
     private Map<Class<?>, Class<?>> _metamodel = Collections.synchronizedMap(new HashMap<>());
 
+    // fully resolved metadatas by requested class, oid class and alias; these
+    // are read without locking and are only filled by the outermost resolution
+    private final Map<Class<?>, ClassMetaData> _resolved = new ConcurrentHashMap<>();
+    private final Map<Class<?>, ClassMetaData> _resolvedOids = new ConcurrentHashMap<>();
+    private final Map<String, ClassMetaData> _resolvedAliases = new ConcurrentHashMap<>();
+    // depth of the resolving getMetaData calls of the current thread; with
+    // Preload, lookups do not lock so this cannot be shared between threads.
+    // Nesting across repositories only delays filling the lock-free maps
+    private static final ThreadLocal<int[]> _resolveDepth = ThreadLocal.withInitial(() -> new int[1]);
+
     // map of classes to lists of their subclasses
     private Map<Class<?>, Collection<Class<?>>> _subs =
             Collections.synchronizedMap(new HashMap<>());
@@ -157,7 +173,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     protected boolean _preload = false;
     protected boolean _preloadComplete = false;
+    private int _preloadParallelism = 1;
     protected boolean _locking = true;
+
+    // while preloading in parallel, the thread loading each class and the
+    // class each thread waits for another thread to load; guarded by this
+    private transient volatile Map<Class<?>, Thread> _loading = null;
+    private transient Map<Thread, Class<?>> _loadWaits = null;
     private static final String PRELOAD_STR = "Preload";
 
     // A boolean used to decide whether or not we need to call to PCEnhancer to check whether we have any down level
@@ -249,6 +271,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public void setResolve(int mode) {
         _resMode = mode;
+        clearResolved();
     }
 
     /**
@@ -261,6 +284,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _resMode |= mode;
         else
             _resMode &= ~mode;
+        clearResolved();
     }
 
     /**
@@ -277,6 +301,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      */
     public void setSourceMode(int mode) {
         _sourceMode = mode;
+        clearResolved();
     }
 
     /**
@@ -290,6 +315,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _sourceMode |= mode;
         else
             _sourceMode &= ~mode;
+        clearResolved();
     }
 
     /**
@@ -308,6 +334,32 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         _preload = l;
     }
 
+    /**
+     * The number of threads that load the persistent classes and parse their
+     * metadata when preloading, or 0 to use one thread per available
+     * processor. Superclasses are parsed before their subclasses, and the
+     * metadata is resolved on the calling thread once all of it is parsed.
+     * Defaults to 1.
+     *
+     * @since 3.2.3
+     */
+    public int getPreloadParallelism() {
+        return _preloadParallelism;
+    }
+
+    /**
+     * The number of threads that load the persistent classes and parse their
+     * metadata when preloading, or 0 to use one thread per available
+     * processor. Superclasses are parsed before their subclasses, and the
+     * metadata is resolved on the calling thread once all of it is parsed.
+     * Defaults to 1.
+     *
+     * @since 3.2.3
+     */
+    public void setPreloadParallelism(int parallelism) {
+        _preloadParallelism = parallelism;
+    }
+
 
      /**
      * If the openjpa.MetaDataRepository plugin value Preload=true is set, this method will load all
@@ -345,15 +397,30 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _log.trace(_loc.get("repos-initializeEager-found", classes));
         }
 
+        int parallelism = _preloadParallelism;
+        if (parallelism == 0)
+            parallelism = Runtime.getRuntime().availableProcessors();
+
         List<Class<?>> loaded = new ArrayList<>();
-        for (String c : classes) {
+        if (parallelism > 1 && classes.size() > 1) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, classes.size()), PreloadThread::new,
+                null, false);
             try {
-                Class<?> cls = AccessController.doPrivileged((J2DoPrivHelper.getForNameAction(c, true, multi)));
-                loaded.add(cls);
-                // This call may be unnecessary?
-                _factory.load(cls, MODE_ALL, multi);
-            } catch (PrivilegedActionException pae) {
-                throw new MetaDataException(_loc.get("repos-initializeEager-error"), pae);
+                loaded.addAll(warmUp(classes, multi, pool));
+                loadInParallel(loaded, multi, pool);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            for (String c : classes) {
+                try {
+                    Class<?> cls = AccessController.doPrivileged((J2DoPrivHelper.getForNameAction(c, true, multi)));
+                    loaded.add(cls);
+                    // This call may be unnecessary?
+                    _factory.load(cls, MODE_ALL, multi);
+                } catch (PrivilegedActionException pae) {
+                    throw new MetaDataException(_loc.get("repos-initializeEager-error"), pae);
+                }
             }
         }
         resolveAll(multi);
@@ -378,6 +445,215 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     }
 
 
+    /**
+     * Warm up the given classes by loading and initializing them on the
+     * given pool. Each task also has the JVM parse the annotations of its
+     * class and of the declared fields and methods, loading the types they
+     * refer to.
+     *
+     * @return the classes in the order of the given names
+     */
+    private List<Class<?>> warmUp(Collection<String> names, final ClassLoader loader, ForkJoinPool pool) {
+        List<ForkJoinTask<Class<?>>> tasks = new ArrayList<>(names.size());
+        for (final String name : names)
+            tasks.add(pool.submit(() -> warmUp(name, loader)));
+
+        List<Class<?>> loaded = new ArrayList<>(tasks.size());
+        try {
+            for (ForkJoinTask<Class<?>> task : tasks)
+                loaded.add(task.get());
+        } catch (ExecutionException ee) {
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ee.getCause());
+        } catch (InterruptedException ie) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ie);
+        }
+        return loaded;
+    }
+
+    private static Class<?> warmUp(String name, ClassLoader loader) throws PrivilegedActionException {
+        Class<?> cls = AccessController.doPrivileged(J2DoPrivHelper.getForNameAction(name, true, loader));
+        cls.getDeclaredAnnotations();
+        for (Field field : AccessController.doPrivileged(J2DoPrivHelper.getDeclaredFieldsAction(cls)))
+            field.getDeclaredAnnotations();
+        for (Method method : AccessController.doPrivileged(J2DoPrivHelper.getDeclaredMethodsAction(cls)))
+            method.getDeclaredAnnotations();
+        return cls;
+    }
+
+    /**
+     * Load the metadata of the given classes on the given pool, one level of
+     * their class hierarchies at a time, so that superclasses are parsed
+     * before their subclasses. The first class, and the classes the factory
+     * cannot load concurrently, are loaded on the calling thread beforehand,
+     * which lets the factory parse what all classes share. Metadata loaded
+     * on the pool is resolved later, on the calling thread.
+     *
+     * Called with this repository locked; waiting for the pool releases the
+     * lock, which the pool threads take for their updates.
+     */
+    private void loadInParallel(List<Class<?>> classes, ClassLoader loader, ForkJoinPool pool) {
+        Set<Class<?>> persistent = new HashSet<>(classes);
+        List<List<Class<?>>> levels = new ArrayList<>();
+        _factory.load(classes.get(0), MODE_ALL, loader);
+        for (Class<?> cls : classes.subList(1, classes.size())) {
+            if (!_factory.isConcurrentLoadSupported(cls)) {
+                _factory.load(cls, MODE_ALL, loader);
+                continue;
+            }
+            int level = 0;
+            for (Class<?> sup = cls.getSuperclass(); sup != null; sup = sup.getSuperclass())
+                if (persistent.contains(sup))
+                    level++;
+            while (levels.size() <= level)
+                levels.add(new ArrayList<>());
+            levels.get(level).add(cls);
+        }
+
+        _loading = new HashMap<>();
+        _loadWaits = new HashMap<>();
+        try {
+            for (List<Class<?>> level : levels)
+                loadLevel(level, loader, pool);
+        } finally {
+            _loading = null;
+            _loadWaits = null;
+        }
+    }
+
+    /**
+     * Load the metadata of the given classes on the given pool, and wait
+     * until all of them are loaded.
+     */
+    private void loadLevel(List<Class<?>> classes, final ClassLoader loader, ForkJoinPool pool) {
+        final int[] pending = { classes.size() };
+        final Throwable[] err = new Throwable[1];
+        for (final Class<?> cls : classes) {
+            pool.execute(() -> {
+                Throwable t = null;
+                try {
+                    loadConcurrently(cls, loader);
+                } catch (Throwable th) {
+                    t = th;
+                }
+                synchronized (MetaDataRepository.this) {
+                    if (err[0] == null)
+                        err[0] = t;
+                    pending[0]--;
+                    MetaDataRepository.this.notifyAll();
+                }
+            });
+        }
+
+        try {
+            while (pending[0] > 0)
+                wait();
+        } catch (InterruptedException ie) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), ie);
+        }
+        if (err[0] instanceof RuntimeException)
+            throw (RuntimeException) err[0];
+        if (err[0] instanceof Error)
+            throw (Error) err[0];
+        if (err[0] != null)
+            throw new MetaDataException(_loc.get("repos-initializeEager-error"), err[0]);
+    }
+
+    /**
+     * Load the metadata of the given class on a pool thread, once no other
+     * thread is loading it.
+     */
+    private void loadConcurrently(Class<?> cls, ClassLoader loader) {
+        synchronized (this) {
+            awaitLoad(cls);
+            _loading.put(cls, Thread.currentThread());
+        }
+        try {
+            _factory.load(cls, MODE_ALL, loader);
+        } finally {
+            synchronized (this) {
+                _loading.remove(cls);
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * While preloading in parallel, wait until no other thread is loading
+     * the given class. Must be called with this repository locked; waiting
+     * releases the lock.
+     *
+     * @return false, without waiting, if the thread loading the class waits,
+     * directly or not, for a class the current thread loads
+     */
+    private boolean awaitLoad(Class<?> cls) {
+        Map<Class<?>, Thread> loading = _loading;
+        if (loading == null)
+            return true;
+        Thread current = Thread.currentThread();
+        for (Thread loader = loading.get(cls); loader != null && loader != current; loader = loading.get(cls)) {
+            Thread waiting = loader;
+            for (int i = 0; waiting != null && i < _loadWaits.size(); i++) {
+                Class<?> awaited = _loadWaits.get(waiting);
+                waiting = (awaited == null) ? null : loading.get(awaited);
+                if (waiting == current)
+                    return false;
+            }
+            _loadWaits.put(current, cls);
+            try {
+                wait();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new MetaDataException(_loc.get("repos-initializeEager-error"), ie);
+            } finally {
+                _loadWaits.remove(current);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether the current thread is one of ours preloading in parallel, so
+     * that the metadata it loads is resolved later.
+     */
+    private boolean isPreloadThread() {
+        Thread thread = Thread.currentThread();
+        return thread instanceof PreloadThread && ((PreloadThread) thread).getRepository() == this;
+    }
+
+    /**
+     * Pool thread preloading metadata in parallel, with parsing state of its
+     * own in the metadata factory.
+     */
+    private class PreloadThread extends ForkJoinWorkerThread {
+
+        PreloadThread(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        MetaDataRepository getRepository() {
+            return MetaDataRepository.this;
+        }
+
+        @Override
+        protected void onStart() {
+            super.onStart();
+            _factory.beginConcurrentLoad();
+        }
+
+        @Override
+        protected void onTermination(Throwable exception) {
+            try {
+                _factory.endConcurrentLoad();
+            } finally {
+                super.onTermination(exception);
+            }
+        }
+    }
+
     /**
      * Return the metadata for the given class.
      *
@@ -389,6 +665,11 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      *            if true, throws a {@link MetaDataException} if no metadata is found
      */
     public ClassMetaData getMetaData(Class<?> cls, ClassLoader envLoader, boolean mustExist) {
+        if (cls != null) {
+            ClassMetaData meta = _resolved.get(cls);
+            if (meta != null)
+                return meta;
+        }
         if (_locking) {
             synchronized(this){
                 return getMetaDataInternal(cls, envLoader, mustExist);
@@ -399,6 +680,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     }
 
     private ClassMetaData getMetaDataInternal(Class<?> cls, ClassLoader envLoader, boolean mustExist) {
+        Class<?> key = cls;
         ClassMetaData meta = getMetaDataInternal(cls, envLoader);
         if (meta == null) {
             if (cls != null && DynamicPersistenceCapable.class.isAssignableFrom(cls))
@@ -420,10 +702,40 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
             throw new MetaDataException(_loc.get("no-meta", cls));
         }
-        resolve(meta);
+        int[] depth = _resolveDepth.get();
+        depth[0]++;
+        try {
+            resolve(meta);
+        } finally {
+            depth[0]--;
+        }
+        if (depth[0] == 0 && isResolved(meta))
+            _resolved.put(key, meta);
         return meta;
     }
 
+    /**
+     * Whether the given metadata has completed every resolution step of the
+     * repository's resolve mode, so that it can be handed out without locking.
+     * Only meaningful outside of a resolution, since metadata marks each step
+     * as done before performing it.
+     */
+    private boolean isResolved(ClassMetaData meta) {
+        if (meta == null || _resMode == MODE_NONE)
+            return false;
+        int mode = _resMode & (MODE_META | MODE_MAPPING | MODE_MAPPING_INIT);
+        return (meta.getResolve() & mode) == mode;
+    }
+
+    /**
+     * Forget the lock-free lookups of resolved metadata.
+     */
+    private void clearResolved() {
+        _resolved.clear();
+        _resolvedOids.clear();
+        _resolvedAliases.clear();
+    }
+
     /**
      * Return the metadata for the given alias name.
      *
@@ -441,6 +753,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (alias == null)
             return null;
 
+        // a resolved alias is only reused for the loader that resolved it, so
+        // that redeployments of the same class name are still noticed
+        ClassMetaData meta = _resolvedAliases.get(alias);
+        if (meta != null && meta.getEnvClassLoader() == envLoader)
+            return meta;
+
         // check cache
         processRegisteredClasses(envLoader);
         List<Class<?>> classList = _aliases.get(alias);
@@ -473,8 +791,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
                 // other class loading problems
             }
         }
-        if (cls != null)
-            return getMetaData(cls, envLoader, mustExist);
+        if (cls != null) {
+            meta = getMetaData(cls, envLoader, mustExist);
+            if (meta != null && meta.getEnvClassLoader() == envLoader && _resolved.get(cls) == meta)
+                _resolvedAliases.put(alias, meta);
+            return meta;
+        }
 
         // maybe this is some type we've seen but just isn't valid
         if (_aliases.containsKey(alias)) {
@@ -543,6 +865,12 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (cls == null)
             return null;
 
+        // when preloading in parallel, wait for any other thread loading the
+        // class; if that thread waits for us, hand out what there is, as
+        // reentrant loads do
+        if (!awaitLoad(cls))
+            return _metas.get(cls);
+
         // check cache for existing metadata, or give up if no metadata and
         // our list of configured persistent types doesn't include the class
         ClassMetaData meta = _metas.get(cls);
@@ -589,7 +917,16 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         if (mode != MODE_NONE) {
             if (_log.isTraceEnabled())
                 _log.trace(_loc.get("load-cls", cls, toModeString(mode)));
-            _factory.load(cls, mode, envLoader);
+            Map<Class<?>, Thread> loading = _loading;
+            Thread loader = (loading == null) ? null : loading.putIfAbsent(cls, Thread.currentThread());
+            try {
+                _factory.load(cls, mode, envLoader);
+            } finally {
+                if (loading != null && loader == null) {
+                    loading.remove(cls);
+                    notifyAll();
+                }
+            }
         }
 
         // check cache again
@@ -650,6 +987,9 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         // resolving mapping, etc since we do that right after meta resolve
         if (meta == null || _resMode == MODE_NONE || (meta.getResolve() & MODE_META) != 0)
             return;
+        // metadata loaded in parallel is resolved once all of it is loaded
+        if (isPreloadThread())
+            return;
 
         // resolve metadata
         List<ClassMetaData> resolved = resolveMeta(meta);
@@ -893,7 +1233,14 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      * Return the cached metadata for the given class, without any resolution. Return null if none.
      */
     public ClassMetaData getCachedMetaData(Class<?> cls) {
-        return _metas.get(cls);
+        if (_loading == null)
+            return _metas.get(cls);
+
+        // preloading in parallel, so other threads add metadata meanwhile
+        synchronized (this) {
+            awaitLoad(cls);
+            return _metas.get(cls);
+        }
     }
 
     /**
@@ -1090,6 +1437,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
     private boolean removeMetaDataInternal(Class<?> cls) {
             if (cls == null)
                 return false;
+            clearResolved();
             if (_metas.remove(cls) != null) {
                 Class<?> impl = _ifaces.remove(cls);
                 if (impl != null)
@@ -1176,11 +1524,19 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             return getMetaData(cls, envLoader, mustExist);
         }
 
+        ClassMetaData meta = _resolvedOids.get(oid.getClass());
+        if (meta != null)
+            return meta;
+
         // check cache
         processRegisteredClasses(envLoader);
         Class<?> cls = _oids.get(oid.getClass());
-        if (cls != null)
-            return getMetaData(cls, envLoader, mustExist);
+        if (cls != null) {
+            meta = getMetaData(cls, envLoader, mustExist);
+            if (meta != null && _resolved.get(cls) == meta)
+                _resolvedOids.put(oid.getClass(), meta);
+            return meta;
+        }
 
         // maybe this is some type we've seen but just isn't valid
         if (_oids.containsKey(oid.getClass())) {
@@ -1461,6 +1817,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
 
     private void clearInternal(){
         // Recreating these datastructures is probably faster than calling clear. Future change?
+            clearResolved();
             _metas.clear();
             _oids.clear();
             _subs.clear();
@@ -1628,6 +1985,9 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
             _registered.add(cls);
             registerAlias(cls);
         }
+        // newly registered classes may share an identity class with types
+        // already looked up; make those lookups process the registration
+        _resolvedOids.clear();
     }
 
     /**
@@ -1780,6 +2140,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
                     sup = PCRegistry.getPersistentSuperclass(sup);
 
                 _oids.put(oid.getClass(), sup);
+                _resolvedOids.remove(oid.getClass());
             } else if (existing == null || cls.isAssignableFrom(existing))
                 _oids.put(oid.getClass(), cls);
         }
@@ -1819,6 +2180,7 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
                 if (!classes.contains(cls)) {
                     classes.add(cls);
                     _aliases.put(alias, classes);
+                    _resolvedAliases.remove(alias);
                 }
             }
         } catch (IllegalStateException ise) {
@@ -1967,7 +2329,9 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
         initializeMetaDataFactory();
         if (_implGen == null)
             _implGen = new InterfaceImplGenerator(this);
-        if (_preload) {
+        // a repository restored from a snapshot after preloading already
+        // holds its final maps
+        if (_preload && !_preloadComplete) {
             _oids = new HashMap<>();
             _impls = new HashMap<>();
             _ifaces = new HashMap<>();
@@ -2173,7 +2537,13 @@ public class MetaDataRepository implements PCRegistry.RegisterClassListener, Con
      * Searches all cached query metadata by name.
      */
     public QueryMetaData searchQueryMetaDataByName(String name) {
-        return _queries.get(name);
+        if (_locking) {
+            synchronized (this) {
+                return _queries.get(name);
+            }
+        } else {
+            return _queries.get(name);
+        }
     }
 
     /**
@@ -22,6 +22,7 @@ import java.util.AbstractCollection;
 import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
@@ -380,6 +381,42 @@ public class CacheMap
         }
     }
 
+    /**
+     * Return the values of all of the given keys that are in the map, taking
+     * the read lock only once. Keys that are not in the map have no entry in
+     * the returned map.
+     *
+     * @since 3.2.3
+     */
+    public Map getAll(Collection keys) {
+        Map vals = new HashMap((int) (keys.size() / .75F) + 1);
+        Map soft = null;
+        readLock();
+        try {
+            for (Object key : keys) {
+                Object val = softMap.get(key);
+                if (val == null) {
+                    val = cacheMap.get(key);
+                    if (val == null)
+                        val = pinnedMap.get(key);
+                } else {
+                    if (soft == null)
+                        soft = new HashMap();
+                    soft.put(key, val);
+                }
+                if (val != null)
+                    vals.put(key, val);
+            }
+            return vals;
+        } finally {
+            readUnlock();
+            // move soft values back into the cache outside the read lock,
+            // as get does
+            if (soft != null)
+                putAll(soft);
+        }
+    }
+
     @Override
     public Object put(Object key, Object value) {
         writeLock();
@@ -0,0 +1,389 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.util;
+
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.openjpa.lib.util.collections.IteratorChain;
+
+/**
+ * {@link CacheMap} that stripes its entries over a fixed number of
+ * independently locked segments. Each segment is a full {@link CacheMap}
+ * with its own read/write lock, hard reference map, soft reference overflow
+ * map and pinned map, so operations on keys that hash to different segments
+ * never contend with each other. Eviction is performed per segment, which
+ * makes LRU eviction an approximation of a global LRU policy.
+ * The maximum hard and soft reference sizes are divided evenly among the
+ * segments. {@link #writeLock} acquires the locks of all segments in order
+ * and should therefore be reserved for operations that really need a
+ * consistent view of the whole map.
+ *
+ * @since 3.2.3
+ */
+public class StripedCacheMap
+    extends CacheMap {
+
+    /**
+     * Default number of segments.
+     */
+    public static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment[] _segments;
+    private final int _mask;
+    private int _cacheSize;
+    private int _softRefs = -1;
+
+    /**
+     * Create a non-LRU striped cache map with a size of 1000 and
+     * {@link #DEFAULT_SEGMENTS} segments.
+     */
+    public StripedCacheMap() {
+        this(false, 1000, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Create a striped cache map with the given properties.
+     *
+     * @param lru whether each segment uses LRU eviction
+     * @param max the maximum number of hard references over all segments,
+     * or -1 for no limit
+     * @param segments the number of segments; rounded up to a power of two
+     */
+    public StripedCacheMap(boolean lru, int max, int segments) {
+        // the maps of the superclass are never used; keep them minimal
+        super(lru, 0, 1, .75F, 1);
+
+        int n = 1;
+        while (n < segments)
+            n <<= 1;
+        _mask = n - 1;
+        _segments = new Segment[n];
+        for (int i = 0; i < n; i++)
+            _segments[i] = new Segment(lru, segmentSize(max, n));
+        _cacheSize = (max < 0) ? -1 : max;
+    }
+
+    /**
+     * Return the portion of the given total size assigned to each of the
+     * given number of segments.
+     */
+    private static int segmentSize(int total, int segments) {
+        if (total < 0 || total == Integer.MAX_VALUE)
+            return -1;
+        return (total + segments - 1) / segments;
+    }
+
+    /**
+     * Return the segment for the given key.
+     */
+    private Segment segmentFor(Object key) {
+        return _segments[indexFor(key)];
+    }
+
+    /**
+     * Return the index of the segment for the given key.
+     */
+    private int indexFor(Object key) {
+        if (key == null)
+            return 0;
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & _mask;
+    }
+
+    /**
+     * The number of segments in this map.
+     */
+    public int getSegmentCount() {
+        return _segments.length;
+    }
+
+    /**
+     * Acquires the read lock of every segment.
+     */
+    @Override
+    public void readLock() {
+        for (Segment segment : _segments)
+            segment.readLock();
+    }
+
+    /**
+     * Releases the read lock of every segment.
+     */
+    @Override
+    public void readUnlock() {
+        for (int i = _segments.length - 1; i >= 0; i--)
+            _segments[i].readUnlock();
+    }
+
+    /**
+     * Acquires the write lock of every segment.
+     */
+    @Override
+    public void writeLock() {
+        for (Segment segment : _segments)
+            segment.writeLock();
+    }
+
+    /**
+     * Releases the write lock of every segment.
+     */
+    @Override
+    public void writeUnlock() {
+        for (int i = _segments.length - 1; i >= 0; i--)
+            _segments[i].writeUnlock();
+    }
+
+    @Override
+    public boolean isLRU() {
+        return _segments[0].isLRU();
+    }
+
+    @Override
+    public void setCacheSize(int size) {
+        _cacheSize = (size < 0) ? -1 : size;
+        int segmentSize = segmentSize(size, _segments.length);
+        for (Segment segment : _segments)
+            segment.setCacheSize(segmentSize);
+    }
+
+    @Override
+    public int getCacheSize() {
+        return _cacheSize;
+    }
+
+    @Override
+    public void setSoftReferenceSize(int size) {
+        _softRefs = (size < 0) ? -1 : size;
+        int segmentSize = segmentSize(size, _segments.length);
+        for (Segment segment : _segments)
+            segment.setSoftReferenceSize(segmentSize);
+    }
+
+    @Override
+    public int getSoftReferenceSize() {
+        return _softRefs;
+    }
+
+    @Override
+    public Set getPinnedKeys() {
+        Set pinned = new HashSet();
+        for (Segment segment : _segments)
+            pinned.addAll(segment.getPinnedKeys());
+        return Collections.unmodifiableSet(pinned);
+    }
+
+    @Override
+    public boolean pin(Object key) {
+        return segmentFor(key).pin(key);
+    }
+
+    @Override
+    public boolean unpin(Object key) {
+        return segmentFor(key).unpin(key);
+    }
+
+    @Override
+    public Object get(Object key) {
+        return segmentFor(key).get(key);
+    }
+
+    /**
+     * Groups the given keys by segment and looks them up with a single
+     * acquisition of the read lock of each segment involved.
+     */
+    @Override
+    public Map getAll(Collection keys) {
+        if (keys.size() < 2) {
+            Map vals = new HashMap();
+            for (Object key : keys) {
+                Object val = get(key);
+                if (val != null)
+                    vals.put(key, val);
+            }
+            return vals;
+        }
+
+        List[] bySegment = new List[_segments.length];
+        for (Object key : keys) {
+            int i = indexFor(key);
+            if (bySegment[i] == null)
+                bySegment[i] = new ArrayList();
+            bySegment[i].add(key);
+        }
+        Map vals = new HashMap((int) (keys.size() / .75F) + 1);
+        for (int i = 0; i < bySegment.length; i++)
+            if (bySegment[i] != null)
+                vals.putAll(_segments[i].getAll(bySegment[i]));
+        return vals;
+    }
+
+    @Override
+    public Object put(Object key, Object value) {
+        return segmentFor(key).put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return segmentFor(key).remove(key);
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : _segments)
+            segment.clear();
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment segment : _segments)
+            size += segment.size();
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return segmentFor(key).containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object val) {
+        for (Segment segment : _segments)
+            if (segment.containsValue(val))
+                return true;
+        return false;
+    }
+
+    @Override
+    public Set keySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.keySet().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public Collection values() {
+        return new AbstractCollection() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.values().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public Set entrySet() {
+        return new AbstractSet() {
+            @Override
+            public int size() {
+                return StripedCacheMap.this.size();
+            }
+
+            @Override
+            public boolean add(Object o) {
+                Map.Entry entry = (Map.Entry) o;
+                put(entry.getKey(), entry.getValue());
+                return true;
+            }
+
+            @Override
+            public Iterator iterator() {
+                IteratorChain itr = new IteratorChain();
+                for (Segment segment : _segments)
+                    itr.addIterator(segment.entrySet().iterator());
+                return itr;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder("StripedCacheMap:");
+        for (int i = 0; i < _segments.length; i++) {
+            if (i > 0)
+                buf.append("::");
+            buf.append(_segments[i]);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * A single segment. Routes the map callbacks to the enclosing map so
+     * that subclasses of {@link StripedCacheMap} can override them exactly
+     * as they would for a plain {@link CacheMap}.
+     */
+    private class Segment
+        extends CacheMap {
+
+        public Segment(boolean lru, int max) {
+            super(lru, max);
+        }
+
+        @Override
+        protected Object put(Map map, Object key, Object value) {
+            return StripedCacheMap.this.put(map, key, value);
+        }
+
+        @Override
+        protected Object remove(Map map, Object key) {
+            return StripedCacheMap.this.remove(map, key);
+        }
+
+        @Override
+        protected void entryRemoved(Object key, Object value,
+            boolean expired) {
+            StripedCacheMap.this.entryRemoved(key, value, expired);
+        }
+
+        @Override
+        protected void entryAdded(Object key, Object value) {
+            StripedCacheMap.this.entryAdded(key, value);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.apache.openjpa.conf;
+
+import java.util.Map;
+
+import org.apache.openjpa.lib.conf.AbstractProductDerivation;
+
+/**
+ * Minimal product derivation, so that the kernel tests can create an
+ * {@link OpenJPAConfigurationImpl} without a specification or store
+ * module on the classpath.
+ */
+public class KernelProductDerivation extends AbstractProductDerivation
+    implements OpenJPAProductDerivation {
+
+    @Override
+    public int getType() {
+        return TYPE_PRODUCT;
+    }
+
+    @Override
+    public void putBrokerFactoryAliases(Map<String, String> aliases) {
+    }
+}
@@ -0,0 +1,105 @@
+package org.apache.openjpa.conf;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.openjpa.meta.NoneMetaDataFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PersistenceUnitValidationPolicyTest {
+
+    private static final Set<String> UNIT_TYPES = new TreeSet<>();
+
+    /**
+     * Metadata factory listing the types of the test unit.
+     */
+    public static class UnitMetaDataFactory extends NoneMetaDataFactory {
+        @Override
+        public Set getPersistentTypeNames(boolean classpath, ClassLoader loader) {
+            return new TreeSet<>(UNIT_TYPES);
+        }
+    }
+
+    public static class Order {
+        private long id;
+    }
+
+    public static class Customer {
+        private long id;
+    }
+
+    private OpenJPAConfigurationImpl _conf;
+    private PersistenceUnitValidationPolicy _policy;
+
+    @Before
+    public void setUp() {
+        UNIT_TYPES.clear();
+        UNIT_TYPES.add(Order.class.getName());
+
+        _conf = new OpenJPAConfigurationImpl();
+        _conf.setMetaDataFactory(UnitMetaDataFactory.class.getName());
+        _policy = new PersistenceUnitValidationPolicy();
+        _policy.setConfiguration(_conf);
+    }
+
+    @After
+    public void tearDown() {
+        UNIT_TYPES.clear();
+        if (_conf != null)
+            _conf.close();
+    }
+
+    @Test
+    public void testUnchangedUnitIsValid() {
+        Object data = _policy.getCacheableData("snapshot");
+        Assert.assertEquals("snapshot", _policy.getValidData(data));
+    }
+
+    @Test
+    public void testEntityAddedAfterSnapshotIsRejected() {
+        Object data = _policy.getCacheableData("snapshot");
+
+        UNIT_TYPES.add(Customer.class.getName());
+        Assert.assertNull(_policy.getValidData(data));
+
+        UNIT_TYPES.remove(Customer.class.getName());
+        Assert.assertEquals("snapshot", _policy.getValidData(data));
+    }
+
+    @Test
+    public void testMissingClassIsRejected() {
+        Object data = _policy.getCacheableData("snapshot");
+
+        UNIT_TYPES.add("org.apache.openjpa.conf.NoSuchEntity");
+        Assert.assertNull(_policy.getValidData(data));
+    }
+
+    @Test
+    public void testChangedPropertyIsRejected() {
+        _policy.setConfigurationProperties("Mapping");
+        Object data = _policy.getCacheableData("snapshot");
+
+        _conf.setMapping("other");
+        Assert.assertNull(_policy.getValidData(data));
+    }
+
+    @Test
+    public void testMetaDataFactoryResourcesAreDigested() {
+        _policy.setResources("");
+        _conf.setMetaDataFactory(UnitMetaDataFactory.class.getName()
+            + "(Resources=org/apache/openjpa/conf/NoSuchMapping.xml)");
+        Object data = _policy.getCacheableData("snapshot");
+
+        _conf.setMetaDataFactory(UnitMetaDataFactory.class.getName());
+        Assert.assertNull(_policy.getValidData(data));
+    }
+
+    @Test
+    public void testForeignDataIsRejected() {
+        Assert.assertNull(_policy.getValidData("snapshot"));
+        Assert.assertNull(_policy.getValidData(new Object[] { "a", "b" }));
+    }
+}
@@ -0,0 +1,247 @@
+package org.apache.openjpa.datacache;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.kernel.PCData;
+import org.apache.openjpa.kernel.PCDataCodec;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.NoneMetaDataFactory;
+import org.apache.openjpa.util.LongId;
+import org.junit.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+public class OffHeapDataCacheTest {
+    private OpenJPAConfiguration conf;
+    private ClassMetaData meta;
+
+    public static class Person {
+        private String name;
+        private int age;
+    }
+
+    @Before
+    public void setUpEachTime() {
+        this.conf = new OpenJPAConfigurationImpl();
+        this.conf.setRemoteCommitProvider("sjvm");
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setConfiguration(this.conf);
+        repos.setMetaDataFactory(new NoneMetaDataFactory());
+        this.conf.setMetaDataRepository(repos);
+        this.meta = repos.addMetaData(Person.class);
+        this.meta.addDeclaredField("name", String.class);
+        this.meta.addDeclaredField("age", int.class);
+    }
+
+    @After
+    public void tearDownEachTime() {
+        this.conf.close();
+    }
+
+    private OffHeapDataCache newCache(int cacheSize, String codec) {
+        return newCache(cacheSize, codec, 64 * 1024);
+    }
+
+    private OffHeapDataCache newCache(int cacheSize, String codec, long offHeapSize) {
+        return configure(new OffHeapDataCache(), cacheSize, codec, offHeapSize);
+    }
+
+    private OffHeapDataCache configure(OffHeapDataCache cache, int cacheSize, String codec, long offHeapSize) {
+        cache.setConfiguration(this.conf);
+        cache.setOffHeapSize(offHeapSize);
+        cache.setBlockSize(64);
+        cache.setCacheSize(cacheSize);
+        cache.setCodec(codec);
+        cache.endConfiguration();
+        cache.initialize(null);
+        return cache;
+    }
+
+    private DataCachePCData person(long id) {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(new LongId(Person.class, id), this.meta);
+        data.setData(0, "person" + id);
+        data.setData(1, (int) id);
+        data.setVersion(id);
+        return data;
+    }
+
+    private static LongId id(long id) {
+        return new LongId(Person.class, id);
+    }
+
+    private void puttingAndGettingTest(String codec) {
+        OffHeapDataCache cache = newCache(-1, codec);
+        for (int i = 0; i < 10; i++) {
+            Assert.assertNull(cache.put(person(i)));
+        }
+        Assert.assertEquals(10, cache.getEntryCount());
+        Assert.assertTrue(cache.getBytesUsed() > 0);
+        Assert.assertEquals(64 * 1024, cache.getBytesCapacity());
+
+        DataCachePCData data = cache.get(id(3));
+        Assert.assertEquals(id(3), data.getId());
+        Assert.assertEquals(Person.class, data.getType());
+        Assert.assertEquals("person3", data.getData(0));
+        Assert.assertEquals(3, data.getData(1));
+        Assert.assertEquals(3L, data.getVersion());
+        Assert.assertNull(cache.get(id(10)));
+
+        Map<Object, DataCachePCData> all = cache.getAll(Arrays.asList(id(1), id(10), id(2)));
+        Assert.assertEquals("person1", all.get(id(1)).getData(0));
+        Assert.assertEquals("person2", all.get(id(2)).getData(0));
+        Assert.assertTrue(all.containsKey(id(10)));
+        Assert.assertNull(all.get(id(10)));
+
+        cache.remove(id(3));
+        Assert.assertNull(cache.get(id(3)));
+        Assert.assertEquals(9, cache.getEntryCount());
+
+        cache.clear();
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(0, cache.getBytesUsed());
+    }
+
+    @Test
+    public void puttingAndGettingSerializedTest() {
+        puttingAndGettingTest("serialized");
+    }
+
+    @Test
+    public void puttingAndGettingBinaryTest() {
+        puttingAndGettingTest("binary");
+    }
+
+    @Test
+    public void replacingFreesOldRecordTest() {
+        OffHeapDataCache cache = newCache(-1, "binary");
+        cache.put(person(1));
+        long used = cache.getBytesUsed();
+        for (int i = 0; i < 100; i++) {
+            cache.put(person(1));
+        }
+        Assert.assertEquals(1, cache.getEntryCount());
+        Assert.assertEquals(used, cache.getBytesUsed());
+    }
+
+    @Test
+    public void evictingReferencedLastTest() {
+        OffHeapDataCache cache = newCache(4, "binary");
+        for (int i = 0; i < 4; i++) {
+            cache.put(person(i));
+        }
+        // reading 0 and 1 gives them a second chance, so 2 and 3 go first
+        Assert.assertNotNull(cache.get(id(0)));
+        Assert.assertNotNull(cache.get(id(1)));
+        cache.put(person(4));
+        cache.put(person(5));
+        Assert.assertEquals(4, cache.getEntryCount());
+        Assert.assertTrue(cache.contains(id(0)));
+        Assert.assertTrue(cache.contains(id(1)));
+        Assert.assertFalse(cache.contains(id(2)));
+        Assert.assertFalse(cache.contains(id(3)));
+        Assert.assertTrue(cache.contains(id(4)));
+        Assert.assertTrue(cache.contains(id(5)));
+    }
+
+    @Test
+    public void evictingSpreadsOverKeysTest() {
+        OffHeapDataCache cache = newCache(100, "binary");
+        for (int i = 0; i < 1000; i++) {
+            cache.put(person(i));
+        }
+        // the most recent puts survive, whatever their hash
+        Assert.assertEquals(100, cache.getEntryCount());
+        for (int i = 900; i < 1000; i++) {
+            Assert.assertTrue(cache.contains(id(i)));
+        }
+    }
+
+    @Test
+    public void evictingWhenStoreFullTest() {
+        OffHeapDataCache cache = newCache(-1, "binary", 4 * 64);
+        for (int i = 0; i < 20; i++) {
+            cache.put(person(i));
+        }
+        Assert.assertTrue(cache.getEntryCount() > 0);
+        Assert.assertTrue(cache.getEntryCount() <= 4);
+        Assert.assertTrue(cache.contains(id(19)));
+        Assert.assertTrue(cache.getBytesUsed() <= cache.getBytesCapacity());
+    }
+
+    @Test
+    public void zeroCacheSizeStoresNothingTest() {
+        OffHeapDataCache cache = newCache(0, "binary");
+        cache.put(person(1));
+        Assert.assertEquals(0, cache.getEntryCount());
+        Assert.assertEquals(0, cache.getBytesUsed());
+        Assert.assertNull(cache.get(id(1)));
+    }
+
+    @Test
+    public void pinningTest() {
+        OffHeapDataCache cache = newCache(2, "binary");
+        cache.put(person(1));
+        Assert.assertTrue(cache.pin(id(1)));
+        Assert.assertFalse(cache.pin(id(2)));
+        Assert.assertEquals(0, cache.getEntryCount());
+
+        // pinned data is never evicted
+        for (int i = 10; i < 20; i++) {
+            cache.put(person(i));
+        }
+        Assert.assertEquals("person1", cache.get(id(1)).getData(0));
+
+        Assert.assertTrue(cache.unpin(id(1)));
+        Assert.assertFalse(cache.unpin(id(1)));
+        Assert.assertEquals(2, cache.getEntryCount());
+        Assert.assertEquals("person1", cache.get(id(1)).getData(0));
+    }
+
+    /**
+     * Cache whose binary codec fails to decode once broken.
+     */
+    private static class BrokenCodecCache extends OffHeapDataCache {
+        private volatile boolean broken;
+
+        @Override
+        protected PCDataCodec getPCDataCodec() {
+            final PCDataCodec codec = super.getPCDataCodec();
+            return new PCDataCodec(conf.getMetaDataRepositoryInstance()) {
+                @Override
+                public PCData fromBytes(byte[] bytes) throws IOException {
+                    if (broken)
+                        throw new IllegalStateException("broken");
+                    return codec.fromBytes(bytes);
+                }
+            };
+        }
+    }
+
+    @Test
+    public void undecodableDataIsEvictedTest() {
+        BrokenCodecCache cache = new BrokenCodecCache();
+        configure(cache, -1, "binary", 64 * 1024);
+        for (int i = 0; i < 4; i++) {
+            cache.put(person(i));
+        }
+        Assert.assertEquals("person1", cache.get(id(1)).getData(0));
+
+        cache.broken = true;
+        Assert.assertNull(cache.get(id(1)));
+        Assert.assertFalse(cache.contains(id(1)));
+        Assert.assertEquals(3, cache.getEntryCount());
+
+        Map<Object, DataCachePCData> all = cache.getAll(Arrays.asList(id(2), id(3)));
+        Assert.assertNull(all.get(id(2)));
+        Assert.assertNull(all.get(id(3)));
+        Assert.assertEquals(1, cache.getEntryCount());
+
+        cache.broken = false;
+        Assert.assertEquals("person0", cache.get(id(0)).getData(0));
+        cache.put(person(1));
+        Assert.assertEquals("person1", cache.get(id(1)).getData(0));
+    }
+}
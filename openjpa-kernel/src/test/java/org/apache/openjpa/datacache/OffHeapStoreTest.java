@@ -0,0 +1,100 @@
+package org.apache.openjpa.datacache;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class OffHeapStoreTest {
+    private static final int BLOCK = 16;
+    private static final int BLOCKS = 8;
+    private OffHeapStore store;
+
+    @Before
+    public void setUpEachTime() {
+        this.store = new OffHeapStore(BLOCK * BLOCKS, BLOCK);
+    }
+
+    private static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (seed + i);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void blockSizeMustExceedLink() {
+        try {
+            new OffHeapStore(1024, 4);
+            Assert.fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void writingAndReadingTest() {
+        Assert.assertEquals(BLOCK * BLOCKS, this.store.getCapacity());
+        Assert.assertEquals(0, this.store.getBytesUsed());
+
+        byte[] small = bytes(5, 1);
+        byte[] empty = new byte[0];
+        byte[] large = bytes(3 * (BLOCK - 4) + 1, 7);
+        long smallHandle = this.store.write(small);
+        long emptyHandle = this.store.write(empty);
+        long largeHandle = this.store.write(large);
+        Assert.assertNotEquals(OffHeapStore.NONE, largeHandle);
+        Assert.assertEquals(6 * BLOCK, this.store.getBytesUsed());
+
+        Assert.assertArrayEquals(small, this.store.read(smallHandle));
+        Assert.assertArrayEquals(empty, this.store.read(emptyHandle));
+        Assert.assertArrayEquals(large, this.store.read(largeHandle));
+    }
+
+    @Test
+    public void writingWhenFullTest() {
+        Assert.assertTrue(this.store.fits(BLOCKS * (BLOCK - 4)));
+        Assert.assertFalse(this.store.fits(BLOCKS * (BLOCK - 4) + 1));
+
+        long handle = this.store.write(bytes(6 * (BLOCK - 4), 0));
+        Assert.assertEquals(OffHeapStore.NONE, this.store.write(bytes(3 * (BLOCK - 4), 0)));
+        Assert.assertEquals(6 * BLOCK, this.store.getBytesUsed());
+
+        this.store.free(handle);
+        Assert.assertEquals(0, this.store.getBytesUsed());
+        Assert.assertNotEquals(OffHeapStore.NONE, this.store.write(bytes(BLOCKS * (BLOCK - 4), 0)));
+    }
+
+    @Test
+    public void freeingAndReusingTest() {
+        List<Long> handles = new ArrayList<>();
+        for (int i = 0; i < BLOCKS; i++) {
+            handles.add(this.store.write(bytes(BLOCK - 4, i)));
+        }
+        Assert.assertEquals(OffHeapStore.NONE, this.store.write(bytes(1, 0)));
+
+        // free every other block so that a multi-block record has to be chained through the gaps
+        for (int i = 0; i < BLOCKS; i += 2) {
+            this.store.free(handles.get(i));
+        }
+        this.store.free(OffHeapStore.NONE);
+        Assert.assertEquals(BLOCKS / 2 * BLOCK, this.store.getBytesUsed());
+
+        byte[] chained = bytes(BLOCKS / 2 * (BLOCK - 4), 42);
+        long handle = this.store.write(chained);
+        Assert.assertArrayEquals(chained, this.store.read(handle));
+        for (int i = 1; i < BLOCKS; i += 2) {
+            Assert.assertArrayEquals(bytes(BLOCK - 4, i), this.store.read(handles.get(i)));
+        }
+        Assert.assertEquals(BLOCKS * BLOCK, this.store.getBytesUsed());
+    }
+
+    @Test
+    public void clearingTest() {
+        this.store.write(bytes(3 * (BLOCK - 4), 0));
+        this.store.clear();
+        Assert.assertEquals(0, this.store.getBytesUsed());
+        byte[] all = bytes(BLOCKS * (BLOCK - 4), 3);
+        Assert.assertArrayEquals(all, this.store.read(this.store.write(all)));
+    }
+}
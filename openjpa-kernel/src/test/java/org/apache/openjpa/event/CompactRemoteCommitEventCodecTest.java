@@ -0,0 +1,121 @@
+package org.apache.openjpa.event;
+
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.StringId;
+import org.junit.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class CompactRemoteCommitEventCodecTest {
+    private CompactRemoteCommitEventCodec codec;
+
+    @Before
+    public void setUpEachTime() {
+        this.codec = new CompactRemoteCommitEventCodec();
+    }
+
+    private List<RemoteCommitEvent> roundTrip(List<RemoteCommitEvent> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.codec.encode(events, new DataOutputStream(bytes));
+        return this.codec.decode(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    }
+
+    @Test
+    public void oidsRoundTripTest() throws IOException {
+        List<Object> updates = Arrays.asList(
+            new LongId(String.class, Long.MIN_VALUE),
+            new LongId(String.class, 42L, false),
+            new IntId(Integer.class, -7),
+            new StringId(String.class, "key"),
+            new ObjectId(Long.class, 5L),
+            new ObjectId(Long.class, new BigDecimal("1.5")));
+        List<Object> deletes = Collections.singletonList(new LongId(Integer.class, 3L));
+        RemoteCommitEvent event = new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+            Collections.singletonList(String.class.getName()), updates, deletes);
+
+        List<RemoteCommitEvent> decoded = roundTrip(Collections.singletonList(event));
+        Assert.assertEquals(1, decoded.size());
+        RemoteCommitEvent result = decoded.get(0);
+        Assert.assertEquals(RemoteCommitEvent.PAYLOAD_OIDS, result.getPayloadType());
+        Assert.assertEquals(new ArrayList<>(event.getPersistedTypeNames()),
+            new ArrayList<>(result.getPersistedTypeNames()));
+        Assert.assertEquals(updates, new ArrayList<>(result.getUpdatedObjectIds()));
+        Assert.assertEquals(deletes, new ArrayList<>(result.getDeletedObjectIds()));
+        Assert.assertFalse(((LongId) new ArrayList<>(result.getUpdatedObjectIds()).get(1)).hasSubclasses());
+    }
+
+    @Test
+    public void coalescedEventsRoundTripTest() throws IOException {
+        RemoteCommitEvent adds = new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS,
+            Collections.singletonList(new LongId(String.class, 1L)), Collections.emptyList(),
+            Collections.emptyList(), Collections.emptyList());
+        RemoteCommitEvent extents = new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS, null,
+            Collections.emptyList(), Collections.singletonList("a.B"), Collections.singletonList("c.D"));
+
+        List<RemoteCommitEvent> decoded = roundTrip(Arrays.asList(adds, extents));
+        Assert.assertEquals(2, decoded.size());
+        Assert.assertEquals(new ArrayList<>(adds.getPersistedObjectIds()),
+            new ArrayList<>(decoded.get(0).getPersistedObjectIds()));
+        Assert.assertEquals(Collections.singletonList("a.B"),
+            new ArrayList<>(decoded.get(1).getUpdatedTypeNames()));
+        Assert.assertEquals(Collections.singletonList("c.D"),
+            new ArrayList<>(decoded.get(1).getDeletedTypeNames()));
+    }
+
+    @Test
+    public void typeNamesAreWrittenOncePerPacketTest() throws IOException {
+        List<Object> oids = new ArrayList<>();
+        for (long i = 0; i < 1000; i++) {
+            oids.add(new LongId(String.class, i));
+        }
+        RemoteCommitEvent event = new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null,
+            Collections.emptyList(), oids, Collections.emptyList());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        this.codec.encode(Collections.singletonList(event), new DataOutputStream(bytes));
+        // tag, type reference and at most two varint bytes per oid
+        Assert.assertTrue(bytes.size() < 1000 * 4 + 64);
+    }
+
+    private void assertCorrupt(int... packet) throws IOException {
+        byte[] bytes = new byte[packet.length];
+        for (int i = 0; i < packet.length; i++) {
+            bytes[i] = (byte) packet[i];
+        }
+        try {
+            this.codec.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+            Assert.fail("Expected corrupt packet");
+        } catch (StreamCorruptedException sce) {
+            // expected
+        }
+    }
+
+    @Test
+    public void oversizedCountsAreRejectedTest() throws IOException {
+        // 2^31 - 1 events
+        assertCorrupt(0xFF, 0xFF, 0xFF, 0xFF, 0x07);
+        // a negative event count
+        assertCorrupt(0xFF, 0xFF, 0xFF, 0xFF, 0x0F);
+        // one event whose persisted type names claim 2^28 elements
+        assertCorrupt(0x01, 0x00, 0x81, 0x80, 0x80, 0x80, 0x01);
+        // one event with a single type name of 2^20 bytes
+        assertCorrupt(0x01, 0x00, 0x02, 0x01, 0x80, 0x80, 0x40);
+    }
+
+    @Test
+    public void unknownTypeReferenceIsRejectedTest() throws IOException {
+        // one event with a long id referring to the second type of the packet
+        assertCorrupt(0x01, 0x00, 0x00, 0x02, 0x04, 0x02, 0x00, 0x00);
+    }
+}
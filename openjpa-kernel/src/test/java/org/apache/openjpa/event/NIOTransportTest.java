@@ -0,0 +1,153 @@
+package org.apache.openjpa.event;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.apache.openjpa.util.LongId;
+import org.junit.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class NIOTransportTest {
+    private static final int PROVIDERS = 3;
+
+    private final List<OpenJPAConfiguration> confs = new ArrayList<>();
+    private final List<BlockingQueue<RemoteCommitEvent>> received = new ArrayList<>();
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private void startProviders(String codec) throws IOException {
+        int[] ports = new int[PROVIDERS];
+        for (int i = 0; i < PROVIDERS; i++) {
+            ports[i] = freePort();
+        }
+        for (int i = 0; i < PROVIDERS; i++) {
+            StringBuilder addresses = new StringBuilder();
+            for (int j = 0; j < PROVIDERS; j++) {
+                if (i != j) {
+                    addresses.append(addresses.length() == 0 ? "" : ";").append("127.0.0.1:").append(ports[j]);
+                }
+            }
+            OpenJPAConfiguration conf = new OpenJPAConfigurationImpl();
+            conf.setRemoteCommitProvider("tcp(Transport=nio, Codec=" + codec + ", Port=" + ports[i]
+                + ", Addresses=" + addresses + ")");
+            BlockingQueue<RemoteCommitEvent> events = new LinkedBlockingQueue<>();
+            conf.getRemoteCommitEventManager().addListener(new RemoteCommitListener() {
+                @Override
+                public void afterCommit(RemoteCommitEvent event) {
+                    events.add(event);
+                }
+
+                @Override
+                public void close() {
+                }
+            });
+            this.confs.add(conf);
+            this.received.add(events);
+        }
+    }
+
+    @After
+    public void tearDownEachTime() {
+        this.confs.forEach(OpenJPAConfiguration::close);
+    }
+
+    private static RemoteCommitEvent event(long id) {
+        return new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null, Collections.emptyList(),
+            Collections.singletonList(new LongId(String.class, id)), Collections.emptyList());
+    }
+
+    private void broadcastAndReceiveTest() throws InterruptedException {
+        for (int i = 0; i < PROVIDERS; i++) {
+            this.confs.get(i).getRemoteCommitEventManager().getRemoteCommitProvider().broadcast(event(i));
+        }
+        for (int i = 0; i < PROVIDERS; i++) {
+            List<Object> ids = new ArrayList<>();
+            for (int j = 0; j < PROVIDERS - 1; j++) {
+                RemoteCommitEvent event = this.received.get(i).poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull(event);
+                ids.addAll(event.getUpdatedObjectIds());
+            }
+            for (int j = 0; j < PROVIDERS; j++) {
+                Assert.assertEquals(i != j, ids.contains(new LongId(String.class, j)));
+            }
+            Assert.assertTrue(this.received.get(i).isEmpty());
+        }
+    }
+
+    @Test
+    public void serializedEventsTest() throws Exception {
+        startProviders("serialized");
+        broadcastAndReceiveTest();
+    }
+
+    @Test
+    public void compactEventsTest() throws Exception {
+        startProviders("compact");
+        broadcastAndReceiveTest();
+    }
+
+    @Test
+    public void manyEventsKeepOrderTest() throws Exception {
+        startProviders("compact");
+        RemoteCommitProvider provider = this.confs.get(0).getRemoteCommitEventManager().getRemoteCommitProvider();
+        for (long i = 0; i < 500; i++) {
+            provider.broadcast(event(i));
+        }
+        for (int peer = 1; peer < PROVIDERS; peer++) {
+            for (long i = 0; i < 500; i++) {
+                RemoteCommitEvent event = this.received.get(peer).poll(10, TimeUnit.SECONDS);
+                Assert.assertNotNull(event);
+                Assert.assertEquals(new LongId(String.class, i), event.getUpdatedObjectIds().iterator().next());
+            }
+        }
+    }
+
+    @Test
+    public void slowPeersShareSendTimeoutTest() throws Exception {
+        // peers that accept connections into the backlog but never read
+        List<ServerSocket> silent = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        NIOTransport transport = new NIOTransport(0, (packet, peer) -> { }, NoneLogFactory.NoneLog.getInstance());
+        try {
+            for (int i = 0; i < PROVIDERS; i++) {
+                ServerSocket socket = new ServerSocket(0);
+                silent.add(socket);
+                addresses.add(new InetSocketAddress("127.0.0.1", socket.getLocalPort()));
+            }
+            transport.setMaxQueuedPackets(1);
+            transport.setSendTimeoutMillis(500);
+            transport.start();
+
+            byte[] packet = new byte[8 * 1024 * 1024];
+            for (int i = 0; i < 50; i++) {
+                long start = System.nanoTime();
+                int sent = transport.send(addresses, packet);
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                // whatever the number of full peers, a send waits for one timeout at most
+                Assert.assertTrue("send took " + elapsed + "ms", elapsed < 1200);
+                if (sent == 0) {
+                    return;
+                }
+            }
+            Assert.fail("queues of silent peers never filled up");
+        } finally {
+            transport.close();
+            for (ServerSocket socket : silent) {
+                socket.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package org.apache.openjpa.kernel;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.datacache.DataCachePCDataImpl;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.NoneMetaDataFactory;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.ObjectId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.StringId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PCDataCodecTest {
+
+    public enum Status { NEW, ACTIVE }
+
+    public static class Address {
+        private String street;
+        private int number;
+    }
+
+    public static class Item {
+        private long id;
+        private boolean pBoolean;
+        private byte pByte;
+        private char pChar;
+        private double pDouble;
+        private float pFloat;
+        private int pInt;
+        private long pLong;
+        private short pShort;
+        private Boolean wBoolean;
+        private Byte wByte;
+        private Character wChar;
+        private Double wDouble;
+        private Float wFloat;
+        private Integer wInt;
+        private Long wLong;
+        private Short wShort;
+        private String string;
+        private Date date;
+        private BigDecimal bigDecimal;
+        private BigInteger bigInteger;
+        private Status status;
+        private Locale serialized;
+        private int[] ints;
+        private String[] strings;
+        private List<String> list;
+        private Map<String, Integer> map;
+        private Object ref;
+        private Address address;
+    }
+
+    private OpenJPAConfiguration conf;
+    private ClassMetaData meta;
+    private ClassMetaData embedded;
+    private PCDataCodec codec;
+
+    @Before
+    public void setUp() {
+        conf = new OpenJPAConfigurationImpl();
+        conf.setRemoteCommitProvider("sjvm");
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setConfiguration(conf);
+        repos.setMetaDataFactory(new NoneMetaDataFactory());
+        conf.setMetaDataRepository(repos);
+
+        meta = repos.addMetaData(Item.class);
+        for (Field field : Item.class.getDeclaredFields())
+            if (!field.isSynthetic())
+                meta.addDeclaredField(field.getName(), field.getType());
+        meta.getField("id").setPrimaryKey(true);
+        meta.getField("ref").setExplicit(true);
+        meta.getField("list").getElement().setDeclaredType(String.class);
+        meta.getField("map").getKey().setDeclaredType(String.class);
+        meta.getField("map").getElement().setDeclaredType(Integer.class);
+
+        ClassMetaData address = repos.addMetaData(Address.class);
+        address.setEmbeddedOnly(true);
+        address.addDeclaredField("street", String.class);
+        address.addDeclaredField("number", int.class);
+        meta.getField("address").addEmbeddedMetaData();
+
+        repos.getMetaData(Item.class, null, true);
+        embedded = meta.getField("address").getEmbeddedMetaData();
+        codec = new PCDataCodec(repos);
+    }
+
+    @After
+    public void tearDown() {
+        conf.close();
+    }
+
+    private int index(String name) {
+        return meta.getField(name).getIndex();
+    }
+
+    private PCDataImpl roundTrip(PCDataImpl data) throws Exception {
+        PCDataImpl copy = (PCDataImpl) codec.fromBytes(codec.toBytes(data));
+        Assert.assertSame(data.getClass(), copy.getClass());
+        Assert.assertEquals(data.getId(), copy.getId());
+        Assert.assertEquals(data.getType(), copy.getType());
+        Assert.assertEquals(data.getCache(), copy.getCache());
+        Assert.assertEquals(data.getVersion(), copy.getVersion());
+        Assert.assertEquals(data.getImplData(), copy.getImplData());
+        return copy;
+    }
+
+    private void assertFields(PCDataImpl data, PCDataImpl copy) {
+        assertFields(meta, data, copy);
+    }
+
+    private void assertFields(ClassMetaData meta, PCDataImpl data,
+        PCDataImpl copy) {
+        for (FieldMetaData fmd : meta.getFields()) {
+            int i = fmd.getIndex();
+            String name = fmd.getName();
+            Assert.assertEquals(name, data.isLoaded(i), copy.isLoaded(i));
+            assertValue(name, data.getData(i), copy.getData(i));
+            assertValue(name, data.getIntermediate(i), copy.getIntermediate(i));
+            Assert.assertEquals(name, data.getImplData(i), copy.getImplData(i));
+        }
+    }
+
+    private void assertValue(String name, Object expected, Object actual) {
+        if (expected != null && expected.getClass().isArray()) {
+            Assert.assertSame(name, expected.getClass(), actual.getClass());
+            Assert.assertTrue(name, Arrays.deepEquals(new Object[] { expected },
+                new Object[] { actual }));
+        } else if (expected instanceof PCDataImpl) {
+            // embedded data
+            PCDataImpl data = (PCDataImpl) expected;
+            Assert.assertSame(name, data.getClass(), actual.getClass());
+            Assert.assertEquals(name, data.getType(), ((PCDataImpl) actual).getType());
+            assertFields(embedded, data, (PCDataImpl) actual);
+        } else {
+            Assert.assertEquals(name, expected, actual);
+            if (expected != null)
+                Assert.assertSame(name, expected.getClass(), actual.getClass());
+        }
+    }
+
+    private PCDataImpl newItem(PCDataImpl data) {
+        data.setData(index("id"), 7L);
+        data.setData(index("pBoolean"), true);
+        data.setData(index("pByte"), (byte) -3);
+        data.setData(index("pChar"), '\u20ac');
+        data.setData(index("pDouble"), -1.5d);
+        data.setData(index("pFloat"), Float.MAX_VALUE);
+        data.setData(index("pInt"), Integer.MIN_VALUE);
+        data.setData(index("pLong"), Long.MAX_VALUE);
+        data.setData(index("pShort"), Short.MIN_VALUE);
+        data.setData(index("wBoolean"), Boolean.FALSE);
+        data.setData(index("wByte"), Byte.MAX_VALUE);
+        data.setData(index("wChar"), 'x');
+        data.setData(index("wDouble"), Double.NaN);
+        data.setData(index("wFloat"), -0f);
+        data.setData(index("wInt"), 42);
+        data.setData(index("wLong"), -42L);
+        data.setData(index("wShort"), (short) 12);
+        data.setData(index("string"), "caf\u00e9");
+        data.setData(index("date"), new Date(1234567890123L));
+        data.setData(index("bigDecimal"), new BigDecimal("-12.3400"));
+        data.setData(index("bigInteger"), new BigInteger("123456789012345678901234567890"));
+        data.setData(index("status"), Status.ACTIVE);
+        data.setData(index("serialized"), Locale.CANADA_FRENCH);
+        data.setData(index("ints"), new int[] { 1, -1, Integer.MAX_VALUE });
+        data.setData(index("strings"), new String[] { "a", null, "c" });
+
+        Collection<Object> list = AbstractPCData.newCollectionData(2, 5);
+        list.add("one");
+        list.add("two");
+        data.setData(index("list"), list);
+        Map<Object, Object> map = new HashMap<>();
+        map.put("one", 1);
+        map.put("null", null);
+        data.setData(index("map"), map);
+        data.setData(index("ref"), new LongId(Address.class, 3, false));
+
+        PCDataImpl address = new PCDataImpl(null, embedded);
+        address.setData(0, "Main Street");
+        address.setData(1, 12);
+        data.setData(index("address"), address);
+        data.setVersion(3);
+        return data;
+    }
+
+    @Test
+    public void testAllFieldTypes() throws Exception {
+        PCDataImpl data = newItem(new PCDataImpl(new LongId(Item.class, 7), meta));
+        PCDataImpl copy = roundTrip(data);
+        assertFields(data, copy);
+
+        PCDataImpl address = (PCDataImpl) copy.getData(index("address"));
+        Assert.assertEquals(Address.class, address.getType());
+        Assert.assertEquals("Main Street", address.getData(0));
+        Assert.assertEquals(12, address.getData(1));
+        Assert.assertEquals(5, AbstractPCData.getNextSequence(copy.getData(index("list"))));
+    }
+
+    @Test
+    public void testNulls() throws Exception {
+        PCDataImpl data = new PCDataImpl(null, meta, null);
+        for (FieldMetaData fmd : meta.getFields())
+            if (!fmd.getDeclaredType().isPrimitive())
+                data.setData(fmd.getIndex(), null);
+        PCDataImpl copy = roundTrip(data);
+        assertFields(data, copy);
+        for (FieldMetaData fmd : meta.getFields())
+            if (!fmd.getDeclaredType().isPrimitive())
+                Assert.assertTrue(fmd.getName(), copy.isLoaded(fmd.getIndex()));
+    }
+
+    @Test
+    public void testUnloadedIntermediateAndImplData() throws Exception {
+        PCDataImpl data = new PCDataImpl(new StringId(Item.class, "a"), meta, "other");
+        data.setIntermediate(index("string"), "intermediate");
+        data.setImplData(index("ref"), "impl");
+        data.setImplData("instance impl");
+        PCDataImpl copy = roundTrip(data);
+        assertFields(data, copy);
+        Assert.assertFalse(copy.isLoaded(index("string")));
+        Assert.assertEquals("intermediate", copy.getIntermediate(index("string")));
+    }
+
+    @Test
+    public void testValuesNotMatchingDeclaredType() throws Exception {
+        PCDataImpl data = new PCDataImpl(new LongId(Item.class, 1), meta);
+        // externalized or converted values do not match the field type
+        data.setData(index("pLong"), "externalized");
+        data.setData(index("wInt"), 7L);
+        data.setData(index("string"), "sb".toCharArray());
+        data.setData(index("date"), new Timestamp(12345L));
+        data.setData(index("map"), Collections.EMPTY_MAP);
+        data.setData(index("list"), AbstractPCData.newCollectionData(0, 0));
+        assertFields(data, roundTrip(data));
+    }
+
+    @Test
+    public void testIds() throws Exception {
+        Object[] ids = {
+            new LongId(Item.class, -1L),
+            new LongId(Item.class, 1L, false),
+            new IntId(Item.class, 5),
+            new IntId(Item.class, 5, false),
+            new StringId(Item.class, "id"),
+            new StringId(Item.class, "id", false),
+            new ObjectId(Item.class, new Date(5L)),
+            new ObjectId(Item.class, 9, false),
+        };
+        for (Object id : ids) {
+            PCDataImpl data = new PCDataImpl(id, meta);
+            data.setData(index("ref"), id);
+            PCDataImpl copy = roundTrip(data);
+            Assert.assertEquals(((OpenJPAId) id).hasSubclasses(),
+                ((OpenJPAId) copy.getId()).hasSubclasses());
+            Assert.assertEquals(id, copy.getData(index("ref")));
+        }
+    }
+
+    @Test
+    public void testVersions() throws Exception {
+        Object[] versions = { null, 0, Integer.MAX_VALUE, Long.MIN_VALUE,
+            new Timestamp(987654321L), new Date(5L), "v1" };
+        for (Object version : versions) {
+            PCDataImpl data = new PCDataImpl(new LongId(Item.class, 1), meta);
+            data.setVersion(version);
+            Object copy = roundTrip(data).getVersion();
+            if (version != null)
+                Assert.assertSame(version.getClass(), copy.getClass());
+        }
+    }
+
+    @Test
+    public void testDataCachePCData() throws Exception {
+        DataCachePCDataImpl data = new DataCachePCDataImpl(new LongId(Item.class, 7),
+            meta, "cache", 123456789L);
+        newItem(data);
+        DataCachePCDataImpl copy = (DataCachePCDataImpl) roundTrip(data);
+        assertFields(data, copy);
+        Assert.assertEquals(123456789L, copy.getTimeOut());
+
+        data = new DataCachePCDataImpl(null, meta, null, -1L);
+        copy = (DataCachePCDataImpl) roundTrip(data);
+        Assert.assertEquals(-1L, copy.getTimeOut());
+    }
+
+    @Test
+    public void testCorruptData() throws Exception {
+        byte[] bytes = codec.toBytes(newItem(new PCDataImpl(new LongId(Item.class, 7), meta)));
+        byte[] version = bytes.clone();
+        version[0] = PCDataCodec.VERSION + 1;
+        try {
+            codec.fromBytes(version);
+            Assert.fail("unknown version");
+        } catch (IOException ioe) {
+        }
+        try {
+            codec.fromBytes(Arrays.copyOf(bytes, bytes.length / 2));
+            Assert.fail("truncated data");
+        } catch (IOException ioe) {
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package org.apache.openjpa.kernel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Field;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.NoneMetaDataFactory;
+import org.apache.openjpa.util.LongId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PCDataImplTest {
+
+    public static class Item {
+        private boolean pBoolean;
+        private byte pByte;
+        private char pChar;
+        private double pDouble;
+        private float pFloat;
+        private int pInt;
+        private long pLong;
+        private short pShort;
+        private Integer wInt;
+        private String string;
+    }
+
+    private static final String[] PRIMITIVES = { "pBoolean", "pByte",
+        "pChar", "pDouble", "pFloat", "pInt", "pLong", "pShort" };
+
+    // values of the primitive fields, in the order above
+    private static final Object[][] VALUES = {
+        { true, false },
+        { Byte.MIN_VALUE, (byte) 0, Byte.MAX_VALUE },
+        { Character.MIN_VALUE, 'x', Character.MAX_VALUE },
+        { Double.NaN, -0d, Double.MIN_VALUE, Double.NEGATIVE_INFINITY, Double.MAX_VALUE },
+        { Float.NaN, -0f, Float.MIN_VALUE, Float.POSITIVE_INFINITY, Float.MAX_VALUE },
+        { Integer.MIN_VALUE, -1, 0, Integer.MAX_VALUE },
+        { Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE },
+        { Short.MIN_VALUE, (short) -1, Short.MAX_VALUE },
+    };
+
+    private OpenJPAConfiguration conf;
+    private ClassMetaData meta;
+
+    @Before
+    public void setUp() {
+        conf = new OpenJPAConfigurationImpl();
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setConfiguration(conf);
+        repos.setMetaDataFactory(new NoneMetaDataFactory());
+        conf.setMetaDataRepository(repos);
+        meta = repos.addMetaData(Item.class);
+        for (Field field : Item.class.getDeclaredFields())
+            if (!field.isSynthetic())
+                meta.addDeclaredField(field.getName(), field.getType());
+    }
+
+    @After
+    public void tearDown() {
+        conf.close();
+    }
+
+    private int index(String name) {
+        return meta.getField(name).getIndex();
+    }
+
+    @Test
+    public void testPrimitiveFieldDataLength() {
+        Assert.assertEquals(8, meta.getPrimitiveFieldDataLength());
+        int[] table = meta.getPrimitiveFieldDataTable();
+        Assert.assertEquals(-1, table[index("wInt")]);
+        Assert.assertEquals(-1, table[index("string")]);
+
+        meta.addDeclaredField("pInt2", int.class);
+        Assert.assertEquals(9, meta.getPrimitiveFieldDataLength());
+        meta.removeDeclaredField(meta.getField("pInt2"));
+        Assert.assertEquals(8, meta.getPrimitiveFieldDataLength());
+    }
+
+    @Test
+    public void testPrimitiveValues() throws Exception {
+        for (int v = 0; v < 5; v++) {
+            PCDataImpl data = new PCDataImpl(new LongId(Item.class, v), meta);
+            for (int i = 0; i < VALUES.length; i++)
+                data.setData(index(PRIMITIVES[i]), VALUES[i][v % VALUES[i].length]);
+            data.setData(index("wInt"), v);
+            data.setData(index("string"), "s" + v);
+
+            assertValues(data, v);
+            assertValues(serialize(data), v);
+        }
+    }
+
+    private void assertValues(PCDataImpl data, int v) {
+        for (int i = 0; i < VALUES.length; i++) {
+            int idx = index(PRIMITIVES[i]);
+            Object expected = VALUES[i][v % VALUES[i].length];
+            Object actual = data.getData(idx);
+            Assert.assertTrue(data.isLoaded(idx));
+            Assert.assertSame(expected.getClass(), actual.getClass());
+            Assert.assertEquals(expected, actual);
+            Assert.assertNull(data.getIntermediate(idx));
+        }
+        Assert.assertEquals(v, data.getData(index("wInt")));
+        Assert.assertEquals("s" + v, data.getData(index("string")));
+    }
+
+    private static PCDataImpl serialize(PCDataImpl data) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(data);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            return (PCDataImpl) in.readObject();
+        }
+    }
+
+    @Test
+    public void testNullAndUnloaded() {
+        PCDataImpl data = new PCDataImpl(null, meta);
+        for (int i = 0; i < meta.getFields().length; i++) {
+            Assert.assertFalse(data.isLoaded(i));
+            Assert.assertNull(data.getData(i));
+            data.setData(i, null);
+            Assert.assertTrue(data.isLoaded(i));
+            Assert.assertNull(data.getData(i));
+            Assert.assertNull(data.getIntermediate(i));
+        }
+
+        int pInt = index("pInt");
+        data.setData(pInt, 5);
+        data.clearData(pInt);
+        Assert.assertFalse(data.isLoaded(pInt));
+        Assert.assertNull(data.getData(pInt));
+        Assert.assertNull(data.getIntermediate(pInt));
+
+        // a value set over an unboxed one replaces it
+        data.setData(pInt, 5);
+        data.setData(pInt, null);
+        Assert.assertNull(data.getData(pInt));
+        data.setData(pInt, 6);
+        data.setLoaded(pInt, false);
+        Assert.assertNull(data.getData(pInt));
+        Assert.assertNull(data.getIntermediate(pInt));
+        data.setLoaded(pInt, true);
+        Assert.assertEquals(6, data.getData(pInt));
+    }
+
+    @Test
+    public void testOtherValuesInPrimitiveFields() throws Exception {
+        PCDataImpl data = new PCDataImpl(null, meta);
+        int pInt = index("pInt");
+        int pLong = index("pLong");
+        int pChar = index("pChar");
+
+        // classes must not be taken for the marker of an unboxed value
+        data.setData(pInt, Integer.class);
+        data.setData(pLong, "externalized");
+        data.setIntermediate(pChar, Character.class);
+        Assert.assertSame(Integer.class, data.getData(pInt));
+        Assert.assertEquals("externalized", data.getData(pLong));
+        Assert.assertSame(Character.class, data.getIntermediate(pChar));
+        Assert.assertNull(data.getData(pChar));
+
+        // a wrapper of another type keeps its type
+        data.setData(pInt, 7L);
+        Assert.assertEquals(7L, data.getData(pInt));
+
+        PCDataImpl copy = serialize(data);
+        Assert.assertEquals(7L, copy.getData(pInt));
+        Assert.assertEquals("externalized", copy.getData(pLong));
+        Assert.assertSame(Character.class, copy.getIntermediate(pChar));
+    }
+
+    @Test
+    public void testWrapperFieldsAreNotUnboxed() {
+        PCDataImpl data = new PCDataImpl(null, meta);
+        int wInt = index("wInt");
+        data.setData(wInt, null);
+        Assert.assertNull(data.getData(wInt));
+        Integer val = 1000;
+        data.setData(wInt, val);
+        Assert.assertSame(val, data.getData(wInt));
+        data.setIntermediate(wInt, Integer.class);
+        Assert.assertSame(Integer.class, data.getIntermediate(wInt));
+    }
+}
@@ -0,0 +1,120 @@
+package org.apache.openjpa.kernel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+import org.apache.openjpa.lib.rop.ListResultObjectProvider;
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.util.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class QueryStatisticsTest {
+
+    private static final String Q = "SELECT p FROM Person p";
+
+    @Test
+    public void recordsLatenciesByPhase() {
+        QueryStatistics<String> stats = new QueryStatistics.Default<>();
+        stats.recordLatency(Q, QueryStatistics.Phase.COMPILE, 2000);
+        stats.recordLatency(Q, QueryStatistics.Phase.EXECUTE, 5000);
+        stats.recordLatency(Q, QueryStatistics.Phase.EXECUTE, 7000);
+        stats.recordRows(Q, 3);
+        stats.recordRows(Q, 4);
+
+        Assert.assertEquals(1, stats.getLatency(Q,
+            QueryStatistics.Phase.COMPILE).getCount());
+        LatencyHistogram execute = stats.getLatency(Q,
+            QueryStatistics.Phase.EXECUTE);
+        Assert.assertEquals(2, execute.getCount());
+        Assert.assertEquals(7000, execute.getMax());
+        Assert.assertNull(stats.getLatency(Q,
+            QueryStatistics.Phase.MATERIALIZE));
+        Assert.assertEquals(7, stats.getRowCount(Q));
+
+        Assert.assertNull(stats.getLatency("other",
+            QueryStatistics.Phase.EXECUTE));
+        Assert.assertEquals(0, stats.getRowCount("other"));
+    }
+
+    @Test
+    public void resetClearsLatencies() {
+        QueryStatistics<String> stats = new QueryStatistics.Default<>();
+        stats.recordLatency(Q, QueryStatistics.Phase.EXECUTE, 5000);
+        stats.recordRows(Q, 3);
+        stats.reset();
+        Assert.assertNull(stats.getLatency(Q, QueryStatistics.Phase.EXECUTE));
+        Assert.assertEquals(0, stats.getRowCount(Q));
+
+        stats.recordLatency(Q, QueryStatistics.Phase.EXECUTE, 5000);
+        stats.clear();
+        Assert.assertNull(stats.getLatency(Q, QueryStatistics.Phase.EXECUTE));
+    }
+
+    @Test
+    public void noStatisticsIgnoresLatencies() {
+        QueryStatistics<String> stats = new QueryStatistics.None<>();
+        stats.recordLatency(Q, QueryStatistics.Phase.EXECUTE, 5000);
+        stats.recordRows(Q, 3);
+        Assert.assertNull(stats.getLatency(Q, QueryStatistics.Phase.EXECUTE));
+        Assert.assertEquals(0, stats.getRowCount(Q));
+    }
+
+    @Test
+    public void dumpNamesPhases() {
+        QueryStatistics<String> stats = new QueryStatistics.Default<>();
+        stats.recordExecution(Q);
+        stats.recordLatency(Q, QueryStatistics.Phase.MATERIALIZE, 5000);
+        stats.recordRows(Q, 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        stats.dump(new PrintStream(bytes, true));
+        String dump = bytes.toString();
+        Assert.assertTrue(dump, dump.contains("materialize: count=1"));
+        Assert.assertTrue(dump, dump.contains("rows: 2"));
+    }
+
+    @Test
+    public void resultObjectProviderRecordsExecuteAndMaterialize()
+        throws Exception {
+        QueryStatistics<String> stats = new QueryStatistics.Default<>();
+        ResultObjectProvider rop = new QueryImpl.StatisticsResultObjectProvider(
+            new ListResultObjectProvider(Arrays.asList("a", "b", "c")),
+            stats, Q, System.nanoTime());
+        rop.open();
+        Assert.assertEquals(1, stats.getLatency(Q,
+            QueryStatistics.Phase.EXECUTE).getCount());
+        Assert.assertNull(stats.getLatency(Q,
+            QueryStatistics.Phase.MATERIALIZE));
+
+        int rows = 0;
+        while (rop.next()) {
+            Assert.assertNotNull(rop.getResultObject());
+            rows++;
+        }
+        Assert.assertEquals(3, rows);
+        rop.close();
+        Assert.assertEquals(1, stats.getLatency(Q,
+            QueryStatistics.Phase.MATERIALIZE).getCount());
+        Assert.assertEquals(3, stats.getRowCount(Q));
+
+        // a second close does not record again
+        rop.close();
+        Assert.assertEquals(1, stats.getLatency(Q,
+            QueryStatistics.Phase.MATERIALIZE).getCount());
+        Assert.assertEquals(3, stats.getRowCount(Q));
+    }
+
+    @Test
+    public void unopenedResultObjectProviderRecordsNothing() throws Exception {
+        QueryStatistics<String> stats = new QueryStatistics.Default<>();
+        ResultObjectProvider rop = new QueryImpl.StatisticsResultObjectProvider(
+            new ListResultObjectProvider(Arrays.asList("a")), stats, Q,
+            System.nanoTime());
+        rop.close();
+        Assert.assertNull(stats.getLatency(Q, QueryStatistics.Phase.EXECUTE));
+        Assert.assertNull(stats.getLatency(Q,
+            QueryStatistics.Phase.MATERIALIZE));
+        Assert.assertEquals(0, stats.getRowCount(Q));
+    }
+}
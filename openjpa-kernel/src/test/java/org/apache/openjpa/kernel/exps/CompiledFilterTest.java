@@ -0,0 +1,86 @@
+package org.apache.openjpa.kernel.exps;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class CompiledFilterTest {
+    private static final Object[] VALUES = { 1, 2L, 3, "1", 'c', 2.5, null, 0, -1L };
+
+    private final InMemoryExpressionFactory factory = new InMemoryExpressionFactory();
+    private final Random random = new Random(42);
+
+    private Value value(int depth) {
+        switch (random.nextInt(depth > 2 ? 4 : 5)) {
+            case 0:
+                return factory.getThis();
+            case 1:
+                Param param = new Param("p", Object.class);
+                param.setIndex(random.nextInt(2));
+                return param;
+            case 2:
+                return factory.getNull();
+            case 3:
+                return factory.newLiteral(VALUES[random.nextInt(VALUES.length)], Literal.TYPE_UNKNOWN);
+            default:
+                return factory.add(value(depth + 1), value(depth + 1));
+        }
+    }
+
+    private Expression expression(int depth) {
+        switch (random.nextInt(depth > 3 ? 6 : 10)) {
+            case 0:
+                return factory.equal(value(depth), value(depth));
+            case 1:
+                return factory.notEqual(value(depth), value(depth));
+            case 2:
+                return factory.lessThan(value(depth), value(depth));
+            case 3:
+                return factory.greaterThanEqual(value(depth), value(depth));
+            case 4:
+                return factory.emptyExpression();
+            case 5:
+                return factory.isEmpty(value(depth));
+            case 6:
+                return factory.and(expression(depth + 1), expression(depth + 1));
+            case 7:
+                return factory.or(expression(depth + 1), expression(depth + 1));
+            case 8:
+                return factory.not(expression(depth + 1));
+            default:
+                return factory.and(expression(depth + 1),
+                    factory.or(expression(depth + 1), expression(depth + 1)));
+        }
+    }
+
+    @Test
+    public void comparisonsTest() {
+        Value param = factory.newParameter("p", Object.class);
+        ((Param) param).setIndex(0);
+        Exp exp = (Exp) factory.and(factory.greaterThan(factory.getThis(), param),
+            factory.not(factory.equal(factory.getThis(), factory.newLiteral(5L, Literal.TYPE_NUMBER))));
+        CompiledFilter filter = CompiledFilter.compile(exp);
+        Assert.assertSame(exp, filter.getExpression());
+        Assert.assertTrue(filter.matches(4, null, new Object[] { 3L }));
+        Assert.assertFalse(filter.matches(5, null, new Object[] { 3L }));
+        Assert.assertFalse(filter.matches(2, null, new Object[] { 3L }));
+        // incomparable values do not match instead of failing
+        Assert.assertFalse(filter.matches(4, null, new Object[] { null }));
+        Assert.assertFalse(filter.matches(4, null, new Object[] { new Object() }));
+    }
+
+    @Test
+    public void matchesInterpretedTest() {
+        for (int i = 0; i < 10000; i++) {
+            Exp exp = (Exp) expression(0);
+            CompiledFilter filter = CompiledFilter.compile(exp);
+            for (int j = 0; j < 10; j++) {
+                Object candidate = VALUES[random.nextInt(VALUES.length)];
+                Object[] params = { VALUES[random.nextInt(VALUES.length)], VALUES[random.nextInt(VALUES.length)] };
+                Assert.assertEquals(exp.evaluate(candidate, candidate, null, params),
+                    filter.matches(candidate, null, params));
+            }
+        }
+    }
+}
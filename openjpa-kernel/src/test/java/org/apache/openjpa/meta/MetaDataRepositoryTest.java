@@ -0,0 +1,371 @@
+package org.apache.openjpa.meta;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
+import org.apache.openjpa.util.MetaDataException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MetaDataRepositoryTest {
+
+    private static final int THREADS = 8;
+    private static final int LOOKUPS = 2000;
+
+    public static class Order {
+        private long id;
+        private Customer customer;
+    }
+
+    public static class Customer {
+        private long id;
+        private Order lastOrder;
+    }
+
+    public static class Product {
+        private long id;
+        private String name;
+    }
+
+    public static class Item {
+        private long id;
+    }
+
+    public static class Book extends Item {
+        private String isbn;
+    }
+
+    public static class Novel extends Book {
+        private String author;
+    }
+
+    public static class Dvd extends Item {
+        private int minutes;
+    }
+
+    public static class WarmedUp {
+        static final Thread INIT_THREAD = Thread.currentThread();
+        private long id;
+    }
+
+    private static final Class<?>[] TYPES =
+        { Order.class, Customer.class, Product.class };
+
+    private OpenJPAConfiguration conf;
+    private ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        conf = new OpenJPAConfigurationImpl();
+        pool = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+        conf.close();
+    }
+
+    /**
+     * Repository whose lookups do not lock, as after Preload.
+     */
+    private static class UnlockedRepository extends MetaDataRepository {
+        UnlockedRepository() {
+            _locking = false;
+        }
+    }
+
+    private MetaDataRepository newRepository(MetaDataRepository repos) {
+        repos.setConfiguration(conf);
+        repos.setMetaDataFactory(new NoneMetaDataFactory());
+        repos.setResolve(MetaDataModes.MODE_META, true);
+        conf.setMetaDataRepository(repos);
+        ClassMetaData order = repos.addMetaData(Order.class);
+        order.addDeclaredField("id", long.class).setPrimaryKey(true);
+        order.addDeclaredField("customer", Customer.class);
+        ClassMetaData customer = repos.addMetaData(Customer.class);
+        customer.addDeclaredField("id", long.class).setPrimaryKey(true);
+        customer.addDeclaredField("lastOrder", Order.class);
+        ClassMetaData product = repos.addMetaData(Product.class);
+        product.addDeclaredField("id", long.class).setPrimaryKey(true);
+        product.addDeclaredField("name", String.class);
+        return repos;
+    }
+
+    @Test
+    public void concurrentResolve() throws Exception {
+        assertConcurrentResolve(newRepository(new MetaDataRepository()));
+    }
+
+    /**
+     * Lookups only stop locking once preloading resolved all metadata, so
+     * resolve the types up front as preloading does.
+     */
+    @Test
+    public void concurrentResolveWithoutLocking() throws Exception {
+        MetaDataRepository repos = newRepository(new UnlockedRepository());
+        for (Class<?> type : TYPES)
+            repos.getMetaData(type, null, true);
+        assertConcurrentResolve(repos);
+    }
+
+    /**
+     * Look up the types from many threads at once. Every thread must get
+     * the same, resolved metadata for a type.
+     */
+    private void assertConcurrentResolve(final MetaDataRepository repos)
+        throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<ClassMetaData[]>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t;
+            futures.add(pool.submit(new Callable<ClassMetaData[]>() {
+                @Override
+                public ClassMetaData[] call() throws Exception {
+                    start.await();
+                    ClassMetaData[] metas = new ClassMetaData[TYPES.length];
+                    for (int i = 0; i < LOOKUPS; i++) {
+                        int idx = (i + offset) % TYPES.length;
+                        ClassMetaData meta = repos.getMetaData(TYPES[idx],
+                            null, true);
+                        Assert.assertNotNull(meta);
+                        Assert.assertTrue(meta.toString(),
+                            (meta.getResolve() & MetaDataModes.MODE_META) != 0);
+                        if (metas[idx] == null)
+                            metas[idx] = meta;
+                        Assert.assertSame(metas[idx], meta);
+                    }
+                    return metas;
+                }
+            }));
+        }
+        start.countDown();
+        ClassMetaData[] first = null;
+        for (Future<ClassMetaData[]> future : futures) {
+            ClassMetaData[] metas = future.get();
+            if (first == null)
+                first = metas;
+            for (int i = 0; i < TYPES.length; i++)
+                Assert.assertSame(first[i], metas[i]);
+        }
+        for (int i = 0; i < TYPES.length; i++) {
+            Assert.assertSame(first[i], repos.getMetaData(TYPES[i], null,
+                true));
+            Assert.assertSame(TYPES[i], first[i].getDescribedType());
+        }
+        Assert.assertSame(first[1], first[0].getField("customer").
+            getTypeMetaData());
+    }
+
+    /**
+     * Factory listing the given types and adding metadata for them when
+     * loaded, recording the order and thread of each load.
+     */
+    private static class PreloadFactory extends NoneMetaDataFactory {
+        private final Set<String> _names = new LinkedHashSet<>();
+        protected final List<Class<?>> _loads =
+            Collections.synchronizedList(new ArrayList<Class<?>>());
+        protected final List<Thread> _threads =
+            Collections.synchronizedList(new ArrayList<Thread>());
+        protected MetaDataRepository _repos;
+
+        PreloadFactory(String... names) {
+            Collections.addAll(_names, names);
+        }
+
+        @Override
+        public void setRepository(MetaDataRepository repos) {
+            _repos = repos;
+        }
+
+        @Override
+        public Set<String> getPersistentTypeNames(boolean classpath, ClassLoader loader) {
+            return _names;
+        }
+
+        @Override
+        public void load(Class cls, int mode, ClassLoader loader) {
+            _loads.add(cls);
+            _threads.add(Thread.currentThread());
+            if (_repos.getCachedMetaData(cls) == null)
+                _repos.addMetaData(cls).addDeclaredField("id", long.class).
+                    setPrimaryKey(true);
+        }
+    }
+
+    /**
+     * Factory loading the given types concurrently, except for the ones it
+     * is told to load sequentially. Each load first looks up the metadata of
+     * the superclass, as the annotation parsers do.
+     */
+    private static class ConcurrentPreloadFactory extends PreloadFactory {
+        private final Set<String> _sequential = new LinkedHashSet<>();
+        private final ThreadLocal<Boolean> _begun = new ThreadLocal<>();
+        private final List<Class<?>> _loaded =
+            Collections.synchronizedList(new ArrayList<Class<?>>());
+        private final List<Class<?>> _unprepared =
+            Collections.synchronizedList(new ArrayList<Class<?>>());
+
+        ConcurrentPreloadFactory(String... names) {
+            super(names);
+        }
+
+        @Override
+        public boolean isConcurrentLoadSupported(Class<?> cls) {
+            return !_sequential.contains(cls.getName());
+        }
+
+        @Override
+        public void beginConcurrentLoad() {
+            _begun.set(Boolean.TRUE);
+        }
+
+        @Override
+        public void endConcurrentLoad() {
+            _begun.remove();
+        }
+
+        @Override
+        public void load(Class cls, int mode, ClassLoader loader) {
+            if (mode != MODE_ALL)
+                Assert.fail("nested load of " + cls);
+            super.load(cls, mode, loader);
+            if (Thread.currentThread() != _threads.get(0)
+                && _begun.get() == null)
+                _unprepared.add(cls);
+            if (cls.getSuperclass() != Object.class)
+                Assert.assertNotNull(cls.getName(), _repos.getMetaData(
+                    cls.getSuperclass(), loader, false));
+            _repos.getCachedMetaData(cls).setSourceMode(mode, true);
+            _loaded.add(cls);
+        }
+    }
+
+    private MetaDataRepository newPreloadRepository(PreloadFactory factory,
+        int parallelism) {
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setConfiguration(conf);
+        repos.setMetaDataFactory(factory);
+        repos.setResolve(MetaDataModes.MODE_META, true);
+        repos.setPreload(true);
+        repos.setPreloadParallelism(parallelism);
+        conf.setMetaDataRepository(repos);
+        return repos;
+    }
+
+    @Test
+    public void parallelPreloadMatchesSequentialPreload() {
+        String[] names = { Product.class.getName(), Order.class.getName(),
+            Customer.class.getName() };
+        PreloadFactory sequential = new PreloadFactory(names);
+        MetaDataRepository seqRepos = newPreloadRepository(sequential, 1);
+        seqRepos.preload();
+        seqRepos.close();
+
+        PreloadFactory parallel = new PreloadFactory(names);
+        MetaDataRepository repos = newPreloadRepository(parallel, 4);
+        try {
+            repos.preload();
+
+            Assert.assertEquals(sequential._loads, parallel._loads);
+            Assert.assertEquals(Product.class, parallel._loads.get(0));
+            for (Thread thread : parallel._threads)
+                Assert.assertSame(Thread.currentThread(), thread);
+            for (String name : names) {
+                ClassMetaData meta = repos.getCachedMetaData(name);
+                Assert.assertNotNull(name, meta);
+                Assert.assertTrue(meta.toString(),
+                    (meta.getResolve() & MetaDataModes.MODE_META) != 0);
+            }
+        } finally {
+            repos.close();
+        }
+    }
+
+    @Test
+    public void parallelPreloadParsesSuperclassesFirstOnPoolThreads() {
+        ConcurrentPreloadFactory factory = new ConcurrentPreloadFactory(
+            Product.class.getName(), Novel.class.getName(),
+            Dvd.class.getName(), Book.class.getName(), Item.class.getName(),
+            Customer.class.getName());
+        factory._sequential.add(Customer.class.getName());
+        MetaDataRepository repos = newPreloadRepository(factory, 4);
+        try {
+            repos.preload();
+
+            // the first class and the sequential ones load on this thread
+            Thread caller = Thread.currentThread();
+            Assert.assertEquals(Product.class, factory._loads.get(0));
+            Assert.assertEquals(Customer.class, factory._loads.get(1));
+            Assert.assertSame(caller, factory._threads.get(0));
+            Assert.assertSame(caller, factory._threads.get(1));
+            for (int i = 2; i < factory._threads.size(); i++)
+                Assert.assertNotSame(factory._loads.get(i).getName(), caller,
+                    factory._threads.get(i));
+            Assert.assertEquals(factory._unprepared.toString(), 0,
+                factory._unprepared.size());
+            Assert.assertEquals(6, factory._loads.size());
+
+            // each level of the hierarchy is loaded before the next starts
+            List<Class<?>> loaded = factory._loaded;
+            Assert.assertTrue(loaded.toString(), loaded.indexOf(Item.class)
+                < factory._loads.indexOf(Book.class));
+            Assert.assertTrue(loaded.toString(), loaded.indexOf(Item.class)
+                < factory._loads.indexOf(Dvd.class));
+            Assert.assertTrue(loaded.toString(), loaded.indexOf(Book.class)
+                < factory._loads.indexOf(Novel.class));
+
+            // and resolved afterwards
+            ClassMetaData novel = repos.getMetaData(Novel.class, null, true);
+            Assert.assertSame(repos.getMetaData(Book.class, null, true),
+                novel.getPCSuperclassMetaData());
+            Assert.assertSame(repos.getMetaData(Item.class, null, true),
+                novel.getPCSuperclassMetaData().getPCSuperclassMetaData());
+            for (Class<?> cls : factory._loads)
+                Assert.assertTrue(cls.getName(), (repos.getCachedMetaData(cls)
+                    .getResolve() & MetaDataModes.MODE_META) != 0);
+        } finally {
+            repos.close();
+        }
+    }
+
+    @Test
+    public void parallelPreloadWarmsUpOnPoolThreads() {
+        MetaDataRepository repos = newPreloadRepository(new PreloadFactory(
+            WarmedUp.class.getName(), Product.class.getName()), 2);
+        try {
+            repos.preload();
+            Assert.assertNotNull(repos.getCachedMetaData(WarmedUp.class));
+            Assert.assertNotSame(Thread.currentThread(), WarmedUp.INIT_THREAD);
+        } finally {
+            repos.close();
+        }
+    }
+
+    @Test
+    public void parallelPreloadReportsMissingClass() {
+        PreloadFactory factory = new PreloadFactory(Product.class.getName(),
+            "org.apache.openjpa.meta.NoSuchEntity");
+        MetaDataRepository repos = newPreloadRepository(factory, 4);
+        try {
+            repos.preload();
+            Assert.fail("preload of a missing class");
+        } catch (MetaDataException mde) {
+            Assert.assertTrue(factory._loads.isEmpty());
+        } finally {
+            repos.close();
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.apache.openjpa.util;
+
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class StripedCacheMapTest {
+    private static final int SEGMENTS = 8;
+    private StripedCacheMap cacheMap;
+    private AtomicInteger removals;
+
+    @Before
+    public void setUpEachTime() {
+        this.removals = new AtomicInteger();
+        this.cacheMap = new StripedCacheMap(false, 1000, SEGMENTS) {
+            @Override
+            protected void entryRemoved(Object key, Object value, boolean expired) {
+                removals.incrementAndGet();
+            }
+        };
+    }
+
+    @Test
+    public void segmentCountIsRoundedToPowerOfTwo() {
+        Assert.assertEquals(SEGMENTS, this.cacheMap.getSegmentCount());
+        Assert.assertEquals(16, new StripedCacheMap(false, 1000, 10).getSegmentCount());
+    }
+
+    @Test
+    public void puttingAndRemovingTest() {
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNull(this.cacheMap.put(i, "v" + i));
+        }
+        Assert.assertEquals(100, this.cacheMap.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals("v" + i, this.cacheMap.get(i));
+            Assert.assertTrue(this.cacheMap.containsKey(i));
+        }
+        Assert.assertEquals("v7", this.cacheMap.put(7, "w7"));
+        Assert.assertEquals("w7", this.cacheMap.remove(7));
+        Assert.assertNull(this.cacheMap.get(7));
+        Assert.assertEquals(99, this.cacheMap.keySet().size());
+        Assert.assertEquals(2, this.removals.get());
+    }
+
+    @Test
+    public void gettingAllTest() {
+        List<Object> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 != 0) {
+                this.cacheMap.put(i, "v" + i);
+            }
+            keys.add(i);
+        }
+        this.cacheMap.put("pinned", "value");
+        this.cacheMap.pin("pinned");
+        keys.add("pinned");
+
+        Map<?, ?> found = this.cacheMap.getAll(keys);
+        Assert.assertEquals(67, found.size());
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals((i % 3 != 0) ? "v" + i : null, found.get(i));
+        }
+        Assert.assertEquals("value", found.get("pinned"));
+        Assert.assertTrue(this.cacheMap.getAll(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void pinningTest() {
+        this.cacheMap.put("pinned", "value");
+        Assert.assertTrue(this.cacheMap.pin("pinned"));
+        Assert.assertFalse(this.cacheMap.pin("absent"));
+        Assert.assertTrue(this.cacheMap.getPinnedKeys().contains("pinned"));
+        Assert.assertTrue(this.cacheMap.getPinnedKeys().contains("absent"));
+
+        // pinned values survive a shrinking cache
+        this.cacheMap.setCacheSize(0);
+        this.cacheMap.setSoftReferenceSize(0);
+        Assert.assertEquals("value", this.cacheMap.get("pinned"));
+        Assert.assertTrue(this.cacheMap.unpin("pinned"));
+        Assert.assertFalse(this.cacheMap.getPinnedKeys().contains("pinned"));
+    }
+
+    @Test
+    public void sizeIsBoundedOverAllSegmentsTest() {
+        this.cacheMap.setCacheSize(64);
+        this.cacheMap.setSoftReferenceSize(0);
+        Assert.assertEquals(64, this.cacheMap.getCacheSize());
+        for (int i = 0; i < 1000; i++) {
+            this.cacheMap.put(i, i);
+        }
+        Assert.assertTrue(this.cacheMap.size() <= 64);
+        Assert.assertEquals(1000 - this.cacheMap.size(), this.removals.get());
+    }
+
+    @Test
+    public void clearingTest() {
+        for (int i = 0; i < 50; i++) {
+            this.cacheMap.put(i, i);
+        }
+        this.cacheMap.pin(3);
+        this.cacheMap.clear();
+        Assert.assertTrue(this.cacheMap.isEmpty());
+        Assert.assertEquals(50, this.removals.get());
+    }
+
+    @Test
+    public void concurrentPuttingTest() throws InterruptedException {
+        final int threads = 8;
+        final int perThread = 100;
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = offset; i < offset + perThread; i++) {
+                    this.cacheMap.put(i, i);
+                    this.cacheMap.get(i);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        Assert.assertEquals(threads * perThread, this.cacheMap.size());
+        for (int i = 0; i < threads * perThread; i++) {
+            Assert.assertEquals(i, this.cacheMap.get(i));
+        }
+    }
+
+    @After
+    public void cleanUpEachTime() {
+        this.cacheMap.clear();
+    }
+}
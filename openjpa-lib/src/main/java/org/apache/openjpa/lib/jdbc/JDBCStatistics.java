@@ -0,0 +1,747 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.jdbc;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.apache.openjpa.lib.util.LatencyHistogram;
+
+/**
+ * Collects execution statistics of the SQL statements issued on the
+ * connections it decorates: the latency, batch sizes and rows fetched of
+ * each shape of statement, and how long connections are waited for and held.
+ * The shape of a statement is its SQL with literal values replaced by
+ * parameter markers, comments removed, whitespace collapsed and IN lists
+ * shortened, so that statements differing only in their literals are
+ * counted together.
+ *
+ * Connections are decorated only while the statistics are enabled, so that
+ * a disabled instance costs nothing. Statistics are kept for at most
+ * {@link #getMaxStatements} shapes of statement; the others are ignored.
+ *
+ * @since 3.2.3
+ */
+public class JDBCStatistics implements ConnectionDecorator {
+
+    public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+    // IN lists of markers, and of row values of markers, in a shape
+    private static final Pattern IN_VALUES = Pattern.compile
+        ("(?i)\\b(IN) ?\\( ?\\?( ?, ?\\?)* ?\\)");
+    private static final Pattern IN_ROWS = Pattern.compile
+        ("(?i)\\b(IN) ?\\( ?(\\( ?\\?( ?, ?\\?)* ?\\))"
+        + "( ?, ?\\( ?\\?( ?, ?\\?)* ?\\))* ?\\)");
+
+    private final ConcurrentHashMap<String, StatementStatistics> _stmnts =
+        new ConcurrentHashMap<>();
+    private final LatencyHistogram _wait = new LatencyHistogram();
+    private final LatencyHistogram _hold = new LatencyHistogram();
+    private final Date _start = new Date();
+    private volatile Date _since = new Date();
+    private volatile boolean _enabled = false;
+    private int _maxStatements = DEFAULT_MAX_STATEMENTS;
+
+    /**
+     * Whether statistics are collected.
+     */
+    public boolean isEnabled() {
+        return _enabled;
+    }
+
+    /**
+     * Whether statistics are collected. Only the connections obtained
+     * while enabled are measured, and only while enabled.
+     */
+    public void setEnabled(boolean enabled) {
+        _enabled = enabled;
+    }
+
+    /**
+     * The maximum number of shapes of statement to keep statistics for.
+     * Defaults to {@value #DEFAULT_MAX_STATEMENTS}.
+     */
+    public int getMaxStatements() {
+        return _maxStatements;
+    }
+
+    /**
+     * The maximum number of shapes of statement to keep statistics for.
+     */
+    public void setMaxStatements(int max) {
+        _maxStatements = max;
+    }
+
+    @Override
+    public Connection decorate(Connection conn) throws SQLException {
+        if (!_enabled)
+            return conn;
+        return new StatisticsConnection(conn);
+    }
+
+    /**
+     * Record the time spent waiting for a connection.
+     */
+    public void recordConnectionWait(long nanos) {
+        if (_enabled)
+            _wait.record(nanos);
+    }
+
+    /**
+     * Latencies of obtaining a connection since last reset.
+     */
+    public LatencyHistogram getConnectionWait() {
+        return _wait;
+    }
+
+    /**
+     * Time connections were held open since last reset.
+     */
+    public LatencyHistogram getConnectionHold() {
+        return _hold;
+    }
+
+    /**
+     * Shapes of the statements executed since last reset.
+     */
+    public Set<String> getStatements() {
+        return Collections.unmodifiableSet(new HashSet<>(_stmnts.keySet()));
+    }
+
+    /**
+     * Statistics of the statements of the given SQL's shape since last
+     * reset, or null if none has been executed.
+     */
+    public StatementStatistics getStatistics(String sql) {
+        if (sql == null)
+            return null;
+        return _stmnts.get(toShape(sql));
+    }
+
+    /**
+     * Date the statistics were created.
+     */
+    public Date start() {
+        return _start;
+    }
+
+    /**
+     * Date the statistics were last reset.
+     */
+    public Date since() {
+        return _since;
+    }
+
+    /**
+     * Clear the statistics. Executions concurrent with the reset may be
+     * partially retained.
+     */
+    public void reset() {
+        _stmnts.clear();
+        _wait.reset();
+        _hold.reset();
+        _since = new Date();
+    }
+
+    /**
+     * Return a copy of the current statistics, unaffected by later
+     * executions and resets.
+     */
+    public Snapshot getSnapshot() {
+        Map<String, StatementStatistics> stmnts = new TreeMap<>();
+        for (StatementStatistics stats : _stmnts.values())
+            stmnts.put(stats.getSQL(), stats.copy());
+        return new Snapshot(_since, new Date(), _wait.copy(), _hold.copy(),
+            stmnts);
+    }
+
+    private StatementStatistics getOrCreate(String sql) {
+        if (sql == null)
+            return null;
+        String shape = toShape(sql);
+        StatementStatistics stats = _stmnts.get(shape);
+        if (stats == null && _stmnts.size() < _maxStatements) {
+            stats = new StatementStatistics(shape);
+            StatementStatistics prev = _stmnts.putIfAbsent(shape, stats);
+            if (prev != null)
+                stats = prev;
+        }
+        return stats;
+    }
+
+    private void recordExecution(String sql, long start, int batch) {
+        if (!_enabled)
+            return;
+        StatementStatistics stats = getOrCreate(sql);
+        if (stats == null)
+            return;
+        stats._latency.record(System.nanoTime() - start);
+        if (batch > 0) {
+            stats._batches.increment();
+            stats._batched.add(batch);
+        }
+    }
+
+    private void recordRows(String sql, int rows) {
+        StatementStatistics stats = getOrCreate(sql);
+        if (stats != null)
+            stats._rows.add(rows);
+    }
+
+    /**
+     * Return the shape of the given SQL: string and numeric literals are
+     * replaced by <code>?</code>, comments are removed, runs of whitespace
+     * are replaced by a single space, and lists of values or parameters
+     * after <code>IN</code> are replaced by their first value, so that
+     * statements differing only in the length of such lists share a shape.
+     */
+    public static String toShape(String sql) {
+        int len = sql.length();
+        StringBuilder buf = new StringBuilder(len);
+        for (int i = 0; i < len; i++) {
+            char c = sql.charAt(i);
+            char next = (i + 1 < len) ? sql.charAt(i + 1) : 0;
+            int end;
+            if (c == '\'') {
+                end = i + 1;
+                while (end < len && (sql.charAt(end) != '\''
+                    || (end + 1 < len && sql.charAt(end + 1) == '\'')))
+                    end += (sql.charAt(end) == '\'') ? 2 : 1;
+                end = Math.min(end + 1, len);
+                buf.append('?');
+            } else if (c >= '0' && c <= '9' && (i == 0
+                || !isIdentifierPart(sql.charAt(i - 1)))) {
+                end = i + 1;
+                while (end < len && (Character.isDigit(sql.charAt(end))
+                    || sql.charAt(end) == '.'))
+                    end++;
+                buf.append('?');
+            } else if (c == '/' && next == '*') {
+                end = sql.indexOf("*/", i + 2);
+                end = (end == -1) ? len : end + 2;
+                appendSpace(buf);
+            } else if (c == '-' && next == '-') {
+                end = sql.indexOf('\n', i + 2);
+                end = (end == -1) ? len : end + 1;
+                appendSpace(buf);
+            } else if (Character.isWhitespace(c)) {
+                end = i + 1;
+                while (end < len && Character.isWhitespace(sql.charAt(end)))
+                    end++;
+                appendSpace(buf);
+            } else {
+                buf.append(c);
+                continue;
+            }
+            i = end - 1;
+        }
+        int trim = buf.length();
+        while (trim > 0 && buf.charAt(trim - 1) == ' ')
+            trim--;
+        buf.setLength(trim);
+
+        String shape = buf.toString();
+        if (shape.indexOf('?') == -1)
+            return shape;
+        shape = IN_ROWS.matcher(shape).replaceAll("$1 ($2)");
+        return IN_VALUES.matcher(shape).replaceAll("$1 (?)");
+    }
+
+    private static void appendSpace(StringBuilder buf) {
+        if (buf.length() > 0 && buf.charAt(buf.length() - 1) != ' ')
+            buf.append(' ');
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$'
+            || c == '.' || c == '"';
+    }
+
+    /**
+     * Execution statistics of one shape of statement.
+     */
+    public static class StatementStatistics implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String _sql;
+        private final LatencyHistogram _latency;
+        private final LongAdder _batches = new LongAdder();
+        private final LongAdder _batched = new LongAdder();
+        private final LongAdder _rows = new LongAdder();
+
+        private StatementStatistics(String sql) {
+            this(sql, new LatencyHistogram());
+        }
+
+        private StatementStatistics(String sql, LatencyHistogram latency) {
+            _sql = sql;
+            _latency = latency;
+        }
+
+        /**
+         * The shape of the statement.
+         */
+        public String getSQL() {
+            return _sql;
+        }
+
+        /**
+         * Number of executions, counting an execution of a batch as one.
+         */
+        public long getExecutionCount() {
+            return _latency.getCount();
+        }
+
+        /**
+         * Latencies of the executions.
+         */
+        public LatencyHistogram getLatency() {
+            return _latency;
+        }
+
+        /**
+         * Number of executions of a batch.
+         */
+        public long getBatchCount() {
+            return _batches.sum();
+        }
+
+        /**
+         * Number of statements executed in batches.
+         */
+        public long getBatchedCount() {
+            return _batched.sum();
+        }
+
+        /**
+         * Mean number of statements in an executed batch, or 0 if no batch
+         * was executed.
+         */
+        public double getMeanBatchSize() {
+            long batches = getBatchCount();
+            return (batches == 0) ? 0 : (double) getBatchedCount() / batches;
+        }
+
+        /**
+         * Number of rows read from the results of the executions.
+         */
+        public long getRowsFetched() {
+            return _rows.sum();
+        }
+
+        private StatementStatistics copy() {
+            StatementStatistics copy = new StatementStatistics(_sql,
+                _latency.copy());
+            copy._batches.add(getBatchCount());
+            copy._batched.add(getBatchedCount());
+            copy._rows.add(getRowsFetched());
+            return copy;
+        }
+
+        @Override
+        public String toString() {
+            return _sql + ": " + _latency + " batches=" + getBatchCount()
+                + " batched=" + getBatchedCount() + " rows="
+                + getRowsFetched();
+        }
+    }
+
+    /**
+     * A copy of the statistics at a point in time.
+     */
+    public static class Snapshot implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Date _since;
+        private final Date _taken;
+        private final LatencyHistogram _wait;
+        private final LatencyHistogram _hold;
+        private final Map<String, StatementStatistics> _stmnts;
+
+        private Snapshot(Date since, Date taken, LatencyHistogram wait,
+            LatencyHistogram hold, Map<String, StatementStatistics> stmnts) {
+            _since = since;
+            _taken = taken;
+            _wait = wait;
+            _hold = hold;
+            _stmnts = Collections.unmodifiableMap(stmnts);
+        }
+
+        /**
+         * Date the statistics were last reset before the snapshot.
+         */
+        public Date since() {
+            return _since;
+        }
+
+        /**
+         * Date the snapshot was taken.
+         */
+        public Date taken() {
+            return _taken;
+        }
+
+        /**
+         * Latencies of obtaining a connection.
+         */
+        public LatencyHistogram getConnectionWait() {
+            return _wait;
+        }
+
+        /**
+         * Time connections were held open.
+         */
+        public LatencyHistogram getConnectionHold() {
+            return _hold;
+        }
+
+        /**
+         * Statistics by shape of statement, sorted by shape.
+         */
+        public Map<String, StatementStatistics> getStatements() {
+            return _stmnts;
+        }
+    }
+
+    /**
+     * Measures the statements created on a connection, and the time it is
+     * held open.
+     */
+    private class StatisticsConnection extends DelegatingConnection {
+
+        private final long _open = System.nanoTime();
+        private boolean _closed = false;
+
+        public StatisticsConnection(Connection conn) {
+            super(conn);
+        }
+
+        @Override
+        protected Statement createStatement(boolean wrap)
+            throws SQLException {
+            return new StatisticsStatement(super.createStatement(false), this);
+        }
+
+        @Override
+        protected Statement createStatement(int rsType, int rsConcur,
+            boolean wrap) throws SQLException {
+            return new StatisticsStatement(super.createStatement
+                (rsType, rsConcur, false), this);
+        }
+
+        @Override
+        protected Statement createStatement(int rsType, int rsConcur,
+            int rsHold, boolean wrap) throws SQLException {
+            return new StatisticsStatement(super.createStatement
+                (rsType, rsConcur, rsHold, false), this);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql,
+            boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, false), this, sql);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql, int rsType,
+            int rsConcur, boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, rsType, rsConcur, false), this, sql);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql, int rsType,
+            int rsConcur, int rsHold, boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, rsType, rsConcur, rsHold, false), this, sql);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql,
+            int autoGeneratedKeys, boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, autoGeneratedKeys, false), this, sql);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql,
+            int[] columnIndexes, boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, columnIndexes, false), this, sql);
+        }
+
+        @Override
+        protected PreparedStatement prepareStatement(String sql,
+            String[] columnNames, boolean wrap) throws SQLException {
+            return new StatisticsPreparedStatement(super.prepareStatement
+                (sql, columnNames, false), this, sql);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                super.close();
+            } finally {
+                if (!_closed) {
+                    _closed = true;
+                    if (_enabled)
+                        _hold.record(System.nanoTime() - _open);
+                }
+            }
+        }
+    }
+
+    /**
+     * Measures the executions of a statement.
+     */
+    private class StatisticsStatement extends DelegatingStatement {
+
+        private String _batchSQL = null;
+        private int _batch = 0;
+
+        public StatisticsStatement(Statement stmnt, Connection conn) {
+            super(stmnt, conn);
+        }
+
+        @Override
+        protected ResultSet executeQuery(String sql, boolean wrap)
+            throws SQLException {
+            long start = System.nanoTime();
+            ResultSet rs = super.executeQuery(sql, false);
+            recordExecution(sql, start, 0);
+            return (rs == null) ? null : new StatisticsResultSet(rs, this, sql);
+        }
+
+        @Override
+        public int executeUpdate(String sql) throws SQLException {
+            long start = System.nanoTime();
+            int count = super.executeUpdate(sql);
+            recordExecution(sql, start, 0);
+            return count;
+        }
+
+        @Override
+        public int executeUpdate(String sql, int i) throws SQLException {
+            long start = System.nanoTime();
+            int count = super.executeUpdate(sql, i);
+            recordExecution(sql, start, 0);
+            return count;
+        }
+
+        @Override
+        public int executeUpdate(String sql, int[] ia) throws SQLException {
+            long start = System.nanoTime();
+            int count = super.executeUpdate(sql, ia);
+            recordExecution(sql, start, 0);
+            return count;
+        }
+
+        @Override
+        public int executeUpdate(String sql, String[] sa)
+            throws SQLException {
+            long start = System.nanoTime();
+            int count = super.executeUpdate(sql, sa);
+            recordExecution(sql, start, 0);
+            return count;
+        }
+
+        @Override
+        public boolean execute(String sql) throws SQLException {
+            long start = System.nanoTime();
+            boolean result = super.execute(sql);
+            recordExecution(sql, start, 0);
+            return result;
+        }
+
+        @Override
+        public boolean execute(String sql, int i) throws SQLException {
+            long start = System.nanoTime();
+            boolean result = super.execute(sql, i);
+            recordExecution(sql, start, 0);
+            return result;
+        }
+
+        @Override
+        public boolean execute(String sql, int[] ia) throws SQLException {
+            long start = System.nanoTime();
+            boolean result = super.execute(sql, ia);
+            recordExecution(sql, start, 0);
+            return result;
+        }
+
+        @Override
+        public boolean execute(String sql, String[] sa) throws SQLException {
+            long start = System.nanoTime();
+            boolean result = super.execute(sql, sa);
+            recordExecution(sql, start, 0);
+            return result;
+        }
+
+        @Override
+        public void addBatch(String sql) throws SQLException {
+            super.addBatch(sql);
+            _batchSQL = sql;
+            _batch++;
+        }
+
+        @Override
+        public void clearBatch() throws SQLException {
+            super.clearBatch();
+            _batch = 0;
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            long start = System.nanoTime();
+            int batch = _batch;
+            _batch = 0;
+            int[] counts = super.executeBatch();
+            recordExecution(_batchSQL, start, batch);
+            return counts;
+        }
+    }
+
+    /**
+     * Measures the executions of a prepared statement.
+     */
+    private class StatisticsPreparedStatement
+        extends DelegatingPreparedStatement {
+
+        private final String _sql;
+        private int _batch = 0;
+
+        public StatisticsPreparedStatement(PreparedStatement stmnt,
+            Connection conn, String sql) {
+            super(stmnt, conn);
+            _sql = sql;
+        }
+
+        @Override
+        protected ResultSet executeQuery(boolean wrap) throws SQLException {
+            long start = System.nanoTime();
+            ResultSet rs = super.executeQuery(false);
+            recordExecution(_sql, start, 0);
+            return (rs == null) ? null
+                : new StatisticsResultSet(rs, this, _sql);
+        }
+
+        @Override
+        public int executeUpdate() throws SQLException {
+            long start = System.nanoTime();
+            int count = super.executeUpdate();
+            recordExecution(_sql, start, 0);
+            return count;
+        }
+
+        @Override
+        public boolean execute() throws SQLException {
+            long start = System.nanoTime();
+            boolean result = super.execute();
+            recordExecution(_sql, start, 0);
+            return result;
+        }
+
+        @Override
+        protected ResultSet getResultSet(boolean wrap) throws SQLException {
+            ResultSet rs = super.getResultSet(false);
+            return (rs == null) ? null
+                : new StatisticsResultSet(rs, this, _sql);
+        }
+
+        @Override
+        public void addBatch() throws SQLException {
+            super.addBatch();
+            _batch++;
+        }
+
+        @Override
+        public void clearBatch() throws SQLException {
+            super.clearBatch();
+            _batch = 0;
+        }
+
+        @Override
+        public int[] executeBatch() throws SQLException {
+            long start = System.nanoTime();
+            int batch = _batch;
+            _batch = 0;
+            int[] counts = super.executeBatch();
+            recordExecution(_sql, start, batch);
+            return counts;
+        }
+    }
+
+    /**
+     * Counts the rows read from a result.
+     */
+    private class StatisticsResultSet extends DelegatingResultSet {
+
+        private final String _sql;
+        private int _rows = 0;
+        private boolean _recorded = false;
+
+        public StatisticsResultSet(ResultSet rs, Statement stmnt, String sql) {
+            super(rs, stmnt);
+            _sql = sql;
+        }
+
+        @Override
+        public boolean next() throws SQLException {
+            if (super.next()) {
+                _rows++;
+                return true;
+            }
+            record();
+            return false;
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                super.close();
+            } finally {
+                record();
+            }
+        }
+
+        private void record() {
+            if (!_recorded) {
+                _recorded = true;
+                if (_enabled)
+                    recordRows(_sql, _rows);
+            }
+        }
+    }
+}
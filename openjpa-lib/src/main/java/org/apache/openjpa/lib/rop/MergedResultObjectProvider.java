@@ -25,6 +25,8 @@ import java.util.Comparator;
  * A result object provider that merges multiple result object provider
  * delegates. Support exists for maintaining ordering of the internally held
  * results, provided that each of the individual results is itself ordered.
+ * Ordered results are merged with a heap of the delegates, reading each
+ * delegate only as far as the merged results are consumed.
  *
  * @author Abe White
  * @author Marc Prud'hommeaux
@@ -44,6 +46,12 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
     private Object _cur = null;
     private int _size = -1;
 
+    // when ordering, a binary heap of the indexes of the rops holding a
+    // value, least value first; -1 size until the first value is read
+    private final int[] _heap;
+    private int _heapSize = -1;
+    private int _last = -1;
+
     /**
      * Constructor. Provide delegates.
      */
@@ -61,6 +69,7 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
         _status = new byte[rops.length];
         _values = (comp == null) ? null : new Object[rops.length];
         _orderValues = (comp == null) ? null : new Object[rops.length];
+        _heap = (comp == null) ? null : new int[rops.length];
     }
 
     @Override
@@ -138,6 +147,8 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     private void clear() {
         _cur = null;
+        _heapSize = -1;
+        _last = -1;
         for (int i = 0; i < _rops.length; i++) {
             _status[i] = OPENED;
             if (_values != null)
@@ -156,67 +167,116 @@ public class MergedResultObjectProvider implements ResultObjectProvider {
 
     @Override
     public boolean next() throws Exception {
-        // initialize all rops with the latest values
-        boolean hasValue = false;
+        if (_comp != null)
+            return nextOrdered();
+
         for (int i = 0; i < _status.length; i++) {
             switch (_status[i]) {
                 case UNOPENED:
-                    // this will only ever be the case if we aren't ordering
                     _rops[i].open();
                     _status[i] = OPENED;
                     // no break
                 case OPENED:
-                    // if this rop has a value, cache it; if we're not ordering,
-                    // then that's the value to return
+                    // if this rop has a value, that's the value to return
                     if (_rops[i].next()) {
-                        if (_comp == null) {
-                            _cur = _rops[i].getResultObject();
-                            return true;
-                        } else {
-                            hasValue = true;
-                            _status[i] = VALUE;
-                            _values[i] = _rops[i].getResultObject();
-                            _orderValues[i] = getOrderingValue(_values[i],
-                                i, _rops[i]);
-                        }
-                    } else
-                        _status[i] = DONE;
-                    break;
-                case VALUE:
-                    // we only use this state when ordering
-                    hasValue = true;
+                        _cur = _rops[i].getResultObject();
+                        return true;
+                    }
+                    _status[i] = DONE;
                     break;
             }
         }
+        // none of our rops have any more values
+        return false;
+    }
 
-        // if we get to this point without a comparator, it means none
-        // of our rops have any more values
-        if (_comp == null || !hasValue)
-            return false;
-
-        // for all the rops with values, find the 'least' one according to
-        // the comparator
-        int least = -1;
-        Object orderVal = null;
-        for (int i = 0; i < _orderValues.length; i++) {
-            if (_status[i] != VALUE)
-                continue;
-            if (least == -1 || _comp.compare(_orderValues[i], orderVal) < 0) {
-                least = i;
-                orderVal = _orderValues[i];
+    /**
+     * Merge the ordered values of the rops. Each rop holds at most one value
+     * that is not consumed yet, so values are pulled from the rops lazily.
+     */
+    private boolean nextOrdered() throws Exception {
+        if (_heapSize == -1) {
+            // initialize all rops with their first values
+            _heapSize = 0;
+            for (int i = 0; i < _status.length; i++) {
+                if (_status[i] == UNOPENED) {
+                    _rops[i].open();
+                    _status[i] = OPENED;
+                }
+                if (_status[i] == OPENED)
+                    advance(i);
             }
+        } else if (_last != -1) {
+            // get the next value of the rop that produced the current one
+            advance(_last);
         }
 
+        _last = -1;
+        if (_heapSize == 0)
+            return false;
+
         // assign the least value to the current one, and clear the cached
-        // value for that rop so that we know to get the next value for
+        // value for that rop so that we know to get its next value for
         // the next comparison
+        int least = _heap[0];
+        if (--_heapSize > 0) {
+            _heap[0] = _heap[_heapSize];
+            siftDown(0);
+        }
         _cur = _values[least];
         _values[least] = null;
         _orderValues[least] = null;
         _status[least] = OPENED;
+        _last = least;
         return true;
     }
 
+    /**
+     * Cache the next value of the given rop, if any, in the heap.
+     */
+    private void advance(int idx) throws Exception {
+        if (!_rops[idx].next()) {
+            _status[idx] = DONE;
+            return;
+        }
+        _status[idx] = VALUE;
+        _values[idx] = _rops[idx].getResultObject();
+        _orderValues[idx] = getOrderingValue(_values[idx], idx, _rops[idx]);
+
+        int pos = _heapSize++;
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (!less(idx, _heap[parent]))
+                break;
+            _heap[pos] = _heap[parent];
+            pos = parent;
+        }
+        _heap[pos] = idx;
+    }
+
+    private void siftDown(int pos) {
+        int idx = _heap[pos];
+        int child;
+        while ((child = 2 * pos + 1) < _heapSize) {
+            if (child + 1 < _heapSize && less(_heap[child + 1], _heap[child]))
+                child++;
+            if (!less(_heap[child], idx))
+                break;
+            _heap[pos] = _heap[child];
+            pos = child;
+        }
+        _heap[pos] = idx;
+    }
+
+    /**
+     * Whether the value of the first rop orders before the value of the
+     * second. Equal values order by rop index, so that the merge is stable.
+     */
+    private boolean less(int idx1, int idx2) {
+        int cmp = _comp.compare(_orderValues[idx1], _orderValues[idx2]);
+        return cmp < 0 || (cmp == 0 && idx1 < idx2);
+    }
+
     @Override
     public Object getResultObject() throws Exception {
         return _cur;
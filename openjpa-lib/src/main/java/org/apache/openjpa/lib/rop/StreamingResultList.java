@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.rop;
+
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * Forward-only result list that does not retain its results. Each result
+ * is read from the provider when it is iterated to and is then forgotten,
+ * so that the memory used is independent of the number of results. The
+ * list can only be traversed once: requesting an index before the current
+ * position throws an {@link UnsupportedOperationException}.
+ *
+ * @since 3.2.3
+ */
+public class StreamingResultList extends AbstractSequentialResultList {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Localizer _loc = Localizer.forPackage
+        (StreamingResultList.class);
+
+    private static final int OPEN = 0;
+    private static final int CLOSED = 1;
+    private static final int FREED = 2;
+
+    private final transient ResultObjectProvider _rop;
+    private int _state = OPEN;
+    private int _size = -1;
+
+    // index of the next result, and whether it has already been read
+    private int _idx = 0;
+    private boolean _pending = false;
+    private Object _next = null;
+
+    public StreamingResultList(ResultObjectProvider rop) {
+        _rop = rop;
+        try {
+            _rop.open();
+        } catch (RuntimeException re) {
+            close();
+            throw re;
+        } catch (Exception e) {
+            close();
+            _rop.handleCheckedException(e);
+        }
+    }
+
+    @Override
+    public boolean isProviderOpen() {
+        return _state == OPEN;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return _state == CLOSED;
+    }
+
+    @Override
+    public void close() {
+        if (_state != CLOSED) {
+            free();
+            _state = CLOSED;
+        }
+    }
+
+    @Override
+    protected ListIterator itr(int index) {
+        if (index < _idx)
+            throw new UnsupportedOperationException(_loc.get("forward-only",
+                index, _idx).getMessage());
+        return new Itr(index);
+    }
+
+    @Override
+    public int size() {
+        assertOpen();
+        if (_size != -1)
+            return _size;
+        if (_state != OPEN)
+            return _idx;
+        try {
+            _size = _rop.size();
+            return _size;
+        } catch (RuntimeException re) {
+            close();
+            throw re;
+        } catch (Exception e) {
+            close();
+            _rop.handleCheckedException(e);
+            return -1;
+        }
+    }
+
+    /**
+     * Read the next result from the provider unless it is already read.
+     */
+    private boolean hasNextResult() {
+        if (_pending)
+            return true;
+        if (_state != OPEN)
+            return false;
+        try {
+            if (!_rop.next()) {
+                free();
+                return false;
+            }
+            _next = _rop.getResultObject();
+            _pending = true;
+            return true;
+        } catch (RuntimeException re) {
+            close();
+            throw re;
+        } catch (Exception e) {
+            close();
+            _rop.handleCheckedException(e);
+            return false;
+        }
+    }
+
+    private Object nextResult() {
+        if (!hasNextResult())
+            throw new NoSuchElementException();
+        Object next = _next;
+        _next = null;
+        _pending = false;
+        _idx++;
+        return next;
+    }
+
+    private void free() {
+        if (_state == OPEN) {
+            try {
+                _rop.close();
+            } catch (Exception e) {
+            }
+            _state = FREED;
+        }
+        _next = null;
+        _pending = false;
+    }
+
+    public Object writeReplace() throws ObjectStreamException {
+        // only the remaining results can be serialized
+        List list = new ArrayList();
+        while (hasNextResult())
+            list.add(nextResult());
+        return list;
+    }
+
+    @Override
+    public int hashCode() {
+        // superclass tries to traverses entire list for hashcode
+        return System.identityHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        // superclass tries to traverse entire list for equality
+        return other == this;
+    }
+
+    @Override
+    public List subList(int fromIndex, int toIndex) {
+        throw new UnsupportedOperationException(_loc.get("forward-only",
+            fromIndex, _idx).getMessage());
+    }
+
+    private class Itr extends AbstractListIterator {
+
+        public Itr(int index) {
+            while (_idx < index)
+                nextResult();
+        }
+
+        @Override
+        public int nextIndex() {
+            return _idx;
+        }
+
+        @Override
+        public int previousIndex() {
+            return _idx - 1;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNextResult();
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return false;
+        }
+
+        @Override
+        public Object previous() {
+            throw new UnsupportedOperationException(_loc.get("forward-only",
+                _idx - 1, _idx).getMessage());
+        }
+
+        @Override
+        public Object next() {
+            return nextResult();
+        }
+    }
+}
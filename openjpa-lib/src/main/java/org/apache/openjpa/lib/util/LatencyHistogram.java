@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.lib.util;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of latencies that can be recorded concurrently without locking.
+ *
+ * Latencies are recorded in microseconds into buckets whose width grows with
+ * the magnitude of the value, in the manner of HdrHistogram: values up to
+ * {@value #SUB_BUCKETS} microseconds are exact, and larger values are
+ * reported with a relative error of at most 1/{@value #SUB_BUCKETS}.
+ * Latencies longer than about nine hours are counted in the last bucket.
+ * Recording a value is a few atomic increments on a fixed size array.
+ *
+ * @since 3.2.3
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BITS = 3;
+    /**
+     * Number of buckets per power of two.
+     */
+    public static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 35;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 2) * SUB_BUCKETS;
+
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder _count = new LongAdder();
+    private final LongAdder _total = new LongAdder();
+    private final AtomicLong _max = new AtomicLong();
+
+    /**
+     * Record the given latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        _counts.incrementAndGet(indexOf(nanos / 1000));
+        _count.increment();
+        _total.add(nanos);
+        long max;
+        while (nanos > (max = _max.get()) && !_max.compareAndSet(max, nanos))
+            ;
+    }
+
+    /**
+     * Number of recorded latencies.
+     */
+    public long getCount() {
+        return _count.sum();
+    }
+
+    /**
+     * Sum of the recorded latencies in nanoseconds.
+     */
+    public long getTotal() {
+        return _total.sum();
+    }
+
+    /**
+     * Mean of the recorded latencies in nanoseconds, or 0 if none is recorded.
+     */
+    public double getMean() {
+        long count = getCount();
+        return (count == 0) ? 0 : (double) getTotal() / count;
+    }
+
+    /**
+     * Longest recorded latency in nanoseconds.
+     */
+    public long getMax() {
+        return _max.get();
+    }
+
+    /**
+     * Latency in nanoseconds that the given percentage of the recorded
+     * latencies do not exceed, within the precision of the buckets, or 0 if
+     * none is recorded.
+     *
+     * @param percentile between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = _counts.get(i);
+            count += counts[i];
+        }
+        if (count == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100)
+            / 100 * count);
+        if (rank == 0)
+            rank = 1;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            // the last bucket has no upper bound
+            if (seen >= rank && i < BUCKETS - 1)
+                return Math.min(highestValueOf(i) * 1000 + 999, getMax());
+        }
+        return getMax();
+    }
+
+    /**
+     * Clear the recorded latencies. Latencies recorded concurrently with the
+     * reset may be partially retained.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            _counts.set(i, 0);
+        _count.reset();
+        _total.reset();
+        _max.set(0);
+    }
+
+    /**
+     * Return a copy of this histogram. Latencies recorded concurrently with
+     * the copy may be partially copied.
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < BUCKETS; i++)
+            copy._counts.set(i, _counts.get(i));
+        copy._count.add(getCount());
+        copy._total.add(getTotal());
+        copy._max.set(getMax());
+        return copy;
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS)
+            return (int) micros;
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Highest value in microseconds counted in the given bucket.
+     */
+    private static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int exponent = index / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long lowest = (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+        return lowest + (1L << (exponent - SUB_BITS)) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount()
+            + " mean=" + Math.round(getMean() / 1000) + "us"
+            + " p50=" + getValueAtPercentile(50) / 1000 + "us"
+            + " p99=" + getValueAtPercentile(99) / 1000 + "us"
+            + " max=" + getMax() / 1000 + "us";
+    }
+}
@@ -51,6 +51,12 @@ public class MultiClassLoader extends ClassLoader {
         AccessController.doPrivileged(
             J2DoPrivHelper.getSystemClassLoaderAction());
 
+    static {
+        // delegating loads lock per class name rather than the whole loader,
+        // so that threads loading different classes do not wait on each other
+        registerAsParallelCapable();
+    }
+
     private List<ClassLoader> _loaders = new ArrayList<>(5);
 
     /**
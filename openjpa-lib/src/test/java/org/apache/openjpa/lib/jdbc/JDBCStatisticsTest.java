@@ -0,0 +1,277 @@
+package org.apache.openjpa.lib.jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class JDBCStatisticsTest {
+
+    @Test
+    public void literalsBecomeMarkers() {
+        Assert.assertEquals("SELECT * FROM T WHERE A = ? AND B = ? AND C = ?",
+            JDBCStatistics.toShape(
+                "SELECT * FROM T WHERE A = 'x' AND B = 12 AND C = 3.25"));
+        Assert.assertEquals("UPDATE T SET NAME = ? WHERE ID = ?",
+            JDBCStatistics.toShape(
+                "UPDATE T SET NAME = 'O''Brien' WHERE ID = 7"));
+        Assert.assertEquals("SELECT ? FROM T WHERE A = ?",
+            JDBCStatistics.toShape("SELECT '' FROM T WHERE A = '1 = 1'"));
+    }
+
+    @Test
+    public void identifiersWithDigitsAreKept() {
+        String sql = "SELECT t0.COL1, T2.X_3, \"A1\" FROM TABLE9 t0, T2 "
+            + "WHERE t0.COL1 = ?";
+        Assert.assertEquals(sql, JDBCStatistics.toShape(sql));
+    }
+
+    @Test
+    public void whitespaceIsCollapsed() {
+        Assert.assertEquals("SELECT A FROM T WHERE B = ?",
+            JDBCStatistics.toShape("  SELECT A\n\tFROM   T\r\n WHERE B = 5 "));
+    }
+
+    @Test
+    public void commentsAreRemoved() {
+        Assert.assertEquals("SELECT A FROM T WHERE B = ?",
+            JDBCStatistics.toShape(
+                "SELECT /* first */ A FROM T -- the table\nWHERE B = 5"));
+        Assert.assertEquals("SELECT A FROM T",
+            JDBCStatistics.toShape("SELECT A FROM T -- trailing"));
+        Assert.assertEquals("SELECT A FROM T",
+            JDBCStatistics.toShape("SELECT A FROM T /* unterminated"));
+    }
+
+    @Test
+    public void commentMarkersInLiteralsAreLiterals() {
+        Assert.assertEquals("SELECT A FROM T WHERE B = ? AND C = ?",
+            JDBCStatistics.toShape(
+                "SELECT A FROM T WHERE B = '-- no' AND C = '/* no */'"));
+    }
+
+    @Test
+    public void inListsShareAShape() {
+        String shape = "SELECT A FROM T WHERE ID IN (?)";
+        Assert.assertEquals(shape, JDBCStatistics.toShape(
+            "SELECT A FROM T WHERE ID IN (?)"));
+        Assert.assertEquals(shape, JDBCStatistics.toShape(
+            "SELECT A FROM T WHERE ID IN (?, ?, ?)"));
+        Assert.assertEquals(shape, JDBCStatistics.toShape(
+            "SELECT A FROM T WHERE ID IN (1,2, 3 , 4)"));
+        Assert.assertEquals("SELECT A FROM T WHERE ID in (?) AND B = ?",
+            JDBCStatistics.toShape(
+                "SELECT A FROM T WHERE ID in ('a', 'b') AND B = 1"));
+    }
+
+    @Test
+    public void rowValueInListsShareAShape() {
+        String shape = "SELECT A FROM T WHERE (X, Y) IN ((?, ?))";
+        Assert.assertEquals(shape, JDBCStatistics.toShape(
+            "SELECT A FROM T WHERE (X, Y) IN ((?, ?))"));
+        Assert.assertEquals(shape, JDBCStatistics.toShape(
+            "SELECT A FROM T WHERE (X, Y) IN ((?, ?), (?, ?), (?, ?))"));
+    }
+
+    @Test
+    public void otherListsAreKept() {
+        String insert = "INSERT INTO T (A, B, C) VALUES (?, ?, ?)";
+        Assert.assertEquals(insert, JDBCStatistics.toShape(insert));
+        String sub = "SELECT A FROM T WHERE ID IN (SELECT B FROM U WHERE C = ?)";
+        Assert.assertEquals(sub, JDBCStatistics.toShape(sub));
+        String func = "SELECT A FROM T WHERE MIN(?, ?) > 0";
+        Assert.assertEquals("SELECT A FROM T WHERE MIN(?, ?) > ?",
+            JDBCStatistics.toShape(func));
+    }
+
+    @Test
+    public void executionsOfAShapeAreCounted() throws SQLException {
+        JDBCStatistics stats = new JDBCStatistics();
+        stats.setEnabled(true);
+        Connection conn = stats.decorate(newConnection(3));
+        Statement stmnt = conn.createStatement();
+        stmnt.executeUpdate("DELETE FROM T WHERE ID = 1");
+        stmnt.executeUpdate("DELETE FROM T WHERE ID = 2");
+        stmnt.execute("DELETE FROM T WHERE ID IN (3, 4)");
+
+        PreparedStatement ps = conn.prepareStatement(
+            "SELECT A FROM T WHERE ID IN (?, ?)");
+        ResultSet rs = ps.executeQuery();
+        while (rs.next())
+            ;
+        rs.close();
+        ps = conn.prepareStatement("SELECT A FROM T WHERE ID IN (?)");
+        rs = ps.executeQuery();
+        rs.next();
+        rs.close();
+
+        Assert.assertEquals(3, stats.getStatements().size());
+        JDBCStatistics.StatementStatistics delete = stats.getStatistics(
+            "DELETE FROM T WHERE ID = 5");
+        Assert.assertEquals(2, delete.getExecutionCount());
+        Assert.assertEquals(1, stats.getStatistics(
+            "DELETE FROM T WHERE ID IN (5, 6, 7)").getExecutionCount());
+        Assert.assertNull(stats.getStatistics("DELETE FROM U WHERE ID = 1"));
+
+        JDBCStatistics.StatementStatistics select = stats.getStatistics(
+            "SELECT A FROM T WHERE ID IN (?)");
+        Assert.assertEquals(2, select.getExecutionCount());
+        Assert.assertEquals(4, select.getRowsFetched());
+        Assert.assertEquals(0, select.getBatchCount());
+
+        conn.close();
+        conn.close();
+        Assert.assertEquals(1, stats.getConnectionHold().getCount());
+    }
+
+    @Test
+    public void batchesAreCounted() throws SQLException {
+        JDBCStatistics stats = new JDBCStatistics();
+        stats.setEnabled(true);
+        Connection conn = stats.decorate(newConnection(0));
+        PreparedStatement ps = conn.prepareStatement(
+            "INSERT INTO T (A) VALUES (?)");
+        for (int i = 0; i < 3; i++)
+            ps.addBatch();
+        ps.executeBatch();
+        ps.addBatch();
+        ps.clearBatch();
+        ps.addBatch();
+        ps.executeBatch();
+
+        Statement stmnt = conn.createStatement();
+        stmnt.addBatch("INSERT INTO U (A) VALUES (1)");
+        stmnt.addBatch("INSERT INTO U (A) VALUES (2)");
+        stmnt.executeBatch();
+
+        JDBCStatistics.StatementStatistics insert = stats.getStatistics(
+            "INSERT INTO T (A) VALUES (?)");
+        Assert.assertEquals(2, insert.getExecutionCount());
+        Assert.assertEquals(2, insert.getBatchCount());
+        Assert.assertEquals(4, insert.getBatchedCount());
+        Assert.assertEquals(2.0, insert.getMeanBatchSize(), 0);
+
+        JDBCStatistics.StatementStatistics other = stats.getStatistics(
+            "INSERT INTO U (A) VALUES (3)");
+        Assert.assertEquals(1, other.getBatchCount());
+        Assert.assertEquals(2, other.getBatchedCount());
+    }
+
+    @Test
+    public void disabledStatisticsDoNotDecorate() throws SQLException {
+        JDBCStatistics stats = new JDBCStatistics();
+        Connection conn = newConnection(0);
+        Assert.assertSame(conn, stats.decorate(conn));
+        stats.recordConnectionWait(1000);
+        Assert.assertEquals(0, stats.getConnectionWait().getCount());
+
+        stats.setEnabled(true);
+        Connection decorated = stats.decorate(conn);
+        stats.setEnabled(false);
+        decorated.createStatement().executeUpdate("DELETE FROM T");
+        Assert.assertTrue(stats.getStatements().isEmpty());
+    }
+
+    @Test
+    public void shapesAreLimited() throws SQLException {
+        JDBCStatistics stats = new JDBCStatistics();
+        stats.setEnabled(true);
+        stats.setMaxStatements(2);
+        Statement stmnt = stats.decorate(newConnection(0)).createStatement();
+        stmnt.executeUpdate("DELETE FROM A");
+        stmnt.executeUpdate("DELETE FROM B");
+        stmnt.executeUpdate("DELETE FROM C");
+        stmnt.executeUpdate("DELETE FROM A WHERE X = 1");
+        Assert.assertEquals(2, stats.getStatements().size());
+        Assert.assertNull(stats.getStatistics("DELETE FROM C"));
+        Assert.assertEquals(1, stats.getStatistics("DELETE FROM A").
+            getExecutionCount());
+    }
+
+    @Test
+    public void snapshotAndReset() throws SQLException {
+        JDBCStatistics stats = new JDBCStatistics();
+        stats.setEnabled(true);
+        Statement stmnt = stats.decorate(newConnection(0)).createStatement();
+        stmnt.executeUpdate("DELETE FROM T WHERE ID = 1");
+        stats.recordConnectionWait(2000);
+
+        JDBCStatistics.Snapshot snapshot = stats.getSnapshot();
+        stmnt.executeUpdate("DELETE FROM T WHERE ID = 2");
+        stats.reset();
+
+        Assert.assertTrue(stats.getStatements().isEmpty());
+        Assert.assertEquals(0, stats.getConnectionWait().getCount());
+        Assert.assertEquals(1, snapshot.getConnectionWait().getCount());
+        Assert.assertEquals(1, snapshot.getStatements().size());
+        Assert.assertEquals(1, snapshot.getStatements().get(
+            "DELETE FROM T WHERE ID = ?").getExecutionCount());
+        Assert.assertFalse(stats.since().before(snapshot.since()));
+    }
+
+    /**
+     * A connection whose queries return the given number of rows.
+     */
+    private static Connection newConnection(final int rows) {
+        final InvocationHandler statements = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method m, Object[] args) {
+                if ("executeQuery".equals(m.getName()))
+                    return newResultSet(rows);
+                if ("executeBatch".equals(m.getName()))
+                    return new int[0];
+                return defaultValue(m);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(
+            JDBCStatisticsTest.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method m, Object[] args) {
+                    if ("createStatement".equals(m.getName()))
+                        return Proxy.newProxyInstance(
+                            getClass().getClassLoader(),
+                            new Class<?>[] { Statement.class }, statements);
+                    if ("prepareStatement".equals(m.getName()))
+                        return Proxy.newProxyInstance(
+                            getClass().getClassLoader(),
+                            new Class<?>[] { PreparedStatement.class },
+                            statements);
+                    return defaultValue(m);
+                }
+            });
+    }
+
+    private static ResultSet newResultSet(final int rows) {
+        return (ResultSet) Proxy.newProxyInstance(
+            JDBCStatisticsTest.class.getClassLoader(),
+            new Class<?>[] { ResultSet.class }, new InvocationHandler() {
+                private int _next = 0;
+
+                @Override
+                public Object invoke(Object proxy, Method m, Object[] args) {
+                    if ("next".equals(m.getName()))
+                        return _next++ < rows;
+                    return defaultValue(m);
+                }
+            });
+    }
+
+    private static Object defaultValue(Method m) {
+        Class<?> type = m.getReturnType();
+        if (type == boolean.class)
+            return false;
+        if (type == int.class)
+            return 0;
+        if (type == long.class)
+            return 0L;
+        return null;
+    }
+}
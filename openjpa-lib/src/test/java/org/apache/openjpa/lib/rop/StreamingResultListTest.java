@@ -0,0 +1,113 @@
+package org.apache.openjpa.lib.rop;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+public class StreamingResultListTest {
+
+    /**
+     * Provider of the given number of results of 1KB each, so that
+     * retaining them all would not fit in the heap of a test run.
+     */
+    private static class LargeResultObjectProvider implements ResultObjectProvider {
+        private final int size;
+        private int index = -1;
+        private boolean open = false;
+
+        LargeResultObjectProvider(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean supportsRandomAccess() {
+            return false;
+        }
+
+        @Override
+        public void open() {
+            this.open = true;
+        }
+
+        @Override
+        public Object getResultObject() {
+            byte[] result = new byte[1024];
+            result[0] = (byte) this.index;
+            return result;
+        }
+
+        @Override
+        public boolean next() {
+            return ++this.index < this.size;
+        }
+
+        @Override
+        public boolean absolute(int pos) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @Override
+        public void reset() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            this.open = false;
+        }
+
+        @Override
+        public void handleCheckedException(Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void scanInConstantMemoryTest() {
+        LargeResultObjectProvider rop = new LargeResultObjectProvider(5_000_000);
+        StreamingResultList list = new StreamingResultList(rop);
+        Assert.assertTrue(rop.open);
+        long count = 0;
+        for (Object result : list) {
+            Assert.assertEquals((byte) count++, ((byte[]) result)[0]);
+        }
+        Assert.assertEquals(5_000_000, count);
+        Assert.assertFalse(rop.open);
+        Assert.assertFalse(list.isProviderOpen());
+        Assert.assertEquals(5_000_000, list.size());
+    }
+
+    @Test
+    public void forwardOnlyTest() {
+        StreamingResultList list = new StreamingResultList(new LargeResultObjectProvider(10));
+        Assert.assertEquals(0, ((byte[]) list.get(0))[0]);
+        Assert.assertEquals(3, ((byte[]) list.get(3))[0]);
+        Iterator itr = list.listIterator(4);
+        Assert.assertEquals(4, ((byte[]) itr.next())[0]);
+        try {
+            list.get(2);
+            Assert.fail();
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(5, ((byte[]) itr.next())[0]);
+    }
+
+    @Test
+    public void closeReleasesProviderTest() {
+        LargeResultObjectProvider rop = new LargeResultObjectProvider(10);
+        StreamingResultList list = new StreamingResultList(rop);
+        Iterator itr = list.iterator();
+        itr.next();
+        list.close();
+        Assert.assertFalse(rop.open);
+        Assert.assertTrue(list.isClosed());
+        Assert.assertFalse(itr.hasNext());
+    }
+}
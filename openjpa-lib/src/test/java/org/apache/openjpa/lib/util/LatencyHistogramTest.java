@@ -0,0 +1,137 @@
+package org.apache.openjpa.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogram() {
+        LatencyHistogram h = new LatencyHistogram();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getTotal());
+        Assert.assertEquals(0, h.getMax());
+        Assert.assertEquals(0, h.getMean(), 0);
+        Assert.assertEquals(0, h.getValueAtPercentile(50));
+        Assert.assertEquals(0, h.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void countTotalMeanAndMax() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1000);
+        h.record(3000);
+        h.record(8000);
+        Assert.assertEquals(3, h.getCount());
+        Assert.assertEquals(12000, h.getTotal());
+        Assert.assertEquals(4000, h.getMean(), 0);
+        Assert.assertEquals(8000, h.getMax());
+    }
+
+    @Test
+    public void smallLatenciesAreExact() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 0; i < LatencyHistogram.SUB_BUCKETS; i++)
+            h.record(i * 1000L);
+        for (int i = 0; i < LatencyHistogram.SUB_BUCKETS; i++) {
+            double percentile = 100.0 * (i + 1) / LatencyHistogram.SUB_BUCKETS;
+            Assert.assertEquals(Math.min(i * 1000L + 999, h.getMax()),
+                h.getValueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    public void percentilesWithinRelativeError() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int i = 1; i <= 10000; i++)
+            h.record(i * 1000L);
+        double error = 1.0 / LatencyHistogram.SUB_BUCKETS;
+        for (double percentile : new double[] { 1, 25, 50, 90, 99, 99.9 }) {
+            long expected = Math.round(percentile * 100) * 1000L;
+            long actual = h.getValueAtPercentile(percentile);
+            Assert.assertTrue(percentile + ": " + actual, actual >= expected);
+            Assert.assertTrue(percentile + ": " + actual,
+                actual <= expected * (1 + error) + 999);
+        }
+        Assert.assertEquals(h.getMax(), h.getValueAtPercentile(100));
+        Assert.assertEquals(10000000, h.getMax());
+    }
+
+    @Test
+    public void percentileIsClampedToRange() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(5000);
+        h.record(50000);
+        Assert.assertEquals(h.getValueAtPercentile(0),
+            h.getValueAtPercentile(-10));
+        Assert.assertEquals(h.getMax(), h.getValueAtPercentile(200));
+    }
+
+    @Test
+    public void negativeLatencyCountsAsZero() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(-5);
+        Assert.assertEquals(1, h.getCount());
+        Assert.assertEquals(0, h.getTotal());
+        Assert.assertEquals(0, h.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void hugeLatencyIsCountedInLastBucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        long day = 24L * 3600 * 1000 * 1000 * 1000;
+        h.record(day);
+        Assert.assertEquals(1, h.getCount());
+        Assert.assertEquals(day, h.getMax());
+        Assert.assertEquals(day, h.getValueAtPercentile(50));
+    }
+
+    @Test
+    public void resetAndCopy() {
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(2000);
+        h.record(4000);
+        LatencyHistogram copy = h.copy();
+        h.reset();
+        Assert.assertEquals(0, h.getCount());
+        Assert.assertEquals(0, h.getMax());
+        Assert.assertEquals(0, h.getValueAtPercentile(100));
+
+        Assert.assertEquals(2, copy.getCount());
+        Assert.assertEquals(6000, copy.getTotal());
+        Assert.assertEquals(4000, copy.getMax());
+        Assert.assertEquals(2999, copy.getValueAtPercentile(50));
+
+        h.record(1000);
+        Assert.assertEquals(2, copy.getCount());
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        final LatencyHistogram h = new LatencyHistogram();
+        final int threads = 4;
+        final int records = 10000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final long latency = (t + 1) * 1000L;
+            Thread worker = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < records; i++)
+                        h.record(latency);
+                }
+            };
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers)
+            worker.join();
+        Assert.assertEquals(threads * records, h.getCount());
+        Assert.assertEquals(10000L * records, h.getTotal());
+        Assert.assertEquals(threads * 1000L, h.getMax());
+        Assert.assertEquals(h.getMax(), h.getValueAtPercentile(100));
+    }
+}
@@ -0,0 +1,17 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+
+/**
+ * Concrete {@link FindAllShape}.
+ */
+@Entity
+public class FindAllCircle extends FindAllShape {
+
+    public FindAllCircle() {
+    }
+
+    public FindAllCircle(long id, int width) {
+        super(id, width);
+    }
+}
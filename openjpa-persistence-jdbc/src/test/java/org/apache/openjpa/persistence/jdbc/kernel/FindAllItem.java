@@ -0,0 +1,32 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Entity with a single column primary key, found in batches.
+ */
+@Entity
+public class FindAllItem {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    public FindAllItem() {
+    }
+
+    public FindAllItem(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
@@ -0,0 +1,42 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+
+/**
+ * Entity with a composite primary key, found in batches.
+ */
+@Entity
+@IdClass(FindAllKeyedId.class)
+public class FindAllKeyed {
+
+    @Id
+    private long region;
+
+    @Id
+    private long code;
+
+    private String name;
+
+    public FindAllKeyed() {
+    }
+
+    public FindAllKeyed(long region, long code, String name) {
+        this.region = region;
+        this.code = code;
+        this.name = name;
+    }
+
+    public long getRegion() {
+        return region;
+    }
+
+    public long getCode() {
+        return code;
+    }
+
+    public String getName() {
+        return name;
+    }
+}
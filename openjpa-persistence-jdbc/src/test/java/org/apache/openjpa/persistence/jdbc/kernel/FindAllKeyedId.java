@@ -0,0 +1,42 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import java.io.Serializable;
+
+/**
+ * Identity class of {@link FindAllKeyed}.
+ */
+public class FindAllKeyedId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public long region;
+    public long code;
+
+    public FindAllKeyedId() {
+    }
+
+    public FindAllKeyedId(long region, long code) {
+        this.region = region;
+        this.code = code;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        if (!(other instanceof FindAllKeyedId))
+            return false;
+        FindAllKeyedId id = (FindAllKeyedId) other;
+        return region == id.region && code == id.code;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (31 * region + code);
+    }
+
+    @Override
+    public String toString() {
+        return region + ":" + code;
+    }
+}
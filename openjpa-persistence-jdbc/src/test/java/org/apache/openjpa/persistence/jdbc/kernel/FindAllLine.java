@@ -0,0 +1,37 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.ManyToOne;
+
+/**
+ * Line of a {@link FindAllOrder}.
+ */
+@Entity
+public class FindAllLine {
+
+    @Id
+    private long id;
+
+    @ManyToOne
+    private FindAllOrder order;
+
+    public FindAllLine() {
+    }
+
+    public FindAllLine(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public FindAllOrder getOrder() {
+        return order;
+    }
+
+    public void setOrder(FindAllOrder order) {
+        this.order = order;
+    }
+}
@@ -0,0 +1,44 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OneToMany;
+
+/**
+ * Entity with an eager to-many relation, found in batches.
+ */
+@Entity
+public class FindAllOrder {
+
+    @Id
+    private long id;
+
+    @OneToMany(mappedBy = "order", fetch = FetchType.EAGER,
+        cascade = CascadeType.ALL)
+    private List<FindAllLine> lines = new ArrayList<>();
+
+    public FindAllOrder() {
+    }
+
+    public FindAllOrder(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public List<FindAllLine> getLines() {
+        return lines;
+    }
+
+    public void addLine(FindAllLine line) {
+        lines.add(line);
+        line.setOrder(this);
+    }
+}
@@ -0,0 +1,33 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Abstract base of a single table hierarchy, found in batches through
+ * the base type.
+ */
+@Entity
+public abstract class FindAllShape {
+
+    @Id
+    private long id;
+
+    private int width;
+
+    protected FindAllShape() {
+    }
+
+    protected FindAllShape(long id, int width) {
+        this.id = id;
+        this.width = width;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+}
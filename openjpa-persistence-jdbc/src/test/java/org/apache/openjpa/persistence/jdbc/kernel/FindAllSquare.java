@@ -0,0 +1,17 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import javax.persistence.Entity;
+
+/**
+ * Concrete {@link FindAllShape}.
+ */
+@Entity
+public class FindAllSquare extends FindAllShape {
+
+    public FindAllSquare() {
+    }
+
+    public FindAllSquare(long id, int width) {
+        super(id, width);
+    }
+}
@@ -0,0 +1,239 @@
+package org.apache.openjpa.persistence.jdbc.kernel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+
+/**
+ * Tests that instances found together that are not managed yet are
+ * initialized from selects by a list of primary keys, rather than from one
+ * select per instance.
+ */
+public class TestFindAllBatching extends SQLListenerTestCase {
+
+    private static final int ITEMS = 10;
+
+    private DBDictionary _dict;
+    private int _inClauseLimit;
+    private int _maxParameterCount;
+    private boolean _rowValues;
+    private EntityManager _em;
+
+    @Override
+    public void setUp() {
+        setUp(FindAllItem.class, FindAllKeyed.class, FindAllShape.class,
+            FindAllCircle.class, FindAllSquare.class, FindAllOrder.class,
+            FindAllLine.class, CLEAR_TABLES);
+
+        _dict = getConfiguration().getDBDictionaryInstance();
+        _inClauseLimit = _dict.inClauseLimit;
+        _maxParameterCount = _dict.maxParameterCount;
+        _rowValues = _dict.supportsRowValueConstructors;
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < ITEMS; i++) {
+            em.persist(new FindAllItem(i, "item" + i));
+            em.persist(new FindAllKeyed(i % 2, i, "keyed" + i));
+            em.persist((i % 2 == 0) ? new FindAllCircle(i, i)
+                : new FindAllSquare(i, i));
+            FindAllOrder order = new FindAllOrder(i);
+            for (int j = 0; j < 3; j++)
+                order.addLine(new FindAllLine(i * 10 + j));
+            em.persist(order);
+        }
+        em.getTransaction().commit();
+        em.close();
+
+        _em = emf.createEntityManager();
+        resetSQL();
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        closeEM(_em);
+        _dict.inClauseLimit = _inClauseLimit;
+        _dict.maxParameterCount = _maxParameterCount;
+        _dict.supportsRowValueConstructors = _rowValues;
+        super.tearDown();
+    }
+
+    /**
+     * Find the instances of the given type with the given keys.
+     */
+    private Object[] findAll(Class<?> type, Object... keys) {
+        Broker broker = JPAFacadeHelper.toBroker(_em);
+        List<Object> oids = new ArrayList<>(keys.length);
+        for (Object key : keys)
+            oids.add(broker.newObjectId(type, key));
+        return broker.findAll(oids, true, null);
+    }
+
+    private static Object[] ids(int count) {
+        Object[] ids = new Object[count];
+        for (int i = 0; i < count; i++)
+            ids[i] = (long) i;
+        return ids;
+    }
+
+    /**
+     * A regular expression of a select of the given table restricted to
+     * the given number of single column keys.
+     */
+    private static String selectIn(String table, int keys) {
+        StringBuilder regex = new StringBuilder("(?i)SELECT .* FROM ")
+            .append(table).append(" .*WHERE .*IN \\(\\?");
+        for (int i = 1; i < keys; i++)
+            regex.append(", \\?");
+        return regex.append("\\).*").toString();
+    }
+
+    private static String selectFrom(String table) {
+        return "(?i)SELECT .* FROM " + table + " .*";
+    }
+
+    public void testSingleSelectForAllIds() {
+        Object[] items = findAll(FindAllItem.class, ids(ITEMS));
+        for (int i = 0; i < ITEMS; i++)
+            assertEquals("item" + i, ((FindAllItem) items[i]).getName());
+        assertEquals(1, countSQL(selectFrom("FindAllItem")));
+        assertSQL(selectIn("FindAllItem", ITEMS));
+    }
+
+    public void testChunksAtInClauseLimit() {
+        _dict.inClauseLimit = 4;
+        _dict.maxParameterCount = -1;
+        Object[] items = findAll(FindAllItem.class, ids(ITEMS));
+        for (int i = 0; i < ITEMS; i++)
+            assertEquals(i, ((FindAllItem) items[i]).getId());
+        assertEquals(3, countSQL(selectFrom("FindAllItem")));
+        assertEquals(2, countSQL(selectIn("FindAllItem", 4)));
+        assertEquals(1, countSQL(selectIn("FindAllItem", 2)));
+    }
+
+    public void testChunksAtMaxParameterCount() {
+        // half of the parameters are left to the rest of the select
+        _dict.inClauseLimit = -1;
+        _dict.maxParameterCount = 10;
+        Object[] items = findAll(FindAllItem.class, ids(ITEMS));
+        for (int i = 0; i < ITEMS; i++)
+            assertEquals(i, ((FindAllItem) items[i]).getId());
+        assertEquals(2, countSQL(selectIn("FindAllItem", 5)));
+        assertEquals(2, countSQL(selectFrom("FindAllItem")));
+    }
+
+    public void testMissingIdsAreNotFound() {
+        Object[] items = findAll(FindAllItem.class, 1L, 100L, 2L, 101L);
+        assertEquals(1, ((FindAllItem) items[0]).getId());
+        assertNull(items[1]);
+        assertEquals(2, ((FindAllItem) items[2]).getId());
+        assertNull(items[3]);
+
+        // the missing instances are not selected again one by one
+        assertEquals(1, countSQL(selectFrom("FindAllItem")));
+        assertSQL(selectIn("FindAllItem", 4));
+    }
+
+    private Object[] keys() {
+        Object[] keys = new Object[6];
+        for (int i = 0; i < keys.length; i++)
+            keys[i] = new FindAllKeyedId(i % 2, i);
+        return keys;
+    }
+
+    /**
+     * A regular expression for the primary key columns of FindAllKeyed, in
+     * the order of the mapping, each followed by the given suffix and
+     * separated by the given separator.
+     */
+    private String keyColumns(String separator, String suffix) {
+        Column[] cols = getMapping(FindAllKeyed.class).getPrimaryKeyColumns();
+        StringBuilder regex = new StringBuilder();
+        for (Column col : cols) {
+            if (regex.length() > 0)
+                regex.append(separator);
+            regex.append("\\w+\\.").append(col.getIdentifier().getName())
+                .append(suffix);
+        }
+        return regex.toString();
+    }
+
+    /**
+     * A regular expression for the comparison of the primary key columns of
+     * FindAllKeyed with the parameters of one key.
+     */
+    private String keyMatch() {
+        return "\\(" + keyColumns(" AND ", " = \\?") + "\\)";
+    }
+
+    private void assertKeyed(Object[] keyed) {
+        for (int i = 0; i < keyed.length; i++)
+            assertEquals("keyed" + i, ((FindAllKeyed) keyed[i]).getName());
+    }
+
+    public void testCompositeKeys() {
+        assertKeyed(findAll(FindAllKeyed.class, keys()));
+        assertEquals(1, countSQL(selectFrom("FindAllKeyed")));
+        if (_dict.supportsRowValueConstructors)
+            assertSQL("(?i).*\\(" + keyColumns(", ", "") + "\\) IN "
+                + "\\(\\(\\?, \\?\\)(, \\(\\?, \\?\\)){5}\\).*");
+        else
+            assertSQL("(?i).*\\(" + keyMatch() + "( OR " + keyMatch()
+                + "){5}\\).*");
+    }
+
+    public void testCompositeKeysWithoutRowValues() {
+        _dict.supportsRowValueConstructors = false;
+        _dict.inClauseLimit = 2;
+        assertKeyed(findAll(FindAllKeyed.class, keys()));
+
+        // the IN clause limit does not apply to a disjunction
+        assertEquals(1, countSQL(selectFrom("FindAllKeyed")));
+        assertNotSQL("(?i).* IN \\(.*");
+        assertSQL("(?i).*" + keyMatch() + " OR .*");
+    }
+
+    public void testCompositeKeysChunkAtMaxParameterCount() {
+        // two parameters per key and half of the parameters left to the
+        // rest of the select
+        _dict.maxParameterCount = 8;
+        assertKeyed(findAll(FindAllKeyed.class, keys()));
+        assertEquals(3, countSQL(selectFrom("FindAllKeyed")));
+    }
+
+    public void testAbstractBaseIsSelectedOnce() {
+        Object[] shapes = findAll(FindAllShape.class, ids(4));
+        for (int i = 0; i < shapes.length; i++) {
+            assertEquals((i % 2 == 0) ? FindAllCircle.class
+                : FindAllSquare.class, shapes[i].getClass());
+            assertEquals(i, ((FindAllShape) shapes[i]).getWidth());
+        }
+        assertEquals(1, countSQL(selectFrom("FindAllShape")));
+        assertSQL(selectIn("FindAllShape", 4));
+    }
+
+    public void testEagerToManyFieldsAreLoadedForTheBatch() {
+        Object[] orders = findAll(FindAllOrder.class, ids(4));
+        assertSQL(selectIn("FindAllOrder", 4));
+
+        // the lines are selected once, for the orders of the batch only
+        assertEquals(1, countSQL("(?i).*FindAllLine.*"));
+        assertSQL("(?i).*FindAllLine.* IN \\(\\?, \\?, \\?, \\?\\).*");
+
+        resetSQL();
+        for (int i = 0; i < orders.length; i++) {
+            List<FindAllLine> lines = ((FindAllOrder) orders[i]).getLines();
+            assertEquals(3, lines.size());
+            for (FindAllLine line : lines)
+                assertEquals(i, line.getId() / 10);
+        }
+        assertTrue(sql.isEmpty());
+    }
+}
@@ -0,0 +1,117 @@
+package org.apache.openjpa.persistence.jdbc.meta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.jdbc.meta.FieldMapping;
+import org.apache.openjpa.jdbc.schema.Column;
+import org.apache.openjpa.meta.MetaDataModes;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllCircle;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllItem;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllKeyed;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllLine;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllOrder;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllShape;
+import org.apache.openjpa.persistence.jdbc.kernel.FindAllSquare;
+import org.apache.openjpa.persistence.test.SingleEMFTestCase;
+
+/**
+ * Preloads the metadata on several threads, and compares the mappings with
+ * the ones preloaded on one thread.
+ */
+public class TestParallelPreload extends SingleEMFTestCase {
+
+    private static final Class<?>[] TYPES = { FindAllItem.class,
+        FindAllKeyed.class, FindAllSquare.class, FindAllCircle.class,
+        FindAllShape.class, FindAllLine.class, FindAllOrder.class };
+
+    @Override
+    public void setUp() {
+        setUp(props(4));
+    }
+
+    private static Object[] props(int parallelism) {
+        List<Object> props = new ArrayList<>(Arrays.asList(TYPES));
+        props.add(CLEAR_TABLES);
+        props.add("openjpa.MetaDataRepository");
+        props.add("Preload=true,PreloadParallelism=" + parallelism);
+        return props.toArray();
+    }
+
+    public void testMappingsMatchSequentialPreload() {
+        OpenJPAEntityManagerFactorySPI sequential = createEMF(props(1));
+        try {
+            for (Class<?> type : TYPES) {
+                ClassMapping expected = (ClassMapping) sequential.
+                    getConfiguration().getMetaDataRepositoryInstance().
+                    getMetaData(type, getClass().getClassLoader(), true);
+                ClassMapping mapping = getMapping(type);
+                assertMapping(expected, mapping);
+            }
+        } finally {
+            closeEMF(sequential);
+        }
+    }
+
+    private static void assertMapping(ClassMapping expected,
+        ClassMapping mapping) {
+        String type = mapping.getDescribedType().getSimpleName();
+        int init = MetaDataModes.MODE_META | MetaDataModes.MODE_MAPPING
+            | MetaDataModes.MODE_MAPPING_INIT;
+        assertEquals(type, init, mapping.getResolve() & init);
+        assertEquals(type, expected.getPCSuperclass(),
+            mapping.getPCSuperclass());
+        assertEquals(type, expected.getTable().getIdentifier().getName(),
+            mapping.getTable().getIdentifier().getName());
+        assertEquals(type, expected.getStrategy().getClass(),
+            mapping.getStrategy().getClass());
+        assertEquals(type, names(expected.getPrimaryKeyColumns()),
+            names(mapping.getPrimaryKeyColumns()));
+
+        FieldMapping[] fields = mapping.getFieldMappings();
+        FieldMapping[] expectedFields = expected.getFieldMappings();
+        assertEquals(type, expectedFields.length, fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            String field = type + "." + fields[i].getName();
+            assertEquals(field, expectedFields[i].getName(),
+                fields[i].getName());
+            assertEquals(field, expectedFields[i].getStrategy().getClass(),
+                fields[i].getStrategy().getClass());
+            assertEquals(field, names(expectedFields[i].getColumns()),
+                names(fields[i].getColumns()));
+        }
+    }
+
+    private static List<String> names(Column[] cols) {
+        List<String> names = new ArrayList<>(cols.length);
+        for (Column col : cols)
+            names.add(col.getIdentifier().getName());
+        return names;
+    }
+
+    public void testPreloadedMappingsWork() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            FindAllOrder order = new FindAllOrder(1);
+            order.addLine(new FindAllLine(10));
+            order.addLine(new FindAllLine(11));
+            em.persist(order);
+            em.persist(new FindAllCircle(2, 3));
+            em.getTransaction().commit();
+            em.clear();
+
+            assertEquals(2, em.find(FindAllOrder.class, 1L).getLines().size());
+            assertEquals(3, em.find(FindAllShape.class, 2L).getWidth());
+            assertEquals(1L, em.createQuery("select count(s) from "
+                + "FindAllShape s", Long.class).getSingleResult().longValue());
+        } finally {
+            closeEM(em);
+        }
+    }
+}
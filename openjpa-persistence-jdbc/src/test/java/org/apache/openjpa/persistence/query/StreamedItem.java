@@ -0,0 +1,36 @@
+package org.apache.openjpa.persistence.query;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Entity read by streamed queries.
+ */
+@Entity
+public class StreamedItem {
+
+    @Id
+    private long id;
+
+    private String name;
+
+    public StreamedItem() {
+    }
+
+    public StreamedItem(long id, String name) {
+        this.id = id;
+        this.name = name;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
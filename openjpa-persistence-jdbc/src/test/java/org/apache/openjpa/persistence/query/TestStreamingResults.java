@@ -0,0 +1,140 @@
+package org.apache.openjpa.persistence.query;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.kernel.Broker;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.JPAFacadeHelper;
+import org.apache.openjpa.persistence.OpenJPAQuery;
+import org.apache.openjpa.persistence.test.SingleEMFTestCase;
+
+/**
+ * Tests that streamed query results release each instance from the
+ * persistence context once the stream moves past it, and free their
+ * datastore resources when the stream is closed.
+ */
+public class TestStreamingResults extends SingleEMFTestCase {
+
+    private static final int ROWS = 50;
+    private static final String JPQL =
+        "select i from StreamedItem i order by i.id";
+
+    private final AtomicInteger _connects = new AtomicInteger();
+    private final AtomicInteger _closes = new AtomicInteger();
+
+    @Override
+    public void setUp() {
+        setUp(StreamedItem.class, CLEAR_TABLES,
+            "openjpa.ConnectionRetainMode", "on-demand",
+            "openjpa.jdbc.JDBCListeners", new JDBCListener[] {
+                new ConnectionListener() });
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < ROWS; i++)
+            em.persist(new StreamedItem(i, "item" + i));
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    /**
+     * Counts the connections obtained and closed.
+     */
+    private class ConnectionListener extends AbstractJDBCListener {
+        @Override
+        public void afterConnect(JDBCEvent event) {
+            _connects.incrementAndGet();
+        }
+
+        @Override
+        public void beforeClose(JDBCEvent event) {
+            _closes.incrementAndGet();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Stream<StreamedItem> stream(EntityManager em) {
+        return ((OpenJPAQuery<StreamedItem>) em.createQuery(JPQL,
+            StreamedItem.class)).getStreamingResults();
+    }
+
+    public void testInstancesAreReleased() {
+        EntityManager em = emf.createEntityManager();
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        int count = 0;
+        try (Stream<StreamedItem> results = stream(em)) {
+            for (Iterator<StreamedItem> itr = results.iterator();
+                itr.hasNext();) {
+                StreamedItem item = itr.next();
+                assertEquals(count, item.getId());
+                assertTrue(em.contains(item));
+                // only the current result is managed
+                assertEquals(1, broker.getManagedObjects().size());
+                count++;
+            }
+        }
+        assertEquals(ROWS, count);
+        assertTrue(broker.getManagedObjects().isEmpty());
+        em.close();
+    }
+
+    public void testDirtyInstancesStayManaged() {
+        EntityManager em = emf.createEntityManager();
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        em.getTransaction().begin();
+        StreamedItem dirty = null;
+        try (Stream<StreamedItem> results = stream(em)) {
+            for (Iterator<StreamedItem> itr = results.iterator();
+                itr.hasNext();) {
+                StreamedItem item = itr.next();
+                if (item.getId() == 10) {
+                    item.setName("changed");
+                    dirty = item;
+                }
+            }
+        }
+        assertNotNull(dirty);
+        assertEquals(1, broker.getManagedObjects().size());
+        assertTrue(em.contains(dirty));
+        em.getTransaction().commit();
+        em.close();
+
+        em = emf.createEntityManager();
+        assertEquals("changed", em.find(StreamedItem.class, 10L).getName());
+        em.close();
+    }
+
+    public void testEarlyCloseFreesResults() {
+        EntityManager em = emf.createEntityManager();
+        Broker broker = JPAFacadeHelper.toBroker(em);
+        _connects.set(0);
+        _closes.set(0);
+
+        Stream<StreamedItem> results = stream(em);
+        Iterator<StreamedItem> itr = results.iterator();
+        for (int i = 0; i < 3; i++)
+            assertEquals(i, itr.next().getId());
+        // the open results hold the connection
+        assertTrue(_connects.get() > 0);
+        assertEquals(_connects.get() - 1, _closes.get());
+        assertEquals(1, broker.getManagedObjects().size());
+
+        results.close();
+        // closing the stream closes the results and returns the connection
+        assertEquals(_connects.get(), _closes.get());
+        assertTrue(broker.getManagedObjects().isEmpty());
+        try {
+            itr.next();
+            fail("read from closed results");
+        } catch (RuntimeException re) {
+            // expected
+        }
+        em.close();
+    }
+}
@@ -0,0 +1,132 @@
+package org.apache.openjpa.persistence.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Persistence;
+
+import junit.framework.TestCase;
+
+import org.apache.openjpa.enhance.PCEnhancerAgent;
+import org.apache.openjpa.lib.log.NoneLogFactory;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+
+/**
+ * Base test case that creates entity manager factories for the persistence
+ * unit in <code>META-INF/persistence.xml</code> of the test resources.
+ *
+ * The connection is taken from the <code>openjpa.ConnectionDriverName</code>
+ * and <code>openjpa.ConnectionURL</code> system properties if they are set,
+ * and otherwise defaults to an in-memory Derby database.
+ */
+public abstract class AbstractPersistenceTestCase extends TestCase {
+
+    static {
+        // the test entities are enhanced by the dynamic agent, which has to
+        // be installed before the tests load them to enhance them as they
+        // are defined
+        if (Boolean.parseBoolean(System.getProperty(
+            "openjpa.DynamicEnhancementAgent", "true")))
+            PCEnhancerAgent.loadDynamicAgent(
+                NoneLogFactory.NoneLog.getInstance());
+    }
+
+    /**
+     * Marker argument to {@link #createEMF} that clears the tables of the
+     * listed types before the test.
+     */
+    public static final Object CLEAR_TABLES = new Object();
+
+    public static final String DEFAULT_DRIVER =
+        "org.apache.derby.jdbc.EmbeddedDriver";
+    public static final String DEFAULT_URL =
+        "jdbc:derby:memory:openjpa-test-database;create=true";
+
+    /**
+     * The name of the persistence unit the factories are created for.
+     */
+    protected String getPersistenceUnitName() {
+        return "test";
+    }
+
+    /**
+     * Create an entity manager factory for the default persistence unit.
+     *
+     * @param props entity classes, {@link #CLEAR_TABLES}, and pairs of
+     * property names and values
+     */
+    protected OpenJPAEntityManagerFactorySPI createEMF(Object... props) {
+        return createNamedEMF(getPersistenceUnitName(), props);
+    }
+
+    /**
+     * Create an entity manager factory for the given persistence unit.
+     */
+    protected OpenJPAEntityManagerFactorySPI createNamedEMF(String pu,
+        Object... props) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("openjpa.ConnectionDriverName",
+            System.getProperty("openjpa.ConnectionDriverName", DEFAULT_DRIVER));
+        map.put("openjpa.ConnectionURL",
+            System.getProperty("openjpa.ConnectionURL", DEFAULT_URL));
+        String user = System.getProperty("openjpa.ConnectionUserName");
+        if (user != null) {
+            map.put("openjpa.ConnectionUserName", user);
+            map.put("openjpa.ConnectionPassword",
+                System.getProperty("openjpa.ConnectionPassword", ""));
+        }
+        map.put("openjpa.jdbc.SynchronizeMappings",
+            "buildSchema(ForeignKeys=true)");
+        map.put("openjpa.Log", System.getProperty("openjpa.Log",
+            "DefaultLevel=WARN"));
+
+        List<Class<?>> types = new ArrayList<>();
+        for (int i = 0; props != null && i < props.length; i++) {
+            if (props[i] == CLEAR_TABLES) {
+                map.put("openjpa.jdbc.SynchronizeMappings",
+                    "buildSchema(ForeignKeys=true,"
+                    + "SchemaAction='add,deleteTableContents')");
+            } else if (props[i] instanceof Class) {
+                types.add((Class<?>) props[i]);
+            } else if (props[i] != null) {
+                if (i + 1 == props.length)
+                    throw new IllegalArgumentException("Property "
+                        + props[i] + " has no value");
+                map.put((String) props[i], props[++i]);
+            }
+        }
+        if (!types.isEmpty()) {
+            StringBuilder buf = new StringBuilder();
+            for (Class<?> type : types) {
+                if (buf.length() > 0)
+                    buf.append(';');
+                buf.append(type.getName());
+            }
+            map.put("openjpa.MetaDataFactory", "jpa(Types=" + buf + ")");
+        }
+        return (OpenJPAEntityManagerFactorySPI) Persistence.
+            createEntityManagerFactory(pu, map);
+    }
+
+    /**
+     * Roll back any active transaction and close the given entity manager.
+     */
+    protected void closeEM(EntityManager em) {
+        if (em == null || !em.isOpen())
+            return;
+        if (em.getTransaction().isActive())
+            em.getTransaction().rollback();
+        em.close();
+    }
+
+    /**
+     * Close the given factory if it is open.
+     */
+    protected void closeEMF(OpenJPAEntityManagerFactorySPI emf) {
+        if (emf != null && emf.isOpen())
+            emf.close();
+    }
+}
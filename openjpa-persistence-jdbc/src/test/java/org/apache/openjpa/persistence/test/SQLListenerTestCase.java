@@ -0,0 +1,89 @@
+package org.apache.openjpa.persistence.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+
+/**
+ * Test case that records the SQL executed by its factory.
+ */
+public abstract class SQLListenerTestCase extends SingleEMFTestCase {
+
+    protected final List<String> sql =
+        Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    protected void setUp(Object... props) {
+        Object[] copy = new Object[props.length + 2];
+        System.arraycopy(props, 0, copy, 0, props.length);
+        copy[props.length] = "openjpa.jdbc.JDBCListeners";
+        copy[props.length + 1] = new JDBCListener[] { new Listener(sql) };
+        super.setUp(copy);
+    }
+
+    /**
+     * Confirm that the executed SQL contains a statement matching the given
+     * regular expression.
+     */
+    public void assertSQL(String regex) {
+        for (String s : snapshot())
+            if (s.matches(regex))
+                return;
+        fail("Expected regular expression <" + regex + "> to match one of "
+            + snapshot());
+    }
+
+    /**
+     * Confirm that no executed SQL statement matches the given regular
+     * expression.
+     */
+    public void assertNotSQL(String regex) {
+        for (String s : snapshot())
+            if (s.matches(regex))
+                fail("Regular expression <" + regex + "> matched " + s);
+    }
+
+    /**
+     * The number of executed statements that match the given regular
+     * expression.
+     */
+    public int countSQL(String regex) {
+        int count = 0;
+        for (String s : snapshot())
+            if (s.matches(regex))
+                count++;
+        return count;
+    }
+
+    public void resetSQL() {
+        sql.clear();
+    }
+
+    private List<String> snapshot() {
+        synchronized (sql) {
+            return new ArrayList<>(sql);
+        }
+    }
+
+    /**
+     * Listener that appends the SQL of each executed statement to a list.
+     */
+    public static class Listener extends AbstractJDBCListener {
+
+        private final List<String> _sql;
+
+        public Listener(List<String> sql) {
+            _sql = sql;
+        }
+
+        @Override
+        public void beforeExecuteStatement(JDBCEvent event) {
+            if (event.getSQL() != null)
+                _sql.add(event.getSQL());
+        }
+    }
+}
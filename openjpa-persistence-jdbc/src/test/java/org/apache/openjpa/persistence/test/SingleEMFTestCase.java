@@ -0,0 +1,49 @@
+package org.apache.openjpa.persistence.test;
+
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.jdbc.meta.ClassMapping;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactorySPI;
+
+/**
+ * Test case that uses a single entity manager factory per test method.
+ * Subclasses call {@link #setUp(Object...)} with the entity types and
+ * properties of the factory.
+ */
+public abstract class SingleEMFTestCase extends AbstractPersistenceTestCase {
+
+    protected OpenJPAEntityManagerFactorySPI emf;
+
+    @Override
+    public void setUp() throws Exception {
+        setUp(new Object[0]);
+    }
+
+    /**
+     * Create the factory of this test.
+     *
+     * @see AbstractPersistenceTestCase#createEMF
+     */
+    protected void setUp(Object... props) {
+        emf = createEMF(props);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        closeEMF(emf);
+        emf = null;
+        super.tearDown();
+    }
+
+    /**
+     * The mapping of the given type in the factory of this test.
+     */
+    protected ClassMapping getMapping(Class<?> type) {
+        return (ClassMapping) emf.getConfiguration().
+            getMetaDataRepositoryInstance().getMetaData(type,
+            getClass().getClassLoader(), true);
+    }
+
+    protected JDBCConfiguration getConfiguration() {
+        return (JDBCConfiguration) emf.getConfiguration();
+    }
+}
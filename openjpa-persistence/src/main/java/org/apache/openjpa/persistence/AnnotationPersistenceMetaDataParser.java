@@ -255,7 +255,8 @@ public class AnnotationPersistenceMetaDataParser
     private int _mode = MODE_NONE;
 
     // packages and their parse modes
-    private final Map<Package, Integer> _pkgs = new HashMap<>();
+    private Map<Package, Integer> _pkgs = new HashMap<>();
+    private boolean _sharedPkgs = false;
 
     // the class we were invoked to parse
     protected Class<?> _cls = null;
@@ -401,6 +402,19 @@ public class AnnotationPersistenceMetaDataParser
         return isMappingMode() || (_override && isMetaDataMode());
     }
 
+    /**
+     * Record the modes in which packages have been parsed in the given map,
+     * shared with the other parsers of the repository. Package annotations
+     * are then parsed with the repository locked, so that parsers loading
+     * classes concurrently parse each package once.
+     *
+     * @since 3.2.3
+     */
+    public void setPackageModes(Map<Package, Integer> pkgs) {
+        _pkgs = pkgs;
+        _sharedPkgs = true;
+    }
+
     /**
      * Clear caches.
      */
@@ -449,7 +463,22 @@ public class AnnotationPersistenceMetaDataParser
         Package pkg = _cls.getPackage();
         if (pkg == null)
             return;
+        if (!_sharedPkgs) {
+            parsePackageAnnotations(pkg);
+            return;
+        }
 
+        // record the package as parsed right away for the other parsers
+        synchronized (getRepository()) {
+            parsePackageAnnotations(pkg);
+            addSourceMode(pkg, _mode);
+        }
+    }
+
+    /**
+     * Parse information in the annotations of the given package.
+     */
+    private void parsePackageAnnotations(Package pkg) {
         int pkgMode = getSourceMode(pkg);
         if (pkgMode == 0 && _log.isTraceEnabled())
             _log.trace(_loc.get("parse-package", _cls.getName()));
@@ -533,12 +562,7 @@ public class AnnotationPersistenceMetaDataParser
      * Add to the source mode for the given package.
      */
     private void addSourceMode(Package pkg, int mode) {
-        Integer num = _pkgs.get(pkg);
-        if (num == null)
-            num = mode;
-        else
-            num = num | mode;
-        _pkgs.put(pkg, num);
+        _pkgs.merge(pkg, mode, (num, add) -> num | add);
     }
 
     /**
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.Query;
@@ -281,4 +282,23 @@ public interface OpenJPAQuery<X> extends TypedQuery<X> {
      * @since 2.0.0
      */
     Set<String> getSupportedHints();
+
+    /**
+     * Execute the query and stream its results from the datastore instead of
+     * materializing them. Results are read in batches of the fetch batch
+     * size, or of 1000 results if no batch size is set, and each result
+     * that is neither new nor dirty is released from the persistence
+     * context as soon as the next result is read. Memory use therefore
+     * does not depend on the number of results, but a result is no longer
+     * managed once the stream has moved past it: changes to it are not
+     * flushed, and related instances loaded with it stay managed.
+     * The stream holds datastore resources until it is consumed or closed,
+     * so use it in a try-with-resources block. Queries that cannot stream
+     * their results return the stream of {@link #getResultStream}.
+     *
+     * @since 3.2.3
+     */
+    default Stream<X> getStreamingResults() {
+        return getResultStream();
+    }
 }
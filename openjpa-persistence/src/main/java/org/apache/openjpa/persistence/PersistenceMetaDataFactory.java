@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Embeddable;
 import javax.persistence.Entity;
@@ -83,6 +84,11 @@ public class PersistenceMetaDataFactory
     private final PersistenceMetaDataDefaults _def =
         new PersistenceMetaDataDefaults();
     private AnnotationPersistenceMetaDataParser _annoParser = null;
+    // parsers of the threads loading concurrently, and the parse modes of
+    // the packages that all our parsers share
+    private final ThreadLocal<AnnotationPersistenceMetaDataParser> _threadParser =
+        new ThreadLocal<>();
+    private final Map<Package, Integer> _pkgModes = new ConcurrentHashMap<>();
     private AnnotationPersistenceXMLMetaDataParser _annoXMLParser = null;
     private XMLPersistenceMetaDataParser _xmlParser = null;
     private Map<URL, Set<String>> _xml = null; // xml rsrc -> class names
@@ -112,13 +118,24 @@ public class PersistenceMetaDataFactory
      * Return metadata parser, creating it if it does not already exist.
      */
     public AnnotationPersistenceMetaDataParser getAnnotationParser() {
-        if (_annoParser == null) {
-            _annoParser = newAnnotationParser();
-            _annoParser.setRepository(repos);
-        }
+        AnnotationPersistenceMetaDataParser parser = _threadParser.get();
+        if (parser != null)
+            return parser;
+        if (_annoParser == null)
+            _annoParser = newLoadingAnnotationParser();
         return _annoParser;
     }
 
+    /**
+     * Create a new metadata parser for loading into our repository.
+     */
+    private AnnotationPersistenceMetaDataParser newLoadingAnnotationParser() {
+        AnnotationPersistenceMetaDataParser parser = newAnnotationParser();
+        parser.setRepository(repos);
+        parser.setPackageModes(_pkgModes);
+        return parser;
+    }
+
     /**
      * Set the metadata parser.
      */
@@ -268,6 +285,25 @@ public class PersistenceMetaDataFactory
             validateStrategies(meta);
     }
 
+    /**
+     * Classes listed in mapping files are loaded with the shared XML parser,
+     * so only classes with annotations alone load concurrently.
+     */
+    @Override
+    public boolean isConcurrentLoadSupported(Class<?> cls) {
+        return cls != null && findXML(cls) == null;
+    }
+
+    @Override
+    public void beginConcurrentLoad() {
+        _threadParser.set(newLoadingAnnotationParser());
+    }
+
+    @Override
+    public void endConcurrentLoad() {
+        _threadParser.remove();
+    }
+
     /**
      * Parse the given XML resource.
      */
@@ -26,7 +26,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
@@ -331,6 +335,32 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
 		}
 	}
 
+    @Override
+    public Stream<X> getStreamingResults() {
+        _em.assertNotCloseInvoked();
+        boolean queryFetchPlanUsed = pushQueryFetchPlan();
+        Object ob;
+        try {
+            _query.setStreaming(true);
+            try {
+                ob = execute();
+            } finally {
+                _query.setStreaming(false);
+            }
+        } finally {
+            popQueryFetchPlan(queryFetchPlanUsed);
+        }
+        if (!(ob instanceof List))
+            return Collections.singletonList((X) ob).stream();
+        if (!(ob instanceof ResultList))
+            return ((List<X>) ob).stream();
+
+        ResultList<X> res = new DelegatingResultList<>((ResultList<X>) ob,
+            PersistenceExceptions.getRollbackTranslator(_em));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+            res.iterator(), Spliterator.ORDERED), false).onClose(res::close);
+    }
+
 	/**
 	 * Execute a query that returns a single result.
 	 */
@@ -600,13 +630,23 @@ public class QueryImpl<X> extends AbstractQuery<X> implements Serializable {
                     return false;
                 }
             }
-            stats.recordExecution(pq.getOriginalQuery());
+            recordExecution(cache, stats, pq.getOriginalQuery());
         } else {
-            stats.recordExecution(getQueryString());
+            recordExecution(cache, stats, getQueryString());
         }
         return registered == Boolean.TRUE;
     }
 
+    /**
+     * Records the execution of the given query, and lets the query record
+     * the latencies of the execution if the statistics are enabled.
+     */
+    private void recordExecution(PreparedQueryCache cache,
+        QueryStatistics<String> stats, String key) {
+        stats.recordExecution(key);
+        _query.setStatistics(cache.getEnableStatistics() ? stats : null, key);
+    }
+
     /**
      * Initialize the registered Prepared Query from the given opaque object.
      *
@@ -19,6 +19,7 @@
 package org.apache.openjpa.slice;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.openjpa.conf.OpenJPAConfiguration;
 
@@ -176,4 +177,50 @@ public interface DistributedConfiguration extends OpenJPAConfiguration {
      */
     void setFinderTargetPolicy(String policy);
 
+    /**
+     * Gets the executor of the database operations, such as query or flush,
+     * on the individual slices.
+     *
+     * @since 3.2.3
+     */
+    ExecutorService getThreadingPolicyInstance();
+
+    /**
+     * Gets the executor, as a plugin string, of the database operations on
+     * the individual slices.
+     *
+     * @since 3.2.3
+     */
+    String getThreadingPolicy();
+
+    /**
+     * Sets the executor of the database operations on the individual slices.
+     *
+     * @since 3.2.3
+     */
+    void setThreadingPolicyInstance(ExecutorService executor);
+
+    /**
+     * Sets the executor, from the given plugin string, of the database
+     * operations on the individual slices.
+     *
+     * @since 3.2.3
+     */
+    void setThreadingPolicy(String policy);
+
+    /**
+     * Gets the number of milliseconds to wait for a database operation on a
+     * slice to complete, or -1 to wait without limit.
+     *
+     * @since 3.2.3
+     */
+    int getTimeout();
+
+    /**
+     * Sets the number of milliseconds to wait for a database operation on a
+     * slice to complete, or -1 to wait without limit.
+     *
+     * @since 3.2.3
+     */
+    void setTimeout(int timeout);
 }
@@ -31,6 +31,7 @@ import java.util.concurrent.ThreadFactory;
 public class SliceThread extends Thread {
     private final Thread _parent;
     private static ExecutorService _pool;
+    private static final ThreadLocal<Thread> _sliceParent = new ThreadLocal<>();
 
     public SliceThread(String name, Thread parent, Runnable r) {
         super(r, name);
@@ -50,10 +51,23 @@ public class SliceThread extends Thread {
         return _parent;
     }
 
+    /**
+     * Affirms if the current thread executes operations on a slice on behalf
+     * of a parent thread. Besides instances of this class, these are the
+     * threads created by a factory from {@link #newThreadFactory(ThreadFactory)}.
+     *
+     * @since 3.2.3
+     */
+    public static boolean isSliceThread() {
+        return Thread.currentThread() instanceof SliceThread
+            || _sliceParent.get() != null;
+    }
+
     /**
      * Create a cached pool of <em>slice</em> threads.
      * The thread factory creates specialized threads for preferential locking treatment.
      *
+     * @see DistributedConfiguration#getThreadingPolicyInstance()
      */
 
     public static ExecutorService getPool() {
@@ -63,6 +77,44 @@ public class SliceThread extends Thread {
         return _pool;
     }
 
+    /**
+     * Gets a factory of <em>slice</em> threads.
+     *
+     * @since 3.2.3
+     */
+    public static ThreadFactory newThreadFactory() {
+        return new SliceThreadFactory();
+    }
+
+    /**
+     * Gets a factory of threads that are treated as <em>slice</em> threads
+     * while they run, for threads that can not be instances of this class
+     * such as virtual threads.
+     *
+     * @param delegate creates the actual threads
+     *
+     * @since 3.2.3
+     */
+    public static ThreadFactory newThreadFactory(final ThreadFactory delegate) {
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread parent = Thread.currentThread();
+                return delegate.newThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        _sliceParent.set(parent);
+                        try {
+                            r.run();
+                        } finally {
+                            _sliceParent.remove();
+                        }
+                    }
+                });
+            }
+        };
+    }
+
     private static class SliceThreadFactory implements ThreadFactory {
         int n = 0;
         @Override
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.lib.util.Closeable;
+
+/**
+ * A pool of <em>slice</em> threads that execute database operations such as
+ * query or flush on the individual slices.
+ *
+ * This pool has a fixed number of threads and queues the operations while
+ * all of them are busy, so that a burst of distributed queries does not
+ * create a thread per slice and query. By default the pool has ten threads or
+ * twice the number of available processors, whichever is larger. Idle threads
+ * terminate after the keep alive time.
+ *
+ * @since 3.2.3
+ */
+public class SliceThreadPool extends ThreadPoolExecutor implements Closeable {
+
+    /**
+     * Default number of seconds an idle thread is kept alive.
+     */
+    public static final long DEFAULT_KEEP_ALIVE_TIME = 60;
+
+    public SliceThreadPool() {
+        this(Math.max(10, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    private SliceThreadPool(int size) {
+        this(size, size, new LinkedBlockingQueue<Runnable>());
+    }
+
+    protected SliceThreadPool(int core, int max, BlockingQueue<Runnable> queue) {
+        super(core, max, DEFAULT_KEEP_ALIVE_TIME, TimeUnit.SECONDS, queue,
+            SliceThread.newThreadFactory());
+        allowCoreThreadTimeOut(core > 0);
+    }
+
+    /**
+     * Sets the number of threads that execute queued operations.
+     */
+    @Override
+    public void setCorePoolSize(int size) {
+        if (size > getMaximumPoolSize())
+            super.setMaximumPoolSize(size);
+        super.setCorePoolSize(size);
+    }
+
+    /**
+     * Sets the maximum number of threads. Threads beyond the core pool size
+     * are only created when the queue of operations is full.
+     */
+    @Override
+    public void setMaximumPoolSize(int size) {
+        if (size < getCorePoolSize())
+            super.setCorePoolSize(size);
+        super.setMaximumPoolSize(size);
+    }
+
+    /**
+     * Sets the number of seconds an idle thread is kept alive.
+     */
+    public void setKeepAliveTime(long seconds) {
+        setKeepAliveTime(seconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Sets the factory of the threads. The threads it creates still run
+     * the operations as slice threads.
+     */
+    @Override
+    public void setThreadFactory(ThreadFactory factory) {
+        super.setThreadFactory(SliceThread.newThreadFactory(factory));
+    }
+
+    /**
+     * Shuts the pool down after the operations already submitted.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    /**
+     * A pool that creates new threads as needed and reuses idle ones.
+     * The number of threads is not bounded, which matches the pool
+     * used by earlier releases.
+     */
+    public static class Cached extends SliceThreadPool {
+        public Cached() {
+            super(0, Integer.MAX_VALUE, new SynchronousQueue<Runnable>());
+        }
+    }
+}
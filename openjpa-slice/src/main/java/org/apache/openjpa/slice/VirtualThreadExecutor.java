@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.conf.Configurable;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.lib.log.Log;
+import org.apache.openjpa.lib.util.Closeable;
+import org.apache.openjpa.lib.util.Localizer;
+
+/**
+ * Executes each database operation on a slice in a new virtual thread, so
+ * that operations waiting on the database do not hold platform threads.
+ *
+ * Virtual threads require Java 21 or later. On earlier versions this
+ * executor falls back to a {@link SliceThreadPool}.
+ *
+ * @since 3.2.3
+ */
+public class VirtualThreadExecutor extends AbstractExecutorService
+    implements Closeable, Configurable {
+
+    private static final Localizer _loc = Localizer.forPackage(VirtualThreadExecutor.class);
+
+    private final ExecutorService _delegate;
+    private final boolean _virtual;
+
+    public VirtualThreadExecutor() {
+        ExecutorService delegate = newVirtualThreadPerTaskExecutor();
+        _virtual = delegate != null;
+        _delegate = _virtual ? delegate : new SliceThreadPool();
+    }
+
+    /**
+     * Affirms if the operations are executed in virtual threads.
+     */
+    public boolean isVirtual() {
+        return _virtual;
+    }
+
+    /**
+     * Creates an executor that starts a virtual slice thread for each task,
+     * or returns null if the runtime does not support virtual threads.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class)
+                .invoke(builder, "openjpa-slice-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory")
+                .invoke(builder);
+            Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                ThreadFactory.class);
+            return (ExecutorService) newExecutor.invoke(null,
+                SliceThread.newThreadFactory(factory));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        _delegate.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        _delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return _delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return _delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return _delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+        throws InterruptedException {
+        return _delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    @Override
+    public void setConfiguration(Configuration conf) {
+        if (!_virtual) {
+            Log log = conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+            if (log.isWarnEnabled())
+                log.warn(_loc.get("virtual-threads-unsupported",
+                    System.getProperty("java.version")));
+        }
+    }
+
+    @Override
+    public void startConfiguration() {
+    }
+
+    @Override
+    public void endConfiguration() {
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import javax.sql.DataSource;
 import javax.sql.XADataSource;
@@ -40,6 +41,7 @@ import org.apache.openjpa.jdbc.conf.JDBCConfigurationImpl;
 import org.apache.openjpa.jdbc.schema.DataSourceFactory;
 import org.apache.openjpa.lib.conf.BooleanValue;
 import org.apache.openjpa.lib.conf.ConfigurationProvider;
+import org.apache.openjpa.lib.conf.IntValue;
 import org.apache.openjpa.lib.conf.PluginValue;
 import org.apache.openjpa.lib.conf.StringListValue;
 import org.apache.openjpa.lib.conf.StringValue;
@@ -58,6 +60,8 @@ import org.apache.openjpa.slice.ProductDerivation;
 import org.apache.openjpa.slice.QueryTargetPolicy;
 import org.apache.openjpa.slice.ReplicationPolicy;
 import org.apache.openjpa.slice.Slice;
+import org.apache.openjpa.slice.SliceThreadPool;
+import org.apache.openjpa.slice.VirtualThreadExecutor;
 import org.apache.openjpa.util.UserException;
 
 /**
@@ -84,6 +88,8 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
     public PluginValue queryTargetPolicyPlugin;
     public PluginValue finderTargetPolicyPlugin;
     public StringListValue replicatedTypesPlugin;
+    public PluginValue threadingPolicyPlugin;
+    public IntValue timeoutPlugin;
 
     private ReplicatedTypeRepository _replicationRepos;
 
@@ -127,6 +133,19 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
 
         masterPlugin  = addString(PREFIX_SLICE + "Master");
         namesPlugin   = addStringList(PREFIX_SLICE + "Names");
+
+        threadingPolicyPlugin = addPlugin(PREFIX_SLICE + "ThreadingPolicy", true);
+        threadingPolicyPlugin.setAliases(new String[] {
+            "fixed", SliceThreadPool.class.getName(),
+            "cached", SliceThreadPool.Cached.class.getName(),
+            "virtual", VirtualThreadExecutor.class.getName(),
+        });
+        threadingPolicyPlugin.setDefault("fixed");
+        threadingPolicyPlugin.setString("fixed");
+
+        timeoutPlugin = addInt(PREFIX_SLICE + "Timeout");
+        timeoutPlugin.setDefault("-1");
+        timeoutPlugin.set(-1);
     }
 
     /**
@@ -326,6 +345,43 @@ public class DistributedJDBCConfigurationImpl extends JDBCConfigurationImpl
         finderTargetPolicyPlugin.setString(policy);
     }
 
+    @Override
+    public ExecutorService getThreadingPolicyInstance() {
+        if (threadingPolicyPlugin.get() == null) {
+            synchronized (threadingPolicyPlugin) {
+                if (threadingPolicyPlugin.get() == null)
+                    threadingPolicyPlugin.instantiate(ExecutorService.class,
+                        this, true);
+            }
+        }
+        return (ExecutorService) threadingPolicyPlugin.get();
+    }
+
+    @Override
+    public String getThreadingPolicy() {
+        return threadingPolicyPlugin.getString();
+    }
+
+    @Override
+    public void setThreadingPolicyInstance(ExecutorService executor) {
+        threadingPolicyPlugin.set(executor);
+    }
+
+    @Override
+    public void setThreadingPolicy(String policy) {
+        threadingPolicyPlugin.setString(policy);
+    }
+
+    @Override
+    public int getTimeout() {
+        return timeoutPlugin.get();
+    }
+
+    @Override
+    public void setTimeout(int timeout) {
+        timeoutPlugin.set(timeout);
+    }
+
     @Override
     public DistributedDataSource getConnectionFactory() {
         if (virtualDataSource == null) {
@@ -31,6 +31,8 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.openjpa.enhance.PersistenceCapable;
 import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
@@ -59,8 +61,8 @@ import org.apache.openjpa.slice.Slice;
 import org.apache.openjpa.slice.SliceImplHelper;
 import org.apache.openjpa.slice.SliceInfo;
 import org.apache.openjpa.slice.SlicePersistence;
-import org.apache.openjpa.slice.SliceThread;
 import org.apache.openjpa.util.InternalException;
+import org.apache.openjpa.util.QueryException;
 import org.apache.openjpa.util.StoreException;
 
 /**
@@ -270,7 +272,7 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
         Map<String, StateManagerSet> subsets = bin(sms, null);
         Collection<StateManagerSet> remaining =
             new ArrayList<>(subsets.values());
-        ExecutorService threadPool = SliceThread.getPool();
+        ExecutorService threadPool = getExecutor();
         for (SliceStoreManager slice : _slices) {
             StateManagerSet subset = subsets.get(slice.getName());
             if (subset.isEmpty())
@@ -284,19 +286,63 @@ class DistributedJDBCStoreManager extends JDBCStoreManager
                 futures.add(threadPool.submit(new Flusher(slice, subset)));
             }
         }
-        for (Future<Collection> future : futures) {
-            try {
-                collectException(future.get(), exceptions);
-            } catch (InterruptedException e) {
-                throw new StoreException(e);
-            } catch (ExecutionException e) {
-                throw new StoreException(e.getCause());
-            }
+        for (Collection error : getResults(futures, null)) {
+            collectException(error, exceptions);
         }
 
         return exceptions;
     }
 
+    /**
+     * Gets the executor that runs the operations on the slices in parallel.
+     */
+    ExecutorService getExecutor() {
+        return _conf.getThreadingPolicyInstance();
+    }
+
+    /**
+     * Waits for the operations on the slices to complete, at most for the
+     * configured {@link DistributedConfiguration#getTimeout() timeout}.
+     * If any operation fails or times out, the operations that have not
+     * started yet are cancelled.
+     *
+     * @param query the query reported on timeout, or null if the operations
+     * are not a query
+     */
+    <T> List<T> getResults(List<Future<T>> futures, Object query) {
+        List<T> results = new ArrayList<>(futures.size());
+        int timeout = _conf.getTimeout();
+        long deadline = System.nanoTime()
+            + TimeUnit.MILLISECONDS.toNanos(Math.max(timeout, 0));
+        try {
+            for (Future<T> future : futures) {
+                if (timeout < 0)
+                    results.add(future.get());
+                else
+                    results.add(future.get(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS));
+            }
+        } catch (TimeoutException e) {
+            cancel(futures);
+            if (query != null)
+                throw new QueryException(query, timeout);
+            throw new StoreException(_loc.get("slice-timeout", timeout));
+        } catch (InterruptedException e) {
+            cancel(futures);
+            throw new StoreException(e);
+        } catch (ExecutionException e) {
+            cancel(futures);
+            throw new StoreException(e.getCause());
+        }
+        return results;
+    }
+
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
+    }
+
     private void collectException(Collection error,  Collection holder) {
         if (!(error == null || error.isEmpty())) {
             holder.addAll(error);
@@ -21,10 +21,11 @@ package org.apache.openjpa.slice.jdbc;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.apache.openjpa.jdbc.kernel.JDBCStore;
 import org.apache.openjpa.jdbc.kernel.JDBCStoreQuery;
@@ -35,13 +36,10 @@ import org.apache.openjpa.kernel.QueryContext;
 import org.apache.openjpa.kernel.StoreManager;
 import org.apache.openjpa.kernel.StoreQuery;
 import org.apache.openjpa.kernel.exps.ExpressionParser;
-import org.apache.openjpa.lib.rop.MergedResultObjectProvider;
 import org.apache.openjpa.lib.rop.RangeResultObjectProvider;
 import org.apache.openjpa.lib.rop.ResultObjectProvider;
 import org.apache.openjpa.meta.ClassMetaData;
 import org.apache.openjpa.slice.DistributedConfiguration;
-import org.apache.openjpa.slice.SliceThread;
-import org.apache.openjpa.util.StoreException;
 
 /**
  * A query for distributed databases.
@@ -116,46 +114,48 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 		@Override
         public ResultObjectProvider executeQuery(StoreQuery q,
 				final Object[] params, final Range range) {
-			List<Future<ResultObjectProvider>> futures = new ArrayList<>();
             final List<Executor> usedExecutors = new ArrayList<>();
-			final List<ResultObjectProvider> rops = new ArrayList<>();
+			final List<SliceResultObjectProvider> rops = new ArrayList<>();
 			List<SliceStoreManager> targets = findTargets();
 			QueryContext ctx = q.getContext();
 			boolean isReplicated = containsReplicated(ctx);
-            ExecutorService threadPool = SliceThread.getPool();
+            // each slice must return the results up to the end of the range
+            // as the merged results are ordered or skipped to its start
+            Range sliceRange = new Range(0L, range.end);
+            sliceRange.lrs = range.lrs;
+            DistributedJDBCStoreManager store = owner.getDistributedStore();
+            ExecutorService threadPool = store.getExecutor();
+            int timeout = store.getConfiguration().getTimeout();
+            BlockingQueue<SliceResultObjectProvider> completed =
+                new LinkedBlockingQueue<>();
 
 			for (int i = 0; i < owner._queries.size(); i++) {
                 // if replicated, then execute only on single slice
 				if (isReplicated && !usedExecutors.isEmpty()) {
 					break;
 				}
-                StoreManager sm = owner.getDistributedStore().getSlice(i);
+                StoreManager sm = store.getSlice(i);
 				if (!targets.contains(sm))
 					continue;
                 QueryExecutor call = new QueryExecutor();
                 call.executor = executors.get(i);
                 call.query = owner._queries.get(i);
                 call.params = params;
-                call.range = range;
+                call.range = sliceRange;
 				usedExecutors.add(call.executor);
-                futures.add(threadPool.submit(call));
-			}
-			for (Future<ResultObjectProvider> future : futures) {
-				try {
-					rops.add(future.get());
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new StoreException(e.getCause());
-				}
+                SliceResultObjectProvider rop = new SliceResultObjectProvider(
+                    call, ctx, timeout, completed);
+                rop.submit(threadPool);
+                rops.add(rop);
 			}
 
-			ResultObjectProvider[] tmp = rops.toArray(new ResultObjectProvider[rops.size()]);
+			SliceResultObjectProvider[] tmp = rops.toArray(
+			    new SliceResultObjectProvider[rops.size()]);
 			ResultObjectProvider result = null;
 			boolean[] ascending = getAscending(q);
 			boolean isAscending = ascending.length > 0;
 			boolean isAggregate = ctx.isAggregate();
-			boolean hasRange = ctx.getEndRange() != Long.MAX_VALUE;
+			boolean hasRange = range.start != 0L || range.end != Long.MAX_VALUE;
 			if (isAggregate) {
 				result = new UniqueResultObjectProvider(tmp, q,	getQueryExpressions());
 			} else if (isAscending) {
@@ -163,10 +163,11 @@ class DistributedStoreQuery extends JDBCStoreQuery {
                     usedExecutors.toArray(new Executor[usedExecutors.size()]),
 					q, params);
 			} else {
-				result = new MergedResultObjectProvider(tmp);
+                result = new ParallelResultObjectProvider(tmp, completed,
+                    timeout, ctx, range.end);
 			}
 			if (hasRange) {
-                result = new RangeResultObjectProvider(result, ctx.getStartRange(), ctx.getEndRange());
+                result = new RangeResultObjectProvider(result, range.start, range.end);
 			}
 			return result;
 		}
@@ -194,7 +195,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
         public Number executeDelete(StoreQuery q, Object[] params) {
 			List<Future<Number>> futures = new ArrayList<>();
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getExecutor();
 			List<SliceStoreManager> targets = findTargets();
 			for (int i = 0; i < owner._queries.size(); i++) {
                 StoreManager sm = owner.getDistributedStore().getSlice(i);
@@ -207,16 +208,10 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 				call.params = params;
 				futures.add(threadPool.submit(call));
 			}
-			for (Future<Number> future : futures) {
-				try {
-					Number n = future.get();
-					if (n != null)
-						result += n.intValue();
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new StoreException(e.getCause());
-				}
+			for (Number n : owner.getDistributedStore().getResults(futures,
+			    q.getContext())) {
+				if (n != null)
+					result += n.intValue();
 			}
 			return result;
 		}
@@ -226,7 +221,7 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 			Iterator<StoreQuery> qs = owner._queries.iterator();
 			List<Future<Number>> futures = null;
 			int result = 0;
-            ExecutorService threadPool = SliceThread.getPool();
+            ExecutorService threadPool = owner.getDistributedStore().getExecutor();
 			for (Executor ex : executors) {
 				if (futures == null)
                     futures = new ArrayList<>();
@@ -236,15 +231,9 @@ class DistributedStoreQuery extends JDBCStoreQuery {
 				call.params = params;
 				futures.add(threadPool.submit(call));
 			}
-			for (Future<Number> future : futures) {
-				try {
-					Number n = future.get();
-                    result += (n == null) ? 0 : n.intValue();
-				} catch (InterruptedException e) {
-					throw new RuntimeException(e);
-				} catch (ExecutionException e) {
-					throw new StoreException(e.getCause());
-				}
+			for (Number n : owner.getDistributedStore().getResults(futures,
+			    q.getContext())) {
+                result += (n == null) ? 0 : n.intValue();
 			}
 			return result;
 		}
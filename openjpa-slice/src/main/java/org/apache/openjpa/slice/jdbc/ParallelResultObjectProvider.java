@@ -0,0 +1,194 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.QueryException;
+import org.apache.openjpa.util.UnsupportedException;
+
+/**
+ * Merges the unordered results of a query on many slices in the order the
+ * slices complete, so that the results of the fastest slice are available
+ * first.
+ *
+ * Once the given maximum number of results has been read, the slices that
+ * have not been read yet are closed, which cancels their queries if they have
+ * not started yet.
+ *
+ * @since 3.2.3
+ */
+class ParallelResultObjectProvider implements ResultObjectProvider {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (ParallelResultObjectProvider.class);
+
+    private final SliceResultObjectProvider[] _slices;
+    private final BlockingQueue<SliceResultObjectProvider> _completed;
+    private final int _timeout;
+    private final Object _query;
+    private final long _limit;
+    private final List<SliceResultObjectProvider> _read = new ArrayList<>();
+    private SliceResultObjectProvider _cur;
+    private int _idx = -1;
+    private long _count;
+    private boolean _cancelled;
+
+    /**
+     * Constructor.
+     *
+     * @param slices the results of the slices, already submitted
+     * @param completed receives the slices as they complete
+     * @param timeout milliseconds to wait for a slice, or -1 for no limit
+     * @param query the query reported on timeout
+     * @param limit the maximum number of results, or Long.MAX_VALUE
+     */
+    ParallelResultObjectProvider(SliceResultObjectProvider[] slices,
+        BlockingQueue<SliceResultObjectProvider> completed, int timeout,
+        Object query, long limit) {
+        _slices = slices;
+        _completed = completed;
+        _timeout = timeout;
+        _query = query;
+        _limit = limit;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return _cur.getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        if (_count >= _limit)
+            return false;
+        while (true) {
+            if (_cur != null && _cur.next()) {
+                if (++_count >= _limit)
+                    cancel();
+                return true;
+            }
+            _cur = nextSlice();
+            if (_cur == null)
+                return false;
+        }
+    }
+
+    /**
+     * Gets the next slice to read, waiting for it to complete if necessary.
+     */
+    private SliceResultObjectProvider nextSlice() throws Exception {
+        if (_idx < _read.size() - 1)
+            return _read.get(++_idx);
+        if (_cancelled || _read.size() == _slices.length)
+            return null;
+
+        SliceResultObjectProvider slice;
+        if (_timeout < 0)
+            slice = _completed.take();
+        else
+            slice = _completed.poll(_timeout, TimeUnit.MILLISECONDS);
+        if (slice == null) {
+            close();
+            throw new QueryException(_query, _timeout);
+        }
+        _read.add(slice);
+        _idx++;
+        slice.open();
+        return slice;
+    }
+
+    /**
+     * Closes the slices that have not been read yet.
+     */
+    private void cancel() throws Exception {
+        _cancelled = true;
+        for (SliceResultObjectProvider slice : _slices) {
+            if (!_read.contains(slice))
+                slice.close();
+        }
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        throw new UnsupportedException(_loc.get("slice-no-random-access",
+            String.valueOf(pos)));
+    }
+
+    @Override
+    public int size() throws Exception {
+        if (_cancelled)
+            return (int) Math.min(_limit, Integer.MAX_VALUE);
+        long size = 0;
+        for (SliceResultObjectProvider slice : _slices) {
+            slice.open();
+            int n = slice.size();
+            if (n == Integer.MAX_VALUE)
+                return n;
+            size += n;
+        }
+        return (int) Math.min(Math.min(size, _limit), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void reset() throws Exception {
+        for (SliceResultObjectProvider slice : _read)
+            slice.reset();
+        _cur = null;
+        _idx = -1;
+        _count = 0;
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception err = null;
+        for (SliceResultObjectProvider slice : _slices) {
+            try {
+                slice.close();
+            } catch (Exception e) {
+                if (err == null)
+                    err = e;
+            }
+        }
+        _cur = null;
+        if (err != null)
+            throw err;
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        if (_slices.length == 0)
+            throw new RuntimeException(e);
+        (_cur != null ? _cur : _slices[0]).handleCheckedException(e);
+    }
+}
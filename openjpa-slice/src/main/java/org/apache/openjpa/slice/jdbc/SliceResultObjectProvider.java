@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.slice.jdbc;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.openjpa.lib.rop.ResultObjectProvider;
+import org.apache.openjpa.lib.util.Localizer;
+import org.apache.openjpa.util.QueryException;
+import org.apache.openjpa.util.StoreException;
+import org.apache.openjpa.util.UnsupportedException;
+
+/**
+ * The result of a query on a single slice, executed by a slice thread.
+ *
+ * The slice thread both executes the query and opens its result, so that
+ * the database executes the queries on all slices in parallel. Opening this
+ * provider waits for the slice thread, at most for the configured timeout.
+ * Closing it before the slice thread is done cancels the query, or closes
+ * its result as soon as the slice thread has opened it.
+ *
+ * @since 3.2.3
+ */
+class SliceResultObjectProvider
+    implements ResultObjectProvider, Callable<ResultObjectProvider> {
+
+    private static final Localizer _loc = Localizer.forPackage
+        (SliceResultObjectProvider.class);
+
+    private final Callable<ResultObjectProvider> _query;
+    private final Object _failed;
+    private final int _timeout;
+    private final Queue<SliceResultObjectProvider> _completed;
+    private Future<ResultObjectProvider> _future;
+
+    // guarded by this
+    private ResultObjectProvider _rop;
+    private boolean _open;
+    private boolean _closed;
+
+    // only accessed by the consuming thread
+    private ResultObjectProvider _delegate;
+
+    /**
+     * Constructor.
+     *
+     * @param query executes the query on the slice
+     * @param failed the query reported on timeout
+     * @param timeout milliseconds to wait for the slice, or -1 for no limit
+     * @param completed if not null, receives this provider once the slice
+     * thread is done with it
+     */
+    SliceResultObjectProvider(Callable<ResultObjectProvider> query,
+        Object failed, int timeout, Queue<SliceResultObjectProvider> completed) {
+        _query = query;
+        _failed = failed;
+        _timeout = timeout;
+        _completed = completed;
+    }
+
+    /**
+     * Submit the query to the given executor.
+     */
+    void submit(ExecutorService executor) {
+        _future = executor.submit(this);
+    }
+
+    /**
+     * Executes the query and opens its result. Invoked by the slice thread.
+     */
+    @Override
+    public ResultObjectProvider call() throws Exception {
+        try {
+            ResultObjectProvider rop = _query.call();
+            synchronized (this) {
+                _rop = rop;
+                if (_closed)
+                    return null;
+            }
+            rop.open();
+            synchronized (this) {
+                if (!_closed) {
+                    _open = true;
+                    return rop;
+                }
+            }
+            rop.close();
+            return null;
+        } finally {
+            if (_completed != null)
+                _completed.offer(this);
+        }
+    }
+
+    private ResultObjectProvider getDelegate() throws Exception {
+        if (_delegate != null)
+            return _delegate;
+        try {
+            if (_timeout < 0)
+                _future.get();
+            else
+                _future.get(_timeout, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            close();
+            throw new QueryException(_failed, _timeout);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception)
+                throw (Exception) cause;
+            throw new StoreException(cause);
+        }
+        synchronized (this) {
+            _delegate = _rop;
+        }
+        return _delegate;
+    }
+
+    @Override
+    public boolean supportsRandomAccess() {
+        return false;
+    }
+
+    @Override
+    public void open() throws Exception {
+        getDelegate();
+    }
+
+    @Override
+    public Object getResultObject() throws Exception {
+        return getDelegate().getResultObject();
+    }
+
+    @Override
+    public boolean next() throws Exception {
+        return getDelegate().next();
+    }
+
+    @Override
+    public boolean absolute(int pos) throws Exception {
+        throw new UnsupportedException(_loc.get("slice-no-random-access",
+            String.valueOf(pos)));
+    }
+
+    @Override
+    public int size() throws Exception {
+        return getDelegate().size();
+    }
+
+    @Override
+    public void reset() throws Exception {
+        getDelegate().reset();
+    }
+
+    @Override
+    public void close() throws Exception {
+        ResultObjectProvider rop;
+        synchronized (this) {
+            _closed = true;
+            rop = _open ? _rop : null;
+            _open = false;
+        }
+        if (_future != null)
+            _future.cancel(false);
+        if (rop != null)
+            rop.close();
+    }
+
+    @Override
+    public void handleCheckedException(Exception e) {
+        ResultObjectProvider rop;
+        synchronized (this) {
+            rop = _rop;
+        }
+        if (rop == null)
+            throw new StoreException(e);
+        rop.handleCheckedException(e);
+    }
+}
@@ -0,0 +1,36 @@
+package org.apache.openjpa.slice;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Simple entity stored across slices.
+ */
+@Entity
+public class PObject {
+
+    @Id
+    private long id;
+
+    private int score;
+
+    public PObject() {
+    }
+
+    public PObject(long id, int score) {
+        this.id = id;
+        this.score = score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public void setScore(int score) {
+        this.score = score;
+    }
+}
@@ -0,0 +1,15 @@
+package org.apache.openjpa.slice;
+
+import java.util.List;
+
+/**
+ * Stores {@link PObject}s with an even score in the first slice and those
+ * with an odd score in the second, so that ordered results interleave.
+ */
+public class ParityDistributionPolicy implements DistributionPolicy {
+
+    @Override
+    public String distribute(Object pc, List<String> slices, Object context) {
+        return slices.get(((PObject) pc).getScore() % 2);
+    }
+}
@@ -0,0 +1,119 @@
+package org.apache.openjpa.slice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.apache.openjpa.jdbc.sql.DBDictionary;
+import org.apache.openjpa.jdbc.sql.DerbyDictionary;
+import org.apache.openjpa.lib.jdbc.JDBCListener;
+import org.apache.openjpa.persistence.test.SQLListenerTestCase;
+import org.apache.openjpa.persistence.test.SingleEMFTestCase;
+
+/**
+ * Tests an ordered query with a range over two slices. Each slice must be
+ * queried for the rows up to the end of the range, and the offset must be
+ * applied once on the merged result.
+ */
+public class TestOrderedRangeQuery extends SingleEMFTestCase {
+
+    private static final int ROWS = 10;
+
+    private final List<String> _one =
+        Collections.synchronizedList(new ArrayList<String>());
+    private final List<String> _two =
+        Collections.synchronizedList(new ArrayList<String>());
+
+    @Override
+    public void setUp() {
+        setUp(PObject.class, CLEAR_TABLES,
+            "openjpa.BrokerFactory", "slice",
+            "openjpa.slice.Names", "One,Two",
+            "openjpa.slice.One.ConnectionURL",
+                "jdbc:derby:memory:slice-range-one;create=true",
+            "openjpa.slice.Two.ConnectionURL",
+                "jdbc:derby:memory:slice-range-two;create=true",
+            "openjpa.slice.One.jdbc.JDBCListeners", new JDBCListener[] {
+                new SQLListenerTestCase.Listener(_one) },
+            "openjpa.slice.Two.jdbc.JDBCListeners", new JDBCListener[] {
+                new SQLListenerTestCase.Listener(_two) },
+            "openjpa.slice.DistributionPolicy",
+                ParityDistributionPolicy.class.getName());
+
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        for (int i = 0; i < ROWS; i++)
+            em.persist(new PObject(i + 1, i));
+        em.getTransaction().commit();
+        em.close();
+        _one.clear();
+        _two.clear();
+    }
+
+    public void testAscendingRange() {
+        assertEquals(scores(3, 4, 5, 6), query("ASC", 3, 4));
+        assertSliceSQL(7);
+    }
+
+    public void testDescendingRange() {
+        assertEquals(scores(8, 7, 6), query("DESC", 1, 3));
+        assertSliceSQL(4);
+    }
+
+    public void testRangeBeyondResults() {
+        assertEquals(scores(8, 9), query("ASC", 8, 5));
+        assertSliceSQL(13);
+    }
+
+    private List<Integer> query(String direction, int first, int max) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<PObject> result = em.createQuery("SELECT p FROM PObject p "
+                + "ORDER BY p.score " + direction, PObject.class).
+                setFirstResult(first).setMaxResults(max).getResultList();
+            List<Integer> scores = new ArrayList<>();
+            for (PObject pc : result)
+                scores.add(pc.getScore());
+            return scores;
+        } finally {
+            closeEM(em);
+        }
+    }
+
+    /**
+     * Each slice must have been queried once, ordered and limited to the
+     * end of the range without an offset.
+     */
+    private void assertSliceSQL(int end) {
+        assertSliceSQL("One", _one, end);
+        assertSliceSQL("Two", _two, end);
+    }
+
+    private void assertSliceSQL(String slice, List<String> sql, int end) {
+        List<String> selects = new ArrayList<>();
+        synchronized (sql) {
+            for (String s : sql)
+                if (s.toUpperCase().startsWith("SELECT"))
+                    selects.add(s.toUpperCase());
+        }
+        assertEquals("Selects on slice " + slice + ": " + selects, 1,
+            selects.size());
+        String select = selects.get(0);
+        assertTrue(select, select.contains("ORDER BY"));
+        assertFalse(select, select.contains("OFFSET"));
+
+        DBDictionary dict = getConfiguration().getDBDictionaryInstance();
+        if (dict instanceof DerbyDictionary)
+            assertTrue(select, select.matches(".* FETCH (FIRST|NEXT) " + end
+                + " ROWS ONLY"));
+    }
+
+    private static List<Integer> scores(int... values) {
+        List<Integer> list = new ArrayList<>();
+        for (int v : values)
+            list.add(v);
+        return list;
+    }
+}
@@ -0,0 +1,173 @@
+package org.apache.openjpa.slice.jdbc;
+
+import org.apache.openjpa.lib.rop.ListResultObjectProvider;
+import org.apache.openjpa.util.UnsupportedException;
+import org.junit.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ParallelResultObjectProviderTest {
+    private static final int TIMEOUT = 10000;
+
+    private ExecutorService executor;
+    private BlockingQueue<SliceResultObjectProvider> completed;
+    private final List<Slice> slices = new ArrayList<>();
+
+    /**
+     * Results of a slice, available once the slice is released.
+     */
+    private static class Slice extends ListResultObjectProvider {
+        private final CountDownLatch released = new CountDownLatch(1);
+        private final AtomicInteger opened = new AtomicInteger();
+        private final AtomicInteger closed = new AtomicInteger();
+
+        Slice(Object... results) {
+            super(Arrays.asList(results));
+        }
+
+        @Override
+        public void open() {
+            this.opened.incrementAndGet();
+        }
+
+        @Override
+        public void close() {
+            this.closed.incrementAndGet();
+        }
+    }
+
+    @Before
+    public void setUpEachTime() {
+        this.executor = Executors.newCachedThreadPool();
+        this.completed = new LinkedBlockingQueue<>();
+    }
+
+    @After
+    public void tearDownEachTime() {
+        this.slices.forEach(slice -> slice.released.countDown());
+        this.executor.shutdownNow();
+    }
+
+    private ParallelResultObjectProvider newProvider(long limit, Slice... slices) {
+        SliceResultObjectProvider[] rops = new SliceResultObjectProvider[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            Slice slice = slices[i];
+            this.slices.add(slice);
+            rops[i] = new SliceResultObjectProvider(() -> {
+                slice.released.await();
+                return slice;
+            }, "query", TIMEOUT, this.completed);
+            rops[i].submit(this.executor);
+        }
+        return new ParallelResultObjectProvider(rops, this.completed, TIMEOUT, "query", limit);
+    }
+
+    private static List<Object> readAll(ParallelResultObjectProvider rop) throws Exception {
+        List<Object> results = new ArrayList<>();
+        while (rop.next()) {
+            results.add(rop.getResultObject());
+        }
+        return results;
+    }
+
+    @Test
+    public void slicesAreReadInCompletionOrderTest() throws Exception {
+        Slice first = new Slice("a1", "a2");
+        Slice second = new Slice("b1");
+        Slice third = new Slice("c1", "c2", "c3");
+        ParallelResultObjectProvider rop = newProvider(Long.MAX_VALUE, first, second, third);
+        rop.open();
+
+        third.released.countDown();
+        Assert.assertTrue(rop.next());
+        Assert.assertEquals("c1", rop.getResultObject());
+        first.released.countDown();
+        second.released.countDown();
+        List<Object> results = readAll(rop);
+        // the results of each slice keep their order
+        Assert.assertEquals(Arrays.asList("c2", "c3"), results.subList(0, 2));
+        Assert.assertTrue(results.containsAll(Arrays.asList("a1", "a2", "b1")));
+        Assert.assertTrue(results.indexOf("a1") < results.indexOf("a2"));
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(6, rop.size());
+
+        rop.reset();
+        Assert.assertEquals(Arrays.asList("c1", "c2", "c3"), readAll(rop).subList(0, 3));
+        rop.close();
+    }
+
+    @Test
+    public void limitCancelsUnreadSlicesTest() throws Exception {
+        Slice fast = new Slice("a1", "a2", "a3", "a4");
+        Slice slow = new Slice("b1");
+        Slice slower = new Slice("c1");
+        ParallelResultObjectProvider rop = newProvider(3, fast, slow, slower);
+        rop.open();
+
+        fast.released.countDown();
+        Assert.assertEquals(Arrays.asList("a1", "a2", "a3"), readAll(rop));
+        Assert.assertFalse(rop.next());
+
+        // the unread slices come back after the limit was reached, and their results are never opened
+        slow.released.countDown();
+        slower.released.countDown();
+        for (int i = 0; i < 2; i++) {
+            Assert.assertNotNull(this.completed.poll(TIMEOUT, TimeUnit.MILLISECONDS));
+        }
+        Assert.assertEquals(0, slow.opened.get());
+        Assert.assertEquals(0, slower.opened.get());
+        Assert.assertEquals(1, fast.opened.get());
+        Assert.assertEquals(0, fast.closed.get());
+
+        rop.close();
+        Assert.assertEquals(1, fast.closed.get());
+    }
+
+    @Test
+    public void sizeAfterCancelIsLimitTest() throws Exception {
+        Slice fast = new Slice("a1", "a2", "a3");
+        Slice blocked = new Slice("b1", "b2");
+        ParallelResultObjectProvider rop = newProvider(2, fast, blocked);
+        rop.open();
+        fast.released.countDown();
+        Assert.assertEquals(Arrays.asList("a1", "a2"), readAll(rop));
+
+        // does not wait for the cancelled slice
+        Assert.assertEquals(2, rop.size());
+        Assert.assertEquals(1, blocked.released.getCount());
+        rop.close();
+    }
+
+    @Test
+    public void randomAccessIsUnsupportedTest() throws Exception {
+        Slice slice = new Slice("a1", "a2");
+        slice.released.countDown();
+        ParallelResultObjectProvider rop = newProvider(Long.MAX_VALUE, slice);
+        Assert.assertFalse(rop.supportsRandomAccess());
+        try {
+            rop.absolute(1);
+            Assert.fail();
+        } catch (UnsupportedException expected) {
+        }
+
+        SliceResultObjectProvider sliceRop = new SliceResultObjectProvider(() -> slice, "query", TIMEOUT, null);
+        sliceRop.submit(this.executor);
+        Assert.assertFalse(sliceRop.supportsRandomAccess());
+        try {
+            sliceRop.absolute(1);
+            Assert.fail();
+        } catch (UnsupportedException expected) {
+        }
+        rop.close();
+        sliceRop.close();
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.openjpa.xmlstore;
 import org.apache.openjpa.conf.OpenJPAConfigurationImpl;
 import org.apache.openjpa.kernel.Broker;
 import org.apache.openjpa.kernel.BrokerFactory;
+import org.apache.openjpa.lib.conf.BooleanValue;
+import org.apache.openjpa.lib.conf.IntValue;
 import org.apache.openjpa.lib.conf.ProductDerivations;
 
 /**
@@ -34,6 +36,11 @@ import org.apache.openjpa.lib.conf.ProductDerivations;
 public class XMLConfiguration
     extends OpenJPAConfigurationImpl {
 
+    public BooleanValue journalSync;
+    public IntValue compactionInterval;
+    public IntValue loadThreads;
+    public BooleanValue preloadData;
+
     // shared resources
     private XMLStore _store;
     private XMLFileHandler _handler;
@@ -49,10 +56,100 @@ public class XMLConfiguration
         lockManagerPlugin.setDefault("version");
         lockManagerPlugin.setString("version");
 
+        journalSync = addBoolean("JournalSync");
+        journalSync.setDefault("true");
+        journalSync.set(true);
+
+        compactionInterval = addInt("CompactionInterval");
+        compactionInterval.setDefault("60000");
+        compactionInterval.set(60000);
+
+        loadThreads = addInt("LoadThreads");
+        preloadData = addBoolean("PreloadData");
+
         ProductDerivations.beforeConfigurationLoad(this);
         loadGlobals();
     }
 
+    /**
+     * Whether a commit waits until its journal record is forced to disk,
+     * and files are forced to disk when written. Defaults to true.
+     *
+     * @since 3.2.3
+     */
+    public void setJournalSync(boolean journalSync) {
+        this.journalSync.set(journalSync);
+    }
+
+    /**
+     * Whether a commit waits until its journal record is forced to disk.
+     *
+     * @since 3.2.3
+     */
+    public boolean getJournalSync() {
+        return journalSync.get();
+    }
+
+    /**
+     * The number of milliseconds between compactions of the commit journal
+     * into the XML files of the changed classes, or 0 to only compact when
+     * the store is opened and closed. Defaults to 60000.
+     *
+     * @since 3.2.3
+     */
+    public void setCompactionInterval(int compactionInterval) {
+        this.compactionInterval.set(compactionInterval);
+    }
+
+    /**
+     * The number of milliseconds between compactions of the commit journal.
+     *
+     * @since 3.2.3
+     */
+    public int getCompactionInterval() {
+        return compactionInterval.get();
+    }
+
+    /**
+     * The number of threads parsing the files of the classes in the
+     * background, or 0 for the number of processors. Defaults to 0.
+     *
+     * @since 3.2.3
+     */
+    public void setLoadThreads(int loadThreads) {
+        this.loadThreads.set(loadThreads);
+    }
+
+    /**
+     * The number of threads parsing the files of the classes.
+     *
+     * @since 3.2.3
+     */
+    public int getLoadThreads() {
+        return loadThreads.get();
+    }
+
+    /**
+     * Whether to start parsing the files of all classes when the store is
+     * opened, rather than the file of each class on first access. Defaults
+     * to false.
+     *
+     * @since 3.2.3
+     */
+    public void setPreloadData(boolean preloadData) {
+        this.preloadData.set(preloadData);
+    }
+
+    /**
+     * Whether to start parsing the files of all classes when the store is
+     * opened.
+     *
+     * @since 3.2.3
+     */
+    public boolean getPreloadData() {
+        return preloadData.get();
+    }
+
     /**
      * Return the {@link XMLFileHandler} associated with this configuration.
      */
@@ -69,5 +166,18 @@ public class XMLConfiguration
         if (_store == null)
             _store = new XMLStore(this);
         return _store;
-	}
+    }
+
+    /**
+     * Compact and close the store before closing the configuration.
+     */
+    @Override
+    protected void preClose() {
+        synchronized (this) {
+            if (_store != null)
+                _store.close();
+            _store = null;
+        }
+        super.preClose();
+    }
 }
@@ -18,26 +18,31 @@
  */
 package org.apache.openjpa.xmlstore;
 
+import java.io.BufferedWriter;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Serializable;
 import java.io.Writer;
 import java.lang.reflect.Constructor;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import javax.xml.parsers.SAXParser;
 
@@ -79,14 +84,27 @@ public class XMLFileHandler {
      * persistence-capable type.
      */
     public Collection load(ClassMetaData meta) {
+        Collection datas = new ArrayList();
+        load(meta, datas::add);
+        return datas;
+    }
+
+    /**
+     * Loads all instances of <code>meta</code>, passing each to the given
+     * consumer as soon as it is parsed. The given <code>meta</code> must
+     * represent a least-derived persistence-capable type.
+     *
+     * @since 3.2.3
+     */
+    public void load(ClassMetaData meta, Consumer<ObjectData> consumer) {
         File f = getFile(meta);
         if (!AccessController.doPrivileged(
                 J2DoPrivHelper.existsAction(f)) ||
                 AccessController.doPrivileged(
                         J2DoPrivHelper.lengthAction(f)) == 0)
-            return Collections.EMPTY_SET;
+            return;
         try {
-            return read(f);
+            read(f, consumer);
         } catch (OpenJPAException ke) {
             throw ke;
         } catch (Exception e) {
@@ -95,16 +113,14 @@ public class XMLFileHandler {
     }
 
     /**
-     * Read a collection of {@link ObjectData}s from the contents of the
-     * given file.
+     * Read the {@link ObjectData}s in the contents of the given file.
      */
-    private Collection read(File f)
+    private void read(File f, Consumer<ObjectData> consumer)
         throws Exception {
-        // parse the file and return the objects it contains
+        // parse the file and pass on the objects it contains
         SAXParser parser = XMLFactory.getSAXParser(false, false);
-        ObjectDataHandler handler = new ObjectDataHandler(_conf);
+        ObjectDataHandler handler = new ObjectDataHandler(_conf, consumer);
         parser.parse(f, handler);
-        return handler.getExtent();
     }
 
     /**
@@ -141,105 +157,188 @@ public class XMLFileHandler {
             AccessController.doPrivileged(
                 J2DoPrivHelper.mkdirsAction(f.getParentFile()));
 
-        FileWriter fw = null;
+        // write a new file and move it over the old one, so that a failed
+        // write does not lose the stored instances
+        File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
         try {
-            fw = new FileWriter(f);
-            write(datas, fw);
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                Writer out = new BufferedWriter(new OutputStreamWriter(fos,
+                    StandardCharsets.UTF_8));
+                write(datas, out);
+                out.flush();
+                if (_conf.getJournalSync())
+                    fos.getFD().sync();
+            }
+            Files.move(tmp.toPath(), f.toPath(),
+                StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
         } catch (OpenJPAException ke) {
             throw ke;
         } catch (Exception e) {
             throw new StoreException(e);
-        } finally {
-            if (fw != null)
-                try {
-                    fw.close();
-                } catch (IOException ioe) {
+        }
+    }
+
+    /**
+     * Returns the journal file of the commits that are not stored in the
+     * files of their classes yet. Its name cannot be the name of a class.
+     *
+     * @since 3.2.3
+     */
+    public File getJournalFile() {
+        if (_conf.getConnectionURL() == null) {
+            throw new InternalException("Invalid ConnectionURL");
+        }
+        return new File(_conf.getConnectionURL(), ".journal");
+    }
+
+    /**
+     * Encode the given changes of a commit as a journal record.
+     *
+     * @param updates {@link ObjectData} instances inserted or updated
+     * @param deletes {@link ObjectData} instances deleted
+     * @since 3.2.3
+     */
+    public byte[] toRecord(Collection<ObjectData> updates,
+        Collection<ObjectData> deletes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        try {
+            Writer out = new OutputStreamWriter(bytes, StandardCharsets.UTF_8);
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
+            out.write("<commit>");
+            if (updates != null)
+                for (ObjectData data : updates)
+                    writeObject(data, out);
+            if (deletes != null) {
+                for (ObjectData data : deletes) {
+                    out.write("<delete class=\"");
+                    out.write(data.getMetaData().getDescribedType().getName());
+                    out.write("\" oid=\"");
+                    out.write(data.getId().toString());
+                    out.write("\"/>");
                 }
+            }
+            out.write("</commit>");
+            out.flush();
+        } catch (OpenJPAException ke) {
+            throw ke;
+        } catch (Exception e) {
+            throw new StoreException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode the changes of a commit from the given journal record.
+     *
+     * @param updates receives the {@link ObjectData} instances inserted or
+     * updated
+     * @param deletes receives the {@link ObjectData} instances deleted
+     * @since 3.2.3
+     */
+    public void fromRecord(byte[] record, Collection<ObjectData> updates,
+        Collection<ObjectData> deletes) {
+        try {
+            SAXParser parser = XMLFactory.getSAXParser(false, false);
+            ObjectDataHandler handler = new ObjectDataHandler(_conf,
+                updates::add);
+            parser.parse(new ByteArrayInputStream(record), handler);
+            deletes.addAll(handler.getDeletes());
+        } catch (OpenJPAException ke) {
+            throw ke;
+        } catch (Exception e) {
+            throw new StoreException(e);
         }
     }
 
     /**
      * Write the given collection of {@link ObjectData}s to the given file.
      */
-    private void write(Collection datas, FileWriter fw)
+    private void write(Collection datas, Writer w)
         throws Exception {
         // create an XML pretty printer to write out the objects
-        Writer out = new XMLWriter(fw);
+        Writer out = new XMLWriter(w);
 
         // start the file; the root node is an "extent"
         out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
         out.write("<extent>");
 
         // run through each object in the collection
-        for (Object data : datas) {
-            ObjectData obj = (ObjectData) data;
-            ClassMetaData meta = obj.getMetaData();
-
-            // write out the "object" element start
-            out.write("<object class=\"");
-            out.write(meta.getDescribedType().getName());
-            out.write("\" oid=\"");
-            out.write(obj.getId().toString());
-            out.write("\" version=\"");
-            out.write(obj.getVersion().toString());
+        for (Object data : datas)
+            writeObject((ObjectData) data, out);
+        out.write("</extent>");
+    }
+
+    /**
+     * Write the given {@link ObjectData} as an <code>object</code> element.
+     */
+    private void writeObject(ObjectData obj, Writer out)
+        throws Exception {
+        ClassMetaData meta = obj.getMetaData();
+
+        // write out the "object" element start
+        out.write("<object class=\"");
+        out.write(meta.getDescribedType().getName());
+        out.write("\" oid=\"");
+        out.write(obj.getId().toString());
+        out.write("\" version=\"");
+        out.write(obj.getVersion().toString());
+        out.write("\">");
+
+        // run through each field writing out the value
+        FieldMetaData[] fmds = meta.getFields();
+        for (int i = 0; i < fmds.length; i++) {
+            if (fmds[i].getManagement() != FieldMetaData.MANAGE_PERSISTENT)
+                continue;
+
+            out.write("<field name=\"");
+            out.write(fmds[i].getName());
             out.write("\">");
 
-            // run through each field writing out the value
-            FieldMetaData[] fmds = meta.getFields();
-            for (int i = 0; i < fmds.length; i++) {
-                if (fmds[i].getManagement() != FieldMetaData.MANAGE_PERSISTENT)
-                    continue;
+            // write out the field data depending upon type
+            switch (fmds[i].getTypeCode()) {
+                case JavaTypes.COLLECTION:
+                case JavaTypes.ARRAY:
+                    Collection c = (Collection) obj.getField(i);
+                    if (c == null)
+                        break;
 
-                out.write("<field name=\"");
-                out.write(fmds[i].getName());
-                out.write("\">");
+                    // write out each of the elements
+                    int elemType = fmds[i].getElement().getTypeCode();
+                    for (Object o : c) {
+                        out.write("<element>");
+                        writeDataValue(out, elemType, o);
+                        out.write("</element>");
+                    }
+                    break;
 
-                // write out the field data depending upon type
-                switch (fmds[i].getTypeCode()) {
-                    case JavaTypes.COLLECTION:
-                    case JavaTypes.ARRAY:
-                        Collection c = (Collection) obj.getField(i);
-                        if (c == null)
-                            break;
-
-                        // write out each of the elements
-                        int elemType = fmds[i].getElement().getTypeCode();
-                        for (Object o : c) {
-                            out.write("<element>");
-                            writeDataValue(out, elemType, o);
-                            out.write("</element>");
-                        }
+                case JavaTypes.MAP:
+                    Map m = (Map) obj.getField(i);
+                    if (m == null)
                         break;
 
-                    case JavaTypes.MAP:
-                        Map m = (Map) obj.getField(i);
-                        if (m == null)
-                            break;
-
-                        // write out each of the map entries
-                        Collection entries = m.entrySet();
-                        int keyType = fmds[i].getKey().getTypeCode();
-                        int valueType = fmds[i].getElement().getTypeCode();
-                        for (Object entry : entries) {
-                            Map.Entry e = (Map.Entry) entry;
-                            out.write("<key>");
-                            writeDataValue(out, keyType, e.getKey());
-                            out.write("</key>");
-                            out.write("<value>");
-                            writeDataValue(out, valueType, e.getValue());
-                            out.write("</value>");
-                        }
-                        break;
+                    // write out each of the map entries
+                    Collection entries = m.entrySet();
+                    int keyType = fmds[i].getKey().getTypeCode();
+                    int valueType = fmds[i].getElement().getTypeCode();
+                    for (Object entry : entries) {
+                        Map.Entry e = (Map.Entry) entry;
+                        out.write("<key>");
+                        writeDataValue(out, keyType, e.getKey());
+                        out.write("</key>");
+                        out.write("<value>");
+                        writeDataValue(out, valueType, e.getValue());
+                        out.write("</value>");
+                    }
+                    break;
 
-                    default:
-                        writeDataValue(out, fmds[i].getTypeCode(),
-                                obj.getField(i));
-                }
-                out.write("</field>");
+                default:
+                    writeDataValue(out, fmds[i].getTypeCode(),
+                            obj.getField(i));
             }
-            out.write("</object>");
+            out.write("</field>");
         }
-        out.write("</extent>");
+        out.write("</object>");
     }
 
     /**
@@ -316,7 +415,8 @@ public class XMLFileHandler {
         private static final Class[] ARGS = new Class[]{ String.class };
 
         private final XMLConfiguration _conf;
-        private final Collection _extent = new ArrayList();
+        private final Consumer<ObjectData> _consumer;
+        private final Collection _deletes = new ArrayList();
 
         // parse state
         private ObjectData _object;
@@ -326,17 +426,20 @@ public class XMLFileHandler {
         private StringBuffer _buf;
 
         /**
-         * Constructor; supply configuration.
+         * Constructor; supply configuration and the consumer of the parsed
+         * objects.
          */
-        public ObjectDataHandler(XMLConfiguration conf) {
+        public ObjectDataHandler(XMLConfiguration conf,
+            Consumer<ObjectData> consumer) {
             _conf = conf;
+            _consumer = consumer;
         }
 
         /**
-         * Return the results of the parsing.
+         * Return the deleted instances of a parsed journal record.
          */
-        public Collection getExtent() {
-            return _extent;
+        public Collection getDeletes() {
+            return _deletes;
         }
 
         @Override
@@ -357,24 +460,14 @@ public class XMLFileHandler {
             throws Exception {
 
             if ("object".equals(qName)) { // object
-                // get the metadata for the type we're reading
-                String type = attrs.getValue("class");
-                ClassMetaData meta = _conf.getMetaDataRepositoryInstance().
-                        getMetaData(classForName(type), null, true);
-
-                // construct the oid object
-                Object oid;
-                if (meta.getIdentityType() == ClassMetaData.ID_DATASTORE)
-                    oid = new Id(attrs.getValue("oid"), _conf, null);
-                else
-                    oid = PCRegistry.newObjectId(meta.getDescribedType(),
-                            attrs.getValue("oid"));
-
                 // create an ObjectData that will contain the information
                 // for this instance, and set the version
-                _object = new ObjectData(oid, meta);
+                _object = newObjectData(attrs);
                 _object.setVersion(new Long(attrs.getValue("version")));
             }
+            else if ("delete".equals(qName)) { // deleted object
+                _deletes.add(newObjectData(attrs));
+            }
             else if ("field".equals(qName)) { // field
                 // start parsing a field element: for container types,
                 // initialize the container; for other types, initialize a
@@ -401,6 +494,27 @@ public class XMLFileHandler {
             }
         }
 
+        /**
+         * Create the {@link ObjectData} for the class and oid of the given
+         * element.
+         */
+        private ObjectData newObjectData(Attributes attrs)
+            throws Exception {
+            // get the metadata for the type we're reading
+            String type = attrs.getValue("class");
+            ClassMetaData meta = _conf.getMetaDataRepositoryInstance().
+                    getMetaData(classForName(type), null, true);
+
+            // construct the oid object
+            Object oid;
+            if (meta.getIdentityType() == ClassMetaData.ID_DATASTORE)
+                oid = new Id(attrs.getValue("oid"), _conf, null);
+            else
+                oid = PCRegistry.newObjectId(meta.getDescribedType(),
+                        attrs.getValue("oid"));
+            return new ObjectData(oid, meta);
+        }
+
         @Override
         public void endElement(String uri, String localName, String qName)
             throws SAXException {
@@ -418,8 +532,8 @@ public class XMLFileHandler {
             throws Exception {
             Object val;
             if ("object".equals(qName)) {
-                // add the object to our results
-                _extent.add(_object);
+                // pass on the object
+                _consumer.accept(_object);
             }
             else if ("field".equals(qName)) {
                 switch (_fmd.getTypeCode()) {
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.openjpa.xmlstore;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the commits to an {@link XMLStore} that have not
+ * been compacted into the XML files of their classes yet. Each record is
+ * written with its length and checksum, so that a record torn by a crash is
+ * detected and discarded when the journal is read back.
+ *
+ * Appending a record does not force it to disk. Committers call
+ * {@link #sync} once their record is appended, and a single force makes
+ * the records of all the committers waiting at that time durable. A failed
+ * force fails the journal: the records appended so far may or may not be on
+ * disk, so every later sync fails too rather than reporting them durable.
+ *
+ * @since 3.2.3
+ */
+public class XMLJournal
+    implements Closeable {
+
+    private static final int HEADER = 4;
+    private static final int TRAILER = 8;
+
+    private final File _file;
+    private final FileChannel _channel;
+
+    // sequence number of the last appended and last durable record
+    private volatile long _appended;
+    private long _durable;
+
+    // group commit state
+    private final ReentrantLock _syncLock = new ReentrantLock();
+    private final Condition _synced = _syncLock.newCondition();
+    private boolean _syncing;
+    private IOException _failure;
+
+    /**
+     * Open the journal in the given file, creating it if needed.
+     */
+    public XMLJournal(File file)
+        throws IOException {
+        _file = file;
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists())
+            dir.mkdirs();
+        _channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * The journal file.
+     */
+    public File getFile() {
+        return _file;
+    }
+
+    /**
+     * Read all the complete records of the journal. A torn or corrupt record
+     * ends the journal: it is truncated before it, and appending resumes
+     * from there.
+     */
+    public synchronized List<byte[]> read()
+        throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        long size = _channel.size();
+        long pos = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        ByteBuffer trailer = ByteBuffer.allocate(TRAILER);
+        while (pos + HEADER + TRAILER <= size) {
+            header.clear();
+            readFully(header, pos);
+            int length = header.getInt(0);
+            if (length < 0 || pos + HEADER + length + TRAILER > size)
+                break;
+
+            ByteBuffer record = ByteBuffer.allocate(length);
+            readFully(record, pos + HEADER);
+            trailer.clear();
+            readFully(trailer, pos + HEADER + length);
+            if (trailer.getLong(0) != checksum(record.array()))
+                break;
+            records.add(record.array());
+            pos += HEADER + length + TRAILER;
+        }
+
+        if (pos < size)
+            _channel.truncate(pos);
+        _channel.position(pos);
+        return records;
+    }
+
+    private void readFully(ByteBuffer buf, long pos)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            if (_channel.read(buf, pos + buf.position()) < 0)
+                throw new IOException(_file + ": unexpected end of journal");
+        }
+    }
+
+    /**
+     * Append the given record to the journal, returning its sequence number
+     * to {@link #sync} on.
+     */
+    public synchronized long append(byte[] record)
+        throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + record.length + TRAILER);
+        buf.putInt(record.length).put(record).putLong(checksum(record));
+        buf.flip();
+        long pos = _channel.position();
+        try {
+            while (buf.hasRemaining())
+                _channel.write(buf);
+        } catch (IOException ioe) {
+            // do not leave a partial record for the next one to follow
+            _channel.truncate(pos);
+            _channel.position(pos);
+            throw ioe;
+        }
+        return ++_appended;
+    }
+
+    /**
+     * Wait until the record with the given sequence number is on disk,
+     * forcing the journal unless another thread is already doing so.
+     */
+    public void sync(long seq)
+        throws IOException {
+        _syncLock.lock();
+        try {
+            while (_durable < seq) {
+                if (_failure != null)
+                    throw new IOException(_file + ": journal force failed",
+                        _failure);
+                if (_syncing) {
+                    _synced.awaitUninterruptibly();
+                    continue;
+                }
+
+                // force outside of the lock so that committers keep appending
+                // records for the next force to cover
+                _syncing = true;
+                long target = _appended;
+                IOException failure = null;
+                _syncLock.unlock();
+                try {
+                    _channel.force(false);
+                } catch (IOException ioe) {
+                    failure = ioe;
+                } finally {
+                    _syncLock.lock();
+                    _syncing = false;
+                    if (failure != null)
+                        _failure = failure;
+                    else if (target > _durable)
+                        _durable = target;
+                    _synced.signalAll();
+                }
+                if (failure != null)
+                    throw failure;
+            }
+        } finally {
+            _syncLock.unlock();
+        }
+    }
+
+    /**
+     * Discard all the records of the journal once their changes are stored
+     * elsewhere. The discarded records count as durable.
+     */
+    public synchronized void truncate()
+        throws IOException {
+        _channel.truncate(0);
+        _channel.position(0);
+        _channel.force(false);
+
+        _syncLock.lock();
+        try {
+            _durable = _appended;
+            _synced.signalAll();
+        } finally {
+            _syncLock.unlock();
+        }
+    }
+
+    /**
+     * Discard the records appended since the journal had the given size,
+     * such as the record of a commit that failed to reach the disk.
+     */
+    public synchronized void truncate(long size)
+        throws IOException {
+        _channel.truncate(size);
+        _channel.position(size);
+    }
+
+    /**
+     * The size of the journal in bytes.
+     */
+    public synchronized long size()
+        throws IOException {
+        return _channel.position();
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException {
+        _channel.close();
+    }
+
+    private static long checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length);
+        return crc.getValue();
+    }
+}
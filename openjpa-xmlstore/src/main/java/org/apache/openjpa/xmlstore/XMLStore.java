@@ -18,30 +18,87 @@
  */
 package org.apache.openjpa.xmlstore;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.lib.log.Log;
 import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.StoreException;
 
 /**
  * Represents a store of object data encoded in XML. This store only allows
- * one datastore transaction to proceed at a time. File I/O errors can put
- * this store into an invalid state.
+ * one datastore transaction to proceed at a time.
+ *
+ * Commits are appended to an {@link XMLJournal} rather than rewriting the
+ * files of the changed classes. The journal is compacted into the files
+ * periodically in the background, when the store is closed, and when it is
+ * opened after a crash. Each class has its own read/write lock, so that
+ * reads proceed while other classes are committed.
+ *
+ * A transaction ends once its record is appended, and the next one begins
+ * while the record waits for a force of the journal that it shares with the
+ * records appended meanwhile. The commits are applied in memory in journal
+ * order once their records are on disk; until then only transactions see
+ * them, through {@link #getTransactionalData}.
+ *
+ * The file of a class is parsed by a background pool on first access to the
+ * class, or for all files when the store is opened if so configured. Parsed
+ * instances are visible to lookups by oid before the rest of the file is
+ * parsed; all other access waits for the file to be parsed.
  */
 public class XMLStore {
 
+    // number of instances parsed between wake ups of waiting lookups
+    private static final int SIGNAL_INTERVAL = 1024;
+
     private final XMLConfiguration _conf;
 
     // each key in the map is a least-derived class metadata object, and each
-    // value is a map of oids to object datas representing the instances of
+    // value holds a map of oids to object datas representing the instances of
     // that class, including subclasses
-    private final Map _metaOidMaps = new HashMap();
+    private final Map<ClassMetaData, Extent> _extents =
+        new ConcurrentHashMap<>();
+
+    // least-derived classes changed since the last compaction
+    private final Set<ClassMetaData> _uncompacted =
+        ConcurrentHashMap.newKeySet();
 
-    // store gets locked during transactions
-    private boolean _locked;
+    // one datastore transaction or compaction at a time; not owned by a
+    // thread, as transactions were always ended by their store manager
+    private final Semaphore _transaction = new Semaphore(1);
+
+    // commits appended to the journal and not applied in memory yet, in
+    // journal order; guarded by itself
+    private final Deque<Commit> _pending = new ArrayDeque<>();
+
+    // failure to force the journal; the pending commits are in doubt, so the
+    // store takes no more transactions
+    private volatile IOException _failure;
+
+    private volatile XMLJournal _journal;
+    private ScheduledExecutorService _compactor;
+    private ExecutorService _loader;
+    private volatile boolean _closed;
 
     /**
      * Constructor; supply configuration.
@@ -53,37 +110,157 @@ public class XMLStore {
     /**
      * Return the data for the given oid, or null if it does not exist.
      */
-    public synchronized ObjectData getData(ClassMetaData meta, Object oid) {
-        meta = getLeastDerived(meta);
-        return (ObjectData) getMap(meta).get(oid);
+    public ObjectData getData(ClassMetaData meta, Object oid) {
+        open();
+        Extent extent = getExtent(getLeastDerived(meta));
+
+        // the oid may be found before the whole file is parsed
+        ObjectData data = extent.awaitLoaded(oid);
+        if (data != null)
+            return data;
+
+        extent.lock.readLock().lock();
+        try {
+            return extent.datas.get(oid);
+        } finally {
+            extent.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the data for the given oid as seen by the current transaction,
+     * including the commits still waiting for their journal record to reach
+     * the disk, or null if it does not exist. Call within a transaction.
+     *
+     * @since 3.2.3
+     */
+    public ObjectData getTransactionalData(ClassMetaData meta, Object oid) {
+        ClassMetaData base = getLeastDerived(meta);
+        synchronized (_pending) {
+            for (Iterator<Commit> itr = _pending.descendingIterator();
+                itr.hasNext();) {
+                Map<Object, ObjectData> changes = itr.next().changes.get(base);
+                if (changes != null && changes.containsKey(oid))
+                    return changes.get(oid);
+            }
+        }
+        // commits leave the queue once applied, so nothing is missed
+        return getData(meta, oid);
     }
 
     /**
      * Return all datas for the base class of the given type.
      */
-    public synchronized ObjectData[] getData(ClassMetaData meta) {
-        meta = getLeastDerived(meta);
-        Collection vals = getMap(meta).values();
-        return (ObjectData[]) vals.toArray(new ObjectData[vals.size()]);
+    public ObjectData[] getData(ClassMetaData meta) {
+        open();
+        Extent extent = lockForRead(getLeastDerived(meta));
+        try {
+            Collection<ObjectData> vals = extent.datas.values();
+            return vals.toArray(new ObjectData[vals.size()]);
+        } finally {
+            extent.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Return the extent of the given least-derived type, loaded and read
+     * locked.
+     */
+    private Extent lockForRead(ClassMetaData meta) {
+        Extent extent = getExtent(meta);
+        extent.awaitLoaded(null);
+        extent.lock.readLock().lock();
+        return extent;
+    }
+
+    /**
+     * Return the extent of the given least-derived type, loaded and write
+     * locked.
+     */
+    private Extent lockForWrite(ClassMetaData meta) {
+        Extent extent = getExtent(meta);
+        extent.awaitLoaded(null);
+        extent.lock.writeLock().lock();
+        return extent;
+    }
+
+    /**
+     * Return the extent of the given least-derived type, starting to load
+     * it on first access.
+     */
+    private Extent getExtent(ClassMetaData meta) {
+        Extent extent = _extents.get(meta);
+        if (extent != null)
+            return extent;
+
+        extent = new Extent();
+        Extent existing = _extents.putIfAbsent(meta, extent);
+        if (existing != null)
+            return existing;
+
+        Extent loading = extent;
+        try {
+            _loader.execute(() -> load(meta, loading, true));
+        } catch (RejectedExecutionException ree) {
+            // closed; load in the current thread
+            load(meta, loading, false);
+        }
+        return extent;
+    }
+
+    /**
+     * Load datas from file into the given extent. A failed extent is
+     * dropped, so that the next access loads it again.
+     *
+     * @param cancel whether to stop loading once the store is closed
+     */
+    private void load(ClassMetaData meta, Extent extent, boolean cancel) {
+        try {
+            int[] count = new int[1];
+            _conf.getFileHandler().load(meta, data -> {
+                extent.datas.put(data.getId(), data);
+                if ((++count[0] % SIGNAL_INTERVAL) == 0) {
+                    if (cancel && _closed)
+                        throw new StoreException("XMLStore closed");
+                    extent.signal();
+                }
+            });
+            extent.done(null);
+        } catch (RuntimeException re) {
+            _extents.remove(meta, extent);
+            extent.done(re);
+        }
     }
 
     /**
-     * Returns the map of oids to object datas for the given least-derived type.
+     * Start loading the files of all the persistent classes in the store
+     * directory.
      */
-    private Map getMap(ClassMetaData meta) {
-        Map m = (Map) _metaOidMaps.get(meta);
-        if (m != null)
-            return m;
+    private void preload() {
+        File[] files = _conf.getFileHandler().getJournalFile().
+            getParentFile().listFiles();
+        if (files == null)
+            return;
 
-        // load datas from file and cache them
-        Collection datas = _conf.getFileHandler().load(meta);
-        m = new HashMap(datas.size());
-        for (Object o : datas) {
-            ObjectData data = (ObjectData) o;
-            m.put(data.getId(), data);
+        ClassLoader loader = _conf.getClassResolverInstance().
+            getClassLoader(getClass(), null);
+        MetaDataRepository repos = _conf.getMetaDataRepositoryInstance();
+        for (File file : files) {
+            String name = file.getName();
+            if (!file.isFile() || name.startsWith(".") || name.endsWith(".tmp"))
+                continue;
+            try {
+                ClassMetaData meta = repos.getMetaData(Class.forName(name,
+                    true, loader), loader, false);
+                if (meta != null && meta.getPCSuperclass() == null)
+                    getExtent(meta);
+            } catch (ClassNotFoundException | RuntimeException e) {
+                // not the file of a persistent class; loaded on access
+                Log log = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+                if (log.isTraceEnabled())
+                    log.trace(file + ": " + e);
+            }
         }
-        _metaOidMaps.put(meta, m);
-        return m;
     }
 
     /**
@@ -98,17 +275,91 @@ public class XMLStore {
     }
 
     /**
-     * Begin a datastore transaction. Obtains an exclusive write lock on the
-     * store.
+     * Open the store: replay and compact the commits left in the journal,
+     * start loading the data files if so configured, and start the
+     * background compaction. Store managers open the store when they are
+     * opened; other access opens it on first use. Does nothing if the store
+     * is already open.
+     *
+     * @since 3.2.3
      */
-    public synchronized void beginTransaction() {
-        // lock store
-        while (_locked)
+    public void open() {
+        if (_journal != null)
+            return;
+        synchronized (this) {
+            if (_journal != null)
+                return;
+            if (_closed)
+                throw new StoreException("XMLStore closed");
+
+            int threads = _conf.getLoadThreads();
+            if (threads <= 0)
+                threads = Runtime.getRuntime().availableProcessors();
+            _loader = Executors.newFixedThreadPool(threads,
+                daemon("OpenJPA XMLStore loader"));
+
+            XMLFileHandler fh = _conf.getFileHandler();
+            XMLJournal journal = null;
             try {
-                wait();
-            } catch (InterruptedException ie) {
+                journal = new XMLJournal(fh.getJournalFile());
+                List<byte[]> records = journal.read();
+                if (!records.isEmpty()) {
+                    for (byte[] record : records) {
+                        List<ObjectData> updates = new ArrayList<>();
+                        List<ObjectData> deletes = new ArrayList<>();
+                        fh.fromRecord(record, updates, deletes);
+                        apply(new Commit(0, updates, deletes));
+                    }
+                    store();
+                    journal.truncate();
+                }
+            } catch (IOException ioe) {
+                close(journal);
+                _loader.shutdown();
+                throw new StoreException(ioe);
+            } catch (RuntimeException re) {
+                close(journal);
+                _loader.shutdown();
+                throw re;
+            }
+            if (_conf.getPreloadData())
+                preload();
+
+            int interval = _conf.getCompactionInterval();
+            if (interval > 0) {
+                _compactor = Executors.newSingleThreadScheduledExecutor(
+                    daemon("OpenJPA XMLStore compactor"));
+                _compactor.scheduleWithFixedDelay(this::compactInBackground,
+                    interval, interval, TimeUnit.MILLISECONDS);
             }
-        _locked = true;
+            _journal = journal;
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Begin a datastore transaction. Obtains an exclusive write lock on the
+     * store.
+     */
+    public void beginTransaction() {
+        open();
+        _transaction.acquireUninterruptibly();
+        if (_failure != null) {
+            _transaction.release();
+            throw failed();
+        }
+    }
+
+    private StoreException failed() {
+        return (StoreException) new StoreException("XMLStore failed to "
+            + "force its journal", _failure).setFatal(true);
     }
 
     /**
@@ -117,40 +368,319 @@ public class XMLStore {
      * @param updates {@link ObjectData} instances to insert or update
      * @param deletes {@link ObjectData} instances to delete
      */
-    public synchronized void endTransaction(Collection<ObjectData> updates,
-                                            Collection<ObjectData> deletes) {
-        // track dirty types
-        Set dirty = new HashSet();
+    public void endTransaction(Collection<ObjectData> updates,
+                               Collection<ObjectData> deletes) {
+        boolean empty = (updates == null || updates.isEmpty())
+            && (deletes == null || deletes.isEmpty());
+        XMLJournal journal = null;
+        Commit commit = null;
         try {
-            // commit updates
-            if (updates != null) {
-                for (ObjectData data : updates) {
-                    ClassMetaData meta = getLeastDerived(data.getMetaData());
-                    getMap(meta).put(data.getId(), data);
-                    dirty.add(meta);
+            if (!empty) {
+                // make sure the changed extents are loaded before the commit
+                // is journaled
+                for (ObjectData data : concat(updates, deletes))
+                    getData(data.getMetaData(), data.getId());
+                journal = getJournal();
+                commit = new Commit(journal.append(_conf.getFileHandler().
+                    toRecord(updates, deletes)), updates, deletes);
+                synchronized (_pending) {
+                    _pending.add(commit);
                 }
             }
+        } catch (IOException ioe) {
+            throw new StoreException(ioe);
+        } finally {
+            // unlock store; the next transaction appends its record while
+            // this one waits for the disk
+            _transaction.release();
+        }
+        if (commit == null)
+            return;
 
-            // commit deletes
-            if (deletes != null) {
-                for (ObjectData data : deletes) {
-                    ClassMetaData meta = getLeastDerived(data.getMetaData());
-                    getMap(meta).remove(data.getId());
-                    dirty.add(meta);
+        // only apply the commit in memory once its record is on disk, so
+        // that no reader sees a commit that is lost
+        if (_conf.getJournalSync()) {
+            try {
+                journal.sync(commit.seq);
+            } catch (IOException ioe) {
+                _failure = ioe;
+                synchronized (_pending) {
+                    _pending.notifyAll();
                 }
+                throw failed();
             }
+        }
+        publish(commit.seq);
+    }
 
-            // write changes to dirty extents back to file
-            XMLFileHandler fh = _conf.getFileHandler();
-            for (Object o : dirty) {
-                ClassMetaData meta = (ClassMetaData) o;
-                fh.store(meta, getMap(meta).values());
+    /**
+     * Apply the pending commits up to the one with the given sequence number
+     * in journal order; their records are on disk.
+     */
+    private void publish(long seq) {
+        synchronized (_pending) {
+            for (Commit commit = _pending.peek();
+                commit != null && commit.seq <= seq;
+                commit = _pending.peek()) {
+                // apply before dequeuing, so that transactional lookups
+                // always find the commit
+                apply(commit);
+                _pending.poll();
+            }
+            _pending.notifyAll();
+        }
+    }
+
+    /**
+     * Wait until all the pending commits are applied in memory.
+     */
+    private void awaitPublished() {
+        boolean interrupted = false;
+        try {
+            synchronized (_pending) {
+                while (!_pending.isEmpty()) {
+                    if (_failure != null)
+                        throw failed();
+                    try {
+                        _pending.wait();
+                    } catch (InterruptedException ie) {
+                        interrupted = true;
+                    }
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Apply the given commit to the in-memory extents, locking each changed
+     * extent once.
+     */
+    private void apply(Commit commit) {
+        for (Map.Entry<ClassMetaData, Map<Object, ObjectData>> entry
+            : commit.changes.entrySet()) {
+            Extent extent = lockForWrite(entry.getKey());
+            try {
+                for (Map.Entry<Object, ObjectData> change
+                    : entry.getValue().entrySet()) {
+                    if (change.getValue() == null)
+                        extent.datas.remove(change.getKey());
+                    else
+                        extent.datas.put(change.getKey(), change.getValue());
+                }
+            } finally {
+                extent.lock.writeLock().unlock();
+            }
+            _uncompacted.add(entry.getKey());
+        }
+    }
+
+    private static List<ObjectData> concat(Collection<ObjectData> c1,
+        Collection<ObjectData> c2) {
+        List<ObjectData> all = new ArrayList<>();
+        if (c1 != null)
+            all.addAll(c1);
+        if (c2 != null)
+            all.addAll(c2);
+        return all;
+    }
+
+    /**
+     * Write the extents changed since the last compaction back to file,
+     * and empty the journal. Waits for the current transaction to end, and
+     * for the commits waiting for the disk to be applied.
+     */
+    public void compact() {
+        open();
+        _transaction.acquireUninterruptibly();
+        try {
+            // the journal holds the only copy of the pending commits
+            awaitPublished();
+            if (_failure != null)
+                throw failed();
+            if (_uncompacted.isEmpty())
+                return;
+            XMLJournal journal = getJournal();
+            store();
+            journal.truncate();
+        } catch (IOException ioe) {
+            throw new StoreException(ioe);
+        } finally {
+            _transaction.release();
+        }
+    }
+
+    /**
+     * Return the journal of the open store. Call within a transaction or
+     * compaction, which the store waits for before it is closed.
+     */
+    private XMLJournal getJournal() {
+        XMLJournal journal = _journal;
+        if (journal == null)
+            throw new StoreException("XMLStore closed");
+        return journal;
+    }
+
+    private void compactInBackground() {
+        try {
+            compact();
+        } catch (RuntimeException re) {
+            // keep compacting; the journal still holds the changes
+            Log log = _conf.getLog(OpenJPAConfiguration.LOG_RUNTIME);
+            if (log.isWarnEnabled())
+                log.warn(re.getMessage(), re);
+        }
+    }
+
+    /**
+     * Write the extents changed since the last compaction back to file.
+     */
+    private void store() {
+        XMLFileHandler fh = _conf.getFileHandler();
+        for (ClassMetaData meta : new ArrayList<>(_uncompacted)) {
+            Collection<ObjectData> datas;
+            Extent extent = lockForRead(meta);
+            try {
+                datas = new ArrayList<>(extent.datas.values());
+            } finally {
+                extent.lock.readLock().unlock();
             }
+            fh.store(meta, datas);
+            _uncompacted.remove(meta);
         }
-        finally {
-            // unlock store
-            notify();
-            _locked = false;
+    }
+
+    /**
+     * Stop the background compaction, compact the journal and close it.
+     * The store cannot be used once closed.
+     *
+     * @since 3.2.3
+     */
+    public void close() {
+        XMLJournal journal;
+        synchronized (this) {
+            journal = _journal;
+            if (journal == null)
+                return;
+            if (_compactor != null)
+                _compactor.shutdownNow();
+            _closed = true;
+        }
+        _loader.shutdown();
+        try {
+            compact();
+        } finally {
+            synchronized (this) {
+                _journal = null;
+            }
+            close(journal);
+        }
+    }
+
+    private static void close(XMLJournal journal) {
+        if (journal == null)
+            return;
+        try {
+            journal.close();
+        } catch (IOException ioe) {
+        }
+    }
+
+    /**
+     * The changes of a commit, by least-derived type.
+     */
+    private static class Commit {
+
+        // sequence number of the journal record
+        private final long seq;
+
+        // oids of the changed instances by least-derived type, mapped to
+        // their new data, or to null if deleted
+        private final Map<ClassMetaData, Map<Object, ObjectData>> changes =
+            new LinkedHashMap<>();
+
+        Commit(long seq, Collection<ObjectData> updates,
+            Collection<ObjectData> deletes) {
+            this.seq = seq;
+            if (updates != null)
+                for (ObjectData data : updates)
+                    change(data).put(data.getId(), data);
+            if (deletes != null)
+                for (ObjectData data : deletes)
+                    change(data).put(data.getId(), null);
+        }
+
+        private Map<Object, ObjectData> change(ObjectData data) {
+            return changes.computeIfAbsent(getLeastDerived(data.
+                getMetaData()), m -> new LinkedHashMap<>());
+        }
+    }
+
+    /**
+     * The instances of a least-derived class and their lock.
+     */
+    private static class Extent {
+
+        private final ReentrantReadWriteLock lock =
+            new ReentrantReadWriteLock();
+        private final Map<Object, ObjectData> datas =
+            new ConcurrentHashMap<>();
+
+        // load state
+        private volatile boolean loaded;
+        private RuntimeException failure;
+
+        /**
+         * Wait until the file of the class is parsed. If an oid is given,
+         * return its data as soon as it is parsed.
+         *
+         * @return the data of the given oid if found while loading
+         */
+        ObjectData awaitLoaded(Object oid) {
+            if (loaded && failure == null)
+                return null;
+
+            boolean interrupted = false;
+            try {
+                synchronized (this) {
+                    while (!loaded) {
+                        if (oid != null) {
+                            ObjectData data = datas.get(oid);
+                            if (data != null)
+                                return data;
+                        }
+                        try {
+                            wait();
+                        } catch (InterruptedException ie) {
+                            interrupted = true;
+                        }
+                    }
+                    if (failure != null)
+                        throw new StoreException(failure);
+                    return null;
+                }
+            } finally {
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Wake up the lookups waiting for instances being parsed.
+         */
+        synchronized void signal() {
+            notifyAll();
+        }
+
+        /**
+         * Record the end of the load, with the given failure if any.
+         */
+        synchronized void done(RuntimeException failure) {
+            this.failure = failure;
+            loaded = true;
+            notifyAll();
         }
     }
 }
@@ -79,6 +79,10 @@ public class XMLStoreManager
         // cache operational state
         _conf = (XMLConfiguration) ctx.getConfiguration();
         _store = _conf.getStore();
+
+        // replay the journal and start loading the data files before the
+        // first access
+        _store.open();
     }
 
     @Override
@@ -208,7 +212,8 @@ public class XMLStoreManager
         // track optimistic violations
         Collection exceps = new LinkedList();
 
-        // convert instances to ObjectDatas
+        // convert instances to ObjectDatas, checking them against the
+        // commits that are still waiting for the disk too
         _updates = new ArrayList<>(pNew.size() + pDirty.size());
         _deletes = new ArrayList<>(pDeleted.size());
 
@@ -216,7 +221,8 @@ public class XMLStoreManager
         for (OpenJPAStateManager sm : pNew) {
             // create new object data for instance
             Object oid = sm.getObjectId();
-            ObjectData data = _store.getData(sm.getMetaData(), oid);
+            ObjectData data = _store.getTransactionalData(sm.getMetaData(),
+                oid);
             if (data != null)
                 throw new StoreException("Attempt to insert "
                         + "new object " + sm.getManagedInstance()
@@ -231,7 +237,7 @@ public class XMLStoreManager
 
         // convert updates
         for (OpenJPAStateManager sm : pDirty) {
-            ObjectData data = _store.getData(sm.getMetaData(),
+            ObjectData data = _store.getTransactionalData(sm.getMetaData(),
                     sm.getObjectId());
 
             // if data has been deleted or has the wrong version, record
@@ -251,7 +257,7 @@ public class XMLStoreManager
 
         // convert deletes
         for (OpenJPAStateManager sm : pDeleted) {
-            ObjectData data = _store.getData(sm.getMetaData(),
+            ObjectData data = _store.getTransactionalData(sm.getMetaData(),
                     sm.getObjectId());
 
             // record delete
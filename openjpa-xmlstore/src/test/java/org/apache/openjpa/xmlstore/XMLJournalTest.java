@@ -0,0 +1,169 @@
+package org.apache.openjpa.xmlstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XMLJournalTest {
+
+    private File _dir;
+    private File _file;
+    private XMLJournal _journal;
+
+    @Before
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("xmljournal").toFile();
+        _file = new File(_dir, ".journal");
+        _journal = new XMLJournal(_file);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        _journal.close();
+        for (File file : _dir.listFiles())
+            file.delete();
+        _dir.delete();
+    }
+
+    private static byte[] record(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> strings(List<byte[]> records) {
+        List<String> strings = new ArrayList<>();
+        for (byte[] record : records)
+            strings.add(new String(record, StandardCharsets.UTF_8));
+        return strings;
+    }
+
+    private List<String> reopen() throws IOException {
+        _journal.close();
+        _journal = new XMLJournal(_file);
+        return strings(_journal.read());
+    }
+
+    @Test
+    public void recordsAreReadBackInOrder() throws IOException {
+        _journal.read();
+        _journal.append(record("one"));
+        _journal.sync(_journal.append(record("two")));
+        Assert.assertEquals(Arrays.asList("one", "two"), reopen());
+    }
+
+    @Test
+    public void tornTrailingRecordIsDiscarded() throws IOException {
+        _journal.read();
+        _journal.append(record("one"));
+        long size = _journal.size();
+        _journal.append(record("two"));
+        _journal.close();
+
+        // crash in the middle of writing the second record
+        try (RandomAccessFile raf = new RandomAccessFile(_file, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        Assert.assertEquals(Arrays.asList("one"), reopen());
+        Assert.assertEquals(size, _file.length());
+
+        // appending resumes after the last complete record
+        _journal.append(record("three"));
+        Assert.assertEquals(Arrays.asList("one", "three"), reopen());
+    }
+
+    @Test
+    public void recordWithBadChecksumEndsJournal() throws IOException {
+        _journal.read();
+        _journal.append(record("one"));
+        long size = _journal.size();
+        _journal.append(record("two"));
+        _journal.append(record("three"));
+        _journal.close();
+
+        // corrupt the payload of the second record
+        try (RandomAccessFile raf = new RandomAccessFile(_file, "rw")) {
+            raf.seek(size + 4);
+            raf.write('T');
+        }
+        Assert.assertEquals(Arrays.asList("one"), reopen());
+        Assert.assertEquals(size, _file.length());
+    }
+
+    @Test
+    public void truncateDiscardsLaterRecords() throws IOException {
+        _journal.read();
+        _journal.append(record("one"));
+        long size = _journal.size();
+        _journal.append(record("two"));
+        _journal.truncate(size);
+        _journal.append(record("three"));
+        Assert.assertEquals(Arrays.asList("one", "three"), reopen());
+
+        _journal.truncate();
+        Assert.assertEquals(0, _journal.size());
+        Assert.assertEquals(Collections.emptyList(), reopen());
+    }
+
+    @Test
+    public void concurrentCommittersShareSync() throws Exception {
+        _journal.read();
+        int threads = 8;
+        int commits = 50;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    barrier.await();
+                    for (int i = 0; i < commits; i++)
+                        _journal.sync(_journal.append(
+                            record(thread + ":" + i)));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(30, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // every record is complete and the records of each thread are in
+        // commit order
+        List<String> records = reopen();
+        Assert.assertEquals(threads * commits, records.size());
+        int[] next = new int[threads];
+        for (String record : records) {
+            int sep = record.indexOf(':');
+            int thread = Integer.parseInt(record.substring(0, sep));
+            Assert.assertEquals(next[thread]++,
+                Integer.parseInt(record.substring(sep + 1)));
+        }
+    }
+
+    @Test
+    public void syncOfDiscardedRecordsReturns() throws IOException {
+        _journal.read();
+        long seq = _journal.append(record("one"));
+        _journal.truncate();
+        _journal.sync(seq);
+        _journal.sync(_journal.append(record("two")));
+        Assert.assertEquals(Arrays.asList("two"), reopen());
+    }
+}
@@ -0,0 +1,264 @@
+package org.apache.openjpa.xmlstore;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.meta.NoneMetaDataFactory;
+import org.apache.openjpa.util.Id;
+import org.apache.openjpa.util.StoreException;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class XMLStoreTest {
+
+    public static class Item {
+        private String name;
+    }
+
+    private File _dir;
+    private XMLConfiguration _conf;
+    private ClassMetaData _meta;
+
+    @Before
+    public void setUp() throws IOException {
+        _dir = Files.createTempDirectory("xmlstore").toFile();
+        _conf = new XMLConfiguration();
+        _conf.setConnectionURL(_dir.getPath());
+        _conf.setCompactionInterval(0);
+        MetaDataRepository repos = new MetaDataRepository();
+        repos.setConfiguration(_conf);
+        repos.setMetaDataFactory(new NoneMetaDataFactory());
+        _conf.setMetaDataRepository(repos);
+
+        _meta = repos.addMetaData(Item.class);
+        _meta.addDeclaredField("name", String.class);
+        repos.getMetaData(Item.class, null, true);
+    }
+
+    @After
+    public void tearDown() {
+        _conf.close();
+        for (File file : _dir.listFiles())
+            file.delete();
+        _dir.delete();
+    }
+
+    private ObjectData data(long id, String name) {
+        ObjectData data = new ObjectData(new Id(Item.class, id), _meta);
+        data.setField(_meta.getField("name").getIndex(), name);
+        data.setVersion(1L);
+        return data;
+    }
+
+    private void commit(XMLStore store, ObjectData... updates) {
+        store.beginTransaction();
+        store.endTransaction(Arrays.asList(updates), null);
+    }
+
+    private Map<Long, String> contents(XMLStore store) {
+        Map<Long, String> contents = new TreeMap<>();
+        int name = _meta.getField("name").getIndex();
+        for (ObjectData data : store.getData(_meta))
+            contents.put(((Id) data.getId()).getId(),
+                (String) data.getField(name));
+        return contents;
+    }
+
+    /**
+     * Journal the given commits as a store that did not compact them
+     * before it stopped.
+     */
+    private void journal(ObjectData[]... commits) throws IOException {
+        XMLFileHandler fh = _conf.getFileHandler();
+        try (XMLJournal journal = new XMLJournal(fh.getJournalFile())) {
+            for (ObjectData[] commit : commits)
+                journal.append(fh.toRecord(Arrays.asList(commit), null));
+        }
+    }
+
+    @Test
+    public void commitsAreReplayedAfterUncleanClose() throws IOException {
+        XMLStore store = new XMLStore(_conf);
+        commit(store, data(1, "a"));
+        store.close();
+
+        journal(new ObjectData[]{ data(2, "b") },
+            new ObjectData[]{ data(1, "c"), data(3, "d") });
+        store = new XMLStore(_conf);
+        try {
+            Map<Long, String> expected = new TreeMap<>();
+            expected.put(1L, "c");
+            expected.put(2L, "b");
+            expected.put(3L, "d");
+            Assert.assertEquals(expected, contents(store));
+
+            // the replayed commits are compacted into the file of the class
+            File journal = _conf.getFileHandler().getJournalFile();
+            Assert.assertEquals(0, journal.length());
+            Assert.assertTrue(new File(_dir, Item.class.getName()).length()
+                > 0);
+        } finally {
+            store.close();
+        }
+        store = new XMLStore(_conf);
+        try {
+            Assert.assertEquals(3, contents(store).size());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void openReplaysJournalBeforeFirstAccess() throws IOException {
+        journal(new ObjectData[]{ data(1, "a") });
+        XMLStore store = new XMLStore(_conf);
+        try {
+            store.open();
+            Assert.assertEquals(0,
+                _conf.getFileHandler().getJournalFile().length());
+            Assert.assertTrue(new File(_dir, Item.class.getName()).exists());
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void tornCommitIsNotReplayed() throws IOException {
+        journal(new ObjectData[]{ data(1, "a") },
+            new ObjectData[]{ data(2, "b") });
+        File file = _conf.getFileHandler().getJournalFile();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+
+        XMLStore store = new XMLStore(_conf);
+        try {
+            Assert.assertEquals(Collections.singletonMap(1L, "a"),
+                contents(store));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void compactionRacingCommitsLosesNothing() throws Exception {
+        int commits = 200;
+        XMLStore store = new XMLStore(_conf);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            AtomicBoolean done = new AtomicBoolean();
+            Future<?> committer = pool.submit(() -> {
+                try {
+                    for (int i = 0; i < commits; i++)
+                        commit(store, data(i, "item" + i));
+                } finally {
+                    done.set(true);
+                }
+            });
+            Future<?> compactor = pool.submit(() -> {
+                while (!done.get())
+                    store.compact();
+            });
+            committer.get(60, TimeUnit.SECONDS);
+            compactor.get(60, TimeUnit.SECONDS);
+
+            // read the files and the journal back as after a crash
+            XMLStore reopened = new XMLStore(_conf);
+            try {
+                Map<Long, String> contents = contents(reopened);
+                Assert.assertEquals(commits, contents.size());
+                for (int i = 0; i < commits; i++)
+                    Assert.assertEquals("item" + i, contents.get((long) i));
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            pool.shutdownNow();
+            store.close();
+        }
+    }
+
+    @Test
+    public void transactionsSeeCommitsAwaitingSync() throws Exception {
+        int threads = 8;
+        int commits = 50;
+        XMLStore store = new XMLStore(_conf);
+        commit(store, data(1, "0"));
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            // each transaction increments the count committed by the last
+            // one, which may still be waiting for the journal force
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    barrier.await();
+                    for (int i = 0; i < commits; i++) {
+                        store.beginTransaction();
+                        ObjectData data = store.getTransactionalData(_meta,
+                            new Id(Item.class, 1));
+                        int count = Integer.parseInt((String) data.getField(
+                            _meta.getField("name").getIndex()));
+                        store.endTransaction(Collections.singleton(
+                            data(1, String.valueOf(count + 1))), null);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get(60, TimeUnit.SECONDS);
+
+            String count = String.valueOf(threads * commits);
+            Assert.assertEquals(Collections.singletonMap(1L, count),
+                contents(store));
+
+            // read the journal back as after a crash
+            XMLStore reopened = new XMLStore(_conf);
+            try {
+                Assert.assertEquals(Collections.singletonMap(1L, count),
+                    contents(reopened));
+            } finally {
+                reopened.close();
+            }
+        } finally {
+            pool.shutdownNow();
+            store.close();
+        }
+    }
+
+    @Test
+    public void closedStoreCannotBeUsed() {
+        XMLStore store = new XMLStore(_conf);
+        commit(store, data(1, "a"));
+        store.close();
+        store.close();
+        try {
+            store.getData(_meta);
+            Assert.fail("Expected closed store");
+        } catch (StoreException se) {
+        }
+        try {
+            store.beginTransaction();
+            Assert.fail("Expected closed store");
+        } catch (StoreException se) {
+        }
+    }
+}